@@ -37,7 +37,7 @@ public class FileNames
 	/** Log folder */
 	public final static String FO_LOG = "log";
 	/** Output folder */
-	public static String FO_OUTPUT = "out";
+	public static volatile String FO_OUTPUT = "out";
 	/** Resources folder */
 	public final static String FO_RESOURCES = "res";
 		/** Folder used to store various data */
@@ -86,4 +86,6 @@ public class FileNames
 	public final static String FI_KEY_LIST = "keys" + FileNames.EX_XML;
 	/** XML schema of the file used to store keys */
 	public final static String FI_KEY_SCHEMA = "keys" + FileNames.EX_SCHEMA;
+	/** Regression corpus used to check the text cleaning methods */
+	public final static String FI_CLEAN_TEXT_CORPUS = "clean_text_corpus" + FileNames.EX_TEXT;
 }
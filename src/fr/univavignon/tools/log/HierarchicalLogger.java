@@ -23,15 +23,15 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.ConsoleHandler;
 import java.util.logging.FileHandler;
 import java.util.logging.Handler;
 import java.util.logging.Level;
+import java.util.logging.LogRecord;
 import java.util.logging.Logger;
 
 import fr.univavignon.tools.file.FileNames;
@@ -52,8 +52,20 @@ import fr.univavignon.tools.time.TimeFormatting;
  * where {@code method1} calls {@code method2}
  * and {@code method4}, and {@code method2} 
  * calls {@code method3}.
+ * <br/>
+ * Each message has a {@link LogLevel}, and the messages whose level is
+ * lower than the level of the logger are rejected right away. Callers
+ * building costly messages should check {@link #isLoggable(LogLevel)} first.
+ * <br/>
+ * By default, the messages are written by the calling thread. Optionally,
+ * they can be formatted and written by a background thread instead (see
+ * {@link #setAsynchronous(boolean)}), so that the calling thread does not
+ * wait for the console or file outputs. The number of pending messages
+ * is bounded: when it is reached, the logging threads wait for the 
+ * background thread. The pending messages are written when the JVM 
+ * shuts down.
  * 
- * @version 1.2
+ * @version 1.3
  * @author Vincent Labatut
  */
 public class HierarchicalLogger
@@ -73,7 +85,7 @@ public class HierarchicalLogger
 	// ACTIVE		/////////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
 	/** Indicates whether or not this logger should log messages */
-	private boolean enabled = true;
+	private volatile boolean enabled = true;
 
 	/**
 	 * Disable/enable this logger.
@@ -87,6 +99,49 @@ public class HierarchicalLogger
 	{	this.enabled = enabled;
 	}
 	
+    /////////////////////////////////////////////////////////////////
+	// LEVEL		/////////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Minimal level of the messages logged by this logger */
+	private volatile LogLevel level = LogLevel.INFO;
+	
+	/**
+	 * Changes the minimal level of the messages
+	 * logged by this logger. The other messages
+	 * are ignored.
+	 * 
+	 * @param level
+	 * 		New minimal level.
+	 */
+	public void setLevel(LogLevel level)
+	{	this.level = level;
+	}
+	
+	/**
+	 * Returns the minimal level of the messages
+	 * logged by this logger.
+	 * 
+	 * @return
+	 * 		Current minimal level.
+	 */
+	public LogLevel getLevel()
+	{	return level;
+	}
+	
+	/**
+	 * Indicates whether a message of the specified level would
+	 * currently be logged. This allows avoiding to build messages
+	 * which are costly to produce, when they would be ignored anyway.
+	 * 
+	 * @param level
+	 * 		Level of the message.
+	 * @return
+	 * 		{@code true} iff such a message would be logged.
+	 */
+	public boolean isLoggable(LogLevel level)
+	{	boolean result = enabled && level.compareTo(this.level)>=0;
+		return result;
+	}
 	
     /////////////////////////////////////////////////////////////////
 	// NAME			/////////////////////////////////////////////////
@@ -110,7 +165,9 @@ public class HierarchicalLogger
 	/** Number of threads managed since the begining of the logging */
 	private int count = 0;
     /** Classic loggers used by this hierarchical logger */
-	private final Map<Long,Logger> loggerMap = new HashMap<Long, Logger>();
+	private final List<Logger> loggers = new ArrayList<Logger>();
+	/** Classic logger assigned to the current thread */
+	private final ThreadLocal<Logger> threadLogger = new ThreadLocal<Logger>();
 	
 	/**
 	 * Retrieves or builds a basic logger
@@ -119,53 +176,64 @@ public class HierarchicalLogger
 	 * @return
 	 * 		A logger assigned to the current thread.
 	 */
-	private synchronized Logger getLogger()
-	{	Thread thread = Thread.currentThread();
-		long id = thread.getId();
-		Logger result = loggerMap.get(id);
+	private Logger getLogger()
+	{	Logger result = threadLogger.get();
 		if(result==null)
-		{	try
-			{	String loggerName = name + "." + count;
-				thread.setName("Thread#"+count);
-				// console handler
-				ConsoleHandler ch = new ConsoleHandler();
-				ch.setLevel(Level.ALL);
-				HierarchicalFormatter formatter = new HierarchicalFormatter(10000,count);
-				ch.setFormatter(formatter);
-				
-				// file handler
-				String filename = FileNames.FO_LOG + File.separator 
-					+ TimeFormatting.formatCurrentFileTime() + "."
-					+  loggerName + "." 
-					+ "%g"								// replaced by the file number during runtime
-					+ LOG_EXTENSION;
-				int size = 1024*1024*10;
-				FileHandler fh = new FileHandler(filename,size,100);
-				fh.setLevel(Level.ALL);
-				fh.setEncoding("UTF-8");
-				formatter = new HierarchicalFormatter(0,count);
-				fh.setFormatter(formatter);
-				
-				// logger
-				result = Logger.getLogger(loggerName);
-				result.setLevel(Level.ALL);
-				result.addHandler(ch);
-				result.addHandler(fh);
-				result.setUseParentHandlers(false);
-				
-				loggerMap.put(id,result);
-				offsetMapLock.lock();
-					offsetMap.put(id,0);
-				offsetMapLock.unlock();
-				count++;
-			}
-			catch(SecurityException e)
-			{	e.printStackTrace();
-			}
-			catch (IOException e)
-			{	e.printStackTrace();
-			}
+		{	result = createLogger();
+			threadLogger.set(result);
+		}
+		return result;
+	}
+	
+	/**
+	 * Builds a basic logger in order
+	 * to handle internally the current thread.
+	 * 
+	 * @return
+	 * 		A new logger assigned to the current thread.
+	 */
+	private synchronized Logger createLogger()
+	{	Thread thread = Thread.currentThread();
+		Logger result = null;
+		try
+		{	String loggerName = name + "." + count;
+			thread.setName("Thread#"+count);
+			// console handler
+			ConsoleHandler ch = new ConsoleHandler();
+			ch.setLevel(Level.ALL);
+			HierarchicalFormatter formatter = new HierarchicalFormatter(10000,count);
+			ch.setFormatter(formatter);
+			
+			// file handler
+			String filename = FileNames.FO_LOG + File.separator 
+				+ TimeFormatting.formatCurrentFileTime() + "."
+				+  loggerName + "." 
+				+ "%g"								// replaced by the file number during runtime
+				+ LOG_EXTENSION;
+			int size = 1024*1024*10;
+			FileHandler fh = new FileHandler(filename,size,100);
+			fh.setLevel(Level.ALL);
+			fh.setEncoding("UTF-8");
+			formatter = new HierarchicalFormatter(0,count);
+			fh.setFormatter(formatter);
+			
+			// logger
+			result = Logger.getLogger(loggerName);
+			result.setLevel(Level.ALL);
+			result.addHandler(ch);
+			result.addHandler(fh);
+			result.setUseParentHandlers(false);
+			
+			loggers.add(result);
+			count++;
+		}
+		catch(SecurityException e)
+		{	e.printStackTrace();
+		}
+		catch (IOException e)
+		{	e.printStackTrace();
 		}
+		
 		return result;
 	}
 	
@@ -179,7 +247,8 @@ public class HierarchicalLogger
 	 * Closes all existing loggers.
 	 */
 	public synchronized void close()
-	{	for(Logger logger: loggerMap.values())
+	{	flush();
+		for(Logger logger: loggers)
 		{	Handler[] handlers = logger.getHandlers();
 			for(Handler handler: handlers)
 			{	if(handler instanceof FileHandler)
@@ -191,23 +260,20 @@ public class HierarchicalLogger
     /////////////////////////////////////////////////////////////////
 	// OFFSET		/////////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
-    /** Offsets used to represent the current levels in the method calls hierarchies */
-	private final Map<Long,Integer> offsetMap = new HashMap<Long, Integer>();
-	/** corresponding lock */
-	private final Lock offsetMapLock = new ReentrantLock();
+    /** Offsets used to represent the current levels in the method calls hierarchies (one for each thread) */
+	private final ThreadLocal<int[]> offsets = new ThreadLocal<int[]>()
+	{	@Override
+		protected int[] initialValue()
+		{	return new int[1];
+		}
+	};
+	
     /**
      * Increases the current offset
      * of this logger.
     */
     public void increaseOffset()
-    {	long id = Thread.currentThread().getId();
-		offsetMapLock.lock();
-    		Integer offset = offsetMap.get(id);
-    		if(offset==null)
-    			offset = 0;
-    		offset++;
-    		offsetMap.put(id,offset);
-    	offsetMapLock.unlock();
+    {	offsets.get()[0]++;
     }
     
     /**
@@ -215,14 +281,7 @@ public class HierarchicalLogger
      * of this logger.
      */
     public void decreaseOffset()
-    {	long id = Thread.currentThread().getId();
-		offsetMapLock.lock();
-			Integer offset = offsetMap.get(id);
-			if(offset==null)
-				offset = 0;
-			offset--;
-			offsetMap.put(id,offset);
-		offsetMapLock.unlock();
+    {	offsets.get()[0]--;
 	}
     
     /**
@@ -233,41 +292,230 @@ public class HierarchicalLogger
      * 		The offset of the current thread.
      */
     public int getOffset()
-    {	long id = Thread.currentThread().getId();
-		offsetMapLock.lock();
-		int result = offsetMap.get(id);
-		offsetMapLock.unlock();
+    {	int result = offsets.get()[0];
 		return result;
 	}
     
+	/////////////////////////////////////////////////////////////////
+	// WRITER		/////////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Whether the messages are written by a background thread ({@code true}) or by the calling thread ({@code false}) */
+	private volatile boolean asynchronous = false;
+	/** Maximal number of messages waiting to be written by the background thread */
+	private static final int QUEUE_CAPACITY = 10000;
+	/** Messages waiting to be written by the background thread */
+	private final BlockingQueue<PendingRecord> queue = new ArrayBlockingQueue<PendingRecord>(QUEUE_CAPACITY);
+	/** Background thread in charge of writing the messages */
+	private volatile Thread writer = null;
+	/** Number of messages handed to the background thread so far */
+	private final AtomicLong submittedNbr = new AtomicLong(0);
+	/** Number of messages written by the background thread so far */
+	private long writtenNbr = 0;
+	/** Lock used to wait for the background thread to write the pending messages */
+	private final Object flushLock = new Object();
+	
+	/**
+	 * Message waiting to be written by the
+	 * background thread.
+	 */
+	private static class PendingRecord
+	{	/**
+		 * Builds a new pending message.
+		 * 
+		 * @param logger
+		 * 		Logger of the thread which produced the message.
+		 * @param record
+		 * 		The message itself.
+		 */
+		public PendingRecord(Logger logger, LogRecord record)
+		{	this.logger = logger;
+			this.record = record;
+		}
+		
+		/** Logger of the thread which produced the message */
+		public final Logger logger;
+		/** The message itself */
+		public final LogRecord record;
+	}
+	
+	/**
+	 * Changes the way messages are written: by a background thread
+	 * ({@code true}), or directly by the thread logging them ({@code false},
+	 * the default).
+	 * 
+	 * @param asynchronous
+	 * 		{@code true} to use a background thread.
+	 */
+	public void setAsynchronous(boolean asynchronous)
+	{	this.asynchronous = asynchronous;
+		if(!asynchronous)
+			flush();
+	}
+	
+	/**
+	 * Starts the background thread, if it is not already running. A shutdown
+	 * hook is also registered, in order to write the pending messages when 
+	 * the JVM terminates.
+	 */
+	private synchronized void startWriter()
+	{	if(writer==null)
+		{	Thread thread = new Thread("HierarchicalLogger-writer")
+			{	@Override
+				public void run()
+				{	writeRecords();
+				}
+			};
+			thread.setDaemon(true);
+			thread.start();
+			writer = thread;
+			
+			Runtime.getRuntime().addShutdownHook(new Thread()
+			{	@Override
+				public void run()
+				{	flush();
+				}
+			});
+		}
+	}
+	
+	/**
+	 * Method executed by the background thread: it 
+	 * writes the pending messages, in the order they 
+	 * were logged.
+	 */
+	private void writeRecords()
+	{	try
+		{	while(true)
+			{	PendingRecord pending = queue.take();
+				try
+				{	pending.logger.log(pending.record);
+				}
+				catch(RuntimeException e)
+				{	e.printStackTrace();
+				}
+				synchronized(flushLock)
+				{	writtenNbr++;
+					flushLock.notifyAll();
+				}
+			}
+		}
+		catch(InterruptedException e)
+		{	// nothing to do, the thread just stops
+		}
+	}
+	
+	/**
+	 * Waits until all the messages logged so far
+	 * have been written by the background thread.
+	 */
+	public void flush()
+	{	long target = submittedNbr.get();
+		boolean interrupted = false;
+		synchronized(flushLock)
+		{	while(writtenNbr<target && writer!=null && writer.isAlive())
+			{	try
+				{	flushLock.wait(100);
+				}
+				catch(InterruptedException e)
+				{	interrupted = true;
+				}
+			}
+		}
+		if(interrupted)
+			Thread.currentThread().interrupt();
+	}
+	
 	/////////////////////////////////////////////////////////////////
 	// LOGGING		/////////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
     /**
-     * Logs a new message.
+     * Logs a new message, with the {@link LogLevel#INFO} level.
      * 
      * @param msg 
      * 		The message to be logged.
      */
     public void log(String msg)
-    {	List<String> msgs = new ArrayList<String>();
-    	msgs.add(msg);
-    	log(msgs);
+    {	log(LogLevel.INFO,msg);
     }
 
     /**
-     * Logs a collection of new messages.
+     * Logs a collection of new messages, 
+     * with the {@link LogLevel#INFO} level.
      * 
      * @param msg 
      * 		The collection of messages to be logged.
      */
     public void log(Collection<String> msg)
-    {	if(enabled)
+    {	log(LogLevel.INFO,msg);
+    }
+
+    /**
+     * Logs a new message with the specified level.
+     * 
+     * @param level
+     * 		Level of the message.
+     * @param msg 
+     * 		The message to be logged.
+     */
+    public void log(LogLevel level, String msg)
+    {	if(isLoggable(level))
+    	{	List<String> msgs = new ArrayList<String>();
+    		msgs.add(msg);
+    		publish(level,msgs);
+    	}
+    }
+
+    /**
+     * Logs a collection of new messages
+     * with the specified level.
+     * 
+     * @param level
+     * 		Level of the messages.
+     * @param msg 
+     * 		The collection of messages to be logged.
+     */
+    public void log(LogLevel level, Collection<String> msg)
+    {	if(isLoggable(level))
     	{	if(msg==null || msg.isEmpty())
 				msg = Arrays.asList("");
-			Logger logger = getLogger();
-    		Object params[] = {msg,getOffset()};
-    		logger.log(Level.INFO,msg.iterator().next(),params);
+    		else	// the collection could be modified before being written
+    			msg = new ArrayList<String>(msg);
+    		publish(level,msg);
     	}
     }
+    
+    /**
+     * Builds the record corresponding to the specified
+     * messages, and hands it to the background thread,
+     * or writes it directly, depending on the settings.
+     * 
+     * @param level
+     * 		Level of the messages.
+     * @param msg 
+     * 		The non-empty collection of messages to be logged.
+     */
+    private void publish(LogLevel level, Collection<String> msg)
+    {	Logger logger = getLogger();
+		Object params[] = {msg,getOffset()};
+		LogRecord record = new LogRecord(level.getLevel(),msg.iterator().next());
+		record.setParameters(params);
+		record.setLoggerName(logger.getName());
+		
+		boolean queued = false;
+		if(asynchronous)
+		{	if(writer==null)
+				startWriter();
+			// wait if the queue is full, rather than losing the message
+			try
+			{	queue.put(new PendingRecord(logger,record));
+				submittedNbr.incrementAndGet();
+				queued = true;
+			}
+			catch(InterruptedException e)
+			{	Thread.currentThread().interrupt();
+			}
+		}
+		if(!queued)
+			logger.log(record);
+    }
 }
@@ -0,0 +1,67 @@
+package fr.univavignon.tools.log;
+
+/*
+ * CommonTools
+ * Copyright 2010-19 Vincent Labatut
+ * 
+ * This file is part of CommonTools.
+ * 
+ * CommonTools is free software: you can redistribute it and/or modify it under 
+ * the terms of the GNU General Public License as published by the Free Software 
+ * Foundation, either version 2 of the License, or (at your option) any later version.
+ * 
+ * CommonTools is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with CommonTools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.logging.Level;
+
+/**
+ * Level of a message logged through a {@link HierarchicalLogger}.
+ * The levels are ordered by increasing importance: a logger
+ * only processes the messages whose level is at least its own.
+ * 
+ * @author Vincent Labatut
+ */
+public enum LogLevel
+{	
+	/** Detailed messages, only useful to debug or check the processing */
+	DEBUG(Level.FINE),
+	
+	/** Regular messages describing the progress of the processing */
+	INFO(Level.INFO),
+	
+	/** Messages signaling a possible problem */
+	WARN(Level.WARNING);
+	
+	/**
+	 * Creates a new log level.
+	 * 
+	 * @param level
+	 * 		Corresponding level in the {@code java.util.logging} API.
+	 */
+	LogLevel(Level level)
+	{	this.level = level;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// LEVEL			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Corresponding level in the {@code java.util.logging} API */
+	private Level level;
+	
+	/**
+	 * Returns the level corresponding to this one
+	 * in the {@code java.util.logging} API.
+	 * 
+	 * @return
+	 * 		A {@code java.util.logging} level.
+	 */
+	public Level getLevel()
+	{	return level;
+	}
+}
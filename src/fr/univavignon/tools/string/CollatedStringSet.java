@@ -0,0 +1,220 @@
+package fr.univavignon.tools.string;
+
+/*
+ * CommonTools
+ * Copyright 2010-19 Vincent Labatut
+ * 
+ * This file is part of CommonTools.
+ * 
+ * CommonTools is free software: you can redistribute it and/or modify it under 
+ * the terms of the GNU General Public License as published by the Free Software 
+ * Foundation, either version 2 of the License, or (at your option) any later version.
+ * 
+ * CommonTools is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with CommonTools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.TreeMap;
+
+/**
+ * Set of strings ordered by {@link StringTools#COMPARATOR}, i.e. ignoring
+ * case and diacritics. It behaves like a {@code TreeSet} using this comparator
+ * (same order, and the first string added wins among equivalent ones), but each
+ * string is normalized only once, when it is added to the set: the strings are
+ * stored with their collation key (see {@link CollationKey}), and compared
+ * through these keys.
+ * <br/>
+ * The keys can be retrieved (see {@link #getCollationKeys()}) and reused by
+ * other sets, for instance to copy this set or process its intersection with 
+ * another one without normalizing anything.
+ * 
+ * @author Vincent Labatut
+ */
+public class CollatedStringSet extends AbstractSet<String>
+{	
+	/**
+	 * Builds an empty set.
+	 */
+	public CollatedStringSet()
+	{	// nothing to do here
+	}
+	
+	/**
+	 * Builds a set containing the specified strings.
+	 * 
+	 * @param strings
+	 * 		Strings to add to the set.
+	 */
+	public CollatedStringSet(Collection<String> strings)
+	{	addAll(strings);
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// KEYS				/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Map associating the comparison key of each string to its collation key */
+	private final TreeMap<String,CollationKey> map = new TreeMap<String,CollationKey>();
+	
+	/**
+	 * Returns the collation keys of the strings contained
+	 * in this set, in the order of the set. The collection 
+	 * is backed by the set.
+	 * 
+	 * @return
+	 * 		Collection of collation keys.
+	 */
+	public Collection<CollationKey> getCollationKeys()
+	{	return map.values();
+	}
+	
+	/**
+	 * Adds the string associated to the specified collation key,
+	 * unless an equivalent string is already present in the set.
+	 * 
+	 * @param collationKey
+	 * 		Collation key of the string to add.
+	 * @return
+	 * 		{@code true} iff the set was modified.
+	 */
+	public boolean add(CollationKey collationKey)
+	{	boolean result = false;
+		String key = collationKey.getKey();
+		if(!map.containsKey(key))
+		{	map.put(key, collationKey);
+			result = true;
+		}
+		return result;
+	}
+	
+	/**
+	 * Checks whether this set contains a string
+	 * equivalent to the specified collation key.
+	 * 
+	 * @param collationKey
+	 * 		Collation key of interest.
+	 * @return
+	 * 		{@code true} iff the set contains an equivalent string.
+	 */
+	public boolean contains(CollationKey collationKey)
+	{	boolean result = map.containsKey(collationKey.getKey());
+		return result;
+	}
+	
+	/**
+	 * Counts the strings of this set which have an
+	 * equivalent in the specified set, i.e. the size 
+	 * of their intersection, without building it.
+	 * 
+	 * @param set
+	 * 		Other set.
+	 * @return
+	 * 		Size of the intersection of both sets.
+	 */
+	public int countCommon(CollatedStringSet set)
+	{	CollatedStringSet small = this;
+		CollatedStringSet large = set;
+		if(small.size()>large.size())
+		{	small = set;
+			large = this;
+		}
+		
+		int result = 0;
+		for(String key: small.map.keySet())
+		{	if(large.map.containsKey(key))
+				result++;
+		}
+		return result;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// SET				/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	@Override
+	public boolean add(String string)
+	{	boolean result = add(new CollationKey(string));
+		return result;
+	}
+	
+	@Override
+	public boolean addAll(Collection<? extends String> strings)
+	{	boolean result = false;
+		if(strings instanceof CollatedStringSet)
+		{	for(CollationKey collationKey: ((CollatedStringSet)strings).getCollationKeys())
+				result = add(collationKey) || result;
+		}
+		else
+			result = super.addAll(strings);
+		return result;
+	}
+	
+	@Override
+	public boolean contains(Object object)
+	{	boolean result = false;
+		if(object instanceof String)
+			result = map.containsKey(StringTools.getComparisonKey((String)object));
+		else if(object instanceof CollationKey)
+			result = contains((CollationKey)object);
+		return result;
+	}
+	
+	@Override
+	public boolean remove(Object object)
+	{	boolean result = false;
+		if(object instanceof String)
+			result = map.remove(StringTools.getComparisonKey((String)object))!=null;
+		else if(object instanceof CollationKey)
+			result = map.remove(((CollationKey)object).getKey())!=null;
+		return result;
+	}
+	
+	@Override
+	public boolean retainAll(Collection<?> collection)
+	{	boolean result = false;
+		if(collection instanceof CollatedStringSet)
+		{	CollatedStringSet set = (CollatedStringSet)collection;
+			result = map.keySet().retainAll(set.map.keySet());
+		}
+		else
+			result = super.retainAll(collection);
+		return result;
+	}
+	
+	@Override
+	public void clear()
+	{	map.clear();
+	}
+	
+	@Override
+	public int size()
+	{	return map.size();
+	}
+	
+	@Override
+	public Iterator<String> iterator()
+	{	final Iterator<CollationKey> it = map.values().iterator();
+		Iterator<String> result = new Iterator<String>()
+		{	@Override
+			public boolean hasNext()
+			{	return it.hasNext();
+			}
+			
+			@Override
+			public String next()
+			{	return it.next().getString();
+			}
+			
+			@Override
+			public void remove()
+			{	it.remove();
+			}
+		};
+		return result;
+	}
+}
@@ -0,0 +1,111 @@
+package fr.univavignon.tools.string;
+
+/*
+ * CommonTools
+ * Copyright 2010-19 Vincent Labatut
+ * 
+ * This file is part of CommonTools.
+ * 
+ * CommonTools is free software: you can redistribute it and/or modify it under 
+ * the terms of the GNU General Public License as published by the Free Software 
+ * Foundation, either version 2 of the License, or (at your option) any later version.
+ * 
+ * CommonTools is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with CommonTools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Collation key of a string, as used by {@link StringTools#COMPARATOR}:
+ * the key (see {@link StringTools#getComparisonKey(String)}) is computed
+ * only once, when building the object, whereas the comparator normalizes
+ * both strings each time it compares them.
+ * <br/>
+ * Comparing two collation keys gives exactly the same result as comparing
+ * the original strings with {@link StringTools#COMPARATOR}. Collation keys
+ * are immutable, so the same object can be shared by several collections 
+ * (see {@link CollatedStringSet}).
+ * 
+ * @author Vincent Labatut
+ */
+public final class CollationKey implements Comparable<CollationKey>
+{	
+	/**
+	 * Builds the collation key of the specified string.
+	 * 
+	 * @param string
+	 * 		Original string.
+	 */
+	public CollationKey(String string)
+	{	this.string = string;
+		key = StringTools.getComparisonKey(string);
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// STRING			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Original string */
+	private final String string;
+	
+	/**
+	 * Returns the original string.
+	 * 
+	 * @return
+	 * 		Original string.
+	 */
+	public String getString()
+	{	return string;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// KEY				/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Normalized form of the string, used to compare it */
+	private final String key;
+	
+	/**
+	 * Returns the normalized form of the string, 
+	 * used to compare it to other strings.
+	 * 
+	 * @return
+	 * 		Comparison key of the string.
+	 */
+	public String getKey()
+	{	return key;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// COMPARABLE		/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	@Override
+	public int compareTo(CollationKey collationKey)
+	{	int result = key.compareTo(collationKey.key);
+		return result;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// OBJECT			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	@Override
+	public boolean equals(Object obj)
+	{	boolean result = false;
+		if(obj instanceof CollationKey)
+		{	CollationKey collationKey = (CollationKey)obj;
+			result = key.equals(collationKey.key);
+		}
+		return result;
+	}
+	
+	@Override
+	public int hashCode()
+	{	return key.hashCode();
+	}
+	
+	@Override
+	public String toString()
+	{	return string;
+	}
+}
@@ -18,12 +18,19 @@ package fr.univavignon.tools.string;
  * along with CommonTools. If not, see <http://www.gnu.org/licenses/>.
  */
 
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.UnsupportedEncodingException;
 import java.text.Normalizer;
 import java.text.Normalizer.Form;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Scanner;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.regex.Matcher;
@@ -31,6 +38,8 @@ import java.util.regex.Pattern;
 
 import org.apache.commons.text.similarity.LevenshteinDistance;
 
+import fr.univavignon.tools.file.FileNames;
+import fr.univavignon.tools.file.FileTools;
 import fr.univavignon.tools.log.HierarchicalLogger;
 import fr.univavignon.tools.log.HierarchicalLoggerManager;
 
@@ -130,6 +139,9 @@ public class StringTools
 		String text = "zeriou fke ? R dfikalnfsd po ! SZ : dsqd 4485. Fio 89% dezidj, defsoui ; ezrofd 98% fdskds !!";
 		String cleaned = cleanText(text,Locale.FRENCH);
 		System.out.println(cleaned);
+		
+		// check clean text against the regression corpus
+		checkCleanText();
 	}
 	
 	/////////////////////////////////////////////////////////////////
@@ -148,24 +160,18 @@ public class StringTools
 	 * It is currently used to compare the surface forms of entities.
 	 * It is also used by the method {@link #compareCharsRelaxed(int, int)},
 	 * which is itself use during the post-processing of Nero results.
+	 * <br/>
+	 * Two strings are considered as equal by this comparator iff
+	 * they have the same key (see {@link #getComparisonKey(String)}).
+	 * When the same strings are compared many times (e.g. in a sorted
+	 * collection), it is faster to compute these keys only once, using
+	 * {@link CollationKey} or {@link CollatedStringSet}.
 	 */
 	public static final Comparator<String> COMPARATOR = new Comparator<String>()
 	{	@Override
 		public int compare(String s1, String s2)
-		{	// remove accents
-			String string1 = removeDiacritics(s1);
-			String string2 = removeDiacritics(s2);
-			
-			// remove case
-			string1 = string1.toUpperCase(Locale.ENGLISH);
-			string2 = string2.toUpperCase(Locale.ENGLISH);
-			
-			// normalize double quotes
-			// >> there should be none of them after cleaning, now
-//			string1 = string1.replaceAll("«", "\"");
-//			string2 = string2.replaceAll("«", "\"");
-//			string1 = string1.replaceAll("»", "\"");
-//			string2 = string2.replaceAll("»", "\"");
+		{	String string1 = getComparisonKey(s1);
+			String string2 = getComparisonKey(s2);
 			
 			// compare
 			int result = string1.compareTo(string2);
@@ -173,6 +179,32 @@ public class StringTools
 		}	
 	};
 	
+	/**
+	 * Returns the key used by {@link #COMPARATOR} to compare the specified
+	 * string: the same string without its diacritics, and in upper case.
+	 * This key can be used to hash strings consistently with this comparator,
+	 * instead of normalizing them again at each comparison.
+	 * 
+	 * @param string
+	 * 		String to process.
+	 * @return
+	 * 		Key used to compare this string to others.
+	 */
+	public static String getComparisonKey(String string)
+	{	// remove accents
+		String result = removeDiacritics(string);
+		
+		// remove case
+		result = result.toUpperCase(Locale.ENGLISH);
+		
+		// normalize double quotes
+		// >> there should be none of them after cleaning, now
+//		result = result.replaceAll("«", "\"");
+//		result = result.replaceAll("»", "\"");
+		
+		return result;
+	}
+	
 	/**
 	 * Compare the specified characters, using {@link #COMPARATOR},
 	 * i.e. ignoring case and diacritics. This method is meant to be
@@ -294,6 +326,122 @@ public class StringTools
 	/////////////////////////////////////////////////////////////////
 	/** Regex used to detect HTML hyperlink tags */
 	private final static Pattern HL_PATTERN = Pattern.compile("</?a ?[^>]*>");
+	/** Regex used to move punctuation marks and newlines out of hyperlinks */
+	private final static Pattern HL_PUNCT_PATTERN = Pattern.compile("<a ([^>]*?)>([ \\n\\.,;]*)([^<]*?)([ \\n\\.,;]*)</a>");
+	/** Regex used to move parentheses out of hyperlinks */
+	private final static Pattern HL_PARENTH_PATTERN = Pattern.compile("<a ([^>]*?)>(\\()([^<]*?)(\\))</a>");
+	/** Regex used to move brackets out of hyperlinks */
+	private final static Pattern HL_BRACKET_PATTERN = Pattern.compile("<a ([^>]*?)>(\\[)([^<]*?)(\\])</a>");
+	/** Regex used to detect multiple consecutive newlines */
+	private final static Pattern NEWLINES_PATTERN = Pattern.compile("\\n\\n+");
+	/** Regex used to detect whitespaces other than newlines */
+	private final static Pattern WHITESPACE_PATTERN = Pattern.compile("[\\s&&[^\\n]]");
+	/** Regex used to detect multiple consecutive spaces */
+	private final static Pattern SPACES_PATTERN = Pattern.compile(" +");
+	/** Regex used to detect spaces at the end of lines */
+	private final static Pattern SPACE_NEWLINE_PATTERN = Pattern.compile(" \\n");
+	/** Regex used to detect multiple consecutive punctuation marks */
+	private final static Pattern MULTIPLE_PUNCT_PATTERN = Pattern.compile("([\\.,;:] )[\\.,;:]");
+	/** Regex used to detect spaces before dots */
+	private final static Pattern SPACE_DOT_PATTERN = Pattern.compile(" \\.");
+	/** Regex used to detect semicolons following opening parentheses */
+	private final static Pattern PARENTH_SEMICOLON_PATTERN = Pattern.compile("\\(;");
+	/** Regex used to detect space-separated ampersands */
+	private final static Pattern SPACED_AMPERSAND_PATTERN = Pattern.compile(" & ");
+	/** Regex used to detect consecutive single quotes */
+	private final static Pattern SINGLE_QUOTES_PATTERN = Pattern.compile("''+");
+	/** Regex used to detect empty double quotes */
+	private final static Pattern EMPTY_QUOTES_PATTERN = Pattern.compile("\"\"");
+	/** Regex used to detect spaces following opening parentheses */
+	private final static Pattern OPENING_PARENTH_SPACE_PATTERN = Pattern.compile("\\( +");
+	/** Regex used to detect spaces preceding closing parentheses */
+	private final static Pattern SPACE_CLOSING_PARENTH_PATTERN = Pattern.compile(" +\\)");
+	/** Regex used to detect empty parentheses */
+	private final static Pattern EMPTY_PARENTH_PATTERN = Pattern.compile("\\(\\)");
+	/** 
+	 * Characters replaced when cleaning text: each row contains a list of characters,
+	 * and the string used to replace all of them. If a character appears in several 
+	 * rows, the first one prevails.
+	 */
+	private final static String[][] CHAR_REPLACEMENTS = 
+	{	// ligatures
+		// note : the normalizer does not seem to work well for most ligatures
+		// cf. http://stackoverflow.com/questions/7171377/separating-unicode-ligature-characters
+		{"ꜳ", "aa"},
+		{"Ꜳ", "Aa"},
+		{"æ", "ae"},
+		{"Æ", "Ae"},
+		{"ꜵ", "ao"},
+		{"Ꜵ", "Ao"},
+		{"ꜷ", "au"},
+		{"Ꜷ", "Au"},
+		{"ꜹ", "av"},
+		{"Ꜹ", "Av"},
+		{"ꜻ", "av"},
+		{"Ꜻ", "Av"},
+		{"ﬁ", "fi"},
+		{"ﬂ", "fl"},
+		{"ﬀ", "ff"},
+		{"ﬃ", "ffi"},
+		{"ﬄ", "ffl"},
+		{"œ", "oe"},
+		{"Œ", "Oe"},
+		{"ꝏ", "oo"},
+		{"Ꝏ", "Oo"},
+		{"ﬆ", "st"},
+		{"ꜩ", "tz"},
+		{"Ꜩ", "Tz"},
+		{"ᵫ", "ue"},
+		
+		// replace certain punctuation marks (list of characters obtained from Wikipedia)
+		// apostrophe and variants
+		{"’’ʼ`´ʹʻʽʾʿˈˊʹ΄՚᾽᾿′Ꞌꞌ＇︐︑՝‘‛❛❜", "'"},
+		// opening brackets
+		{"([{❴〈⧼❬❰❮〈〈⸤⸤｢｢「⌜⸢⟦⌈⌊⟆⟓⟬⟮⦃⦅⦇⦉⦋⦏⦑⦓⦕⦗⧘⧚❨❪❲⁅⸦⸨〔〖〘〚【（［｛<", "("},
+		// closing brackets
+		{")]}❵〉⧽❭❱❯〉〉⸥⸥｣｣」⌝⸣⟧⌉⌋⟅⟔⟭⟯⦄⦆⦈⦊⦌⦐⦒⦔⦖⦘⧙⧛❩❫❳⁆⸧⸩〕〗〙〛】）］｝>", ")"},
+		// colons and variants
+		{":：ː", ":"},
+		// comma and variants
+		{",،⸲⸴⹁、﹐﹑，､‚❟", ","},
+		// hyphens and variants \u2012 \u2013 \u2014 \u2015 \u2053
+		{"-‐‑֊᠆﹣－‒–—―⁓=*_/⁄∕／\\", "-"},
+		// ellipsis and variants
+		{"…᠁⋯⋰⋱︙⋮", "..."},
+		// exclamation mark and variants
+		{"ǃ‼⁈⁉⚠❕❗❢❣ꜝꜞꜟ﹗！🕴᥄", "!"},
+		// period and variants
+		{"⸼·", "."},
+		// opening double quotes
+		{"«‹”‟⟪《『⸂⸄⸉⸌〝〟🙷｟❝❠", "\""},	// NOTE: at first, we were removing also the space in xxx " xxx " to get xxx "xxx". but some opening " are used as closing ones, and inversely
+		// closing double quotes
+		{"»›“„⟫》』⸃⸅⸊⸍〞🙸🙶｠❞⹂", "\""},
+		// question mark and variants
+		{"⁇﹖⁈⁉‽", "?"},
+		// semicolon and variants
+		{";؛⁏፤；︔﹔⍮⸵;", ";"}
+	};
+	/** Replacement of each character of the BMP (or {@code null} if the character is not replaced), built from {@link #CHAR_REPLACEMENTS} */
+	private final static String[] BMP_REPLACEMENTS = new String[Character.MAX_VALUE+1];
+	/** Replacement of the supplementary characters, built from {@link #CHAR_REPLACEMENTS} */
+	private final static Map<Integer,String> SUPPLEMENTARY_REPLACEMENTS = new HashMap<Integer,String>();
+	static
+	{	for(String[] row: CHAR_REPLACEMENTS)
+		{	String chars = row[0];
+			String repl = row[1];
+			int i = 0;
+			while(i<chars.length())
+			{	int cp = chars.codePointAt(i);
+				if(cp<=Character.MAX_VALUE)
+				{	if(BMP_REPLACEMENTS[cp]==null)
+						BMP_REPLACEMENTS[cp] = repl;
+				}
+				else if(!SUPPLEMENTARY_REPLACEMENTS.containsKey(cp))
+					SUPPLEMENTARY_REPLACEMENTS.put(cp, repl);
+				i = i + Character.charCount(cp);
+			}
+		}
+	}
 	/** List of allowed "latin" characters, used when cleaning articles */
 	private final static List<Character> LATIN_CHARS = new ArrayList<Character>();
 	static
@@ -313,6 +461,10 @@ public class StringTools
 			LATIN_CHARS.add(c);
 		}
 	}
+	/** Regex matching the characters allowed in a clean text, before removing the non-latin letters */
+	private final static Pattern ALLOWED_CHAR_PATTERN = Pattern.compile("["+getPunctuation(true)+"\\s\\p{L}0-9]");
+	/** Whether each character of the BMP is kept when cleaning text: {@code 0} for unknown (not processed yet), {@code 1} for yes and {@code 2} for no */
+	private final static byte[] LATIN_STATUS = new byte[Character.MAX_VALUE+1];
 	
 	/**
 	 * Cleans the specified string, in order to remove characters
@@ -346,13 +498,14 @@ public class StringTools
 			{	previous = output;
 				
 				// move certain punctuation marks and special characters out of hyperlinks
-				String punctuation = "[ \\n\\.,;]";
-				output = output.replaceAll("<a ([^>]*?)>("+punctuation+"*)([^<]*?)("+punctuation+"*)</a>","$2<a $1>$3</a>$4");
-				output = output.replaceAll("<a ([^>]*?)>(\\()([^<]*?)(\\))</a>","$2<a $1>$3</a>$4");
-				output = output.replaceAll("<a ([^>]*?)>(\\[)([^<]*?)(\\])</a>","$2<a $1>$3</a>$4");
+				if(output.indexOf("<a ")>=0)
+				{	output = HL_PUNCT_PATTERN.matcher(output).replaceAll("$2<a $1>$3</a>$4");
+					output = HL_PARENTH_PATTERN.matcher(output).replaceAll("$2<a $1>$3</a>$4");
+					output = HL_BRACKET_PATTERN.matcher(output).replaceAll("$2<a $1>$3</a>$4");
+				}
 				
 				// process the text which does not belong to hyperlink tags (i.e. the raw, non-html text)
-				String tmpStr = "";
+				StringBuilder tmp = new StringBuilder(output.length());
 				int prevPos = 0;
 				Matcher matcher = HL_PATTERN.matcher(output);
 				while(matcher.find())
@@ -360,15 +513,14 @@ public class StringTools
 					int endPos = matcher.end();
 					String substr = output.substring(prevPos,startPos);
 					substr = cleanInnerText(substr,language);
-					String tagStr = output.substring(startPos,endPos);
-					tmpStr = tmpStr + substr + tagStr;
+					tmp.append(substr);
+					tmp.append(output, startPos, endPos);
 					prevPos = endPos;
 				}
-				int startPos = output.length();
-				String substr = output.substring(prevPos,startPos);
+				String substr = output.substring(prevPos);
 				substr = cleanInnerText(substr,language);
-				tmpStr = tmpStr + substr;
-				output = tmpStr;
+				tmp.append(substr);
+				output = tmp.toString();
 			}
 			while(!output.equals(previous));
 			
@@ -409,22 +561,18 @@ public class StringTools
 	private static String cleanInnerText(String input, Locale language)
 	{	String output = input;
 		
-		// replace all white spaces by regular spaces
-		// new line and tabs are not affected
-		output = output.replaceAll("\\p{Z}", " "); // \p{Z} includes more different whitespaces than \s
-		// replace tabs by simple spaces
-		output = output.replaceAll("\\t", " ");
-		
-		// replace multiple consecutive spaces by a single one 
-		output = output.replaceAll("( )+", " ");
+		// replace all white spaces by regular spaces (\p{Z} includes more different whitespaces than \s)
+		// new line are not affected, but tabs are also replaced
+		// then replace multiple consecutive spaces by a single one 
+		output = replaceInnerSpaces(output);
 
 //		// normalize newlines
 //		output = output.replaceAll("\\r", "\n");
 		// replace multiple consecutive newlines by a single one 
-		output = output.replaceAll("\\n\\n+", "\n\n");
+		output = NEWLINES_PATTERN.matcher(output).replaceAll("\n\n");
 		
 		// remove spaces at the end of lines 
-		output = output.replaceAll(" \\n", "\n");
+		output = SPACE_NEWLINE_PATTERN.matcher(output).replaceAll("\n");
 		
 		// replace multiple space-separated punctuation marks by single ones 
 //			output = output.replaceAll("; ;", ";");
@@ -433,13 +581,13 @@ public class StringTools
 //			output = output.replaceAll("\\. \\.", "\\.");
 		
 		// replace multiple consecutive punctuation marks by a single one 
-		output = output.replaceAll("([\\.,;:] )[\\.,;:]", "$1");
+		output = MULTIPLE_PUNCT_PATTERN.matcher(output).replaceAll("$1");
 
 		// remove spaces before dots 
-		output = output.replaceAll(" \\.", ".");
+		output = SPACE_DOT_PATTERN.matcher(output).replaceAll(".");
 		
 		// remove various combinations of punctuation marks
-		output = output.replaceAll("\\(;", "(");
+		output = PARENTH_SEMICOLON_PATTERN.matcher(output).replaceAll("(");
 
 		// adds a final dot when it is missing at the end of a sentence (itself detected thanks to the new line)
 //			output = output.replaceAll("([^(\\.|\\-)])\\n", "$1.\n");
@@ -450,62 +598,8 @@ public class StringTools
 		// insert a space after a semi-column, when missing
 //			output = output.replaceAll(";([^ _])", "; $1");
 		
-		// replace ligatures by two characters
-		// note : the normalizer does not seem to work well for most ligatures
-		// cf. http://stackoverflow.com/questions/7171377/separating-unicode-ligature-characters
-		output = output.replaceAll("ꜳ", "aa");
-		output = output.replaceAll("Ꜳ", "Aa");
-		output = output.replaceAll("æ", "ae");
-		output = output.replaceAll("Æ", "Ae");
-		output = output.replaceAll("ꜵ", "ao");
-		output = output.replaceAll("Ꜵ", "Ao");
-		output = output.replaceAll("ꜷ", "au");
-		output = output.replaceAll("Ꜷ", "Au");
-		output = output.replaceAll("ꜹ", "av");
-		output = output.replaceAll("Ꜹ", "Av");
-		output = output.replaceAll("ꜻ", "av");
-		output = output.replaceAll("Ꜻ", "Av");
-		output = output.replaceAll("ﬁ", "fi");
-		output = output.replaceAll("ﬂ", "fl");
-		output = output.replaceAll("ﬀ", "ff");
-		output = output.replaceAll("ﬃ", "ffi");
-		output = output.replaceAll("ﬄ", "ffl");
-		output = output.replaceAll("œ", "oe");
-		output = output.replaceAll("Œ", "Oe");
-		output = output.replaceAll("ꝏ", "oo");
-		output = output.replaceAll("Ꝏ", "Oo");
-		output = output.replaceAll("ﬆ", "st");
-		output = output.replaceAll("ꜩ", "tz");
-		output = output.replaceAll("Ꜩ", "Tz");
-		output = output.replaceAll("ᵫ", "ue");
-		
-		// replace certain punctuation marks (list of characters obtained from Wikipedia)
-			// apostrophe and variants
-			output = output.replaceAll("[’’ʼ`´ʹʻʽʾʿˈˊʹ΄՚᾽᾿′Ꞌꞌ＇︐︑՝‘‛❛❜]","'");
-			// opening brackets
-			output = output.replaceAll("[(\\[{❴〈⧼❬❰❮〈〈⸤⸤｢｢「⌜⸢⟦⌈⌊⟆⟓⟬⟮⦃⦅⦇⦉⦋⦏⦑⦓⦕⦗⧘⧚❨❪❲⁅⸦⸨〔〖〘〚【（［｛<]", "(");
-			// closing brackets
-			output = output.replaceAll("[)\\]}❵〉⧽❭❱❯〉〉⸥⸥｣｣」⌝⸣⟧⌉⌋⟅⟔⟭⟯⦄⦆⦈⦊⦌⦐⦒⦔⦖⦘⧙⧛❩❫❳⁆⸧⸩〕〗〙〛】）］｝>]", ")");
-			// colons and variants
-			output = output.replaceAll("[:：ː]",":");
-			// comma and variants
-			output = output.replaceAll("[,،⸲⸴⹁、﹐﹑，､‚❟]",",");
-			// hyphens and variants \u2012 \u2013 \u2014 \u2015 \u2053
-			output = output.replaceAll("[-‐‑֊᠆﹣－‒–—―⁓=*_/⁄∕／\\\\]","-");
-			// ellipsis and variants
-			output = output.replaceAll("[…᠁⋯⋰⋱︙⋮]","...");
-			// exclamation mark and variants
-			output = output.replaceAll("[ǃ‼⁈⁉⚠❕❗❢❣ꜝꜞꜟ﹗！🕴᥄]","!");
-			// period and variants
-			output = output.replaceAll("[⸼·]",".");
-			// opening double quotes
-			output = output.replaceAll("[«‹”‟⟪《『⸂⸄⸉⸌〝〟🙷｟❝❠]", "\"");	// NOTE: at first, we were removing also the space in xxx " xxx " to get xxx "xxx". but some opening " are used as closing ones, and inversely
-			// closing double quotes
-			output = output.replaceAll("[»›“„⟫》』⸃⸅⸊⸍〞🙸🙶｠❞⹂]", "\"");
-			// question mark and variants
-			output = output.replaceAll("[⁇﹖⁈⁉‽]","?");
-			// semicolon and variants
-			output = output.replaceAll("[;؛⁏፤；︔﹔⍮⸵;]",";");
+		// replace ligatures by two characters, and normalize certain punctuation marks
+		output = replaceChars(output);
 		
 		// replace space-separated & by the full word
 		String repl = "/";
@@ -517,33 +611,90 @@ public class StringTools
 			else
 				logger.log("WARNING: language not supported ("+language+")");
 		}
-		output = output.replaceAll(" & "," "+repl+" ");
-		// remove the remaining & (not space-separated)
-		output = output.replaceAll("&","/");
+		if(output.indexOf('&')>=0)
+		{	output = SPACED_AMPERSAND_PATTERN.matcher(output).replaceAll(" "+repl+" ");
+			// remove the remaining & (not space-separated)
+			output = output.replace('&','/');
+		}
 		
 		// replace 2 consecutive single quotes by 1 double quote
-		output = output.replaceAll("''+", "\"");
+		output = SINGLE_QUOTES_PATTERN.matcher(output).replaceAll("\"");
 		// remove empty double quotes
-		output = output.replaceAll("\"\"", "");
+		output = EMPTY_QUOTES_PATTERN.matcher(output).replaceAll("");
 		
 		// remove spaces after opening parenthesis
-		output = output.replaceAll("\\( +", "(");
+		output = OPENING_PARENTH_SPACE_PATTERN.matcher(output).replaceAll("(");
 		// remove spaces before closing parenthesis
-		output = output.replaceAll(" +\\)", ")");
+		output = SPACE_CLOSING_PARENTH_PATTERN.matcher(output).replaceAll(")");
 		// remove empty parentheses
-		output = output.replaceAll("\\(\\)", "");
+		output = EMPTY_PARENTH_PATTERN.matcher(output).replaceAll("");
 		
 		// remove characters which are neither punctuation, whitespaces, letters or digits
-//		output = output.replaceAll("[^"+PUNCTUATION+"\\s\\p{L}\\d]", "");
-		String punctuation = getPunctuation(true);
-		output = output.replaceAll("[^"+punctuation+"\\s\\p{L}0-9]", "");
-		
-		// remove non-latin characters
+		// and remove non-latin characters
 		output = removeNonLatinLetters(output);
 		
 		return output;
 	}
 	
+	/**
+	 * Replaces all whitespaces (including tabs, but not newlines) by regular
+	 * spaces, and multiple consecutive spaces by a single one, in a single pass.
+	 * <br/>
+	 * This method is meant to be used only by {@link #cleanInnerText(String,Locale)}.
+	 * 
+	 * @param input
+	 * 		The text to process.
+	 * @return
+	 * 		The same text, with normalized spaces.
+	 */
+	private static String replaceInnerSpaces(String input)
+	{	StringBuilder result = new StringBuilder(input.length());
+		boolean space = false;
+		for(int i=0;i<input.length();i++)
+		{	char c = input.charAt(i);
+			int type = Character.getType(c);
+			if(c=='\t' || type==Character.SPACE_SEPARATOR 
+					|| type==Character.LINE_SEPARATOR || type==Character.PARAGRAPH_SEPARATOR)
+				c = ' ';
+			if(c!=' ' || !space)
+				result.append(c);
+			space = c==' ';
+		}
+		return result.toString();
+	}
+	
+	/**
+	 * Replaces ligatures by two characters, and normalizes punctuation marks,
+	 * e.g. all the variants of the hyphen are replaced by the regular {@code '-'}.
+	 * The text is processed in a single pass, using the replacement tables built
+	 * from {@link #CHAR_REPLACEMENTS}.
+	 * <br/>
+	 * This method is meant to be used only by {@link #cleanInnerText(String,Locale)}.
+	 * 
+	 * @param input
+	 * 		The text to process.
+	 * @return
+	 * 		The same text, with the replaced characters.
+	 */
+	private static String replaceChars(String input)
+	{	StringBuilder result = new StringBuilder(input.length());
+		int i = 0;
+		while(i<input.length())
+		{	int cp = input.codePointAt(i);
+			String repl;
+			if(cp<=Character.MAX_VALUE)
+				repl = BMP_REPLACEMENTS[cp];
+			else
+				repl = SUPPLEMENTARY_REPLACEMENTS.get(cp);
+			if(repl==null)
+				result.appendCodePoint(cp);
+			else
+				result.append(repl);
+			i = i + Character.charCount(cp);
+		}
+		return result.toString();
+	}
+	
 	/**
 	 * Clean a string representing an article title. It is cleaned like
 	 * regular text using {@link #cleanText(String,Locale)}, then new lines and
@@ -589,6 +740,105 @@ public class StringTools
 		return result;
 	}
 	
+	/**
+	 * Checks that {@link #cleanText(String,Locale)} produces the expected
+	 * outputs for the texts of the regression corpus ({@link FileNames#FI_CLEAN_TEXT_CORPUS}).
+	 * The expected outputs were produced by the original, regex-based, version of the
+	 * cleaning methods, so this allows making sure any later modification does not
+	 * change the cleaned texts.
+	 * <br/>
+	 * Each entry of the corpus is made of three lines: the language ({@code fr} or 
+	 * {@code en}), the raw text and the expected clean text, followed by an empty line.
+	 * Backslashes, tabulations, newlines, control characters, special whitespaces and 
+	 * surrogates are escaped like in Java ({@code "\\n"}, {@code "\\u2028"}, etc.).
+	 * 
+	 * @return
+	 * 		{@code true} iff all the outputs are as expected.
+	 * 
+	 * @throws FileNotFoundException
+	 * 		Problem while accessing the corpus file.
+	 * @throws UnsupportedEncodingException
+	 * 		Problem while accessing the corpus file.
+	 */
+	public static boolean checkCleanText() throws FileNotFoundException, UnsupportedEncodingException
+	{	logger.log("Checking the text cleaning against the regression corpus");
+		logger.increaseOffset();
+		
+		String filePath = FileNames.FO_MISC + File.separator + FileNames.FI_CLEAN_TEXT_CORPUS;
+		Scanner scanner = FileTools.openTextFileRead(filePath, "UTF-8");
+		int total = 0;
+		int errors = 0;
+		while(scanner.hasNextLine())
+		{	String lang = scanner.nextLine();
+			if(!lang.isEmpty())
+			{	Locale language = Locale.FRENCH;
+				if(lang.equals("en"))
+					language = Locale.ENGLISH;
+				String input = unescapeCorpusLine(scanner.nextLine());
+				String expected = unescapeCorpusLine(scanner.nextLine());
+				String output = cleanText(input, language);
+				if(!output.equals(expected))
+				{	logger.log(Arrays.asList(
+						"ERROR: unexpected output for entry #"+total+" ("+lang+")",
+						"Input   : \""+input+"\"",
+						"Expected: \""+expected+"\"",
+						"Obtained: \""+output+"\""));
+					errors++;
+				}
+				total++;
+			}
+		}
+		scanner.close();
+		
+		logger.decreaseOffset();
+		logger.log("Check complete: "+errors+" errors for "+total+" texts");
+		boolean result = errors==0;
+		return result;
+	}
+	
+	/**
+	 * Restores the special characters escaped in a line of the regression corpus
+	 * (cf. {@link #checkCleanText()}).
+	 * 
+	 * @param line
+	 * 		A line of the corpus.
+	 * @return
+	 * 		The corresponding raw string.
+	 */
+	private static String unescapeCorpusLine(String line)
+	{	StringBuilder result = new StringBuilder(line.length());
+		int i = 0;
+		while(i<line.length())
+		{	char c = line.charAt(i);
+			if(c=='\\')
+			{	i++;
+				char code = line.charAt(i);
+				switch(code)
+				{	case 'n':
+						result.append('\n');
+						break;
+					case 'r':
+						result.append('\r');
+						break;
+					case 't':
+						result.append('\t');
+						break;
+					case 'u':
+						String hex = line.substring(i+1, i+5);
+						result.append((char)Integer.parseInt(hex,16));
+						i = i + 4;
+						break;
+					default:
+						result.append(code);
+				}
+			}
+			else
+				result.append(c);
+			i++;
+		}
+		return result.toString();
+	}
+	
 	/////////////////////////////////////////////////////////////////
 	// SPACES			/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
@@ -612,12 +862,12 @@ public class StringTools
 		{	// replace all carriage return chars by newline ones
 			result = result.replace('\r', '\n');
 			// replace all consecutive new line chars by a single one //TODO should we accept "\n\n" to get paragraphs?
-			result = result.replaceAll("\\n\\n+", "\n\n");
+			result = NEWLINES_PATTERN.matcher(result).replaceAll("\n\n");
 			
 			// replace all white spaces (except newline chars) by regular spaces
-			result = result.replaceAll("[\\s&&[^\\n]]", " ");
+			result = WHITESPACE_PATTERN.matcher(result).replaceAll(" ");
 			// replace all consecutive spaces by a single one
-			result = result.replaceAll(" +", " ");
+			result = SPACES_PATTERN.matcher(result).replaceAll(" ");
 			
 			// remove initial/final spaces
 			result = result.trim();
@@ -703,7 +953,11 @@ public class StringTools
 	
 	/**
 	 * Removes all the non-latin letters, as they are generally not supported
-	 * by the recognizers (or other processors).
+	 * by the recognizers (or other processors). The characters which are neither 
+	 * punctuation, whitespaces, letters or digits are removed too.
+	 * <br/>
+	 * Whether a character is kept or not is determined only once, the first
+	 * time it is met (cf. {@link #isLatinChar(char)}).
 	 * <br/>
 	 * This method is meant to be used only by {@link #cleanInnerText(String,Locale)}.
 	 * 
@@ -752,15 +1006,24 @@ public class StringTools
 			 */
 			
 			// third version: even bruter force
-			StringBuffer tmp = new StringBuffer();
+//			StringBuffer tmp = new StringBuffer();
+//			for(int i=0;i<result.length();i++) 
+//			{	String charStr = Character.toString(result.charAt(i));
+//				String diacLess = removeDiacritics(charStr);
+//				char c = diacLess.charAt(0);
+//				if(LATIN_CHARS.contains(c))
+//				{	char cc = input.charAt(i);
+//					tmp.append(cc);
+//				}
+//	        }
+//			result = tmp.toString();
+			
+			// fourth version: same as the third one, but each character is processed only once
+			StringBuilder tmp = new StringBuilder(result.length());
 			for(int i=0;i<result.length();i++) 
-			{	String charStr = Character.toString(result.charAt(i));
-				String diacLess = removeDiacritics(charStr);
-				char c = diacLess.charAt(0);
-				if(LATIN_CHARS.contains(c))
-				{	char cc = input.charAt(i);
-					tmp.append(cc);
-				}
+			{	char c = result.charAt(i);
+				if(isLatinChar(c))
+					tmp.append(c);
 	        }
 			result = tmp.toString();
 	    }
@@ -769,6 +1032,43 @@ public class StringTools
 		 return result;
 	}
 	
+	/**
+	 * Checks whether the specified character should be kept when
+	 * cleaning text, i.e. if it is a punctuation mark, a whitespace, a
+	 * digit or a letter, and if it belongs to {@link #LATIN_CHARS} once
+	 * its diacritics are removed. The result is stored in {@link #LATIN_STATUS},
+	 * so that the costly normalization is performed only once by character.
+	 * <br/>
+	 * The halves of surrogate pairs are never kept (non-latin letters).
+	 * 
+	 * @param c
+	 * 		The character to check.
+	 * @return
+	 * 		{@code true} iff the character should be kept.
+	 */
+	private static boolean isLatinChar(char c)
+	{	byte status = LATIN_STATUS[c];
+		if(status==0)
+		{	boolean latin = false;
+			if(!Character.isSurrogate(c))
+			{	String charStr = Character.toString(c);
+				if(ALLOWED_CHAR_PATTERN.matcher(charStr).matches())
+				{	String diacLess = removeDiacritics(charStr);
+					latin = !diacLess.isEmpty() && LATIN_CHARS.contains(diacLess.charAt(0));
+				}
+			}
+			if(latin)
+				status = 1;
+			else
+				status = 2;
+			// no need to synchronize: concurrent threads would store the same value
+			LATIN_STATUS[c] = status;
+		}
+		
+		boolean result = status==1;
+		return result;
+	}
+	
 	/////////////////////////////////////////////////////////////////
 	// SPLIT			/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
@@ -28,6 +28,9 @@ import java.util.Locale;
  * This class contains a set of methods linked to time management.
  * They are mainly used by the log classes to add
  * time and date to log messages.
+ * <br/>
+ * The formats are shared and {@link SimpleDateFormat} is not
+ * thread-safe, so they are always used in a synchronized block.
  * 
  * @author Vincent Labatut 
  * @version 2
@@ -50,7 +53,10 @@ public class TimeFormatting
 	 */
 	public static String formatCurrentHour()
 	{	Calendar cal = Calendar.getInstance();
-	    String result = HOUR_FORMAT.format(cal.getTime());
+		String result;
+		synchronized(HOUR_FORMAT)
+		{	result = HOUR_FORMAT.format(cal.getTime());
+		}
 		return result;
 	}
 	
@@ -70,7 +76,10 @@ public class TimeFormatting
 	 */
 	public static String formatCurrentDate()
 	{	Calendar cal = Calendar.getInstance();
-		String result = DATE_FORMAT.format(cal.getTime());
+		String result;
+		synchronized(DATE_FORMAT)
+		{	result = DATE_FORMAT.format(cal.getTime());
+		}
 		return result;
 	}
 
@@ -83,7 +92,10 @@ public class TimeFormatting
 	 * 		A string representing the specified date.
 	 */
 	public static String formatDate(Date date)
-	{	String result = DATE_FORMAT.format(date);
+	{	String result;
+		synchronized(DATE_FORMAT)
+		{	result = DATE_FORMAT.format(date);
+		}
 		return result;
 	}
 	
@@ -100,7 +112,10 @@ public class TimeFormatting
 	 * 		Problem while parsing the string.
 	 */
 	public static Date parseDate(String dateStr) throws ParseException
-	{	Date result = DATE_FORMAT.parse(dateStr);
+	{	Date result;
+		synchronized(DATE_FORMAT)
+		{	result = DATE_FORMAT.parse(dateStr);
+		}
 		return result;
 	}
 	
@@ -120,7 +135,10 @@ public class TimeFormatting
 	 */
 	public static String formatCurrentXmlTime()
 	{	Calendar cal = Calendar.getInstance();
-	    String result = TIME_FORMAT_XML.format(cal.getTime());
+		String result;
+		synchronized(TIME_FORMAT_XML)
+		{	result = TIME_FORMAT_XML.format(cal.getTime());
+		}
 		return result;
 	}
 	
@@ -136,7 +154,10 @@ public class TimeFormatting
 	public static String formatXmlTime(long time)
 	{	Calendar cal = Calendar.getInstance();
 		cal.setTimeInMillis(time);
-		String result =  TIME_FORMAT_XML.format(cal.getTime());
+		String result;
+		synchronized(TIME_FORMAT_XML)
+		{	result = TIME_FORMAT_XML.format(cal.getTime());
+		}
 		return result;
 	}
 	
@@ -150,7 +171,10 @@ public class TimeFormatting
 	 * 		An XML string representing the specified time in terms of date & hour.
 	 */
 	public static String formatXmlTime(Date date)
-	{	String result =  TIME_FORMAT_XML.format(date);
+	{	String result;
+		synchronized(TIME_FORMAT_XML)
+		{	result = TIME_FORMAT_XML.format(date);
+		}
 		return result;
 	}
 	
@@ -167,7 +191,10 @@ public class TimeFormatting
 	 * 		Problem while parsing the string.
 	 */
 	public static Date parseXmlTime(String timeStr) throws ParseException
-	{	Date result = TIME_FORMAT_XML.parse(timeStr);
+	{	Date result;
+		synchronized(TIME_FORMAT_XML)
+		{	result = TIME_FORMAT_XML.parse(timeStr);
+		}
 		return result;
 	}
 	
@@ -188,7 +215,10 @@ public class TimeFormatting
 	 */
 	public static String formatCurrentFileTime()
 	{	Calendar cal = Calendar.getInstance();
-	    String result = TIME_FORMAT_FILE.format(cal.getTime());
+		String result;
+		synchronized(TIME_FORMAT_FILE)
+		{	result = TIME_FORMAT_FILE.format(cal.getTime());
+		}
 		return result;
 	}
 	
@@ -205,7 +235,10 @@ public class TimeFormatting
 	public static String formatFileTime(long time)
 	{	Calendar cal = Calendar.getInstance();
 		cal.setTimeInMillis(time);
-		String result = TIME_FORMAT_FILE.format(cal.getTime());
+		String result;
+		synchronized(TIME_FORMAT_FILE)
+		{	result = TIME_FORMAT_FILE.format(cal.getTime());
+		}
 		return result;
 	}
 	
@@ -220,7 +253,10 @@ public class TimeFormatting
 	 * 		specified time in terms of date & hour.
 	 */
 	public static String formatFileTime(Date date)
-	{	String result = TIME_FORMAT_FILE.format(date);
+	{	String result;
+		synchronized(TIME_FORMAT_FILE)
+		{	result = TIME_FORMAT_FILE.format(date);
+		}
 		return result;
 	}
 	
@@ -0,0 +1,200 @@
+package fr.univavignon.tools.web;
+
+/*
+ * CommonTools
+ * Copyright 2010-19 Vincent Labatut
+ * 
+ * This file is part of CommonTools.
+ * 
+ * CommonTools is free software: you can redistribute it and/or modify it under 
+ * the terms of the GNU General Public License as published by the Free Software 
+ * Foundation, either version 2 of the License, or (at your option) any later version.
+ * 
+ * CommonTools is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with CommonTools. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket used to limit the rate of the requests sent to a Web service.
+ * <br/>
+ * Tokens are added to the bucket at a certain rate, and each request consumes
+ * one token (see {@link #acquire()}). The bucket can contain at most one
+ * second worth of tokens (possibly less, cf. {@link #RateLimiter(double, double)}),
+ * which allows short bursts of requests.
+ * <br/>
+ * The rate adapts to the answers of the service: it is divided by two each
+ * time the service signals it receives too many requests (see
+ * {@link #reportThrottled(long)}), and it increases again by small steps after
+ * each successful request (see {@link #reportSuccess()}), up to its maximal
+ * value.
+ * 
+ * @author Vincent Labatut
+ */
+public class RateLimiter
+{
+	/**
+	 * Builds a new rate limiter, starting
+	 * at its maximal rate.
+	 * 
+	 * @param maxRate
+	 * 		Maximal number of requests per second.
+	 */
+	public RateLimiter(double maxRate)
+	{	this(maxRate, Double.POSITIVE_INFINITY);
+	}
+	
+	/**
+	 * Builds a new rate limiter, starting
+	 * at its maximal rate, and whose bursts
+	 * are limited.
+	 * 
+	 * @param maxRate
+	 * 		Maximal number of requests per second.
+	 * @param maxBurst
+	 * 		Maximal number of requests delivered without waiting
+	 * 		(at least {@code 1}).
+	 */
+	public RateLimiter(double maxRate, double maxBurst)
+	{	if(!(maxRate>0) || Double.isInfinite(maxRate))
+			throw new IllegalArgumentException("The rate must be a positive number ("+maxRate+")");
+		if(!(maxBurst>=1))
+			throw new IllegalArgumentException("The burst must be at least 1 ("+maxBurst+")");
+		this.maxRate = maxRate;
+		this.maxBurst = maxBurst;
+		minRate = maxRate / MIN_RATE_DIVISOR;
+		rate = maxRate;
+		tokens = getCapacity();
+		lastRefill = System.nanoTime();
+		pausedUntil = lastRefill;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// RATE				/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Ratio between the maximal and minimal rates */
+	private final static double MIN_RATE_DIVISOR = 64;
+	/** Factor applied to the rate when the service throttles the requests */
+	private final static double DECREASE_FACTOR = 0.5;
+	/** Proportion of the maximal rate added to the rate after each successful request */
+	private final static double INCREASE_RATIO = 0.05;
+	/** Maximal number of requests per second */
+	private final double maxRate;
+	/** Minimal number of requests per second */
+	private final double minRate;
+	/** Current number of requests per second */
+	private double rate;
+	/** Maximal number of requests delivered without waiting */
+	private final double maxBurst;
+
+	/**
+	 * Returns the current rate of this limiter.
+	 * 
+	 * @return
+	 * 		Current number of requests per second.
+	 */
+	public synchronized double getRate()
+	{	return rate;
+	}
+
+	/**
+	 * Returns the maximal rate of this limiter.
+	 * 
+	 * @return
+	 * 		Maximal number of requests per second.
+	 */
+	public double getMaxRate()
+	{	return maxRate;
+	}
+
+	/**
+	 * Signals the last request was successful: the
+	 * rate is increased, up to its maximal value.
+	 */
+	public synchronized void reportSuccess()
+	{	rate = Math.min(maxRate, rate + maxRate*INCREASE_RATIO);
+	}
+
+	/**
+	 * Signals the service rejected the last request because it received
+	 * too many of them (typically, HTTP code 429 or 503). The rate is
+	 * decreased, and no token is delivered during the specified delay.
+	 * 
+	 * @param delay
+	 * 		Delay requested by the service (in ms), or {@code 0} if
+	 * 		the service did not specify any.
+	 */
+	public synchronized void reportThrottled(long delay)
+	{	refill();
+		rate = Math.max(minRate, rate*DECREASE_FACTOR);
+		tokens = Math.min(tokens, getCapacity());
+
+		long pause;
+		if(delay>0)
+			pause = TimeUnit.MILLISECONDS.toNanos(delay);
+		else
+			pause = (long)(TimeUnit.SECONDS.toNanos(1) / rate);
+		pausedUntil = Math.max(pausedUntil, System.nanoTime() + pause);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// TOKENS			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Number of tokens currently available (negative when some are already reserved) */
+	private double tokens;
+	/** Last time the bucket was refilled (in ns) */
+	private long lastRefill;
+	/** No token is delivered before this time (in ns) */
+	private long pausedUntil;
+
+	/**
+	 * Returns the maximal number of tokens
+	 * the bucket can contain.
+	 * 
+	 * @return
+	 * 		Capacity of the bucket.
+	 */
+	private double getCapacity()
+	{	double result = Math.max(1, Math.min(rate, maxBurst));
+		return result;
+	}
+
+	/**
+	 * Adds the tokens produced since the last refill.
+	 */
+	private void refill()
+	{	long now = System.nanoTime();
+		double elapsed = (now - lastRefill) / (double)TimeUnit.SECONDS.toNanos(1);
+		tokens = Math.min(getCapacity(), tokens + elapsed*rate);
+		lastRefill = now;
+	}
+
+	/**
+	 * Takes a token from the bucket, waiting until
+	 * one is available if necessary.
+	 * 
+	 * @throws InterruptedException
+	 * 		If the thread is interrupted while waiting.
+	 */
+	public void acquire() throws InterruptedException
+	{	long wait;
+		synchronized(this)
+		{	refill();
+			tokens = tokens - 1;
+
+			// the token is reserved now, but possibly produced later
+			wait = 0;
+			if(tokens<0)
+				wait = (long)(-tokens / rate * TimeUnit.SECONDS.toNanos(1));
+			wait = Math.max(wait, pausedUntil-lastRefill);
+		}
+
+		if(wait>0)
+			TimeUnit.NANOSECONDS.sleep(wait);
+	}
+}
@@ -22,23 +22,39 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
 
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
 import org.apache.http.client.ClientProtocolException;
-import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.BufferedHttpEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
 
 import fr.univavignon.tools.log.HierarchicalLogger;
 import fr.univavignon.tools.log.HierarchicalLoggerManager;
 
 /**
  * This class contains a set of methods related to Web communication.
+ * <br/>
+ * All the requests go through the same HTTP client, which keeps the
+ * connections alive and reuses them. The rate of the requests sent to
+ * each service is limited by a {@link RateLimiter}.
  * 
  * @author Vincent Labatut 
- * @version 2
+ * @version 3
  */
 public class WebTools
 {	
@@ -48,6 +64,248 @@ public class WebTools
 	/** Common object used for logging */
 	protected static HierarchicalLogger logger = HierarchicalLoggerManager.getHierarchicalLogger();
 	
+	/////////////////////////////////////////////////////////////////
+	// CLIENT			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Maximal number of simultaneous connections, for all services */
+	private final static int MAX_CONNECTIONS = 64;
+	/** Maximal number of simultaneous connections to the same host */
+	private final static int MAX_CONNECTIONS_PER_ROUTE = 16;
+	/** Maximal time spent waiting for a connection of the pool (in ms) */
+	private final static int CONNECTION_REQUEST_TIMEOUT = 60000;
+	/** HTTP client shared by all requests (lazily created) */
+	private static CloseableHttpClient httpClient = null;
+	
+	/**
+	 * Returns the HTTP client shared by the whole application. Its
+	 * connections are pooled and kept alive, so that consecutive requests 
+	 * to the same host do not need a new connection, TLS handshake, etc.
+	 * The client is thread-safe. A request waits at most {@link #CONNECTION_REQUEST_TIMEOUT}
+	 * for a connection of the pool, after which an exception is thrown.
+	 * 
+	 * @return
+	 * 		The shared HTTP client.
+	 */
+	public static synchronized CloseableHttpClient getHttpClient()
+	{	if(httpClient==null)
+		{	PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+			connectionManager.setMaxTotal(MAX_CONNECTIONS);
+			connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_ROUTE);
+			RequestConfig requestConfig = RequestConfig.custom()
+				.setConnectionRequestTimeout(CONNECTION_REQUEST_TIMEOUT)
+				.build();
+			httpClient = HttpClientBuilder.create()
+				.setConnectionManager(connectionManager)
+				.setDefaultRequestConfig(requestConfig)
+				.build();
+		}
+		return httpClient;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// RATE LIMITS		/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Maximal rate of the services whose rate was not explicitly set (requests per second) */
+	public final static double DEFAULT_RATE = 10;
+	/** Rate limiter of each service */
+	private final static Map<String,RateLimiter> RATE_LIMITERS = new HashMap<String,RateLimiter>();
+	
+	/**
+	 * Changes the maximal rate of the requests sent to the specified service. 
+	 * 
+	 * @param service
+	 * 		Name of the service.
+	 * @param maxRate
+	 * 		Maximal number of requests per second.
+	 */
+	public static void setRateLimit(String service, double maxRate)
+	{	synchronized(RATE_LIMITERS)
+		{	RATE_LIMITERS.put(service, new RateLimiter(maxRate));
+		}
+	}
+	
+	/**
+	 * Changes the maximal rate of the requests sent to the specified service,
+	 * as well as the maximal number of requests sent in a burst. 
+	 * 
+	 * @param service
+	 * 		Name of the service.
+	 * @param maxRate
+	 * 		Maximal number of requests per second.
+	 * @param maxBurst
+	 * 		Maximal number of requests sent without waiting.
+	 */
+	public static void setRateLimit(String service, double maxRate, double maxBurst)
+	{	synchronized(RATE_LIMITERS)
+		{	RATE_LIMITERS.put(service, new RateLimiter(maxRate, maxBurst));
+		}
+	}
+	
+	/**
+	 * Returns the rate limiter of the specified service, creating it
+	 * with the default rate ({@link #DEFAULT_RATE}) if necessary.
+	 * 
+	 * @param service
+	 * 		Name of the service.
+	 * @return
+	 * 		Rate limiter associated to the service.
+	 */
+	public static RateLimiter getRateLimiter(String service)
+	{	synchronized(RATE_LIMITERS)
+		{	RateLimiter result = RATE_LIMITERS.get(service);
+			if(result==null)
+			{	result = new RateLimiter(DEFAULT_RATE);
+				RATE_LIMITERS.put(service, result);
+			}
+			return result;
+		}
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// EXECUTION		/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Maximal number of attempts for a request throttled by the service */
+	private final static int MAX_ATTEMPTS = 5;
+	
+	/**
+	 * Sends the specified request to its host, through the shared client
+	 * (cf. {@link #execute(String, HttpUriRequest)}). The host name is used 
+	 * as the service name.
+	 * 
+	 * @param request
+	 * 		Request to send.
+	 * @return
+	 * 		Answer of the service.
+	 * 
+	 * @throws ClientProtocolException
+	 * 		Problem while accessing the service.
+	 * @throws IOException
+	 * 		Problem while accessing the service.
+	 */
+	public static HttpResponse execute(HttpUriRequest request) throws ClientProtocolException, IOException
+	{	String service = request.getURI().getHost();
+		HttpResponse result = execute(service, request);
+		return result;
+	}
+	
+	/**
+	 * Sends the specified request to the specified service, through the shared 
+	 * client. The rate of the requests is limited according to the service. If
+	 * the service answers it received too many requests (HTTP code 429 or 503),
+	 * the rate is lowered and the request is sent again, up to {@link #MAX_ATTEMPTS}
+	 * times.
+	 * <br/>
+	 * The content of the answer must be read completely (e.g. using 
+	 * {@link #readAnswer(HttpResponse)}), so that the connection can be reused.
+	 * This is done here for the error answers (other than 2xx): their content is
+	 * buffered and their connection is released immediately, so that they cannot 
+	 * leak, even if the caller does not read them.
+	 * 
+	 * @param service
+	 * 		Name of the service, used to select the rate limiter.
+	 * @param request
+	 * 		Request to send.
+	 * @return
+	 * 		Answer of the service.
+	 * 
+	 * @throws ClientProtocolException
+	 * 		Problem while accessing the service.
+	 * @throws IOException
+	 * 		Problem while accessing the service.
+	 */
+	public static HttpResponse execute(String service, HttpUriRequest request) throws ClientProtocolException, IOException
+	{	RateLimiter limiter = getRateLimiter(service);
+		CloseableHttpClient client = getHttpClient();
+		
+		// the request can be sent again only if its content can be
+		boolean repeatable = true;
+		if(request instanceof HttpEntityEnclosingRequest)
+		{	HttpEntity entity = ((HttpEntityEnclosingRequest)request).getEntity();
+			repeatable = entity==null || entity.isRepeatable();
+		}
+		
+		HttpResponse result = null;
+		int attempt = 0;
+		while(result==null)
+		{	try
+			{	limiter.acquire();
+			}
+			catch(InterruptedException e)
+			{	Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting to access service "+service);
+			}
+			attempt++;
+			
+			CloseableHttpResponse response = client.execute(request);
+			int code = response.getStatusLine().getStatusCode();
+			boolean throttled = code==HttpStatus.SC_SERVICE_UNAVAILABLE || code==429; // 429: too many requests
+			if(throttled && repeatable && attempt<MAX_ATTEMPTS)
+			{	long delay = getRetryDelay(response);
+				logger.log("WARNING: service "+service+" answered "+code+" (attempt "+attempt+"/"+MAX_ATTEMPTS+"), slowing down and retrying");
+				EntityUtils.consumeQuietly(response.getEntity());
+				response.close();
+				limiter.reportThrottled(delay);
+			}
+			else
+			{	if(throttled)
+					limiter.reportThrottled(getRetryDelay(response));
+				else
+					limiter.reportSuccess();
+				if(code<200 || code>=300)
+					releaseConnection(response);
+				result = response;
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Buffers the content of the specified answer, then gives its
+	 * connection back to the pool.
+	 * 
+	 * @param response
+	 * 		Answer of the service.
+	 * 
+	 * @throws IOException
+	 * 		Problem while reading the answer.
+	 */
+	private static void releaseConnection(CloseableHttpResponse response) throws IOException
+	{	HttpEntity entity = response.getEntity();
+		try
+		{	if(entity!=null)
+				response.setEntity(new BufferedHttpEntity(entity));
+		}
+		finally
+		{	EntityUtils.consume(entity);
+			response.close();
+		}
+	}
+	
+	/**
+	 * Returns the delay specified by the {@code Retry-After} header
+	 * of the answer, if any. Only delays expressed in seconds are
+	 * handled (not dates).
+	 * 
+	 * @param response
+	 * 		Answer of the service.
+	 * @return
+	 * 		Delay in ms, or {@code 0} if none was specified.
+	 */
+	private static long getRetryDelay(HttpResponse response)
+	{	long result = 0;
+		Header header = response.getFirstHeader("Retry-After");
+		if(header!=null)
+		{	try
+			{	result = Long.parseLong(header.getValue().trim()) * 1000;
+			}
+			catch(NumberFormatException e)
+			{	// HTTP date: ignored, the default delay is used instead
+			}
+		}
+		return result;
+	}
+	
 	/////////////////////////////////////////////////////////////////
 	// GET				/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
@@ -67,9 +325,8 @@ public class WebTools
 	 */
 	public static String processGet(URI url) throws ClientProtocolException, IOException
 	{	// query the server	
-		HttpClient httpClient = HttpClientBuilder.create().build();
 		HttpGet request = new HttpGet(url);
-		HttpResponse response = httpClient.execute(request);
+		HttpResponse response = execute(request);
 		
 		// read answer
 		String result = readAnswer(response);
@@ -97,20 +354,30 @@ public class WebTools
 	{	logger.log("Read HTTP answer");
 		logger.increaseOffset();
 		
-		// init reader
+		// read answer (consuming the content releases the connection)
 		HttpEntity entity = response.getEntity();
-		InputStream stream = entity.getContent();
-		InputStreamReader streamReader = new InputStreamReader(stream,"UTF-8");
-		BufferedReader bufferedReader = new BufferedReader(streamReader);
-		
-		// read answer
-		StringBuffer stringBuffer = new StringBuffer();
-		String line;
+		StringBuilder stringBuffer = new StringBuilder();
 		int nbr = 0;
-		while((line = bufferedReader.readLine())!=null)
-		{	stringBuffer.append(line+"\n");
-			nbr++;
-//			logger.log("Line:" +line);
+		try
+		{	if(entity!=null)
+			{	InputStream stream = entity.getContent();
+				InputStreamReader streamReader = new InputStreamReader(stream,"UTF-8");
+				BufferedReader bufferedReader = new BufferedReader(streamReader);
+				try
+				{	String line;
+					while((line = bufferedReader.readLine())!=null)
+					{	stringBuffer.append(line).append('\n');
+						nbr++;
+//						logger.log("Line:" +line);
+					}
+				}
+				finally
+				{	bufferedReader.close();
+				}
+			}
+		}
+		finally
+		{	EntityUtils.consume(entity);
 		}
 		logger.log("Lines read: "+nbr);
 		
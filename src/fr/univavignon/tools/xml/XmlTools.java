@@ -24,22 +24,27 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.xml.XMLConstants;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
 
 import org.jdom2.Content;
 import org.jdom2.Document;
 import org.jdom2.Element;
+import org.jdom2.JDOMException;
 import org.jdom2.Namespace;
 import org.jdom2.Text;
-import org.jdom2.input.DOMBuilder;
+import org.jdom2.input.SAXBuilder;
+import org.jdom2.input.StAXStreamBuilder;
+import org.jdom2.input.sax.XMLReaderSchemaFactory;
 import org.jdom2.output.Format;
 import org.jdom2.output.XMLOutputter;
 import org.xml.sax.ErrorHandler;
@@ -59,10 +64,26 @@ public class XmlTools
 	/////////////////////////////////////////////////////////////////
 	// INITIALIZATION	/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
-	/** Maps of document builders, each one corresponding to a specifiec XML schema */
-	public static final HashMap<String,DocumentBuilder> DOCUMENT_BUILDERS = new HashMap<String,DocumentBuilder>();	
+	/** Map of the XML schemas, indexed by file name (schemas are thread-safe, so they can be shared) */
+	private static volatile Map<String,Schema> schemas = new HashMap<String,Schema>();
 	
-	/** Populates the map of document builders */
+	/** Error handler treating all problems (including warnings) as errors */
+	private static final ErrorHandler ERROR_HANDLER = new ErrorHandler()
+	{	@Override
+		public void fatalError(SAXParseException e) throws SAXException
+		{	throw e;
+		}
+		@Override
+		public void error(SAXParseException e) throws SAXParseException
+		{	throw e;
+		}
+		@Override
+		public void warning(SAXParseException e) throws SAXParseException
+		{	throw e;
+		}
+	};
+	
+	/** Populates the map of schemas */
 	static
 	{	try
 		{	init();
@@ -70,72 +91,109 @@ public class XmlTools
 		catch (SAXException e)
 		{	e.printStackTrace();
 		}
-		catch (ParserConfigurationException e)
-		{	e.printStackTrace();
-		}
 	}
 
 	/**
 	 * Retrieves all schemas in the corresponding folder,
-	 * load them and put them in the {@code #DOCUMENT_BUILDERS} map.
+	 * and loads them. The parsers are then created on demand,
+	 * separately for each thread (cf. {@link #getBuilder(Schema)}).
 	 * 
 	 * @throws SAXException
 	 * 		Problem while retrieving one the schemas.
-	 * @throws ParserConfigurationException
-	 * 		Problem while retrieving one the schemas.
 	 */
-	public static void init() throws SAXException, ParserConfigurationException
+	public static void init() throws SAXException
 	{	// init
 		SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-	    schemaFactory.setErrorHandler(new ErrorHandler()
-	    {	@Override
-        	public void error(SAXParseException e) throws SAXException
-	    	{   throw e;
-	    	}
-	    	@Override
-    		public void fatalError(SAXParseException e) throws SAXException
-	    	{   throw e;
-	    	}
-	    	@Override
-        	public void warning(SAXParseException e) throws SAXException
-	    	{   throw e;
-	    	}
-	    });
-	    
-	    // loading all schemas
-//	    System.setProperty("javax.xml.parsers.DocumentBuilderFactory", "org.apache.xerces.parsers.SAXParser");
-//	    System.setProperty("javax.xml.parsers.SAXParserFactory", "org.apache.xerces.jaxp.SAXParserFactoryImpl");
+		schemaFactory.setErrorHandler(ERROR_HANDLER);
+		
+		// loading all schemas
+		Map<String,Schema> map = new HashMap<String,Schema>();
 		File folder = new File(FileNames.FO_SCHEMA);
 		File[] files = folder.listFiles();
 		for(int i=0;i<files.length;i++)
 		{	if(files[i].isFile())
 			{	String name = files[i].getName();
 				Schema schema = schemaFactory.newSchema(files[i]);
-				// DOM parser
-				DocumentBuilderFactory documentBuilderfactory = DocumentBuilderFactory.newInstance();
-		        documentBuilderfactory.setNamespaceAware(true);
-		        documentBuilderfactory.setIgnoringElementContentWhitespace(true);
-		        documentBuilderfactory.setSchema(schema);
-		        DocumentBuilder builder = documentBuilderfactory.newDocumentBuilder();
-		        builder.setErrorHandler(new ErrorHandler()
-		        {   @Override
-		        	public void fatalError(SAXParseException e) throws SAXException
-		        	{   throw e;
-		        	}
-		        	@Override
-	        		public void error(SAXParseException e) throws SAXParseException
-			    	{   throw e;
-			    	}
-		        	@Override
-		        	public void warning(SAXParseException e) throws SAXParseException
-			        {   throw e;
-			        }
-				});
-				DOCUMENT_BUILDERS.put(name,builder);
-	        }
+				map.put(name,schema);
+			}
+		}
+		schemas = map;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// PARSERS			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Validating parsers of the current thread, one for each schema (parsers are not thread-safe) */
+	private static final ThreadLocal<Map<Schema,SAXBuilder>> BUILDERS = new ThreadLocal<Map<Schema,SAXBuilder>>()
+	{	@Override
+		protected Map<Schema,SAXBuilder> initialValue()
+		{	return new HashMap<Schema,SAXBuilder>();
+		}
+	};
+	/** Factory of the streaming readers, used for the non-validated files (the factory is thread-safe once configured) */
+	private static final XMLInputFactory INPUT_FACTORY = XMLInputFactory.newInstance();
+	static
+	{	INPUT_FACTORY.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+		INPUT_FACTORY.setProperty(XMLInputFactory.IS_COALESCING, true);
+		INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+	}
+	
+	/**
+	 * Returns the validating parser associated to the specified
+	 * schema, for the current thread. It directly builds the
+	 * JDom tree, without any intermediary DOM tree.
+	 * 
+	 * @param schema
+	 * 		Schema used for validation.
+	 * @return
+	 * 		Parser of the current thread.
+	 */
+	private static SAXBuilder getBuilder(Schema schema)
+	{	Map<Schema,SAXBuilder> map = BUILDERS.get();
+		SAXBuilder result = map.get(schema);
+		if(result==null)
+		{	XMLReaderSchemaFactory factory = new XMLReaderSchemaFactory(schema);
+			result = new SAXBuilder(factory);
+			result.setIgnoringElementContentWhitespace(true);
+			result.setErrorHandler(ERROR_HANDLER);
+			map.put(schema,result);
 		}
+		return result;
 	}
 	
+	/////////////////////////////////////////////////////////////////
+	// VALIDATION		/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Whether the files produced by the application itself are validated when read */
+	private static volatile boolean trustedValidated = true;
+	
+	/**
+	 * Indicates whether the files produced by the application
+	 * itself are validated against their schema when read
+	 * (cf. {@link #getRootFromTrustedFile(File, File)}).
+	 * 
+	 * @return
+	 * 		{@code true} iff these files are validated.
+	 */
+	public static boolean isTrustedValidated()
+	{	return trustedValidated;
+	}
+	
+	/**
+	 * Changes whether the files produced by the application
+	 * itself are validated against their schema when read.
+	 * Skipping validation makes reading much faster, but
+	 * should be done only for files which were not edited
+	 * manually.
+	 * 
+	 * @param trustedValidated
+	 * 		{@code true} to validate these files.
+	 */
+	public static void setTrustedValidated(boolean trustedValidated)
+	{	XmlTools.trustedValidated = trustedValidated;
+	}
+
 	/////////////////////////////////////////////////////////////////
 	// ACCESS			/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
@@ -143,6 +201,8 @@ public class XmlTools
 	 * Open and reads the file corresponding to an XML document,
 	 * parses it using the specified XML schema file,
 	 * and returns the result as a JDom object.
+	 * <br/>
+	 * This method can be used concurrently by several threads.
 	 *  
 	 * @param dataFile
 	 * 		The XML document to be parsed.
@@ -157,15 +217,80 @@ public class XmlTools
 	 * 		Problem while retrieving the XML file.
 	 */
 	public static Element getRootFromFile(File dataFile, File schemaFile) throws SAXException, IOException
+	{	Element result = getRootFromFile(dataFile, schemaFile, true);
+		return result;
+	}
+	
+	/**
+	 * Open and reads the file corresponding to an XML document
+	 * produced by the application itself. It is validated using
+	 * the specified XML schema file only if {@link #isTrustedValidated()}
+	 * returns {@code true}.
+	 *  
+	 * @param dataFile
+	 * 		The XML document to be parsed.
+	 * @param schemaFile
+	 * 		The XML schema file to be used for validation.
+	 * @return
+	 * 		A JDom {@link Element} corresponding to the result of the parsing.
+	 * 
+	 * @throws SAXException
+	 * 		Problem while parsing the XML files.
+	 * @throws IOException
+	 * 		Problem while retrieving the XML file.
+	 */
+	public static Element getRootFromTrustedFile(File dataFile, File schemaFile) throws SAXException, IOException
+	{	Element result = getRootFromFile(dataFile, schemaFile, trustedValidated);
+		return result;
+	}
+	
+	/**
+	 * Open and reads the file corresponding to an XML document,
+	 * possibly validates it using the specified XML schema file,
+	 * and returns the result as a JDom object.
+	 * <br/>
+	 * This method can be used concurrently by several threads.
+	 *  
+	 * @param dataFile
+	 * 		The XML document to be parsed.
+	 * @param schemaFile
+	 * 		The XML schema file to be used for validation.
+	 * @param validate
+	 * 		Whether the document must be validated, or just parsed
+	 * 		(cf. {@link #getRootFromStream(InputStream)}).
+	 * @return
+	 * 		A JDom {@link Element} corresponding to the result of the parsing.
+	 * 
+	 * @throws SAXException
+	 * 		Problem while parsing the XML files.
+	 * @throws IOException
+	 * 		Problem while retrieving the XML file.
+	 */
+	public static Element getRootFromFile(File dataFile, File schemaFile, boolean validate) throws SAXException, IOException
 	{	// init
 		FileInputStream in = new FileInputStream(dataFile);
 		BufferedInputStream inBuff = new BufferedInputStream(in);
 		
-		// JAXP
-		DocumentBuilder bldr = DOCUMENT_BUILDERS.get(schemaFile.getName());
-		org.w3c.dom.Document doc;
+		Element result;
 		try
-		{	doc = bldr.parse(inBuff);
+		{	if(validate)
+			{	Schema schema = schemas.get(schemaFile.getName());
+				if(schema==null)
+					throw new IllegalArgumentException("Unknown XML schema: "+schemaFile);
+				SAXBuilder builder = getBuilder(schema);
+				try
+				{	Document document = builder.build(inBuff);
+					result = document.getRootElement();
+				}
+				catch(JDOMException e)
+				{	if(e.getCause() instanceof SAXException)
+						throw (SAXException)e.getCause();
+					else
+						throw new SAXException(e);
+				}
+			}
+			else
+				result = getRootFromStream(inBuff);
 		}
 		catch (SAXException e)
 		{	System.out.println(dataFile+" : "+schemaFile);
@@ -175,14 +300,48 @@ public class XmlTools
 		{	System.out.println(dataFile+" : "+schemaFile);
 			throw e;
 		}
+		finally
+		{	inBuff.close();
+		}
 		
-		// JDOM
-		DOMBuilder builder = new DOMBuilder();
-        Document document = builder.build(doc);
-		
-        // root
-		Element result = document.getRootElement();
-		inBuff.close();
+		return result;
+	}
+	
+	/**
+	 * Reads an XML document from the specified stream, without any
+	 * validation, and returns its root as a JDom object. The document
+	 * is read with a streaming (StAX) parser, which directly builds the
+	 * JDom tree. The stream is not closed.
+	 * <br/>
+	 * This method can be used concurrently by several threads.
+	 *  
+	 * @param stream
+	 * 		Stream containing the XML document.
+	 * @return
+	 * 		A JDom {@link Element} corresponding to the result of the parsing.
+	 * 
+	 * @throws SAXException
+	 * 		Problem while parsing the XML document.
+	 */
+	public static Element getRootFromStream(InputStream stream) throws SAXException
+	{	Element result;
+		try
+		{	XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(stream);
+			try
+			{	StAXStreamBuilder builder = new StAXStreamBuilder();
+				Document document = builder.build(reader);
+				result = document.getRootElement();
+			}
+			finally
+			{	reader.close();
+			}
+		}
+		catch(XMLStreamException e)
+		{	throw new SAXException(e);
+		}
+		catch(JDOMException e)
+		{	throw new SAXException(e);
+		}
 		return result;
 	}
 
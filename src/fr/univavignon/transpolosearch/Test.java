@@ -590,6 +590,8 @@ public class Test
 	private static void testExtractor() throws Exception
 	{	logger.setName("Extraction");
 		Extractor extractor = new Extractor();
+		extractor.setStoreUsed(false);
+		extractor.setSoftReferenced(false);
 		
 		DateFormat df = new SimpleDateFormat("yyyyMMdd");
 //		Date startDate = df.parse("20170306");
@@ -18,8 +18,13 @@ package fr.univavignon.transpolosearch.data.article;
  * along with TranspoloSearch. If not, see <http://www.gnu.org/licenses/>.
  */
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.SoftReference;
 import java.net.URL;
 import java.text.DateFormat;
 import java.text.ParseException;
@@ -35,6 +40,8 @@ import org.jdom2.Element;
 import org.xml.sax.SAXException;
 
 import fr.univavignon.transpolosearch.data.article.ArticleLanguage;
+import fr.univavignon.transpolosearch.data.entity.BinaryFormat;
+import fr.univavignon.transpolosearch.data.entity.SerializationFormat;
 import fr.univavignon.transpolosearch.data.entity.mention.Mentions;
 import fr.univavignon.transpolosearch.processing.InterfaceRecognizer;
 import fr.univavignon.transpolosearch.tools.file.FileNames;
@@ -219,8 +226,13 @@ public class Article implements Comparable<Article>
 	/////////////////////////////////////////////////////////////////
 	// DATES			/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
-	/** Used to read/write dates */
-    private static final DateFormat DATE_FORMAT = new SimpleDateFormat("dd/MM/yy HH:mm",Locale.ENGLISH);
+	/** Used to read/write dates (one instance per thread, since {@code SimpleDateFormat} is not thread-safe) */
+    private static final ThreadLocal<DateFormat> DATE_FORMAT = new ThreadLocal<DateFormat>()
+    {	@Override
+		protected DateFormat initialValue()
+		{	return new SimpleDateFormat("dd/MM/yy HH:mm",Locale.ENGLISH);
+		}
+    };
 	/** Date the page was last retrieved */
 	private Date retrievalDate = null;
 	/** Date the page was originally published */
@@ -325,21 +337,197 @@ public class Article implements Comparable<Article>
 		this.categories.addAll(categories);
 	}
 
+	/////////////////////////////////////////////////////////////////
+	// LAZY TEXTS		/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Whether the texts read on demand are only softly referenced once recorded */
+	private static volatile boolean softReferenced = false;
+	
+	/**
+	 * Indicates whether the texts read on demand (original
+	 * page and linked text) are only softly referenced.
+	 * 
+	 * @return
+	 * 		{@code true} iff these texts can be dropped
+	 * 		under memory pressure.
+	 */
+	public static boolean isSoftReferenced()
+	{	return softReferenced;
+	}
+	
+	/**
+	 * Changes the way the texts read on demand (original page
+	 * and linked text) are referenced. If {@code true}, the garbage
+	 * collector can drop them when memory becomes scarce, in which
+	 * case they are read again on their next access.
+	 * 
+	 * @param softReferenced
+	 * 		{@code true} to softly reference these texts.
+	 */
+	public static void setSoftReferenced(boolean softReferenced)
+	{	Article.softReferenced = softReferenced;
+	}
+	
+	/**
+	 * Text of the article which is read from its file (or from the
+	 * corpus store) only when it is accessed for the first time.
+	 * <br/>
+	 * Once the text is identical to its recorded version, it can be softly
+	 * referenced (cf. {@link Article#setSoftReferenced(boolean)}). On the
+	 * contrary, a text modified since its last recording is always strongly
+	 * referenced, since it could not be read again.
+	 * 
+	 * @author Vincent Labatut
+	 */
+	private abstract class LazyText
+	{
+		/**
+		 * Builds a lazy text, initially empty.
+		 * 
+		 * @param field
+		 * 		Name of the file containing the text.
+		 */
+		public LazyText(String field)
+		{	this.field = field;
+		}
+		
+		/** Name of the file containing the text */
+		private final String field;
+		/** Text, when strongly referenced */
+		private String value = null;
+		/** Text, when softly referenced */
+		private SoftReference<String> reference = null;
+		/** Whether the text must be read on its next access */
+		private boolean unloaded = false;
+		/** Whether the text was modified since it was last read or recorded */
+		private boolean modified = false;
+		
+		/**
+		 * Returns the text, after reading
+		 * it if necessary.
+		 * 
+		 * @return
+		 * 		The text (possibly {@code null}).
+		 */
+		public synchronized String get()
+		{	String result = value;
+			if(result==null && reference!=null)
+			{	result = reference.get();
+				// dropped by the garbage collector
+				if(result==null)
+					unloaded = true;
+			}
+			
+			if(unloaded)
+			{	try
+				{	String text = readText(field);
+					result = process(text);
+				}
+				catch(IOException e)
+				{	throw new UncheckedIOException("Could not read "+field+" for article "+name, e);
+				}
+				keep(result);
+			}
+			
+			return result;
+		}
+		
+		/**
+		 * Changes the text.
+		 * 
+		 * @param text
+		 * 		New text.
+		 */
+		public synchronized void set(String text)
+		{	value = text;
+			reference = null;
+			unloaded = false;
+			modified = true;
+		}
+		
+		/**
+		 * Drops the text, which will be read 
+		 * again on its next access.
+		 */
+		public synchronized void unload()
+		{	value = null;
+			reference = null;
+			unloaded = true;
+			modified = false;
+		}
+		
+		/**
+		 * Signals the text was just recorded: it
+		 * can now be softly referenced.
+		 */
+		public synchronized void recorded()
+		{	modified = false;
+			if(value!=null)
+				keep(value);
+		}
+		
+		/**
+		 * Indicates whether the text was modified
+		 * since it was last read or recorded.
+		 * 
+		 * @return
+		 * 		{@code true} iff the text was modified.
+		 */
+		public synchronized boolean isModified()
+		{	return modified;
+		}
+		
+		/**
+		 * Keeps the specified text, using a soft or a
+		 * strong reference depending on {@link Article#softReferenced}.
+		 * 
+		 * @param text
+		 * 		Text to keep.
+		 */
+		private void keep(String text)
+		{	unloaded = false;
+			if(softReferenced && text!=null)
+			{	value = null;
+				reference = new SoftReference<String>(text);
+			}
+			else
+			{	value = text;
+				reference = null;
+			}
+		}
+		
+		/**
+		 * Processes the text read from the file.
+		 * 
+		 * @param text
+		 * 		Content of the file, or {@code null} if it does not exist.
+		 * @return
+		 * 		The text of the article.
+		 */
+		protected abstract String process(String text);
+	}
+
 	/////////////////////////////////////////////////////////////////
 	// ORIGINAL PAGE	/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
-	/** Original source code of the web page */
-	private String originalPage = null;
+	/** Original source code of the web page, read on demand */
+	private final LazyText originalPage = new LazyText(FileNames.FI_ORIGINAL_PAGE)
+	{	@Override
+		protected String process(String text)
+		{	return text;
+		}
+	};
 	
 	/**
 	 * Returns the original source code
-	 * of this page.
+	 * of this page. It is read on first 
+	 * access.
 	 * 
 	 * @return
 	 * 		Original source code of this page.
 	 */
 	public String getOriginalPage()
-	{	return originalPage;
+	{	return originalPage.get();
 	}
 
 	/**
@@ -350,20 +538,16 @@ public class Article implements Comparable<Article>
 	 * 		New original source code of this page.
 	 */
 	public void setOriginalPage(String originalPage)
-	{	this.originalPage = originalPage;
+	{	this.originalPage.set(originalPage);
 	}
 
 	/////////////////////////////////////////////////////////////////
 	// FOLDER & FILES	/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
+	/** Folder containing the corpus */
+	private String corpusFolder = null;
 	/** Folder containing the cached files */
 	private String folderPath = null;
-	/** Original html file */
-	private File originalFile = null;
-	/** File containing the raw text */
-	private File rawFile = null;
-	/** File containing the text with hyperlinks */
-	private File linkedFile = null;
 	/** File containing the article metadata */
 	private File propertiesFile = null;
 	
@@ -374,10 +558,8 @@ public class Article implements Comparable<Article>
 	 * 		Folder containing the corpus.
 	 */
 	private void initFiles(String corpusFolder)
-	{	folderPath = corpusFolder + File.separator + name;
-		originalFile = new File(folderPath + File.separator + FileNames.FI_ORIGINAL_PAGE);
-		rawFile = new File(folderPath + File.separator + FileNames.FI_RAW_TEXT);
-		linkedFile = new File(folderPath + File.separator + FileNames.FI_LINKED_TEXT);
+	{	this.corpusFolder = corpusFolder;
+		folderPath = corpusFolder + File.separator + name;
 		propertiesFile = new File(folderPath + File.separator + FileNames.FI_PROPERTIES);
 	}
 	
@@ -392,6 +574,147 @@ public class Article implements Comparable<Article>
 	{	return folderPath;
 	}
 
+	/////////////////////////////////////////////////////////////////
+	// STORE			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Whether the articles are recorded in the store of their corpus, instead of one folder each */
+	private static volatile boolean storeUsed = false;
+	
+	/**
+	 * Indicates whether the articles are recorded in the
+	 * store of their corpus (cf. {@link CorpusStore}),
+	 * instead of one folder each.
+	 * 
+	 * @return
+	 * 		{@code true} iff the corpus store is used.
+	 */
+	public static boolean isStoreUsed()
+	{	return storeUsed;
+	}
+	
+	/**
+	 * Changes the way the articles are recorded: in the
+	 * store of their corpus (cf. {@link CorpusStore}), or
+	 * in one folder each. An existing corpus must first be
+	 * converted using {@link CorpusStore#migrate(String)}.
+	 * 
+	 * @param storeUsed
+	 * 		{@code true} to use the corpus store.
+	 */
+	public static void setStoreUsed(boolean storeUsed)
+	{	Article.storeUsed = storeUsed;
+	}
+	
+	/** Format used to record the mentions in the corpus store */
+	private static volatile SerializationFormat mentionFormat = SerializationFormat.XML;
+	
+	/**
+	 * Returns the format used to record the mentions
+	 * in the corpus store.
+	 * 
+	 * @return
+	 * 		Format of the mentions in the store.
+	 */
+	public static SerializationFormat getMentionFormat()
+	{	return mentionFormat;
+	}
+	
+	/**
+	 * Changes the format used to record the mentions in the
+	 * corpus store. Whatever this format, the previously recorded
+	 * mentions remain readable. The article folders always use
+	 * the XML format.
+	 * 
+	 * @param mentionFormat
+	 * 		New format of the mentions in the store.
+	 */
+	public static void setMentionFormat(SerializationFormat mentionFormat)
+	{	Article.mentionFormat = mentionFormat;
+	}
+	
+	/**
+	 * Returns the store of the corpus
+	 * containing this article.
+	 * 
+	 * @return
+	 * 		Store of the corpus.
+	 * 
+	 * @throws IOException
+	 * 		Problem while opening the store.
+	 */
+	private CorpusStore getStore() throws IOException
+	{	CorpusStore result = CorpusStore.getStore(corpusFolder);
+		return result;
+	}
+	
+	/**
+	 * Reads the specified text file of this article, or
+	 * the corresponding field of the corpus store.
+	 * 
+	 * @param field
+	 * 		Name of the file, relatively to the article folder.
+	 * @return
+	 * 		Content of the file, or {@code null} if it does not exist.
+	 * 
+	 * @throws IOException
+	 * 		Problem while accessing the file.
+	 */
+	private String readText(String field) throws IOException
+	{	String result = null;
+		if(storeUsed)
+			result = getStore().getText(name, field);
+		else
+		{	File file = new File(folderPath + File.separator + field);
+			if(file.exists())
+				result = FileTools.readTextFile(file, "UTF-8");
+		}
+		return result;
+	}
+	
+	/**
+	 * Checks whether the specified file of this article, or
+	 * the corresponding field of the corpus store, exists.
+	 * 
+	 * @param field
+	 * 		Name of the file, relatively to the article folder.
+	 * @return
+	 * 		{@code true} iff the file exists.
+	 * 
+	 * @throws IOException
+	 * 		Problem while accessing the corpus store.
+	 */
+	private boolean hasFile(String field) throws IOException
+	{	boolean result;
+		if(storeUsed)
+			result = getStore().contains(name, field);
+		else
+		{	File file = new File(folderPath + File.separator + field);
+			result = file.exists();
+		}
+		return result;
+	}
+	
+	/**
+	 * Writes the specified text file of this article, or
+	 * the corresponding field of the corpus store.
+	 * 
+	 * @param field
+	 * 		Name of the file, relatively to the article folder.
+	 * @param text
+	 * 		Content of the file.
+	 * 
+	 * @throws IOException
+	 * 		Problem while accessing the file.
+	 */
+	private void writeText(String field, String text) throws IOException
+	{	if(storeUsed)
+			getStore().putText(name, field, text);
+		else
+		{	File file = new File(folderPath + File.separator + field);
+			FileTools.writeTextFile(file, text, "UTF-8");
+		}
+	}
+
 	/////////////////////////////////////////////////////////////////
 	// RAW TEXT			/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
@@ -423,18 +746,29 @@ public class Article implements Comparable<Article>
 	/////////////////////////////////////////////////////////////////
 	// LINKED TEXT			/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
-	/** Raw text with hyperlinks */
-	private String linkedText = null;
+	/** Raw text with hyperlinks, read on demand (the raw text is used if there is no linked text) */
+	private final LazyText linkedText = new LazyText(FileNames.FI_LINKED_TEXT)
+	{	@Override
+		protected String process(String text)
+		{	String result;
+			if(text==null)
+				result = rawText;
+			else
+				result = text.trim();
+			return result;
+		}
+	};
 
 	/**
 	 * Returns the linked text
-	 * of this page.
+	 * of this page. It is read
+	 * on first access.
 	 * 
 	 * @return
 	 * 		Linked text of this page.
 	 */
 	public String getLinkedText()
-	{	return linkedText;
+	{	return linkedText.get();
 	}
 
 	/**
@@ -445,7 +779,7 @@ public class Article implements Comparable<Article>
 	 * 		New linkedText of this page.
 	 */
 	public void setLinkedText(String linkedText)
-	{	this.linkedText = linkedText;
+	{	this.linkedText.set(linkedText);
 	}
 
 	/////////////////////////////////////////////////////////////////
@@ -475,7 +809,7 @@ public class Article implements Comparable<Article>
 		
 		// linked text
 		logger.log("Clean linked text");
-		linkedText = StringTools.cleanText(linkedText,language.getLocale());
+		setLinkedText(StringTools.cleanText(getLinkedText(),language.getLocale()));
 		
 		// remove < and > signs
 		logger.log("Remove tag signs");
@@ -501,7 +835,8 @@ public class Article implements Comparable<Article>
 	 */
 	private void removeTagSigns()
 	{	if(rawText.contains("<") || rawText.contains(">"))
-		{	StringBuffer rt = new StringBuffer();
+		{	String linkedText = getLinkedText();
+			StringBuffer rt = new StringBuffer();
 			StringBuffer lt = new StringBuffer();
 			int i = 0;
 			int j = 0;
@@ -533,7 +868,7 @@ public class Article implements Comparable<Article>
 			}
 			
 			rawText = rt.toString();
-			linkedText = rt.toString();
+			setLinkedText(rt.toString());
 		}
 	}
 	
@@ -549,19 +884,29 @@ public class Article implements Comparable<Article>
 	 * 		Name/title of the article of interest.
 	 * @return
 	 * 		{@code true} iff the specified article was recorded.
+	 * 
+	 * @throws IOException
+	 * 		Problem while accessing the corpus store.
 	 */
-	public static boolean isCached(String name)
+	public static boolean isCached(String name) throws IOException
 	{	
 //		for(int i=0;i<name.length();i++)
 //			System.out.println(i+": '"+name.charAt(i)+"'=='"+"Ahmet_Davutoglu".charAt(i)+"' >> "+(name.charAt(i)=="Ahmet_Davutoglu".charAt(i)));
 		
-		String folderPath = FileNames.FO_WEB_PAGES + File.separator + name;
-//		File originalFile = new File(folderPath + File.separator + FileNames.FI_ORIGINAL_PAGE);
-		File rawFile = new File(folderPath + File.separator + FileNames.FI_RAW_TEXT);
-		File linkedFile = new File(folderPath + File.separator + FileNames.FI_LINKED_TEXT);
-//		File propertiesFile = new File(folderPath + File.separator + FileNames.FI_PROPERTIES);
-		
-		boolean result = rawFile.exists() && linkedFile.exists() /*&& originalFile.exists()*/;
+		boolean result;
+		if(storeUsed)
+		{	CorpusStore store = CorpusStore.getStore(FileNames.FO_WEB_PAGES);
+			result = store.contains(name, FileNames.FI_RAW_TEXT) && store.contains(name, FileNames.FI_LINKED_TEXT);
+		}
+		else
+		{	String folderPath = FileNames.FO_WEB_PAGES + File.separator + name;
+//			File originalFile = new File(folderPath + File.separator + FileNames.FI_ORIGINAL_PAGE);
+			File rawFile = new File(folderPath + File.separator + FileNames.FI_RAW_TEXT);
+			File linkedFile = new File(folderPath + File.separator + FileNames.FI_LINKED_TEXT);
+//			File propertiesFile = new File(folderPath + File.separator + FileNames.FI_PROPERTIES);
+			
+			result = rawFile.exists() && linkedFile.exists() /*&& originalFile.exists()*/;
+		}
 		return result;
 	}
 	
@@ -629,7 +974,7 @@ public class Article implements Comparable<Article>
 	 */
 	private static void read(Article result) throws ParseException, SAXException, IOException
 	{	// properties
-		if(result.propertiesFile.exists())
+		if(result.hasFile(FileNames.FI_PROPERTIES))
 			result.readProperties();
 		else
 		{	// if the file does not exist, we create it
@@ -637,24 +982,18 @@ public class Article implements Comparable<Article>
 			result.writeProperties();
 		}
 		
-		// original page
-		if(result.originalFile.exists())
-		{	String originalPage = FileTools.readTextFile(result.originalFile,"UTF-8");
-			result.setOriginalPage(originalPage);
-		}
+		// original page (read on demand)
+		result.originalPage.unload();
 		
 		// raw text
-		String rawText = FileTools.readTextFile(result.rawFile,"UTF-8");
+		String rawText = result.readText(FileNames.FI_RAW_TEXT);
+		if(rawText==null)
+			throw new FileNotFoundException("Could not find the raw text of article "+result.name);
 		rawText = rawText.trim();
 		result.setRawText(rawText);
 		
-		// raw text with hyperlinks
-		String linkedText = rawText;
-		if(result.linkedFile.exists())
-		{	linkedText = FileTools.readTextFile(result.linkedFile,"UTF-8");
-			linkedText = linkedText.trim();
-		}
-		result.setLinkedText(linkedText);
+		// raw text with hyperlinks (read on demand)
+		result.linkedText.unload();
 		
 //		// clean the texts
 //		result.cleanContent();
@@ -666,7 +1005,7 @@ public class Article implements Comparable<Article>
 	
 	/**
 	 * Reads the properties of this article 
-	 * in an XML file.
+	 * in an XML file (or in the corpus store).
 	 * 
 	 * @throws ParseException
 	 * 		Problem while accessing the file.
@@ -681,7 +1020,11 @@ public class Article implements Comparable<Article>
 		File schemaFile = new File(schemaPath);
 
 		// load file
-		Element root = XmlTools.getRootFromFile(propertiesFile,schemaFile);
+		Element root;
+		if(storeUsed)
+			root = getStore().getElement(name, FileNames.FI_PROPERTIES);
+		else
+			root = XmlTools.getRootFromTrustedFile(propertiesFile,schemaFile);
 		
 		// article title
 		{	Element titleElt = root.getChild(XmlNames.ELT_TITLE);
@@ -725,14 +1068,14 @@ public class Article implements Comparable<Article>
 			// retrieval
 			{	Element retrievalDateElt = datesElt.getChild(XmlNames.ELT_RETRIEVAL_DATE);
 				String retrievalDateStr = retrievalDateElt.getTextTrim();
-				Date retrievalDate = DATE_FORMAT.parse(retrievalDateStr);
+				Date retrievalDate = DATE_FORMAT.get().parse(retrievalDateStr);
 				this.retrievalDate = retrievalDate;
 			}
 			// publishing
 			{	Element publishingDateElt = datesElt.getChild(XmlNames.ELT_PUBLISHING_DATE);
 				if(publishingDateElt!=null)
 				{	String publishingDateStr = publishingDateElt.getTextTrim();
-					Date publishingDate = DATE_FORMAT.parse(publishingDateStr);
+					Date publishingDate = DATE_FORMAT.get().parse(publishingDateStr);
 					this.publishingDate = publishingDate;
 				}
 			}
@@ -740,7 +1083,7 @@ public class Article implements Comparable<Article>
 			{	Element modificationDateElt = datesElt.getChild(XmlNames.ELT_MODIFICATION_DATE);
 				if(modificationDateElt!=null)
 				{	String modificationDateStr = modificationDateElt.getTextTrim();
-					Date modificationDate = DATE_FORMAT.parse(modificationDateStr);
+					Date modificationDate = DATE_FORMAT.get().parse(modificationDateStr);
 					this.modificationDate = modificationDate;
 				}
 			}
@@ -765,7 +1108,8 @@ public class Article implements Comparable<Article>
 	/////////////////////////////////////////////////////////////////
 	/**
 	 * Writes this article in
-	 * its predefined folder. All
+	 * its predefined folder (or in
+	 * the store of its corpus). All
 	 * files are writen, possibly
 	 * erasing pre-existing content.
 	 * 
@@ -779,10 +1123,17 @@ public class Article implements Comparable<Article>
 //			FileTools.writeTextFile(originalFile,originalPage,"UTF-8");
 
 		// raw text only
-		FileTools.writeTextFile(rawFile,rawText,"UTF-8");
+		writeText(FileNames.FI_RAW_TEXT,rawText);
 		
-		// raw text with hyperlinks
-		FileTools.writeTextFile(linkedFile,linkedText,"UTF-8");
+		// raw text with hyperlinks (unchanged if not modified since read, unless the file is missing)
+		if(linkedText.isModified() || !hasFile(FileNames.FI_LINKED_TEXT))
+		{	writeText(FileNames.FI_LINKED_TEXT,linkedText.get());
+			linkedText.recorded();
+		}
+		
+		// original html code, already recorded by the reader
+		if(originalPage.isModified() && hasFile(FileNames.FI_ORIGINAL_PAGE))
+			originalPage.recorded();
 		
 		// properties
 		writeProperties();
@@ -790,17 +1141,13 @@ public class Article implements Comparable<Article>
 	
 	/**
 	 * Writes the properties of this article
-	 * in an XML file.
+	 * in an XML file (or in the corpus store).
 	 * 
 	 * @throws IOException
 	 * 		Problem while accessing the file.
 	 */
 	private void writeProperties() throws IOException
-	{	// check folder
-		File folder = propertiesFile.getParentFile();
-		if(!folder.exists())
-			folder.mkdirs();
-		// schema file
+	{	// schema file
 		String schemaPath = FileNames.FO_SCHEMA+File.separator+FileNames.FI_PROPERTY_SCHEMA;
 		File schemaFile = new File(schemaPath);
 		
@@ -845,21 +1192,21 @@ public class Article implements Comparable<Article>
 		{	Element datesElt = new Element(XmlNames.ELT_DATES);
 			root.addContent(datesElt);
 				// retrieval
-				{	String retrievalDateStr = DATE_FORMAT.format(retrievalDate);
+				{	String retrievalDateStr = DATE_FORMAT.get().format(retrievalDate);
 					Element retrievalDateElt = new Element(XmlNames.ELT_RETRIEVAL_DATE);
 					retrievalDateElt.setText(retrievalDateStr);
 					datesElt.addContent(retrievalDateElt);
 				}
 				// publishing
 				if(publishingDate!=null)
-				{	String publishingDateStr = DATE_FORMAT.format(publishingDate);
+				{	String publishingDateStr = DATE_FORMAT.get().format(publishingDate);
 					Element publishingDateElt = new Element(XmlNames.ELT_PUBLISHING_DATE);
 					publishingDateElt.setText(publishingDateStr);
 					datesElt.addContent(publishingDateElt);
 				}
 				// modification
 				if(modificationDate!=null)
-				{	String modificationDateStr = DATE_FORMAT.format(modificationDate);
+				{	String modificationDateStr = DATE_FORMAT.get().format(modificationDate);
 					Element modificationDateElt = new Element(XmlNames.ELT_MODIFICATION_DATE);
 					modificationDateElt.setText(modificationDateStr);
 					datesElt.addContent(modificationDateElt);
@@ -878,7 +1225,15 @@ public class Article implements Comparable<Article>
 		}
 		
 		// record file
-		XmlTools.makeFileFromRoot(propertiesFile,schemaFile,root);
+		if(storeUsed)
+			getStore().putElement(name, FileNames.FI_PROPERTIES, root);
+		else
+		{	// check folder
+			File folder = propertiesFile.getParentFile();
+			if(!folder.exists())
+				folder.mkdirs();
+			XmlTools.makeFileFromRoot(propertiesFile,schemaFile,root);
+		}
 	}
 	
 	/////////////////////////////////////////////////////////////////
@@ -899,9 +1254,7 @@ public class Article implements Comparable<Article>
 	 * 		Problem while accessing the file.
 	 */
 	public Mentions getReferenceMentions() throws SAXException, IOException, ParseException
-	{	String path = folderPath + File.separator + FileNames.FI_MENTION_LIST;
-		File file = new File(path);
-		Mentions result = Mentions.readFromXml(file);
+	{	Mentions result = readMentions(FileNames.FI_MENTION_LIST);
 		return result;
 	}
 	
@@ -922,11 +1275,81 @@ public class Article implements Comparable<Article>
 	 * 		Problem while accessing the file.
 	 */
 	public Mentions getEstimatedMentions(InterfaceRecognizer recognizer) throws SAXException, IOException, ParseException
-	{	String path = folderPath + File.separator + recognizer.getRecognizerFolder() + File.separator + FileNames.FI_MENTION_LIST;
-		File file = new File(path);
-		Mentions result = Mentions.readFromXml(file);
+	{	String field = recognizer.getRecognizerFolder() + File.separator + FileNames.FI_MENTION_LIST;
+		Mentions result = readMentions(field);
 		return result;
 	}
+	
+	/**
+	 * Reads the mentions recorded in the specified XML file
+	 * of this article (or in the corpus store, in which case
+	 * they can also use the binary format).
+	 * 
+	 * @param field
+	 * 		Path of the file, relatively to the article folder.
+	 * @return
+	 * 		The list of mentions.
+	 * 		
+	 * @throws IOException
+	 * 		Problem while accessing the file.
+	 * @throws SAXException
+	 * 		Problem while accessing the file.
+	 * @throws ParseException 
+	 * 		Problem while accessing the file.
+	 */
+	public Mentions readMentions(String field) throws SAXException, IOException, ParseException
+	{	Mentions result;
+		if(storeUsed)
+		{	byte[] data = getStore().get(name, field);
+			if(data==null)
+				throw new FileNotFoundException("Could not find "+field+" for article "+name+" in the corpus store");
+			if(BinaryFormat.isBinaryMentions(data))
+				result = BinaryFormat.readMentions(new ByteArrayInputStream(data), null);
+			else
+			{	Element element = CorpusStore.parseElement(data);
+				result = Mentions.importFromElement(element, null);
+			}
+		}
+		else
+		{	File file = new File(folderPath + File.separator + field);
+			result = Mentions.readFromXml(file);
+		}
+		return result;
+	}
+	
+	/**
+	 * Records the specified mentions in the specified XML
+	 * file of this article (or in the corpus store, using
+	 * the format returned by {@link #getMentionFormat()}).
+	 * 
+	 * @param field
+	 * 		Path of the file, relatively to the article folder.
+	 * @param mentions
+	 * 		The list of mentions.
+	 * 		
+	 * @throws IOException
+	 * 		Problem while accessing the file.
+	 */
+	public void writeMentions(String field, Mentions mentions) throws IOException
+	{	if(storeUsed)
+		{	if(mentionFormat==SerializationFormat.BINARY)
+			{	ByteArrayOutputStream out = new ByteArrayOutputStream();
+				BinaryFormat.writeMentions(mentions, null, out);
+				getStore().put(name, field, out.toByteArray());
+			}
+			else
+			{	Element element = mentions.exportAsElement(null);
+				getStore().putElement(name, field, element);
+			}
+		}
+		else
+		{	File file = new File(folderPath + File.separator + field);
+			File folder = file.getParentFile();
+			if(!folder.exists())
+				folder.mkdirs();
+			mentions.writeToXml(file);
+		}
+	}
 
 	/////////////////////////////////////////////////////////////////
 	// OBJECT			/////////////////////////////////////////////
@@ -0,0 +1,1123 @@
+package fr.univavignon.transpolosearch.data.article;
+
+/*
+ * TranspoloSearch
+ * Copyright 2015-18 Vincent Labatut
+ * 
+ * This file is part of TranspoloSearch.
+ * 
+ * TranspoloSearch is free software: you can redistribute it and/or modify it under 
+ * the terms of the GNU General Public License as published by the Free Software 
+ * Foundation, either version 2 of the License, or (at your option) any later version.
+ * 
+ * TranspoloSearch is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with TranspoloSearch. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.output.Format;
+import org.jdom2.output.XMLOutputter;
+import org.xml.sax.SAXException;
+
+import fr.univavignon.transpolosearch.tools.file.FileNames;
+import fr.univavignon.transpolosearch.tools.file.FileTools;
+
+import fr.univavignon.tools.log.HierarchicalLogger;
+import fr.univavignon.tools.log.HierarchicalLoggerManager;
+import fr.univavignon.tools.xml.XmlTools;
+
+/**
+ * Storage of a whole corpus in a few large files, used instead of the
+ * folder layout (one folder per article, containing many small files)
+ * when {@link Article#setStoreUsed(boolean)} is enabled.
+ * <br/>
+ * Each piece of data is identified by the name of its article and by a field,
+ * which is the relative path of the corresponding file in the folder layout
+ * (e.g. {@link FileNames#FI_RAW_TEXT}, or the recognizer folder followed by
+ * {@link FileNames#FI_MENTION_LIST}). The data are appended to segment files,
+ * which constitute an append-only log: modifying a field consists in writing
+ * it again, the previous record being just ignored. A new segment is started
+ * each time the current one exceeds {@link #MAX_SEGMENT_SIZE}.
+ * <br/>
+ * The position of the last record of each field is stored in an open-addressing
+ * hash table, itself stored in a memory-mapped file. So, checking whether a field
+ * exists does not require any read in the segments, except to confirm the key, and
+ * retrieving a field requires a single read. The index contains the position in
+ * the log up to which it is up-to-date: when the store is opened, the records
+ * appended after this position (e.g. if the program was interrupted) are indexed.
+ * If the index is missing or damaged, it is completely rebuilt from the segments.
+ * <br/>
+ * The store of a corpus is located in its {@link FileNames#FI_CORPUS_STORE} subfolder.
+ * An existing corpus can be converted from the folder layout using {@link #migrate(String)}.
+ * 
+ * @author Vincent Labatut
+ */
+public class CorpusStore
+{
+	/**
+	 * Opens the store located in the specified folder,
+	 * creating it if necessary.
+	 * 
+	 * @param folder
+	 * 		Folder containing the store files.
+	 * 
+	 * @throws IOException
+	 * 		Problem while accessing the store files.
+	 */
+	private CorpusStore(File folder) throws IOException
+	{	this.folder = folder;
+		if(!folder.exists())
+			folder.mkdirs();
+
+		openSegments();
+		openIndex();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// LOGGER			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Common object used for logging */
+	private static HierarchicalLogger logger = HierarchicalLoggerManager.getHierarchicalLogger();
+
+	/////////////////////////////////////////////////////////////////
+	// STORES			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Stores currently open, indexed by the canonical path of their folder */
+	private final static Map<String,CorpusStore> STORES = new HashMap<String,CorpusStore>();
+	/** Whether the stores still open are closed when the JVM terminates */
+	private static boolean shutdownHookAdded = false;
+
+	/**
+	 * Returns the store of the specified corpus, after opening
+	 * (or creating) it if necessary. The same object is returned
+	 * for all the articles of a given corpus.
+	 * 
+	 * @param corpusFolder
+	 * 		Folder containing the corpus.
+	 * @return
+	 * 		Store of the corpus.
+	 * 
+	 * @throws IOException
+	 * 		Problem while opening the store.
+	 */
+	public static synchronized CorpusStore getStore(String corpusFolder) throws IOException
+	{	File folder = new File(corpusFolder + File.separator + FileNames.FI_CORPUS_STORE);
+		String path = folder.getCanonicalPath();
+		CorpusStore result = STORES.get(path);
+		if(result==null)
+		{	result = new CorpusStore(folder);
+			STORES.put(path, result);
+			addShutdownHook();
+		}
+		return result;
+	}
+
+	/**
+	 * Makes sure the stores still open when the JVM terminates
+	 * are closed, so that their index is up-to-date and does not
+	 * need to be completed when the store is opened again.
+	 */
+	private static void addShutdownHook()
+	{	if(!shutdownHookAdded)
+		{	Runtime.getRuntime().addShutdownHook(new Thread("CorpusStoreShutdown")
+			{	@Override
+				public void run()
+				{	try
+					{	closeStores();
+					}
+					catch(IOException e)
+					{	e.printStackTrace();
+					}
+				}
+			});
+			shutdownHookAdded = true;
+		}
+	}
+
+	/**
+	 * Closes all the stores currently open.
+	 * 
+	 * @throws IOException
+	 * 		Problem while closing a store.
+	 */
+	public static synchronized void closeStores() throws IOException
+	{	List<CorpusStore> stores = new ArrayList<CorpusStore>(STORES.values());
+		for(CorpusStore store: stores)
+			store.close();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// KEYS				/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Character separating the article name from the field in the keys */
+	private final static char SEPARATOR = '/';
+
+	/**
+	 * Returns the key of the specified field, i.e. its path
+	 * in the folder layout, relatively to the corpus folder,
+	 * encoded in UTF-8.
+	 * 
+	 * @param name
+	 * 		Name of the article.
+	 * @param field
+	 * 		Field of interest.
+	 * @return
+	 * 		Key of the field.
+	 */
+	private static byte[] getKey(String name, String field)
+	{	String key = name + SEPARATOR + field.replace(File.separatorChar, SEPARATOR);
+		byte[] result = key.getBytes(StandardCharsets.UTF_8);
+		return result;
+	}
+
+	/**
+	 * Processes the hash of the specified key
+	 * (64-bit FNV-1a function).
+	 * 
+	 * @param key
+	 * 		Key of interest.
+	 * @return
+	 * 		Hash of the key.
+	 */
+	private static long hash(byte[] key)
+	{	long result = 0xcbf29ce484222325L;
+		for(byte b: key)
+		{	result = result ^ (b & 0xFF);
+			result = result * 0x100000001b3L;
+		}
+		return result;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// SEGMENTS			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Size above which a new segment is started */
+	private final static long MAX_SEGMENT_SIZE = 1L << 30;
+	/** Integer marking the beginning of a record */
+	private final static int RECORD_MAGIC = 0x54535231;
+	/** Size of the beginning of a record: magic number, key length, data length */
+	private final static int RECORD_HEADER = 12;
+	/** Size of the end of a record: checksum */
+	private final static int RECORD_FOOTER = 4;
+	/** Number of bits used to encode the offset of a record in its location */
+	private final static int OFFSET_BITS = 40;
+	/** Folder containing the store files */
+	private final File folder;
+	/** Open segments, in the order of their creation */
+	private final List<FileChannel> segments = new ArrayList<FileChannel>();
+
+	/**
+	 * Record read from a segment.
+	 */
+	private static class Record
+	{	/** Key of the field */
+		byte[] key;
+		/** Content of the field */
+		byte[] data;
+		/** Total size of the record in the segment */
+		long length;
+	}
+
+	/**
+	 * Returns the file corresponding to the
+	 * specified segment.
+	 * 
+	 * @param segment
+	 * 		Number of the segment.
+	 * @return
+	 * 		File containing the segment.
+	 */
+	private File getSegmentFile(int segment)
+	{	String name = FileNames.FI_STORE_SEGMENT + String.format("%05d", segment) + FileNames.EX_BIN;
+		File result = new File(folder, name);
+		return result;
+	}
+
+	/**
+	 * Opens all the existing segments.
+	 * 
+	 * @throws IOException
+	 * 		Problem while opening a segment.
+	 */
+	private void openSegments() throws IOException
+	{	int segment = 0;
+		File file = getSegmentFile(segment);
+		while(file.exists())
+		{	segments.add(new RandomAccessFile(file, "rw").getChannel());
+			segment++;
+			file = getSegmentFile(segment);
+		}
+	}
+
+	/**
+	 * Encodes the position of a record
+	 * as a single number.
+	 * 
+	 * @param segment
+	 * 		Number of the segment containing the record.
+	 * @param offset
+	 * 		Position of the record in the segment.
+	 * @return
+	 * 		Location of the record.
+	 */
+	private static long getLocation(int segment, long offset)
+	{	long result = ((long)segment << OFFSET_BITS) | offset;
+		return result;
+	}
+
+	/**
+	 * Returns the segment part of a
+	 * record location.
+	 * 
+	 * @param location
+	 * 		Location of the record.
+	 * @return
+	 * 		Number of the segment containing the record.
+	 */
+	private static int getSegment(long location)
+	{	int result = (int)(location >>> OFFSET_BITS);
+		return result;
+	}
+
+	/**
+	 * Returns the offset part of a
+	 * record location.
+	 * 
+	 * @param location
+	 * 		Location of the record.
+	 * @return
+	 * 		Position of the record in its segment.
+	 */
+	private static long getOffset(long location)
+	{	long result = location & ((1L << OFFSET_BITS) - 1);
+		return result;
+	}
+
+	/**
+	 * Returns the channel of the segment
+	 * containing the specified record.
+	 * 
+	 * @param location
+	 * 		Location of the record.
+	 * @return
+	 * 		Channel of the segment.
+	 */
+	private synchronized FileChannel getChannel(long location)
+	{	FileChannel result = segments.get(getSegment(location));
+		return result;
+	}
+
+	/**
+	 * Fills the specified buffer with the content of the
+	 * channel, starting from the specified position.
+	 * 
+	 * @param channel
+	 * 		Channel to read.
+	 * @param buffer
+	 * 		Buffer to fill.
+	 * @param position
+	 * 		Position of the first byte to read.
+	 * @return
+	 * 		{@code false} iff the end of the channel was reached
+	 * 		before filling the buffer.
+	 * 
+	 * @throws IOException
+	 * 		Problem while reading the channel.
+	 */
+	private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException
+	{	boolean result = true;
+		while(result && buffer.hasRemaining())
+		{	int read = channel.read(buffer, position);
+			if(read<0)
+				result = false;
+			else
+				position = position + read;
+		}
+		buffer.flip();
+		return result;
+	}
+
+	/**
+	 * Reads the beginning of the specified record.
+	 * 
+	 * @param channel
+	 * 		Segment containing the record.
+	 * @param offset
+	 * 		Position of the record in the segment.
+	 * @param size
+	 * 		Size of the segment.
+	 * @return
+	 * 		Length of the key and length of the data, or {@code null}
+	 * 		if there is no valid record at this position.
+	 * 
+	 * @throws IOException
+	 * 		Problem while reading the segment.
+	 */
+	private static int[] readRecordHeader(FileChannel channel, long offset, long size) throws IOException
+	{	int[] result = null;
+		ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER);
+		if(offset+RECORD_HEADER<=size && readFully(channel, header, offset))
+		{	int magic = header.getInt();
+			int keyLength = header.getInt();
+			int dataLength = header.getInt();
+			long end = offset + RECORD_HEADER + (long)keyLength + dataLength + RECORD_FOOTER;
+			if(magic==RECORD_MAGIC && keyLength>=0 && dataLength>=0 && end<=size)
+				result = new int[]{keyLength, dataLength};
+		}
+		return result;
+	}
+
+	/**
+	 * Reads the key of the specified record.
+	 * 
+	 * @param location
+	 * 		Location of the record.
+	 * @return
+	 * 		Key of the record.
+	 * 
+	 * @throws IOException
+	 * 		Problem while reading the segment.
+	 */
+	private byte[] readKey(long location) throws IOException
+	{	FileChannel channel = segments.get(getSegment(location));
+		long offset = getOffset(location);
+		int[] lengths = readRecordHeader(channel, offset, channel.size());
+		if(lengths==null)
+			throw new IOException("Damaged record in "+getSegmentFile(getSegment(location))+" at position "+offset);
+
+		ByteBuffer buffer = ByteBuffer.allocate(lengths[0]);
+		readFully(channel, buffer, offset+RECORD_HEADER);
+		byte[] result = buffer.array();
+		return result;
+	}
+
+	/**
+	 * Reads the complete record located at the specified position.
+	 * 
+	 * @param channel
+	 * 		Segment containing the record.
+	 * @param offset
+	 * 		Position of the record in the segment.
+	 * @param size
+	 * 		Size of the segment.
+	 * @return
+	 * 		The record, or {@code null} if there is no valid
+	 * 		record at this position.
+	 * 
+	 * @throws IOException
+	 * 		Problem while reading the segment.
+	 */
+	private static Record readRecord(FileChannel channel, long offset, long size) throws IOException
+	{	Record result = null;
+		int[] lengths = readRecordHeader(channel, offset, size);
+		if(lengths!=null)
+		{	ByteBuffer body = ByteBuffer.allocate(lengths[0] + lengths[1] + RECORD_FOOTER);
+			readFully(channel, body, offset+RECORD_HEADER);
+			Record record = new Record();
+			record.key = new byte[lengths[0]];
+			body.get(record.key);
+			record.data = new byte[lengths[1]];
+			body.get(record.data);
+			record.length = RECORD_HEADER + body.capacity();
+			int checksum = body.getInt();
+
+			CRC32 crc = new CRC32();
+			crc.update(record.key);
+			crc.update(record.data);
+			if(checksum==(int)crc.getValue())
+				result = record;
+		}
+		return result;
+	}
+
+	/**
+	 * Appends a record at the end of the last segment,
+	 * or in a new segment if the last one is full. The
+	 * index is not updated.
+	 * 
+	 * @param key
+	 * 		Key of the field.
+	 * @param data
+	 * 		Content of the field.
+	 * @return
+	 * 		Location of the new record.
+	 * 
+	 * @throws IOException
+	 * 		Problem while writing the segment.
+	 */
+	private long appendRecord(byte[] key, byte[] data) throws IOException
+	{	// possibly start a new segment
+		int segment = segments.size() - 1;
+		if(segment<0 || segments.get(segment).size()>=MAX_SEGMENT_SIZE)
+		{	segment++;
+			segments.add(new RandomAccessFile(getSegmentFile(segment), "rw").getChannel());
+		}
+		FileChannel channel = segments.get(segment);
+		long offset = channel.size();
+
+		// build the record
+		CRC32 crc = new CRC32();
+		crc.update(key);
+		crc.update(data);
+		ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER + key.length + data.length + RECORD_FOOTER);
+		buffer.putInt(RECORD_MAGIC);
+		buffer.putInt(key.length);
+		buffer.putInt(data.length);
+		buffer.put(key);
+		buffer.put(data);
+		buffer.putInt((int)crc.getValue());
+		buffer.flip();
+
+		// write it
+		long position = offset;
+		while(buffer.hasRemaining())
+			position = position + channel.write(buffer, position);
+
+		long result = getLocation(segment, offset);
+		return result;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// INDEX			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Integer marking the beginning of the index file */
+	private final static int INDEX_MAGIC = 0x54534931;
+	/** Version of the index format */
+	private final static int INDEX_VERSION = 1;
+	/** Size of the header of the index file */
+	private final static int INDEX_HEADER = 32;
+	/** Size of a slot of the hash table: hash of the key, location of the record plus one (zero for an empty slot) */
+	private final static int SLOT_SIZE = 16;
+	/** Initial number of slots */
+	private final static int INITIAL_CAPACITY = 1 << 12;
+	/** Maximal number of slots */
+	private final static int MAX_CAPACITY = 1 << 26;
+	/** Proportion of used slots above which the table is enlarged */
+	private final static double MAX_LOAD = 0.6;
+	/** Position of the magic number in the header */
+	private final static int POS_MAGIC = 0;
+	/** Position of the version in the header */
+	private final static int POS_VERSION = 4;
+	/** Position of the number of slots in the header */
+	private final static int POS_CAPACITY = 8;
+	/** Position of the number of used slots in the header */
+	private final static int POS_SIZE = 12;
+	/** Position of the consistency flag in the header (zero while the table is being rebuilt) */
+	private final static int POS_CONSISTENT = 16;
+	/** Position of the segment up to which the index is up-to-date */
+	private final static int POS_SEGMENT = 20;
+	/** Position in this segment up to which the index is up-to-date */
+	private final static int POS_OFFSET = 24;
+	/** Index file */
+	private RandomAccessFile indexFile;
+	/** Memory-mapped content of the index file */
+	private MappedByteBuffer index;
+	/** Number of slots of the hash table */
+	private int capacity;
+	/** Number of used slots of the hash table */
+	private int size;
+
+	/**
+	 * Opens the index file, and brings it up-to-date. If it
+	 * cannot be used, it is rebuilt from the segments.
+	 * 
+	 * @throws IOException
+	 * 		Problem while accessing the index or the segments.
+	 */
+	private void openIndex() throws IOException
+	{	File file = new File(folder, FileNames.FI_STORE_INDEX);
+		indexFile = new RandomAccessFile(file, "rw");
+
+		// check the header
+		boolean valid = false;
+		int segment = 0;
+		long offset = 0;
+		if(indexFile.length()>=INDEX_HEADER)
+		{	int magic = indexFile.readInt();
+			int version = indexFile.readInt();
+			capacity = indexFile.readInt();
+			size = indexFile.readInt();
+			int consistent = indexFile.readInt();
+			segment = indexFile.readInt();
+			offset = indexFile.readLong();
+			valid = magic==INDEX_MAGIC && version==INDEX_VERSION && consistent==1
+				&& capacity>0 && capacity<=MAX_CAPACITY && Integer.bitCount(capacity)==1
+				&& indexFile.length()==INDEX_HEADER+(long)capacity*SLOT_SIZE
+				&& (segments.isEmpty() && segment==0 && offset==0
+					|| segment<segments.size() && offset<=segments.get(segment).size());
+		}
+
+		if(valid)
+			index = indexFile.getChannel().map(MapMode.READ_WRITE, 0, indexFile.length());
+		else
+		{	if(!segments.isEmpty())
+				logger.log("The index of the corpus store "+folder+" is missing or damaged >> rebuilding it");
+			resetIndex();
+			segment = 0;
+			offset = 0;
+		}
+
+		// index the records appended since the last update
+		replay(segment, offset);
+	}
+
+	/**
+	 * Replaces the index by an empty one.
+	 * 
+	 * @throws IOException
+	 * 		Problem while writing the index.
+	 */
+	private void resetIndex() throws IOException
+	{	capacity = INITIAL_CAPACITY;
+		size = 0;
+		long length = INDEX_HEADER + (long)capacity*SLOT_SIZE;
+		indexFile.setLength(length);
+		index = indexFile.getChannel().map(MapMode.READ_WRITE, 0, length);
+		for(int pos=0;pos<length;pos=pos+8)
+			index.putLong(pos, 0L);
+
+		index.putInt(POS_MAGIC, INDEX_MAGIC);
+		index.putInt(POS_VERSION, INDEX_VERSION);
+		index.putInt(POS_CAPACITY, capacity);
+		index.putInt(POS_SIZE, size);
+		index.putInt(POS_CONSISTENT, 1);
+	}
+
+	/**
+	 * Indexes all the records located after the specified position.
+	 * If the last segment ends with an incomplete record (e.g. the
+	 * program was interrupted while writing it), this record is
+	 * removed.
+	 * 
+	 * @param segment
+	 * 		Segment containing the first record to index.
+	 * @param offset
+	 * 		Position of this record in the segment.
+	 * 
+	 * @throws IOException
+	 * 		Problem while accessing the index or the segments.
+	 */
+	private void replay(int segment, long offset) throws IOException
+	{	int count = 0;
+		for(int s=segment;s<segments.size();s++)
+		{	FileChannel channel = segments.get(s);
+			long length = channel.size();
+			long position = 0;
+			if(s==segment)
+				position = offset;
+
+			Record record = readRecord(channel, position, length);
+			while(record!=null)
+			{	indexRecord(record.key, getLocation(s, position));
+				position = position + record.length;
+				count++;
+				record = readRecord(channel, position, length);
+			}
+
+			if(position<length)
+			{	if(s==segments.size()-1)
+				{	logger.log("WARNING: incomplete record at the end of "+getSegmentFile(s)+" >> removing it");
+					channel.truncate(position);
+				}
+				else
+					throw new IOException("Damaged record in "+getSegmentFile(s)+" at position "+position);
+			}
+			setIndexedPosition(s, position);
+		}
+
+		if(count>0)
+			logger.log("Indexed "+count+" records of the corpus store "+folder);
+	}
+
+	/**
+	 * Records the position in the log up to
+	 * which the index is up-to-date.
+	 * 
+	 * @param segment
+	 * 		Last indexed segment.
+	 * @param offset
+	 * 		End of the last indexed record in this segment.
+	 */
+	private void setIndexedPosition(int segment, long offset)
+	{	index.putInt(POS_SEGMENT, segment);
+		index.putLong(POS_OFFSET, offset);
+	}
+
+	/**
+	 * Looks for the specified key in the index.
+	 * 
+	 * @param key
+	 * 		Key of interest.
+	 * @return
+	 * 		Location of the corresponding record, or {@code -1} if
+	 * 		there is none.
+	 * 
+	 * @throws IOException
+	 * 		Problem while reading the segments.
+	 */
+	private synchronized long lookup(byte[] key) throws IOException
+	{	if(index==null)
+			throw new IOException("The corpus store "+folder+" is closed");
+
+		long hash = hash(key);
+		int mask = capacity - 1;
+		int slot = (int)(hash & mask);
+		long result = -1;
+		boolean done = false;
+		while(!done)
+		{	int pos = INDEX_HEADER + slot*SLOT_SIZE;
+			long location = index.getLong(pos+8) - 1;
+			if(location<0)
+				done = true;
+			else if(index.getLong(pos)==hash && Arrays.equals(readKey(location), key))
+			{	result = location;
+				done = true;
+			}
+			else
+				slot = (slot + 1) & mask;
+		}
+		return result;
+	}
+
+	/**
+	 * Associates the specified key to the specified record
+	 * location in the index, replacing the previous location
+	 * if the key was already indexed.
+	 * 
+	 * @param key
+	 * 		Key of the record.
+	 * @param location
+	 * 		Location of the record.
+	 * 
+	 * @throws IOException
+	 * 		Problem while accessing the index or the segments.
+	 */
+	private void indexRecord(byte[] key, long location) throws IOException
+	{	long hash = hash(key);
+		int mask = capacity - 1;
+		int slot = (int)(hash & mask);
+		boolean done = false;
+		while(!done)
+		{	int pos = INDEX_HEADER + slot*SLOT_SIZE;
+			long previous = index.getLong(pos+8) - 1;
+			if(previous<0)
+			{	index.putLong(pos, hash);
+				index.putLong(pos+8, location+1);
+				size++;
+				index.putInt(POS_SIZE, size);
+				done = true;
+			}
+			else if(index.getLong(pos)==hash && Arrays.equals(readKey(previous), key))
+			{	index.putLong(pos+8, location+1);
+				done = true;
+			}
+			else
+				slot = (slot + 1) & mask;
+		}
+
+		if(size>capacity*MAX_LOAD)
+			growIndex();
+	}
+
+	/**
+	 * Doubles the number of slots of the hash table,
+	 * and re-inserts all the indexed records.
+	 * 
+	 * @throws IOException
+	 * 		Problem while accessing the index.
+	 */
+	private void growIndex() throws IOException
+	{	if(capacity>=MAX_CAPACITY)
+			throw new IOException("The corpus store "+folder+" contains too many records ("+size+")");
+
+		// get the current content
+		long[] hashes = new long[size];
+		long[] locations = new long[size];
+		int i = 0;
+		for(int slot=0;slot<capacity;slot++)
+		{	int pos = INDEX_HEADER + slot*SLOT_SIZE;
+			long location = index.getLong(pos+8);
+			if(location!=0)
+			{	hashes[i] = index.getLong(pos);
+				locations[i] = location;
+				i++;
+			}
+		}
+		index.putInt(POS_CONSISTENT, 0);
+
+		// enlarge the file
+		capacity = capacity * 2;
+		long length = INDEX_HEADER + (long)capacity*SLOT_SIZE;
+		indexFile.setLength(length);
+		index = indexFile.getChannel().map(MapMode.READ_WRITE, 0, length);
+		for(int pos=INDEX_HEADER;pos<length;pos=pos+8)
+			index.putLong(pos, 0L);
+
+		// re-insert the records (their keys are all distinct)
+		int mask = capacity - 1;
+		for(i=0;i<hashes.length;i++)
+		{	int slot = (int)(hashes[i] & mask);
+			while(index.getLong(INDEX_HEADER + slot*SLOT_SIZE + 8)!=0)
+				slot = (slot + 1) & mask;
+			int pos = INDEX_HEADER + slot*SLOT_SIZE;
+			index.putLong(pos, hashes[i]);
+			index.putLong(pos+8, locations[i]);
+		}
+		index.putInt(POS_CAPACITY, capacity);
+		index.putInt(POS_CONSISTENT, 1);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ACCESS			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Checks whether the specified field of the
+	 * specified article is present in this store.
+	 * 
+	 * @param name
+	 * 		Name of the article.
+	 * @param field
+	 * 		Field of interest.
+	 * @return
+	 * 		{@code true} iff the field was recorded.
+	 * 
+	 * @throws IOException
+	 * 		Problem while accessing the store.
+	 */
+	public boolean contains(String name, String field) throws IOException
+	{	byte[] key = getKey(name, field);
+		boolean result = lookup(key)>=0;
+		return result;
+	}
+
+	/**
+	 * Returns the content of the specified field of the
+	 * specified article, or {@code null} if the field was
+	 * not recorded.
+	 * 
+	 * @param name
+	 * 		Name of the article.
+	 * @param field
+	 * 		Field of interest.
+	 * @return
+	 * 		Content of the field, or {@code null} if it is absent.
+	 * 
+	 * @throws IOException
+	 * 		Problem while accessing the store.
+	 */
+	public byte[] get(String name, String field) throws IOException
+	{	byte[] key = getKey(name, field);
+		byte[] result = null;
+
+		long location = lookup(key);
+		if(location>=0)
+		{	FileChannel channel = getChannel(location);
+			Record record = readRecord(channel, getOffset(location), channel.size());
+			if(record==null)
+				throw new IOException("Damaged record in "+getSegmentFile(getSegment(location))+" at position "+getOffset(location));
+			result = record.data;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Records the content of the specified field of the
+	 * specified article, replacing its previous content.
+	 * 
+	 * @param name
+	 * 		Name of the article.
+	 * @param field
+	 * 		Field of interest.
+	 * @param data
+	 * 		New content of the field.
+	 * 
+	 * @throws IOException
+	 * 		Problem while accessing the store.
+	 */
+	public synchronized void put(String name, String field, byte[] data) throws IOException
+	{	if(index==null)
+			throw new IOException("The corpus store "+folder+" is closed");
+
+		byte[] key = getKey(name, field);
+		long location = appendRecord(key, data);
+		indexRecord(key, location);
+		long end = getOffset(location) + RECORD_HEADER + key.length + data.length + RECORD_FOOTER;
+		setIndexedPosition(getSegment(location), end);
+	}
+
+	/**
+	 * Returns the specified field as a string,
+	 * or {@code null} if it was not recorded.
+	 * 
+	 * @param name
+	 * 		Name of the article.
+	 * @param field
+	 * 		Field of interest.
+	 * @return
+	 * 		Text contained in the field, or {@code null} if it is absent.
+	 * 
+	 * @throws IOException
+	 * 		Problem while accessing the store.
+	 */
+	public String getText(String name, String field) throws IOException
+	{	String result = null;
+		byte[] data = get(name, field);
+		if(data!=null)
+			result = new String(data, StandardCharsets.UTF_8);
+		return result;
+	}
+
+	/**
+	 * Records the specified text in
+	 * the specified field.
+	 * 
+	 * @param name
+	 * 		Name of the article.
+	 * @param field
+	 * 		Field of interest.
+	 * @param text
+	 * 		New content of the field.
+	 * 
+	 * @throws IOException
+	 * 		Problem while accessing the store.
+	 */
+	public void putText(String name, String field, String text) throws IOException
+	{	byte[] data = text.getBytes(StandardCharsets.UTF_8);
+		put(name, field, data);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// XML				/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Returns the root of the XML document contained in the
+	 * specified field, or {@code null} if it was not recorded.
+	 * Unlike the files of the folder layout, the document is
+	 * not validated against its schema.
+	 * 
+	 * @param name
+	 * 		Name of the article.
+	 * @param field
+	 * 		Field of interest.
+	 * @return
+	 * 		Root of the XML document, or {@code null} if it is absent.
+	 * 
+	 * @throws IOException
+	 * 		Problem while accessing the store.
+	 * @throws SAXException
+	 * 		Problem while parsing the XML document.
+	 */
+	public Element getElement(String name, String field) throws IOException, SAXException
+	{	Element result = null;
+		byte[] data = get(name, field);
+		if(data!=null)
+			result = parseElement(data);
+		return result;
+	}
+
+	/**
+	 * Parses the specified XML document, without
+	 * validating it, and returns its root.
+	 * 
+	 * @param data
+	 * 		Content of a field containing an XML document.
+	 * @return
+	 * 		Root of the XML document.
+	 * 
+	 * @throws SAXException
+	 * 		Problem while parsing the XML document.
+	 */
+	static Element parseElement(byte[] data) throws SAXException
+	{	Element result = XmlTools.getRootFromStream(new ByteArrayInputStream(data));
+		return result;
+	}
+
+	/**
+	 * Records the XML document whose root is
+	 * specified, in the specified field.
+	 * 
+	 * @param name
+	 * 		Name of the article.
+	 * @param field
+	 * 		Field of interest.
+	 * @param root
+	 * 		Root of the XML document.
+	 * 
+	 * @throws IOException
+	 * 		Problem while accessing the store.
+	 */
+	public void putElement(String name, String field, Element root) throws IOException
+	{	Format format = Format.getPrettyFormat();
+		format.setIndent("\t");
+		format.setEncoding("UTF-8");
+		XMLOutputter outputter = new XMLOutputter(format);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Document document = new Document(root);
+		outputter.output(document, out);
+		document.detachRootElement();
+
+		put(name, field, out.toByteArray());
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// CLOSING			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Forces all the modifications of this
+	 * store to be written to the disk.
+	 * 
+	 * @throws IOException
+	 * 		Problem while writing the store.
+	 */
+	public synchronized void flush() throws IOException
+	{	if(index!=null)
+		{	for(FileChannel channel: segments)
+				channel.force(false);
+			index.force();
+		}
+	}
+
+	/**
+	 * Writes the pending modifications and closes the files
+	 * of this store. It must not be used anymore afterwards.
+	 * 
+	 * @throws IOException
+	 * 		Problem while closing the store.
+	 */
+	public void close() throws IOException
+	{	synchronized(CorpusStore.class)
+		{	STORES.values().remove(this);
+		}
+
+		synchronized(this)
+		{	flush();
+			for(FileChannel channel: segments)
+				channel.close();
+			segments.clear();
+			indexFile.close();
+			index = null;
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// MIGRATION		/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Copies a corpus recorded using the folder layout (one folder
+	 * per article) into its store. All the files of each article folder
+	 * (and of its subfolders) are copied, using their relative path as
+	 * field. Fields already present in the store with the same content
+	 * are not written again, so the migration can be resumed after an
+	 * interruption. The original folders are not modified: they can be
+	 * removed once the store has been checked.
+	 * 
+	 * @param corpusFolder
+	 * 		Folder containing the corpus.
+	 * 
+	 * @throws IOException
+	 * 		Problem while accessing the files or the store.
+	 */
+	public static void migrate(String corpusFolder) throws IOException
+	{	logger.log("Migrating the corpus "+corpusFolder+" to a corpus store");
+		logger.increaseOffset();
+
+		CorpusStore store = getStore(corpusFolder);
+		File[] folders = new File(corpusFolder).listFiles(FileTools.FILTER_DIRECTORY);
+		Arrays.sort(folders);
+		int articleNbr = 0;
+		int fieldNbr = 0;
+		for(File articleFolder: folders)
+		{	String name = articleFolder.getName();
+			if(!name.equals(FileNames.FI_CORPUS_STORE))
+			{	fieldNbr = fieldNbr + store.migrateFolder(name, articleFolder, "");
+				articleNbr++;
+				if(articleNbr%1000==0)
+					logger.log(articleNbr+" articles processed");
+			}
+		}
+		store.flush();
+
+		logger.log("Migration complete: "+articleNbr+" articles, "+fieldNbr+" fields written");
+		logger.decreaseOffset();
+	}
+
+	/**
+	 * Copies the files of the specified folder (and of its subfolders)
+	 * to this store.
+	 * 
+	 * @param name
+	 * 		Name of the article.
+	 * @param folder
+	 * 		Folder to copy.
+	 * @param prefix
+	 * 		Path of the folder relatively to the article folder.
+	 * @return
+	 * 		Number of fields actually written.
+	 * 
+	 * @throws IOException
+	 * 		Problem while accessing the files or the store.
+	 */
+	private int migrateFolder(String name, File folder, String prefix) throws IOException
+	{	int result = 0;
+		File[] files = folder.listFiles();
+		Arrays.sort(files);
+		for(File file: files)
+		{	String field = prefix + file.getName();
+			if(file.isDirectory())
+				result = result + migrateFolder(name, file, field+SEPARATOR);
+			else
+			{	byte[] data = Files.readAllBytes(file.toPath());
+				byte[] previous = get(name, field);
+				if(previous==null || !Arrays.equals(previous, data))
+				{	put(name, field, data);
+					result++;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Migrates the specified corpus (by default, the
+	 * web pages folder) to a corpus store.
+	 * 
+	 * @param args
+	 * 		Optionally, the folder containing the corpus.
+	 * 
+	 * @throws Exception
+	 * 		Problem while migrating the corpus.
+	 */
+	public static void main(String[] args) throws Exception
+	{	String corpusFolder = FileNames.FO_WEB_PAGES;
+		if(args.length>0)
+			corpusFolder = args[0];
+
+		migrate(corpusFolder);
+		closeStores();
+	}
+}
@@ -0,0 +1,775 @@
+package fr.univavignon.transpolosearch.data.entity;
+
+/*
+ * TranspoloSearch
+ * Copyright 2015-18 Vincent Labatut
+ * 
+ * This file is part of TranspoloSearch.
+ * 
+ * TranspoloSearch is free software: you can redistribute it and/or modify it under 
+ * the terms of the GNU General Public License as published by the Free Software 
+ * Foundation, either version 2 of the License, or (at your option) any later version.
+ * 
+ * TranspoloSearch is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with TranspoloSearch. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.xml.sax.SAXException;
+
+import fr.univavignon.transpolosearch.data.entity.mention.AbstractMention;
+import fr.univavignon.transpolosearch.data.entity.mention.MentionDate;
+import fr.univavignon.transpolosearch.data.entity.mention.MentionFunction;
+import fr.univavignon.transpolosearch.data.entity.mention.MentionLocation;
+import fr.univavignon.transpolosearch.data.entity.mention.MentionMeeting;
+import fr.univavignon.transpolosearch.data.entity.mention.MentionOrganization;
+import fr.univavignon.transpolosearch.data.entity.mention.MentionPerson;
+import fr.univavignon.transpolosearch.data.entity.mention.MentionProduction;
+import fr.univavignon.transpolosearch.data.entity.mention.Mentions;
+import fr.univavignon.transpolosearch.processing.ProcessorName;
+import fr.univavignon.transpolosearch.tools.file.FileNames;
+import fr.univavignon.transpolosearch.tools.time.Period;
+
+import fr.univavignon.tools.log.HierarchicalLogger;
+import fr.univavignon.tools.log.HierarchicalLoggerManager;
+
+/**
+ * Compact binary format used to record {@link Mentions} and {@link Entities}
+ * objects. It contains exactly the same information as the XML format, including
+ * the typed values of the mentions and entities (dates and periods), but can be
+ * read and written much faster, and without any parsing nor validation.
+ * <br/>
+ * XML remains the interchange format, and the format used for manual edition.
+ * The binary format is meant for caches, see {@link SerializationFormat}. The
+ * method {@link #convertFolder(File, SerializationFormat)} converts existing
+ * files from one format to the other.
+ * <br/>
+ * Each file starts with a magic number identifying its content (mentions or
+ * entities), followed by the version of the format. All numbers are big-endian,
+ * strings are recorded as their length in bytes (or {@code -1} for {@code null})
+ * followed by their UTF-8 encoding.
+ * 
+ * @author Vincent Labatut
+ */
+public class BinaryFormat
+{
+	/////////////////////////////////////////////////////////////////
+	// LOGGER			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Common object used for logging */
+	private static HierarchicalLogger logger = HierarchicalLoggerManager.getHierarchicalLogger();
+
+	/////////////////////////////////////////////////////////////////
+	// HEADER			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Magic number of the files containing mentions ("TSMN") */
+	private final static int MENTIONS_MAGIC = 0x54534D4E;
+	/** Magic number of the files containing entities ("TSEN") */
+	private final static int ENTITIES_MAGIC = 0x5453454E;
+	/** Version of the format, to be increased whenever it changes */
+	private final static short VERSION = 1;
+
+	/**
+	 * Checks the header of the specified stream.
+	 * 
+	 * @param in
+	 * 		Stream to read.
+	 * @param magic
+	 * 		Expected magic number.
+	 * 
+	 * @throws IOException
+	 * 		The stream does not start with the expected header.
+	 */
+	private static void readHeader(DataInputStream in, int magic) throws IOException
+	{	int m = in.readInt();
+		if(m!=magic)
+			throw new IOException("Unexpected content: magic number 0x"+Integer.toHexString(m)+" instead of 0x"+Integer.toHexString(magic));
+		short version = in.readShort();
+		if(version!=VERSION)
+			throw new IOException("Unsupported version of the binary format: "+version+" (expected: "+VERSION+")");
+	}
+
+	/**
+	 * Indicates whether the specified data starts with the
+	 * header of a binary file containing mentions.
+	 * 
+	 * @param data
+	 * 		Data to check.
+	 * @return
+	 * 		{@code true} iff the data uses the binary format.
+	 */
+	public static boolean isBinaryMentions(byte[] data)
+	{	boolean result = data.length>=4
+			&& ((data[0]&0xFF)<<24 | (data[1]&0xFF)<<16 | (data[2]&0xFF)<<8 | (data[3]&0xFF))==MENTIONS_MAGIC;
+		return result;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// BASIC VALUES		/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Entity types, indexed by their code in the binary format (do not reorder) */
+	private final static EntityType[] TYPES =
+	{	EntityType.DATE,
+		EntityType.FUNCTION,
+		EntityType.LOCATION,
+		EntityType.MEETING,
+		EntityType.ORGANIZATION,
+		EntityType.PERSON,
+		EntityType.PRODUCTION
+	};
+	/** Code of a missing value */
+	private final static byte VALUE_NULL = 0;
+	/** Code of a string value */
+	private final static byte VALUE_STRING = 1;
+	/** Code of a period value */
+	private final static byte VALUE_PERIOD = 2;
+
+	/**
+	 * Writes the specified string (possibly {@code null}).
+	 * 
+	 * @param out
+	 * 		Stream to write.
+	 * @param string
+	 * 		String to record.
+	 * 
+	 * @throws IOException
+	 * 		Problem while writing the stream.
+	 */
+	private static void writeString(DataOutputStream out, String string) throws IOException
+	{	if(string==null)
+			out.writeInt(-1);
+		else
+		{	byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	/**
+	 * Reads a string (possibly {@code null}).
+	 * 
+	 * @param in
+	 * 		Stream to read.
+	 * @return
+	 * 		The string read.
+	 * 
+	 * @throws IOException
+	 * 		Problem while reading the stream.
+	 */
+	private static String readString(DataInputStream in) throws IOException
+	{	String result = null;
+		int length = in.readInt();
+		if(length>=0)
+		{	byte[] bytes = new byte[length];
+			in.readFully(bytes);
+			result = new String(bytes, StandardCharsets.UTF_8);
+		}
+		return result;
+	}
+
+	/**
+	 * Writes the specified processor name (possibly {@code null}).
+	 * 
+	 * @param out
+	 * 		Stream to write.
+	 * @param processor
+	 * 		Processor name to record.
+	 * 
+	 * @throws IOException
+	 * 		Problem while writing the stream.
+	 */
+	private static void writeProcessor(DataOutputStream out, ProcessorName processor) throws IOException
+	{	String string = null;
+		if(processor!=null)
+			string = processor.name();
+		writeString(out, string);
+	}
+
+	/**
+	 * Reads a processor name (possibly {@code null}).
+	 * 
+	 * @param in
+	 * 		Stream to read.
+	 * @return
+	 * 		The processor name read.
+	 * 
+	 * @throws IOException
+	 * 		Problem while reading the stream.
+	 */
+	private static ProcessorName readProcessor(DataInputStream in) throws IOException
+	{	ProcessorName result = null;
+		String string = readString(in);
+		if(string!=null)
+			result = ProcessorName.valueOf(string);
+		return result;
+	}
+
+	/**
+	 * Writes the specified time stamp (possibly {@code null}).
+	 * 
+	 * @param out
+	 * 		Stream to write.
+	 * @param date
+	 * 		Time stamp to record.
+	 * 
+	 * @throws IOException
+	 * 		Problem while writing the stream.
+	 */
+	private static void writeTimeStamp(DataOutputStream out, Date date) throws IOException
+	{	out.writeBoolean(date!=null);
+		if(date!=null)
+			out.writeLong(date.getTime());
+	}
+
+	/**
+	 * Reads a time stamp (possibly {@code null}).
+	 * 
+	 * @param in
+	 * 		Stream to read.
+	 * @return
+	 * 		The time stamp read.
+	 * 
+	 * @throws IOException
+	 * 		Problem while reading the stream.
+	 */
+	private static Date readTimeStamp(DataInputStream in) throws IOException
+	{	Date result = null;
+		if(in.readBoolean())
+			result = new Date(in.readLong());
+		return result;
+	}
+
+	/**
+	 * Writes the specified entity type.
+	 * 
+	 * @param out
+	 * 		Stream to write.
+	 * @param type
+	 * 		Entity type to record.
+	 * 
+	 * @throws IOException
+	 * 		Problem while writing the stream.
+	 */
+	private static void writeType(DataOutputStream out, EntityType type) throws IOException
+	{	int code = 0;
+		while(TYPES[code]!=type)
+			code++;
+		out.writeByte(code);
+	}
+
+	/**
+	 * Reads an entity type.
+	 * 
+	 * @param in
+	 * 		Stream to read.
+	 * @return
+	 * 		The entity type read.
+	 * 
+	 * @throws IOException
+	 * 		Problem while reading the stream.
+	 */
+	private static EntityType readType(DataInputStream in) throws IOException
+	{	int code = in.readUnsignedByte();
+		if(code>=TYPES.length)
+			throw new IOException("Unknown entity type code: "+code);
+		EntityType result = TYPES[code];
+		return result;
+	}
+
+	/**
+	 * Writes the specified (possibly partial) date, which can be {@code null}.
+	 * 
+	 * @param out
+	 * 		Stream to write.
+	 * @param date
+	 * 		Date to record.
+	 * 
+	 * @throws IOException
+	 * 		Problem while writing the stream.
+	 */
+	private static void writeDate(DataOutputStream out, fr.univavignon.transpolosearch.tools.time.Date date) throws IOException
+	{	out.writeBoolean(date!=null);
+		if(date!=null)
+		{	out.writeInt(date.getYear());
+			out.writeByte(date.getMonth());
+			out.writeByte(date.getDay());
+		}
+	}
+
+	/**
+	 * Reads a (possibly partial) date, which can be {@code null}.
+	 * 
+	 * @param in
+	 * 		Stream to read.
+	 * @return
+	 * 		The date read.
+	 * 
+	 * @throws IOException
+	 * 		Problem while reading the stream.
+	 */
+	private static fr.univavignon.transpolosearch.tools.time.Date readDate(DataInputStream in) throws IOException
+	{	fr.univavignon.transpolosearch.tools.time.Date result = null;
+		if(in.readBoolean())
+		{	int year = in.readInt();
+			int month = in.readByte();
+			int day = in.readByte();
+			result = new fr.univavignon.transpolosearch.tools.time.Date(day, month, year);
+		}
+		return result;
+	}
+
+	/**
+	 * Writes the specified typed value, which can be a
+	 * string, a period or {@code null}.
+	 * 
+	 * @param out
+	 * 		Stream to write.
+	 * @param value
+	 * 		Value to record.
+	 * 
+	 * @throws IOException
+	 * 		Problem while writing the stream.
+	 */
+	private static void writeValue(DataOutputStream out, Comparable<?> value) throws IOException
+	{	if(value==null)
+			out.writeByte(VALUE_NULL);
+		else if(value instanceof String)
+		{	out.writeByte(VALUE_STRING);
+			writeString(out, (String)value);
+		}
+		else if(value instanceof Period)
+		{	Period period = (Period)value;
+			out.writeByte(VALUE_PERIOD);
+			writeDate(out, period.getStartDate());
+			writeDate(out, period.getEndDate());
+		}
+		else
+			throw new IllegalArgumentException("Values of class "+value.getClass().getName()+" are not supported by the binary format");
+	}
+
+	/**
+	 * Reads a typed value, which can be a
+	 * string, a period or {@code null}.
+	 * 
+	 * @param in
+	 * 		Stream to read.
+	 * @return
+	 * 		The value read.
+	 * 
+	 * @throws IOException
+	 * 		Problem while reading the stream.
+	 */
+	private static Comparable<?> readValue(DataInputStream in) throws IOException
+	{	Comparable<?> result = null;
+		byte code = in.readByte();
+		switch(code)
+		{	case VALUE_NULL:
+				break;
+			case VALUE_STRING:
+				result = readString(in);
+				break;
+			case VALUE_PERIOD:
+				fr.univavignon.transpolosearch.tools.time.Date startDate = readDate(in);
+				fr.univavignon.transpolosearch.tools.time.Date endDate = readDate(in);
+				result = new Period(startDate, endDate);
+				break;
+			default:
+				throw new IOException("Unknown value code: "+code);
+		}
+		return result;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// MENTIONS			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Writes the specified mentions to the specified stream. The
+	 * entity ids are also recorded, unless {@code entities} is
+	 * {@code null} (same behavior as {@link Mentions#writeToXml(File, Entities)}).
+	 * The stream is not closed.
+	 * 
+	 * @param mentions
+	 * 		Mentions to record.
+	 * @param entities
+	 * 		Existing entities (can be {@code null}).
+	 * @param stream
+	 * 		Stream to write.
+	 * 
+	 * @throws IOException
+	 * 		Problem while writing the stream.
+	 */
+	public static void writeMentions(Mentions mentions, Entities entities, OutputStream stream) throws IOException
+	{	DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+		out.writeInt(MENTIONS_MAGIC);
+		out.writeShort(VERSION);
+
+		// meta-data
+		writeProcessor(out, mentions.getRecognizer());
+		writeProcessor(out, mentions.getResolver());
+		writeTimeStamp(out, mentions.getCreationDate());
+		writeTimeStamp(out, mentions.getModificationDate());
+		writeString(out, mentions.getEditor());
+
+		// mentions
+		mentions.sortByPosition();
+		List<AbstractMention<?>> list = mentions.getMentions();
+		out.writeInt(list.size());
+		for(AbstractMention<?> mention: list)
+		{	writeType(out, mention.getType());
+			out.writeInt(mention.getStartPos());
+			out.writeInt(mention.getEndPos());
+			long entityId = -1;
+			AbstractEntity entity = mention.getEntity();
+			if(entities!=null && entity!=null)
+				entityId = entity.getInternalId();
+			out.writeLong(entityId);
+			writeString(out, mention.getStringValue());
+			writeValue(out, mention.getValue());
+		}
+
+		out.flush();
+	}
+
+	/**
+	 * Reads mentions from the specified stream. If {@code entities}
+	 * is not {@code null}, the mentions are associated to the recorded
+	 * entities (same behavior as {@link Mentions#readFromXml(File, Entities)}).
+	 * The stream is not closed.
+	 * 
+	 * @param stream
+	 * 		Stream to read.
+	 * @param entities
+	 * 		Previously loaded entities (can be {@code null}).
+	 * @return
+	 * 		The mentions read.
+	 * 
+	 * @throws IOException
+	 * 		Problem while reading the stream.
+	 */
+	public static Mentions readMentions(InputStream stream, Entities entities) throws IOException
+	{	DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+		readHeader(in, MENTIONS_MAGIC);
+
+		// meta-data
+		ProcessorName recognizer = readProcessor(in);
+		ProcessorName resolver = readProcessor(in);
+		Mentions result = new Mentions(recognizer, resolver);
+		result.setCreationDate(readTimeStamp(in));
+		result.setModificationDate(readTimeStamp(in));
+		result.setEditor(readString(in));
+
+		// mentions
+		int count = in.readInt();
+		for(int i=0;i<count;i++)
+		{	EntityType type = readType(in);
+			int startPos = in.readInt();
+			int endPos = in.readInt();
+			long entityId = in.readLong();
+			String valueStr = readString(in);
+			Comparable<?> value = readValue(in);
+			AbstractMention<?> mention = buildMention(type, startPos, endPos, recognizer, valueStr, value);
+
+			if(entities!=null && entityId>=0)
+			{	AbstractEntity entity = entities.getEntityById(entityId);
+				if(entity==null)
+					throw new IllegalArgumentException("Did not find the entity (id: "+entityId+") refered to in mention "+mention);
+				if(entity.getType()!=type)
+					throw new IllegalArgumentException("Trying to associate an entity of type "+entity.getType()+" to a mention of type "+type);
+				if(entity instanceof AbstractNamedEntity)
+					((AbstractNamedEntity)entity).addSurfaceForm(valueStr);
+				mention.setEntity(entity);
+			}
+
+			result.addMention(mention);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Builds a mention of the specified type.
+	 * 
+	 * @param type
+	 * 		Type of the mention.
+	 * @param startPos
+	 * 		Starting position in the text.
+	 * @param endPos
+	 * 		Ending position in the text.
+	 * @param source
+	 * 		Tool which detected this mention.
+	 * @param valueStr
+	 * 		String representation in the text.
+	 * @param value
+	 * 		Actual value of the mention (can be {@code null}).
+	 * @return
+	 * 		The new mention.
+	 * 
+	 * @throws IOException
+	 * 		The value does not match the type of the mention.
+	 */
+	private static AbstractMention<?> buildMention(EntityType type, int startPos, int endPos, ProcessorName source, String valueStr, Comparable<?> value) throws IOException
+	{	AbstractMention<?> result = null;
+
+		if(type==EntityType.DATE)
+		{	if(value!=null && !(value instanceof Period))
+				throw new IOException("Unexpected value for a date mention: "+value);
+			result = new MentionDate(startPos, endPos, source, valueStr, (Period)value);
+		}
+		else
+		{	if(value!=null && !(value instanceof String))
+				throw new IOException("Unexpected value for a "+type+" mention: "+value);
+			String string = (String)value;
+			switch(type)
+			{	case FUNCTION:
+					result = new MentionFunction(startPos, endPos, source, valueStr, string);
+					break;
+				case LOCATION:
+					result = new MentionLocation(startPos, endPos, source, valueStr, string);
+					break;
+				case MEETING:
+					result = new MentionMeeting(startPos, endPos, source, valueStr, string);
+					break;
+				case ORGANIZATION:
+					result = new MentionOrganization(startPos, endPos, source, valueStr, string);
+					break;
+				case PERSON:
+					result = new MentionPerson(startPos, endPos, source, valueStr, string);
+					break;
+				case PRODUCTION:
+					result = new MentionProduction(startPos, endPos, source, valueStr, string);
+					break;
+				default:
+					break;
+			}
+		}
+
+		return result;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ENTITIES			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Writes the specified entities to the specified
+	 * stream. The stream is not closed.
+	 * 
+	 * @param entities
+	 * 		Entities to record.
+	 * @param stream
+	 * 		Stream to write.
+	 * 
+	 * @throws IOException
+	 * 		Problem while writing the stream.
+	 */
+	public static void writeEntities(Entities entities, OutputStream stream) throws IOException
+	{	DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+		out.writeInt(ENTITIES_MAGIC);
+		out.writeShort(VERSION);
+
+		// meta-data
+		writeProcessor(out, entities.getResolver());
+		writeProcessor(out, entities.getLinker());
+		writeTimeStamp(out, entities.getCreationDate());
+		writeTimeStamp(out, entities.getModificationDate());
+		writeString(out, entities.getEditor());
+
+		// entities
+		Set<AbstractEntity> set = entities.getEntities();
+		out.writeInt(set.size());
+		for(AbstractEntity entity: set)
+		{	writeType(out, entity.getType());
+			out.writeLong(entity.getInternalId());
+			if(entity instanceof AbstractNamedEntity)
+			{	AbstractNamedEntity namedEntity = (AbstractNamedEntity)entity;
+				writeString(out, namedEntity.getName());
+				// surface forms
+				Set<String> surfaceForms = namedEntity.getSurfaceForms();
+				out.writeInt(surfaceForms.size());
+				for(String surfaceForm: surfaceForms)
+					writeString(out, surfaceForm);
+				// external ids
+				Map<String,String> externalIds = namedEntity.getExternalIds();
+				out.writeInt(externalIds.size());
+				for(Entry<String,String> entry: externalIds.entrySet())
+				{	writeString(out, entry.getKey());
+					writeString(out, entry.getValue());
+				}
+			}
+			else
+			{	AbstractValuedEntity<?> valuedEntity = (AbstractValuedEntity<?>)entity;
+				writeValue(out, valuedEntity.getValue());
+			}
+		}
+
+		out.flush();
+	}
+
+	/**
+	 * Reads entities from the specified stream.
+	 * The stream is not closed.
+	 * 
+	 * @param stream
+	 * 		Stream to read.
+	 * @return
+	 * 		The entities read.
+	 * 
+	 * @throws IOException
+	 * 		Problem while reading the stream.
+	 */
+	public static Entities readEntities(InputStream stream) throws IOException
+	{	DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+		readHeader(in, ENTITIES_MAGIC);
+
+		// meta-data
+		ProcessorName resolver = readProcessor(in);
+		ProcessorName linker = readProcessor(in);
+		Entities result = new Entities(resolver, linker);
+		result.setCreationDate(readTimeStamp(in));
+		result.setModificationDate(readTimeStamp(in));
+		result.setEditor(readString(in));
+
+		// entities
+		int count = in.readInt();
+		for(int i=0;i<count;i++)
+		{	EntityType type = readType(in);
+			long internalId = in.readLong();
+			AbstractEntity entity;
+			if(type.isNamed())
+			{	String name = readString(in);
+				AbstractNamedEntity namedEntity = AbstractNamedEntity.buildEntity(internalId, name, type);
+				// surface forms
+				int sfCount = in.readInt();
+				for(int j=0;j<sfCount;j++)
+					namedEntity.addSurfaceForm(readString(in));
+				// external ids
+				int idCount = in.readInt();
+				for(int j=0;j<idCount;j++)
+				{	String kb = readString(in);
+					String externalId = readString(in);
+					namedEntity.setExternalId(kb, externalId);
+				}
+				entity = namedEntity;
+			}
+			else
+			{	Comparable<?> value = readValue(in);
+				entity = AbstractValuedEntity.buildEntity(internalId, value, type);
+			}
+			result.addEntity(entity);
+		}
+
+		return result;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// CONVERSION		/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Converts all the files of mentions and entities contained in the
+	 * specified folder and its subfolders, to the specified format. The
+	 * original files are kept. The entity ids of the mentions are preserved
+	 * when the folder also contains the corresponding entities.
+	 * 
+	 * @param folder
+	 * 		Folder to process.
+	 * @param format
+	 * 		Format of the produced files.
+	 * @return
+	 * 		Number of converted files.
+	 * 
+	 * @throws IOException
+	 * 		Problem while reading or writing a file.
+	 * @throws SAXException
+	 * 		Problem while reading an XML file.
+	 * @throws ParseException
+	 * 		Problem while reading an XML file.
+	 */
+	public static int convertFolder(File folder, SerializationFormat format) throws IOException, SAXException, ParseException
+	{	int result = 0;
+
+		File entitiesXml = new File(folder, FileNames.FI_ENTITY_LIST);
+		File entitiesBin = new File(folder, FileNames.FI_ENTITY_BINARY);
+		File mentionsXml = new File(folder, FileNames.FI_MENTION_LIST);
+		File mentionsBin = new File(folder, FileNames.FI_MENTION_BINARY);
+
+		// entities first, since the mentions refer to them
+		Entities entities = null;
+		if(format==SerializationFormat.BINARY && entitiesXml.exists())
+		{	entities = Entities.readFromXml(entitiesXml);
+			entities.writeToBinary(entitiesBin);
+			result++;
+		}
+		else if(format==SerializationFormat.XML && entitiesBin.exists())
+		{	entities = Entities.readFromBinary(entitiesBin);
+			entities.writeToXml(entitiesXml);
+			result++;
+		}
+
+		// then the mentions
+		if(format==SerializationFormat.BINARY && mentionsXml.exists())
+		{	Mentions mentions = Mentions.readFromXml(mentionsXml, entities);
+			mentions.writeToBinary(mentionsBin, entities);
+			result++;
+		}
+		else if(format==SerializationFormat.XML && mentionsBin.exists())
+		{	Mentions mentions = Mentions.readFromBinary(mentionsBin, entities);
+			mentions.writeToXml(mentionsXml, entities);
+			result++;
+		}
+
+		// finally the subfolders
+		File[] files = folder.listFiles();
+		if(files!=null)
+		{	for(File file: files)
+			{	if(file.isDirectory())
+					result = result + convertFolder(file, format);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Converts the mentions and entities of a corpus,
+	 * cf. {@link #convertFolder(File, SerializationFormat)}.
+	 * 
+	 * @param args
+	 * 		Target format ({@code XML} or {@code BINARY}), and
+	 * 		optionally the folder containing the corpus.
+	 * 
+	 * @throws Exception
+	 * 		Problem while converting the files.
+	 */
+	public static void main(String[] args) throws Exception
+	{	SerializationFormat format = SerializationFormat.BINARY;
+		if(args.length>0)
+			format = SerializationFormat.valueOf(args[0].toUpperCase());
+		String folder = FileNames.FO_WEB_PAGES;
+		if(args.length>1)
+			folder = args[1];
+
+		logger.log("Converting the mentions and entities of "+folder+" to the "+format+" format");
+		logger.increaseOffset();
+		int count = convertFolder(new File(folder), format);
+		logger.log("Converted "+count+" files");
+		logger.decreaseOffset();
+	}
+}
@@ -19,7 +19,11 @@ package fr.univavignon.transpolosearch.data.entity;
  */
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -618,7 +622,7 @@ public class Entities
 		File schemaFile = new File(schemaPath);
 
 		// load file
-		Element element = XmlTools.getRootFromFile(dataFile,schemaFile);
+		Element element = XmlTools.getRootFromTrustedFile(dataFile,schemaFile);
 		
 		// get resolver
 		String resolverStr = element.getAttributeValue(XmlNames.ATT_RESOLVER);
@@ -702,4 +706,47 @@ public class Entities
 		// record file
 		XmlTools.makeFileFromRoot(dataFile,schemaFile,element);
 	}
+	
+	/**
+	 * Reads the specified binary file (cf. {@link BinaryFormat}),
+	 * and builds the corresponding Entities object.
+	 * 
+	 * @param dataFile
+	 * 		The binary file to be read.
+	 * @return
+	 * 		The list of entities and meta-data stored in the file.
+	 * 
+	 * @throws IOException
+	 * 		Problem while reading the file.
+	 */
+	public static Entities readFromBinary(File dataFile) throws IOException
+	{	InputStream is = new FileInputStream(dataFile);
+		try
+		{	Entities result = BinaryFormat.readEntities(is);
+			return result;
+		}
+		finally
+		{	is.close();
+		}
+	}
+	
+	/**
+	 * Write this Entities object under the form of
+	 * a binary file (cf. {@link BinaryFormat}).
+	 * 
+	 * @param dataFile
+	 * 		File to contain the entities.
+	 * 
+	 * @throws IOException
+	 * 		Problem while writing the file.
+	 */
+	public void writeToBinary(File dataFile) throws IOException
+	{	OutputStream os = new FileOutputStream(dataFile);
+		try
+		{	BinaryFormat.writeEntities(this, os);
+		}
+		finally
+		{	os.close();
+		}
+	}
 }
@@ -0,0 +1,66 @@
+package fr.univavignon.transpolosearch.data.entity;
+
+/*
+ * TranspoloSearch
+ * Copyright 2015-18 Vincent Labatut
+ * 
+ * This file is part of TranspoloSearch.
+ * 
+ * TranspoloSearch is free software: you can redistribute it and/or modify it under 
+ * the terms of the GNU General Public License as published by the Free Software 
+ * Foundation, either version 2 of the License, or (at your option) any later version.
+ * 
+ * TranspoloSearch is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with TranspoloSearch. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import fr.univavignon.transpolosearch.tools.file.FileNames;
+
+/**
+ * Format used to record mentions and entities.
+ * XML is the interchange format, which can be read
+ * and edited manually, whereas the binary format
+ * (cf. {@link BinaryFormat}) is faster to read and
+ * write, and is meant for caches.
+ * 
+ * @author Vincent Labatut
+ */
+public enum SerializationFormat
+{
+	/** Validated XML files, cf. {@link Entities#writeToXml(java.io.File)} */
+	XML(FileNames.EX_XML),
+
+	/** Versioned binary files, cf. {@link BinaryFormat} */
+	BINARY(FileNames.EX_BIN);
+
+	/**
+	 * Builds a format.
+	 * 
+	 * @param extension
+	 * 		Extension of the files using this format.
+	 */
+	SerializationFormat(String extension)
+	{	this.extension = extension;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// EXTENSION		/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Extension of the files using this format */
+	private String extension;
+
+	/**
+	 * Returns the extension of the files
+	 * using this format.
+	 * 
+	 * @return
+	 * 		File extension (including the dot).
+	 */
+	public String getExtension()
+	{	return extension;
+	}
+}
@@ -19,11 +19,17 @@ package fr.univavignon.transpolosearch.data.entity.mention;
  */
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -36,6 +42,7 @@ import org.jdom2.Element;
 import org.xml.sax.SAXException;
 
 import fr.univavignon.transpolosearch.data.entity.AbstractEntity;
+import fr.univavignon.transpolosearch.data.entity.BinaryFormat;
 import fr.univavignon.transpolosearch.data.entity.Entities;
 import fr.univavignon.transpolosearch.data.entity.EntityType;
 import fr.univavignon.transpolosearch.tools.file.FileNames;
@@ -284,7 +291,30 @@ public class Mentions
 	// MENTIONS			/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
 	/** List of mentions */
-	private final List<AbstractMention<?>> mentions = new ArrayList<AbstractMention<?>>();
+	private final MentionList mentions = new MentionList();
+	
+	/**
+	 * List of mentions giving access to its modification
+	 * count, which allows detecting any change performed
+	 * through {@link Mentions#getMentions()}.
+	 * 
+	 * @author Vincent Labatut
+	 */
+	private static class MentionList extends ArrayList<AbstractMention<?>>
+	{	/** Class id */
+		private static final long serialVersionUID = 1L;
+		
+		/**
+		 * Returns the number of structural
+		 * modifications of this list.
+		 * 
+		 * @return
+		 * 		Modification count of this list.
+		 */
+		public int getModificationCount()
+		{	return modCount;
+		}
+	}
 	
 	/**
 	 * Returns the whole list
@@ -314,7 +344,11 @@ public class Mentions
 	/**
 	 * Returns the list of mentions overlapping the specified range.
 	 * The parameters are expressed in terms of characters in the original
-	 * text.
+	 * text. Like in {@link AbstractMention#containsPosition(int)}, the
+	 * ending position of a mention is considered as a part of it.
+	 * <br/>
+	 * The mentions are returned in the order of the list, and are
+	 * retrieved through the interval index (cf. {@link #updateIndex()}).
 	 * 
 	 * @param startPos
 	 * 		Position of the first character in the specified range.
@@ -324,13 +358,64 @@ public class Mentions
 	 * 		List of the concerned mentions.
 	 */
 	public List<AbstractMention<?>> getMentionsIn(int startPos, int endPos)
-	{	List<AbstractMention<?>> result = new ArrayList<AbstractMention<?>>();
+	{	updateIndex();
 		
-		for(AbstractMention<?> mention: mentions)
-		{	if(mention.containsPosition(startPos) || mention.containsPosition(endPos-1)
-				|| (mention.startPos>=startPos && mention.startPos<endPos)
-				|| (mention.endPos>=startPos && mention.endPos<endPos))
-				result.add(mention);
+		List<Integer> ranks = new ArrayList<Integer>();
+		int from = Math.min(startPos, endPos-1);
+		int to = Math.max(startPos, endPos-1);
+		queryIndex(0, indexedRanks.length, from, to, ranks);
+		
+		List<AbstractMention<?>> result = getMentionsByRank(ranks);
+		return result;
+	}
+	
+	/**
+	 * Returns the mentions overlapping each segment defined by the
+	 * specified positions: segment {@code i} ranges from {@code positions[i]}
+	 * to {@code positions[i+1]}, and its mentions are the same as those
+	 * returned by {@link #getMentionsIn(int, int)} for this range. 
+	 * <br/>
+	 * The positions must be sorted by increasing order (e.g. the starting
+	 * positions of the sentences of the text). All segments are processed
+	 * in a single sweep over the mentions.
+	 * 
+	 * @param positions
+	 * 		Sorted positions delimiting the segments.
+	 * @return
+	 * 		List containing the list of mentions of each segment.
+	 */
+	public List<List<AbstractMention<?>>> getMentionsInSegments(List<Integer> positions)
+	{	updateIndex();
+		List<List<AbstractMention<?>>> result = new ArrayList<List<AbstractMention<?>>>();
+		
+		// indexed mentions (sorted by starting position) possibly overlapping the current segment
+		List<Integer> active = new ArrayList<Integer>();
+		int next = 0;
+		for(int i=1;i<positions.size();i++)
+		{	int startPos = positions.get(i-1);
+			int endPos = positions.get(i);
+			int from = Math.min(startPos, endPos-1);
+			int to = Math.max(startPos, endPos-1);
+			
+			// add the mentions starting before the end of the segment
+			while(next<indexedRanks.length && indexedStarts[next]<=to)
+			{	active.add(next);
+				next++;
+			}
+			
+			// remove the mentions ending before the segment, keep the others
+			List<Integer> ranks = new ArrayList<Integer>();
+			Iterator<Integer> it = active.iterator();
+			while(it.hasNext())
+			{	int idx = it.next();
+				if(indexedEnds[idx]<from)
+					it.remove();
+				else
+					ranks.add(indexedRanks[idx]);
+			}
+			
+			List<AbstractMention<?>> list = getMentionsByRank(ranks);
+			result.add(list);
 		}
 		
 		return result;
@@ -440,6 +525,152 @@ public class Mentions
 		return result;
 	}
 	
+	/////////////////////////////////////////////////////////////////
+	// INTERVAL INDEX	/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Ranks of the mentions in the list, sorted by starting position ({@code null} if the index must be rebuilt) */
+	private int[] indexedRanks = null;
+	/** Starting positions of the indexed mentions */
+	private int[] indexedStarts;
+	/** Ending positions of the indexed mentions */
+	private int[] indexedEnds;
+	/** Maximal ending position in the implicit subtree rooted at each indexed mention */
+	private int[] indexedMaxEnds;
+	/** Modification count of the list when the index was built */
+	private int indexedModCount;
+	
+	/**
+	 * Builds the interval index if the list of mentions changed since the
+	 * last time. The index is a copy of the mention positions, sorted by
+	 * starting position, and seen as an implicit balanced binary tree (the
+	 * root of a range being its middle). Each node also stores the maximal
+	 * ending position of its subtree, so that the mentions overlapping
+	 * a range are retrieved in {@code O(log(n)+k)}.
+	 * <br/>
+	 * Modifications of the list through {@link #getMentions()} are detected
+	 * automatically, but not the modifications of the positions of existing
+	 * mentions performed outside of this class (cf. {@link #invalidateIndex()}).
+	 */
+	private void updateIndex()
+	{	if(indexedRanks==null || indexedModCount!=mentions.getModificationCount())
+		{	final int n = mentions.size();
+			Integer[] order = new Integer[n];
+			final int[] starts = new int[n];
+			final int[] ends = new int[n];
+			for(int i=0;i<n;i++)
+			{	order[i] = i;
+				AbstractMention<?> mention = mentions.get(i);
+				starts[i] = mention.getStartPos();
+				ends[i] = mention.getEndPos();
+			}
+			Arrays.sort(order, new Comparator<Integer>()
+			{	@Override
+				public int compare(Integer i1, Integer i2)
+				{	int result = Integer.compare(starts[i1], starts[i2]);
+					if(result==0)
+						result = Integer.compare(ends[i1], ends[i2]);
+					return result;
+				}
+			});
+			
+			indexedRanks = new int[n];
+			indexedStarts = new int[n];
+			indexedEnds = new int[n];
+			indexedMaxEnds = new int[n];
+			for(int i=0;i<n;i++)
+			{	int rank = order[i];
+				indexedRanks[i] = rank;
+				indexedStarts[i] = starts[rank];
+				indexedEnds[i] = ends[rank];
+			}
+			initMaxEnds(0, n);
+			indexedModCount = mentions.getModificationCount();
+		}
+	}
+	
+	/**
+	 * Processes the maximal ending positions of the
+	 * subtree corresponding to the specified range of
+	 * the index.
+	 * 
+	 * @param lo
+	 * 		First index of the range.
+	 * @param hi
+	 * 		Last index+1 of the range.
+	 * @return
+	 * 		Maximal ending position in the range.
+	 */
+	private int initMaxEnds(int lo, int hi)
+	{	int result = Integer.MIN_VALUE;
+		if(lo<hi)
+		{	int mid = (lo+hi) >>> 1;
+			int left = initMaxEnds(lo, mid);
+			int right = initMaxEnds(mid+1, hi);
+			result = Math.max(indexedEnds[mid], Math.max(left, right));
+			indexedMaxEnds[mid] = result;
+		}
+		return result;
+	}
+	
+	/**
+	 * Retrieves the ranks of the mentions intersecting the
+	 * specified closed range of positions, within the specified
+	 * subtree of the index.
+	 * 
+	 * @param lo
+	 * 		First index of the subtree.
+	 * @param hi
+	 * 		Last index+1 of the subtree.
+	 * @param from
+	 * 		First position of the range.
+	 * @param to
+	 * 		Last position of the range (included).
+	 * @param ranks
+	 * 		List completed with the ranks of the intersecting mentions.
+	 */
+	private void queryIndex(int lo, int hi, int from, int to, List<Integer> ranks)
+	{	if(lo<hi)
+		{	int mid = (lo+hi) >>> 1;
+			// no mention of this subtree reaches the range
+			if(indexedMaxEnds[mid]>=from)
+			{	queryIndex(lo, mid, from, to, ranks);
+				// the mentions of the right subtree start after this one
+				if(indexedStarts[mid]<=to)
+				{	if(indexedEnds[mid]>=from)
+						ranks.add(indexedRanks[mid]);
+					queryIndex(mid+1, hi, from, to, ranks);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Returns the mentions corresponding to the specified
+	 * ranks, in the order of the list.
+	 * 
+	 * @param ranks
+	 * 		Ranks of the mentions in the list.
+	 * @return
+	 * 		The corresponding mentions.
+	 */
+	private List<AbstractMention<?>> getMentionsByRank(List<Integer> ranks)
+	{	Collections.sort(ranks);
+		List<AbstractMention<?>> result = new ArrayList<AbstractMention<?>>(ranks.size());
+		for(int rank: ranks)
+			result.add(mentions.get(rank));
+		return result;
+	}
+	
+	/**
+	 * Signals the positions of some mentions were modified
+	 * directly (i.e. using {@link AbstractMention#setStartPos(int)}
+	 * or {@link AbstractMention#setEndPos(int)}), so that the
+	 * interval index must be rebuilt before the next query.
+	 */
+	public void invalidateIndex()
+	{	indexedRanks = null;
+	}
+	
 	/////////////////////////////////////////////////////////////////
 	// POSITIONS		/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
@@ -484,6 +715,7 @@ public class Mentions
 	 */
 	public boolean rightShiftMentionPosition(AbstractMention<?> mention, int start, int length, String text)
 	{	boolean result = false;
+		invalidateIndex();
 	
 		// start position
 		int startPos = mention.getStartPos();
@@ -548,6 +780,7 @@ public class Mentions
 	 */
 	public boolean leftShiftMentionPosition(AbstractMention<?> mention, int start, int length, String text)
 	{	boolean result = false;
+		invalidateIndex();
 		
 		// start position
 		int startPos = mention.getStartPos();
@@ -584,7 +817,13 @@ public class Mentions
 	 * 		{@code true} iff it intersects an existing mention.
 	 */
 	public boolean isMentionOverlapping(AbstractMention<?> mention)
-	{	boolean result = mention.overlapsWithOne(mentions);
+	{	updateIndex();
+		
+		// same as AbstractMention.overlapsWith: the ending positions are included
+		List<Integer> ranks = new ArrayList<Integer>();
+		queryIndex(0, indexedRanks.length, mention.getStartPos(), mention.getEndPos(), ranks);
+		
+		boolean result = !ranks.isEmpty();
 		return result;
 	}
 	
@@ -762,9 +1001,32 @@ public class Mentions
 		File schemaFile = new File(schemaPath);
 
 		// load file
-		Element element = XmlTools.getRootFromFile(dataFile,schemaFile);
+		Element element = XmlTools.getRootFromTrustedFile(dataFile,schemaFile);
 		
-		// get recognizer
+		Mentions result = importFromElement(element, entities);
+		return result;
+	}
+	
+	/**
+	 * Builds a {@code Mentions} object from the specified
+	 * XML element, which must use the format produced by
+	 * {@link #exportAsElement(Entities)}.
+	 * <br/>
+	 * The specified Entities are used to initialize
+	 * the mentions, unless it is {@code null}.
+	 * 
+	 * @param element
+	 * 		The XML element to be read.
+	 * @param entities
+	 * 		Previously loaded entities (can be {@code null}).
+	 * @return
+	 * 		The list of mentions and meta-data contained in the element.
+	 * 
+	 * @throws ParseException 
+	 * 		Problem while parsing the date.
+	 */
+	public static Mentions importFromElement(Element element, Entities entities) throws ParseException
+	{	// get recognizer
 		String recognizerStr = element.getAttributeValue(XmlNames.ATT_RECOGNIZER);
 		ProcessorName recognizer = ProcessorName.valueOf(recognizerStr);
 		// possibly get resolver
@@ -831,7 +1093,25 @@ public class Mentions
 		File schemaFile = new File(schemaPath);
 		
 		// build xml document
-		Element element = new Element(XmlNames.ELT_MENTIONS);
+		Element element = exportAsElement(entities);
+		
+		// record file
+		XmlTools.makeFileFromRoot(dataFile,schemaFile,element);
+	}
+	
+	/**
+	 * Builds the XML element representing this Mentions
+	 * object, using our own format. The entity ids are also
+	 * included, unless the {@code entities} parameter is
+	 * {@code null}.
+	 * 
+	 * @param entities
+	 * 		Existing entities (can be {@code null}).
+	 * @return
+	 * 		XML element representing this object.
+	 */
+	public Element exportAsElement(Entities entities)
+	{	Element element = new Element(XmlNames.ELT_MENTIONS);
 		
 		// insert recognizer attribute
 		Attribute recognizerAttr = new Attribute(XmlNames.ATT_RECOGNIZER, recognizer.toString());
@@ -863,7 +1143,88 @@ public class Mentions
 			element.addContent(mentionElt);
 		}
 		
-		// record file
-		XmlTools.makeFileFromRoot(dataFile,schemaFile,element);
+		return element;
+	}
+	
+	/**
+	 * Reads the specified binary file (cf. {@link BinaryFormat}),
+	 * and builds the corresponding Mentions object.
+	 * 
+	 * @param dataFile
+	 * 		The binary file to be read.
+	 * @return
+	 * 		The list of mentions and meta-data stored in the file.
+	 * 
+	 * @throws IOException
+	 * 		Problem while reading the file.
+	 */
+	public static Mentions readFromBinary(File dataFile) throws IOException
+	{	Mentions result = readFromBinary(dataFile, null);
+		return result;
+	}
+	
+	/**
+	 * Reads the specified binary file (cf. {@link BinaryFormat}),
+	 * and builds the corresponding Mentions object. The specified
+	 * Entities are used to initialize the mentions, unless it is
+	 * {@code null}, like in {@link #readFromXml(File, Entities)}.
+	 * 
+	 * @param dataFile
+	 * 		The binary file to be read.
+	 * @param entities
+	 * 		Previously loaded entities (can be {@code null}).
+	 * @return
+	 * 		The list of mentions and meta-data stored in the file.
+	 * 
+	 * @throws IOException
+	 * 		Problem while reading the file.
+	 */
+	public static Mentions readFromBinary(File dataFile, Entities entities) throws IOException
+	{	InputStream is = new FileInputStream(dataFile);
+		try
+		{	Mentions result = BinaryFormat.readMentions(is, entities);
+			return result;
+		}
+		finally
+		{	is.close();
+		}
+	}
+	
+	/**
+	 * Write this Mentions object under the form of
+	 * a binary file (cf. {@link BinaryFormat}).
+	 * 
+	 * @param dataFile
+	 * 		File to contain the mentions.
+	 * 
+	 * @throws IOException
+	 * 		Problem while writing the file.
+	 */
+	public void writeToBinary(File dataFile) throws IOException
+	{	writeToBinary(dataFile,null);
+	}
+	
+	/**
+	 * Write this Mentions object under the form of
+	 * a binary file (cf. {@link BinaryFormat}). The
+	 * entity ids are also recorded, unless the
+	 * {@code entities} parameter is {@code null}.
+	 * 
+	 * @param dataFile
+	 * 		File to contain the mentions.
+	 * @param entities
+	 * 		Existing entities.
+	 * 
+	 * @throws IOException
+	 * 		Problem while writing the file.
+	 */
+	public void writeToBinary(File dataFile, Entities entities) throws IOException
+	{	OutputStream os = new FileOutputStream(dataFile);
+		try
+		{	BinaryFormat.writeMentions(this, entities, os);
+		}
+		finally
+		{	os.close();
+		}
 	}
 }
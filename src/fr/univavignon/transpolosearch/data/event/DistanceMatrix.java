@@ -0,0 +1,273 @@
+package fr.univavignon.transpolosearch.data.event;
+
+/*
+ * TranspoloSearch
+ * Copyright 2015-18 Vincent Labatut
+ * 
+ * This file is part of TranspoloSearch.
+ * 
+ * TranspoloSearch is free software: you can redistribute it and/or modify it under 
+ * the terms of the GNU General Public License as published by the Free Software 
+ * Foundation, either version 2 of the License, or (at your option) any later version.
+ * 
+ * TranspoloSearch is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with TranspoloSearch. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Symmetric distance matrix with a zero diagonal, used to cluster
+ * articles and events. Only the upper triangle is stored, row by row,
+ * as a flat array of floats, which takes about four times less memory
+ * than a full matrix of doubles.
+ * <br/>
+ * The matrix can be filled in parallel, using {@link #fill(DistanceFunction)}.
+ * 
+ * @author Vincent Labatut
+ */
+public class DistanceMatrix
+{
+	/**
+	 * Builds a matrix of the specified size,
+	 * whose values are all zero.
+	 * 
+	 * @param size
+	 * 		Number of elements (i.e. of rows or columns).
+	 * 
+	 * @throws IllegalArgumentException
+	 * 		If the matrix is too large to be stored in a single array.
+	 */
+	public DistanceMatrix(int size)
+	{	long length = (long)size * (size-1) / 2;
+		if(length>Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Too many elements for a single distance matrix ("+size+")");
+		this.size = size;
+		values = new float[(int)Math.max(0,length)];
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// VALUES			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Number of elements */
+	private final int size;
+	/** Upper triangle of the matrix (without the diagonal), row by row */
+	private final float[] values;
+
+	/**
+	 * Returns the number of elements, i.e. of rows or columns.
+	 * 
+	 * @return
+	 * 		Size of the matrix.
+	 */
+	public int getSize()
+	{	return size;
+	}
+
+	/**
+	 * Returns the position of the specified distance in
+	 * the flat array. We must have {@code i<j}.
+	 * 
+	 * @param i
+	 * 		Row of the distance.
+	 * @param j
+	 * 		Column of the distance.
+	 * @return
+	 * 		Position of the value in {@link #values}.
+	 */
+	private int getIndex(int i, int j)
+	{	long result = (long)i*size - (long)i*(i+1)/2 + (j-i-1);
+		return (int)result;
+	}
+
+	/**
+	 * Returns the distance between the specified elements.
+	 * 
+	 * @param i
+	 * 		First element.
+	 * @param j
+	 * 		Second element.
+	 * @return
+	 * 		Distance between both elements.
+	 */
+	public float get(int i, int j)
+	{	float result;
+		if(i<j)
+			result = values[getIndex(i,j)];
+		else if(i>j)
+			result = values[getIndex(j,i)];
+		else
+			result = 0;
+		return result;
+	}
+
+	/**
+	 * Changes the distance between the specified
+	 * (distinct) elements.
+	 * 
+	 * @param i
+	 * 		First element.
+	 * @param j
+	 * 		Second element.
+	 * @param value
+	 * 		New distance between both elements.
+	 */
+	public void set(int i, int j, float value)
+	{	if(i<j)
+			values[getIndex(i,j)] = value;
+		else if(i>j)
+			values[getIndex(j,i)] = value;
+		else
+			throw new IllegalArgumentException("The diagonal of a distance matrix cannot be modified ("+i+")");
+	}
+
+	/**
+	 * Changes all the distances of the matrix (except
+	 * the diagonal, which remains zero).
+	 * 
+	 * @param value
+	 * 		New value of all the distances.
+	 */
+	public void setAll(float value)
+	{	Arrays.fill(values, value);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// FILLING			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Function used to fill the matrix. It is applied
+	 * concurrently, so it must be thread-safe.
+	 * 
+	 * @author Vincent Labatut
+	 */
+	public interface DistanceFunction
+	{
+		/**
+		 * Processes the distance between the specified elements,
+		 * with {@code i<j}.
+		 * 
+		 * @param i
+		 * 		First element.
+		 * @param j
+		 * 		Second element.
+		 * @return
+		 * 		Distance between both elements.
+		 */
+		public double processDistance(int i, int j);
+	}
+
+	/**
+	 * Fills the whole matrix using the specified function,
+	 * and as many threads as there are available processors.
+	 * 
+	 * @param function
+	 * 		Thread-safe function used to process the distances.
+	 */
+	public void fill(DistanceFunction function)
+	{	int threadNbr = Runtime.getRuntime().availableProcessors();
+		fill(function, threadNbr);
+	}
+
+	/**
+	 * Fills the whole matrix using the specified function and
+	 * number of threads. The rows are split in contiguous blocks
+	 * containing approximately the same number of values, and
+	 * each block is processed by a thread.
+	 * 
+	 * @param function
+	 * 		Thread-safe function used to process the distances.
+	 * @param threadNbr
+	 * 		Number of threads ({@code 1} for a sequential processing).
+	 */
+	public void fill(final DistanceFunction function, int threadNbr)
+	{	threadNbr = Math.max(1, Math.min(threadNbr, size));
+
+		if(threadNbr==1)
+			fillRows(function, 0, size);
+
+		else
+		{	// define the row blocks
+			List<int[]> blocks = new ArrayList<int[]>();
+			long target = values.length / threadNbr + 1;
+			int start = 0;
+			long count = 0;
+			for(int i=0;i<size;i++)
+			{	count = count + (size-1-i);
+				if(count>=target || i==size-1)
+				{	blocks.add(new int[]{start,i+1});
+					start = i + 1;
+					count = 0;
+				}
+			}
+
+			// process each block in its own thread
+			ExecutorService executor = Executors.newFixedThreadPool(threadNbr);
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for(final int[] block: blocks)
+			{	Future<Void> future = executor.submit(new Callable<Void>()
+				{	@Override
+					public Void call()
+					{	fillRows(function, block[0], block[1]);
+						return null;
+					}
+				});
+				futures.add(future);
+			}
+			executor.shutdown();
+
+			// wait for the threads to complete
+			try
+			{	for(Future<Void> future: futures)
+					future.get();
+			}
+			catch(InterruptedException e)
+			{	executor.shutdownNow();
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while filling the distance matrix", e);
+			}
+			catch(ExecutionException e)
+			{	executor.shutdownNow();
+				Throwable cause = e.getCause();
+				if(cause instanceof RuntimeException)
+					throw (RuntimeException)cause;
+				else if(cause instanceof Error)
+					throw (Error)cause;
+				else
+					throw new IllegalStateException(cause);
+			}
+		}
+	}
+
+	/**
+	 * Fills the specified rows of the matrix (only
+	 * the upper triangle, i.e. for columns {@code j>i}).
+	 * 
+	 * @param function
+	 * 		Function used to process the distances.
+	 * @param start
+	 * 		First row to process (inclusive).
+	 * @param end
+	 * 		Last row to process (exclusive).
+	 */
+	private void fillRows(DistanceFunction function, int start, int end)
+	{	for(int i=start;i<end;i++)
+		{	int index = getIndex(i, i+1);
+			for(int j=i+1;j<size;j++)
+			{	values[index] = (float)function.processDistance(i, j);
+				index++;
+			}
+		}
+	}
+}
@@ -14,14 +14,14 @@ import jsat.linear.distancemetrics.DistanceMetric;
  */ 
 @SuppressWarnings({ "javadoc", "serial" })
 public class DummyDistanceMetric implements DistanceMetric
-{	double[][] dist;
+{	DistanceMatrix dist;
 	
 	private DummyDistanceMetric()
 	{	
 		//
 	}
 	
-	public DummyDistanceMetric(double[][] dist)
+	public DummyDistanceMetric(DistanceMatrix dist)
 	{	this.dist = dist;
 	}
 	
@@ -77,7 +77,7 @@ public class DummyDistanceMetric implements DistanceMetric
 	
 	@Override
 	public double dist(int a, int b, List<? extends Vec> vecs, List<Double> cache) 
-	{	return dist[a][b];
+	{	return dist.get(a,b);
 	}
 	
 	@Override
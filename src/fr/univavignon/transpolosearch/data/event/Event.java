@@ -19,6 +19,7 @@ package fr.univavignon.transpolosearch.data.event;
  */
 
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
@@ -37,6 +38,8 @@ import fr.univavignon.transpolosearch.tools.string.StringTools;
 import fr.univavignon.transpolosearch.tools.time.Date;
 import fr.univavignon.transpolosearch.tools.time.Period;
 
+import fr.univavignon.tools.string.CollatedStringSet;
+
 /**
  * An event is a group of entities:
  * <ul>
@@ -164,7 +167,7 @@ public class Event
 	// LOCATIONS		/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
 	/** List of strings representing the locations associated to this event */
-	private final Set<String> locations = new TreeSet<String>(StringTools.COMPARATOR); //TODO comparator should be removed if we use ids instead of plain names. same thing in the other sets
+	private final CollatedStringSet locations = new CollatedStringSet(); //TODO comparator should be removed if we use ids instead of plain names. same thing in the other sets
 	
 	/**
 	 * Returns the set of locations associated
@@ -208,7 +211,7 @@ public class Event
 	// ORGANIZATIONS	/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
 	/** List of strings representing the organizations associated to this event */
-	private final Set<String> organizations = new TreeSet<String>(StringTools.COMPARATOR);
+	private final CollatedStringSet organizations = new CollatedStringSet();
 	
 	/**
 	 * Returns the set of organizations associated
@@ -252,7 +255,7 @@ public class Event
 	// PERSONS			/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
 	/** List of strings representing the persons associated to this event */
-	private final Set<String> persons = new TreeSet<String>(StringTools.COMPARATOR);
+	private final CollatedStringSet persons = new CollatedStringSet();
 	
 	/**
 	 * Returns the set of persons associated
@@ -296,7 +299,7 @@ public class Event
 	// FUNCTIONS		/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
 	/** List of strings representing the functions associated to this event */
-	private final Set<String> functions = new TreeSet<String>(StringTools.COMPARATOR);
+	private final CollatedStringSet functions = new CollatedStringSet();
 	
 	/**
 	 * Returns the set of functions associated
@@ -340,7 +343,7 @@ public class Event
 	// PRODUCTIONS		/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
 	/** List of strings representing the productions associated to this event */
-	private final Set<String> productions = new TreeSet<String>(StringTools.COMPARATOR);
+	private final CollatedStringSet productions = new CollatedStringSet();
 	
 	/**
 	 * Returns the set of productions associated
@@ -384,7 +387,7 @@ public class Event
 	// MEETINGS			/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
 	/** List of strings representing the meetings associated to this event */
-	private final Set<String> meetings = new TreeSet<String>(StringTools.COMPARATOR);
+	private final CollatedStringSet meetings = new CollatedStringSet();
 	
 	/**
 	 * Returns the set of meetings associated
@@ -548,6 +551,36 @@ public class Event
 		return result;
 	}
 	
+	/////////////////////////////////////////////////////////////////
+	// IDS				/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Ids of the entities associated to this event, sorted by increasing order (they depend on the considered {@link EventIndex}) */
+	private int[] entityIds = null;
+	
+	/**
+	 * Returns the ids of the entities associated to this
+	 * event, as set by the last {@link EventIndex} built for 
+	 * a corpus containing this event.
+	 * 
+	 * @return
+	 * 		Sorted array of entity ids, or {@code null} if
+	 * 		the event has not been indexed yet.
+	 */
+	public int[] getEntityIds()
+	{	return entityIds;
+	}
+	
+	/**
+	 * Changes the ids of the entities associated to this event.
+	 * This method is meant to be used only by {@link EventIndex}.
+	 * 
+	 * @param entityIds
+	 * 		Sorted array of entity ids.
+	 */
+	void setEntityIds(int[] entityIds)
+	{	this.entityIds = entityIds;
+	}
+	
 	/////////////////////////////////////////////////////////////////
 	// SIMILARITY		/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
@@ -559,8 +592,8 @@ public class Event
 	 * @return
 	 * 		Set of mentions of the specified type.
 	 */
-	public Set<String> getNamedMentionsByType(EntityType type)
-	{	Set<String> result = null;
+	public CollatedStringSet getNamedMentionsByType(EntityType type)
+	{	CollatedStringSet result = null;
 		switch(type)
 		{	case FUNCTION:
 				result = functions;
@@ -588,6 +621,10 @@ public class Event
 	 * Processes a similarity measure characterizing this event and
 	 * the specified one. In this very basic approach, we use Jaccard's
 	 * coefficient applied to the events constituting mentions.
+	 * <br/>
+	 * When processing all the pairs of events of a corpus, it is much faster
+	 * to use {@link EventIndex#processDistances(DistanceMatrix)}, which gives
+	 * the same results.
 	 * 
 	 * @param event
 	 * 		The event to compare to this event.
@@ -599,55 +636,37 @@ public class Event
 		int intersections = 0;
 		
 		// functions
-		{	Set<String> inter = new TreeSet<String>(functions);
-			inter.retainAll(event.functions);
-			intersections = intersections + inter.size();
-			Set<String> union = new TreeSet<String>(functions);
-			union.addAll(event.functions);
-			unions = unions + union.size();
+		{	int inter = functions.countCommon(event.functions);
+			intersections = intersections + inter;
+			unions = unions + functions.size() + event.functions.size() - countIdentical(functions, event.functions);
 		}
 		// locations
-		{	Set<String> inter = new TreeSet<String>(locations);
-			inter.retainAll(event.locations);
-			intersections = intersections + inter.size();
-			Set<String> union = new TreeSet<String>(locations);
-			union.addAll(event.locations);
-			unions = unions + union.size();
+		{	int inter = locations.countCommon(event.locations);
+			intersections = intersections + inter;
+			unions = unions + locations.size() + event.locations.size() - countIdentical(locations, event.locations);
 		}
-		// meetings
-		{	Set<String> inter = new TreeSet<String>(functions);
-			inter.retainAll(event.functions);
-			intersections = intersections + inter.size();
-			Set<String> union = new TreeSet<String>(functions);
-			union.addAll(event.functions);
-			unions = unions + union.size();
+		// meetings (the functions are compared again)
+		{	int inter = functions.countCommon(event.functions);
+			intersections = intersections + inter;
+			unions = unions + functions.size() + event.functions.size() - countIdentical(functions, event.functions);
 		}
 		// organizations
-		{	Set<String> inter = new TreeSet<String>(organizations);
-			inter.retainAll(event.organizations);
-			intersections = intersections + inter.size();
-			Set<String> union = new TreeSet<String>(organizations);
-			union.addAll(event.organizations);
-			unions = unions + union.size();
+		{	int inter = organizations.countCommon(event.organizations);
+			intersections = intersections + inter;
+			unions = unions + organizations.size() + event.organizations.size() - countIdentical(organizations, event.organizations);
 		}
 		// period
 		{	// TODO for now we ignore the periods (?)
 		}
 		// persons
-		{	Set<String> inter = new TreeSet<String>(persons);
-			inter.retainAll(event.persons);
-			intersections = intersections + inter.size();
-			Set<String> union = new TreeSet<String>(persons);
-			union.addAll(event.persons);
-			unions = unions + union.size();
+		{	int inter = persons.countCommon(event.persons);
+			intersections = intersections + inter;
+			unions = unions + persons.size() + event.persons.size() - countIdentical(persons, event.persons);
 		}
 		// productions
-		{	Set<String> inter = new TreeSet<String>(productions);
-			inter.retainAll(event.productions);
-			intersections = intersections + inter.size();
-			Set<String> union = new TreeSet<String>(productions);
-			union.addAll(event.productions);
-			unions = unions + union.size();
+		{	int inter = productions.countCommon(event.productions);
+			intersections = intersections + inter;
+			unions = unions + productions.size() + event.productions.size() - countIdentical(productions, event.productions);
 		}
 		
 		// TODO we should actually compare the entities, not the mentions.
@@ -660,6 +679,29 @@ public class Event
 		return result;
 	}
 	
+	/**
+	 * Counts the strings appearing in both sets with exactly the same
+	 * spelling. Unlike {@link CollatedStringSet#countCommon(CollatedStringSet)},
+	 * case and diacritics matter here: this is how the unions are counted
+	 * in {@link #processJaccardSimilarity(Event)}.
+	 * 
+	 * @param set1
+	 * 		First set.
+	 * @param set2
+	 * 		Second set.
+	 * @return
+	 * 		Number of identical strings.
+	 */
+	private static int countIdentical(CollatedStringSet set1, CollatedStringSet set2)
+	{	Set<String> strings = new HashSet<String>(set2);
+		int result = 0;
+		for(String string: set1)
+		{	if(strings.contains(string))
+				result++;
+		}
+		return result;
+	}
+	
 	/////////////////////////////////////////////////////////////////
 	// XML				/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
@@ -0,0 +1,359 @@
+package fr.univavignon.transpolosearch.data.event;
+
+/*
+ * TranspoloSearch
+ * Copyright 2015-18 Vincent Labatut
+ * 
+ * This file is part of TranspoloSearch.
+ * 
+ * TranspoloSearch is free software: you can redistribute it and/or modify it under 
+ * the terms of the GNU General Public License as published by the Free Software 
+ * Foundation, either version 2 of the License, or (at your option) any later version.
+ * 
+ * TranspoloSearch is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with TranspoloSearch. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.univavignon.transpolosearch.data.entity.EntityType;
+import fr.univavignon.transpolosearch.tools.string.StringTools;
+
+import fr.univavignon.tools.string.CollationKey;
+
+/**
+ * Index of a corpus of events, used to process the similarities
+ * between all pairs of events efficiently.
+ * <br/>
+ * The named entities of the events (functions, locations, meetings, organizations,
+ * persons and productions) are interned once for the whole corpus, i.e. each one
+ * is associated to an integer id. Two names of the same type are considered as
+ * the same entity iff {@link StringTools#COMPARATOR} considers them equal. Each
+ * event then receives the sorted array of its entity ids (cf. {@link Event#getEntityIds()}).
+ * <br/>
+ * An inverted index associates each entity to the events containing it. So, when
+ * processing all the pairwise similarities, only the pairs of events sharing at
+ * least one entity are considered: the others have a zero similarity anyway.
+ * 
+ * @author Vincent Labatut
+ */
+public class EventIndex
+{
+	/**
+	 * Builds the index of the specified events. The ids of
+	 * their entities are updated in the process.
+	 * 
+	 * @param events
+	 * 		Events constituting the corpus.
+	 */
+	public EventIndex(List<Event> events)
+	{	this.events = events;
+		indexEvents();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// EVENTS			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Events constituting the corpus */
+	private final List<Event> events;
+
+	/**
+	 * Returns the number of events in the corpus.
+	 * 
+	 * @return
+	 * 		Number of indexed events.
+	 */
+	public int getEventCount()
+	{	return events.size();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ENTITIES			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Types of the entities taken into account when comparing events */
+	private static final EntityType[] TYPES =
+	{	EntityType.FUNCTION,
+		EntityType.LOCATION,
+		EntityType.MEETING,
+		EntityType.ORGANIZATION,
+		EntityType.PERSON,
+		EntityType.PRODUCTION
+	};
+	/** Map associating each comparison key to an entity id, for each entity type */
+	private final Map<EntityType,Map<String,Integer>> entityIds = new EnumMap<EntityType,Map<String,Integer>>(EntityType.class);
+	/** Number of distinct entities in the corpus */
+	private int entityCount = 0;
+	/** Map associating each exact name to an id, for each entity type */
+	private final Map<EntityType,Map<String,Integer>> nameIds = new EnumMap<EntityType,Map<String,Integer>>(EntityType.class);
+	/** Number of distinct exact names in the corpus */
+	private int nameCount = 0;
+
+	/**
+	 * Returns the id of the specified entity,
+	 * creating it if necessary.
+	 * 
+	 * @param type
+	 * 		Type of the entity.
+	 * @param name
+	 * 		Collation key of the normalized name of the entity.
+	 * @return
+	 * 		Id of the entity.
+	 */
+	private int internEntity(EntityType type, CollationKey name)
+	{	Map<String,Integer> map = entityIds.get(type);
+		if(map==null)
+		{	map = new HashMap<String,Integer>();
+			entityIds.put(type, map);
+		}
+
+		String key = name.getKey();
+		Integer result = map.get(key);
+		if(result==null)
+		{	result = entityCount;
+			map.put(key, result);
+			entityCount++;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the id of the specified name, creating it if necessary.
+	 * Unlike entities, names differing only by case or diacritics 
+	 * get distinct ids.
+	 * 
+	 * @param type
+	 * 		Type of the entity.
+	 * @param name
+	 * 		Collation key of the normalized name of the entity.
+	 * @return
+	 * 		Id of the name.
+	 */
+	private int internName(EntityType type, CollationKey name)
+	{	Map<String,Integer> map = nameIds.get(type);
+		if(map==null)
+		{	map = new HashMap<String,Integer>();
+			nameIds.put(type, map);
+		}
+
+		String string = name.getString();
+		Integer result = map.get(string);
+		if(result==null)
+		{	result = nameCount;
+			map.put(string, result);
+			nameCount++;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of distinct entities
+	 * in the corpus.
+	 * 
+	 * @return
+	 * 		Number of distinct entities.
+	 */
+	public int getEntityCount()
+	{	return entityCount;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// INVERTED INDEX	/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Indices of the events containing each entity (sorted by increasing order), indexed by entity id */
+	private int[][] postings;
+	/** Sorted ids of the exact names of each event, used to count the unions like {@link Event#processJaccardSimilarity(Event)} */
+	private int[][] eventNameIds;
+
+	/**
+	 * Returns the names of the specified type associated to the specified
+	 * event. Like in {@link Event#processJaccardSimilarity(Event)}, the
+	 * functions are used in place of the meetings.
+	 * 
+	 * @param event
+	 * 		Event of interest.
+	 * @param type
+	 * 		Type of the entities.
+	 * @return
+	 * 		Collation keys of the names.
+	 */
+	private Collection<CollationKey> getNames(Event event, EntityType type)
+	{	EntityType t = type;
+		if(t==EntityType.MEETING)
+			t = EntityType.FUNCTION;
+		Collection<CollationKey> result = event.getNamedMentionsByType(t).getCollationKeys();
+		return result;
+	}
+
+	/**
+	 * Interns the entities of all the events, then
+	 * builds the inverted index.
+	 */
+	private void indexEvents()
+	{	// set the entity ids of each event
+		int[] frequencies = new int[1024];
+		eventNameIds = new int[events.size()][];
+		for(int e=0;e<events.size();e++)
+		{	Event event = events.get(e);
+			int size = 0;
+			for(EntityType type: TYPES)
+				size = size + getNames(event, type).size();
+			int[] ids = new int[size];
+			int[] nIds = new int[size];
+			int i = 0;
+			for(EntityType type: TYPES)
+			{	Collection<CollationKey> names = getNames(event, type);
+				for(CollationKey name: names)
+				{	ids[i] = internEntity(type, name);
+					nIds[i] = internName(type, name);
+					if(ids[i]==frequencies.length)
+						frequencies = Arrays.copyOf(frequencies, 2*frequencies.length);
+					frequencies[ids[i]]++;
+					i++;
+				}
+			}
+			Arrays.sort(ids);
+			event.setEntityIds(ids);
+			Arrays.sort(nIds);
+			eventNameIds[e] = nIds;
+		}
+
+		// build the inverted index
+		postings = new int[entityCount][];
+		for(int id=0;id<entityCount;id++)
+			postings[id] = new int[frequencies[id]];
+		int[] sizes = new int[entityCount];
+		for(int e=0;e<events.size();e++)
+		{	int[] ids = events.get(e).getEntityIds();
+			for(int id: ids)
+			{	postings[id][sizes[id]] = e;
+				sizes[id]++;
+			}
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// SIMILARITY		/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Processes Jaccard's coefficient between the entities of the specified
+	 * events, by merging their sorted arrays of ids. The result is the
+	 * same as with {@link Event#processJaccardSimilarity(Event)}.
+	 * 
+	 * @param event1
+	 * 		Index of the first event.
+	 * @param event2
+	 * 		Index of the second event.
+	 * @return
+	 * 		Similarity between both events.
+	 */
+	public float processSimilarity(int event1, int event2)
+	{	int[] ids1 = events.get(event1).getEntityIds();
+		int[] ids2 = events.get(event2).getEntityIds();
+
+		int intersections = countCommon(ids1, ids2);
+		int unions = ids1.length + ids2.length - countCommon(eventNameIds[event1], eventNameIds[event2]);
+
+		float result = intersections / (float)unions;
+		return result;
+	}
+
+	/**
+	 * Counts the values shared by the specified
+	 * sorted arrays, by merging them.
+	 * 
+	 * @param ids1
+	 * 		First sorted array.
+	 * @param ids2
+	 * 		Second sorted array.
+	 * @return
+	 * 		Number of common values.
+	 */
+	private static int countCommon(int[] ids1, int[] ids2)
+	{	int result = 0;
+		int i1 = 0;
+		int i2 = 0;
+		while(i1<ids1.length && i2<ids2.length)
+		{	if(ids1[i1]<ids2[i2])
+				i1++;
+			else if(ids1[i1]>ids2[i2])
+				i2++;
+			else
+			{	result++;
+				i1++;
+				i2++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Processes the distances between all pairs of events, i.e. one minus
+	 * their similarity (see {@link #processSimilarity(int, int)}), and stores
+	 * them in the specified matrix.
+	 * <br/>
+	 * The inverted index is used to count the entities shared by each event
+	 * and the events with higher indices. Only the pairs sharing at least
+	 * one entity are actually processed, the distance of the other ones is
+	 * set to {@code 1} (or {@code NaN} if both events have no entity at all,
+	 * like with {@link Event#processJaccardSimilarity(Event)}).
+	 * 
+	 * @param matrix
+	 * 		Matrix to fill, whose size must be the number of events.
+	 */
+	public void processDistances(DistanceMatrix matrix)
+	{	int n = events.size();
+		if(matrix.getSize()!=n)
+			throw new IllegalArgumentException("The size of the distance matrix ("+matrix.getSize()+") does not match the number of events ("+n+")");
+		matrix.setAll(1f);
+		List<Integer> empties = new ArrayList<Integer>();
+		for(int e=0;e<n;e++)
+		{	if(events.get(e).getEntityIds().length==0)
+				empties.add(e);
+		}
+		for(int i=0;i<empties.size();i++)
+		{	for(int j=i+1;j<empties.size();j++)
+				matrix.set(empties.get(i), empties.get(j), Float.NaN);
+		}
+
+		int[] intersections = new int[n];
+		int[] touched = new int[n];
+		for(int e1=0;e1<n;e1++)
+		{	int[] ids1 = events.get(e1).getEntityIds();
+
+			// count the shared entities
+			int touchedNbr = 0;
+			for(int id: ids1)
+			{	int[] posting = postings[id];
+				int p = Arrays.binarySearch(posting, e1) + 1;
+				for(;p<posting.length;p++)
+				{	int e2 = posting[p];
+					if(intersections[e2]==0)
+					{	touched[touchedNbr] = e2;
+						touchedNbr++;
+					}
+					intersections[e2]++;
+				}
+			}
+
+			// process the corresponding distances
+			for(int t=0;t<touchedNbr;t++)
+			{	int e2 = touched[t];
+				int[] ids2 = events.get(e2).getEntityIds();
+				int unions = ids1.length + ids2.length - countCommon(eventNameIds[e1], eventNameIds[e2]);
+				float sim = intersections[e2] / (float)unions;
+				matrix.set(e1, e2, 1 - sim);
+				intersections[e2] = 0;
+			}
+		}
+	}
+}
@@ -20,9 +20,17 @@ import java.util.Arrays;
  * along with TranspoloSearch. If not, see <http://www.gnu.org/licenses/>.
  */
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
 
+import com.aliasi.cluster.Dendrogram;
+import com.aliasi.cluster.LeafDendrogram;
+import com.aliasi.cluster.LinkDendrogram;
+import com.aliasi.util.BoundedPriorityQueue;
+import com.aliasi.util.ScoredObject;
+
 /**
  * Class processing the Silhouette measure, which assesses cluster quality
  * when doing cluster analysis.
@@ -47,10 +55,10 @@ public class Silhouette
 	 * @return
 	 * 		A real value representing the Silhouette value.
 	 */
-	public static double processSilhouette(double dist[][], Set<Set<Integer>> partition)
+	public static double processSilhouette(DistanceMatrix dist, Set<Set<Integer>> partition)
 	{	// process similarity between each instance and each cluster
-		double[] intraDists = new double[dist.length];
-		double[] bestInterDists = new double[dist.length];
+		double[] intraDists = new double[dist.getSize()];
+		double[] bestInterDists = new double[dist.getSize()];
 		Arrays.fill(bestInterDists, 1);
 		TreeSet<Integer> singletons = new TreeSet<Integer>();
 		for(Set<Integer> part: partition)
@@ -62,7 +70,7 @@ public class Silhouette
 				else
 				{	for(int j: part)
 					{	if(i!=j)
-							intraDists[i] = intraDists[i] + dist[i][j];
+							intraDists[i] = intraDists[i] + dist.get(i,j);
 					}
 					intraDists[i] = intraDists[i] / (part.size()-1);
 				}
@@ -70,14 +78,14 @@ public class Silhouette
 			
 			// process the other instances
 			Set<Integer> others = new TreeSet<Integer>();
-			for(int i=0;i<dist.length;i++)
+			for(int i=0;i<dist.getSize();i++)
 			{	if(!part.contains(i))
 					others.add(i);
 			}
 			for(int i: others)
 			{	double tempDist = 0;
 				for(int j: part)
-					tempDist = tempDist + dist[i][j];
+					tempDist = tempDist + dist.get(i,j);
 				tempDist = tempDist / part.size();
 				if(tempDist<bestInterDists[i])
 					bestInterDists[i] = tempDist;
@@ -85,8 +93,8 @@ public class Silhouette
 		}
 		
 		// processing the measure for each instance
-		double[] indivSil = new double[dist.length];
-		for(int i=0;i<dist.length;i++)
+		double[] indivSil = new double[dist.getSize()];
+		for(int i=0;i<dist.getSize();i++)
 		{	if(singletons.contains(i) || intraDists[i]==bestInterDists[i])
 				indivSil[i] = 0;
 			else if(intraDists[i]<bestInterDists[i])
@@ -103,4 +111,280 @@ public class Silhouette
 		
 		return result;
 	}
+	
+	/////////////////////////////////////////////////////////////////
+	// DENDROGRAM		/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Minimal size of a cluster whose distance sums are stored (instead of being read in the distance matrix) */
+	private static final int STORED_MIN_SIZE = 16;
+	
+	/**
+	 * Processes the Silhouette measure for all the cuts of the specified
+	 * dendrogram, i.e. for each number of clusters {@code k} from {@code 2} to 
+	 * the number of elements {@code n}. The {@code k}-cut is obtained by breaking 
+	 * the links by order of decreasing score, exactly like in {@link Dendrogram#partitionK(int)}:
+	 * we use the same priority queue, so that ties are broken the same way, and the 
+	 * evaluated cuts are the ones LingPipe returns.
+	 * <br/>
+	 * Instead of processing each partition separately (which takes {@code O(n^3)} overall),
+	 * we go through the merge sequence once, starting from the singletons, and we update
+	 * incrementally the sum of the distances between each element and each cluster. 
+	 * For each element, we also keep track of the closest other cluster, which only needs
+	 * to be searched again when this cluster is involved in a merge. 
+	 * <br/>
+	 * These sums are stored only for the clusters containing at least {@link #STORED_MIN_SIZE}
+	 * elements (i.e. at most {@code n/}{@link #STORED_MIN_SIZE} at once): for the smaller ones, 
+	 * they are directly processed from the distance matrix. Each stored sum is a float completed 
+	 * by a float compensation term (the rounding error of the first one), so that the precision 
+	 * is close to that of a double, like in {@link #processSilhouette(DistanceMatrix, Set)}, while 
+	 * the working set remains at most {@code 8n^2/}{@link #STORED_MIN_SIZE} bytes, i.e. a quarter 
+	 * of the distance matrix itself.
+	 * 
+	 * @param dist
+	 * 		Distance matrix.
+	 * @param dendrogram
+	 * 		Dendrogram whose leaves are the element numbers (starting from zero).
+	 * @return
+	 * 		Array containing the Silhouette of the {@code k}-cut at position {@code k}
+	 * 		(positions {@code 0} and {@code 1} are not used).
+	 */
+	public static double[] processSilhouettes(DistanceMatrix dist, Dendrogram<Integer> dendrogram)
+	{	int n = dist.getSize();
+		double[] result = new double[n+1];
+		
+		// list the links in the order partitionK splits them (decreasing score, then most recently queued first)
+		// the queue never contains more than n dendrograms, so none is ever dropped
+		List<LinkDendrogram<Integer>> splits = new ArrayList<LinkDendrogram<Integer>>();
+		BoundedPriorityQueue<Dendrogram<Integer>> queue = new BoundedPriorityQueue<Dendrogram<Integer>>(ScoredObject.<Dendrogram<Integer>>comparator(), n+1);
+		queue.offer(dendrogram);
+		while(!queue.isEmpty())
+		{	Dendrogram<Integer> d = queue.poll();
+			if(d instanceof LinkDendrogram)
+			{	LinkDendrogram<Integer> link = (LinkDendrogram<Integer>)d;
+				splits.add(link);
+				queue.offer(link.dendrogram1());
+				queue.offer(link.dendrogram2());
+			}
+		}
+		
+		// initially, each element is a singleton cluster (whose id is the element number)
+		// a cluster keeps the id of one of its elements, which is the first one in its member list
+		Sums sums = new Sums(dist);
+		int[] owners = new int[n];				// cluster of each element
+		int[] actives = new int[n];				// ids of the remaining clusters
+		int[] positions = new int[n];			// position of each cluster in the previous array
+		double[] bestInterDists = new double[n];// average distance to the closest other cluster
+		int[] bestClusters = new int[n];		// id of this closest cluster (or -1)
+		for(int i=0;i<n;i++)
+		{	owners[i] = i;
+			actives[i] = i;
+			positions[i] = i;
+		}
+		int activeNbr = n;
+		for(int i=0;i<n;i++)
+			updateBestInterDist(i, sums, owners, actives, activeNbr, bestInterDists, bestClusters);
+		
+		// apply each merge, from the singletons to the 2-cut
+		for(int s=splits.size()-1;s>0;s--)
+		{	LinkDendrogram<Integer> link = splits.get(s);
+			int c1 = owners[getLeaf(link.dendrogram1())];
+			int c2 = owners[getLeaf(link.dendrogram2())];
+			
+			// merge c2 into c1
+			sums.merge(c1, c2);
+			for(int j=c2;j!=-1;j=sums.nexts[j])
+				owners[j] = c1;
+			int pos = positions[c2];
+			activeNbr--;
+			actives[pos] = actives[activeNbr];
+			positions[actives[pos]] = pos;
+			
+			// the closest cluster can only change if it was one of the merged clusters
+			for(int i=0;i<n;i++)
+			{	if(bestClusters[i]==c1 || bestClusters[i]==c2)
+					updateBestInterDist(i, sums, owners, actives, activeNbr, bestInterDists, bestClusters);
+			}
+			
+			// process the measure for the current cut
+			double sum = 0;
+			for(int i=0;i<n;i++)
+			{	int own = owners[i];
+				int size = sums.sizes[own];
+				if(size>1)
+				{	double intraDist = sums.get(i,own) / (size-1);
+					double interDist = bestInterDists[i];
+					if(intraDist<interDist)
+						sum = sum + 1 - intraDist/interDist;
+					else if(intraDist>interDist)
+						sum = sum + interDist/intraDist - 1;
+				}
+			}
+			result[activeNbr] = sum / n;
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Returns one of the elements of the specified dendrogram.
+	 * 
+	 * @param dendrogram
+	 * 		Dendrogram of interest.
+	 * @return
+	 * 		One of its elements.
+	 */
+	private static int getLeaf(Dendrogram<Integer> dendrogram)
+	{	Dendrogram<Integer> d = dendrogram;
+		while(d instanceof LinkDendrogram)
+			d = ((LinkDendrogram<Integer>)d).dendrogram1();
+		int result = ((LeafDendrogram<Integer>)d).object();
+		return result;
+	}
+	
+	/**
+	 * Looks for the cluster closest to the specified element, among the clusters
+	 * it does not belong to. Like in {@link #processSilhouette(DistanceMatrix, Set)},
+	 * the distance is bounded by {@code 1}.
+	 * 
+	 * @param i
+	 * 		Element of interest.
+	 * @param sums
+	 * 		Sums of the distances between each cluster and each element.
+	 * @param owners
+	 * 		Cluster of each element.
+	 * @param actives
+	 * 		Ids of the remaining clusters.
+	 * @param activeNbr
+	 * 		Number of remaining clusters.
+	 * @param bestInterDists
+	 * 		Average distance between each element and its closest cluster (updated).
+	 * @param bestClusters
+	 * 		Closest cluster of each element, or {@code -1} if none (updated).
+	 */
+	private static void updateBestInterDist(int i, Sums sums, int[] owners, int[] actives, int activeNbr, double[] bestInterDists, int[] bestClusters)
+	{	bestInterDists[i] = 1;
+		bestClusters[i] = -1;
+		for(int a=0;a<activeNbr;a++)
+		{	int c = actives[a];
+			if(c!=owners[i])
+			{	double tempDist = sums.get(i,c) / sums.sizes[c];
+				if(tempDist<bestInterDists[i])
+				{	bestInterDists[i] = tempDist;
+					bestClusters[i] = c;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Sums of the distances between each element and each cluster, used
+	 * when processing the Silhouette of all the cuts of a dendrogram.
+	 * They are stored only for the clusters containing at least 
+	 * {@link Silhouette#STORED_MIN_SIZE} elements, and are otherwise 
+	 * processed from the distance matrix, using the member list of the cluster.
+	 * 
+	 * @author Vincent Labatut
+	 */
+	private static class Sums
+	{	
+		/**
+		 * Initializes the sums for the singleton clusters,
+		 * i.e. the cluster of element {@code i} has id {@code i}.
+		 * 
+		 * @param dist
+		 * 		Distance matrix.
+		 */
+		public Sums(DistanceMatrix dist)
+		{	this.dist = dist;
+			int n = dist.getSize();
+			sizes = new int[n];
+			nexts = new int[n];
+			lasts = new int[n];
+			values = new float[n][];
+			errors = new float[n][];
+			for(int i=0;i<n;i++)
+			{	sizes[i] = 1;
+				nexts[i] = -1;
+				lasts[i] = i;
+			}
+		}
+		
+		/** Distance matrix */
+		private final DistanceMatrix dist;
+		/** Size of each cluster */
+		public final int[] sizes;
+		/** Next element in the same cluster (or {@code -1}), the first one being the cluster id */
+		public final int[] nexts;
+		/** Last element of each cluster */
+		private final int[] lasts;
+		/** Sum of the distances between each element and each large cluster, rounded to a float */
+		private final float[][] values;
+		/** Rounding error of the previous sums */
+		private final float[][] errors;
+		
+		/**
+		 * Returns the sum of the distances between the specified
+		 * element and the elements of the specified cluster.
+		 * 
+		 * @param i
+		 * 		Element of interest.
+		 * @param c
+		 * 		Cluster of interest.
+		 * @return
+		 * 		Sum of the distances between the element and the cluster.
+		 */
+		public double get(int i, int c)
+		{	double result;
+			float[] vals = values[c];
+			if(vals==null)
+			{	result = 0;
+				for(int j=c;j!=-1;j=nexts[j])
+					result = result + dist.get(i,j);
+			}
+			else
+				result = (double)vals[i] + errors[c][i];
+			return result;
+		}
+		
+		/**
+		 * Merges the second cluster into the first one.
+		 * 
+		 * @param c1
+		 * 		Cluster receiving the elements.
+		 * @param c2
+		 * 		Cluster disappearing.
+		 */
+		public void merge(int c1, int c2)
+		{	int size = sizes[c1] + sizes[c2];
+			
+			// update the sums, if they must be stored
+			if(size>=STORED_MIN_SIZE)
+			{	float[] vals = values[c1];
+				float[] errs = errors[c1];
+				if(vals==null)
+				{	vals = values[c2];
+					errs = errors[c2];
+				}
+				if(vals==null)
+				{	vals = new float[sizes.length];
+					errs = new float[sizes.length];
+				}
+				for(int i=0;i<sizes.length;i++)
+				{	double sum = get(i,c1) + get(i,c2);
+					vals[i] = (float)sum;
+					errs[i] = (float)(sum - vals[i]);
+				}
+				values[c1] = vals;
+				errors[c1] = errs;
+			}
+			values[c2] = null;
+			errors[c2] = null;
+			
+			// update the member list
+			nexts[lasts[c1]] = c2;
+			lasts[c1] = lasts[c2];
+			sizes[c1] = size;
+			sizes[c2] = 0;
+		}
+	}
 }
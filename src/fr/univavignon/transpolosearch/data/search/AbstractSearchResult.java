@@ -25,9 +25,11 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.regex.Pattern;
 
 import fr.univavignon.transpolosearch.data.article.Article;
 import fr.univavignon.transpolosearch.data.article.ArticleLanguage;
@@ -364,18 +366,37 @@ public abstract class AbstractSearchResult
 		return result;
 	}
 	
+	/**
+	 * Compiles the matcher used to look for the specified compulsory
+	 * expression in the articles (cf. {@link #filterByKeyword(Pattern, int)}).
+	 * The expression is a regex, which must appear as a whole word in the 
+	 * lower-cased text of the article. The pattern is compiled only once 
+	 * for all the articles, and can be shared by several threads.
+	 * 
+	 * @param compulsoryExpression
+	 * 		String expression which must be present in the article.
+	 * @return
+	 * 		The corresponding pattern.
+	 */
+	protected static Pattern compileKeywordPattern(String compulsoryExpression)
+	{	String expr = compulsoryExpression.toLowerCase(Locale.ENGLISH);
+		Pattern result = Pattern.compile("\\b"+expr+"\\b");
+		return result;
+	}
+	
 	/**
 	 * Discards the result if its article does not contain 
 	 * the specified compulsory expression.
 	 *  
-	 * @param compulsoryExpression
-	 * 		String expression which must be present in the article.
+	 * @param compulsoryPattern
+	 * 		Pattern of the expression which must be present in the article,
+	 * 		cf. {@link #compileKeywordPattern(String)}.
 	 * @param nbr
 	 * 		Number of this result in the collection.
 	 * @return
-	 * 		{@code true} iff the result was discarded.
+	 * 		{@code true} iff the result was kept.
 	 */
-	protected abstract boolean filterByKeyword(String compulsoryExpression, int nbr);
+	protected abstract boolean filterByKeyword(Pattern compulsoryPattern, int nbr);
 	
 	/////////////////////////////////////////////////////////////////
 	// CSV			/////////////////////////////////////////////////
@@ -582,13 +603,17 @@ public abstract class AbstractSearchResult
 			{	// retrieving the sentence positions
 				List<Integer> sentencePos = StringTools.getSentencePositions(rawText);
 				sentencePos.add(rawText.length()); // to mark the end of the last sentence
+				// retrieving the mentions of all sentences in a single sweep
+				List<List<AbstractMention<?>>> sentenceMentions = mentions.getMentionsInSegments(sentencePos);
 				int sp = -1;
+				int s = 0;
 				
 				// for each sentence, we get the detected entity mentions
 				for(int ep: sentencePos)
 				{	if(sp>=0)
 					{	String sentenceStr = rawText.substring(sp, ep);
-						List<AbstractMention<?>> le = mentions.getMentionsIn(sp, ep);
+						List<AbstractMention<?>> le = sentenceMentions.get(s);
+						s++;
 						List<AbstractMention<?>> dates = Mentions.filterByType(le,EntityType.DATE);
 						// only go on if there is at least one date
 						if(!dates.isEmpty() || (usePubDate && pubDate!=null))
@@ -51,16 +51,20 @@ import fr.univavignon.transpolosearch.data.entity.mention.AbstractMention;
 import fr.univavignon.transpolosearch.data.event.Event;
 import fr.univavignon.transpolosearch.data.event.MyPam;
 import fr.univavignon.transpolosearch.data.event.ReferenceEvent;
+import fr.univavignon.transpolosearch.data.event.DistanceMatrix;
 import fr.univavignon.transpolosearch.data.event.DummyDistanceMetric;
+import fr.univavignon.transpolosearch.data.event.EventIndex;
 import fr.univavignon.transpolosearch.data.event.Silhouette;
 import fr.univavignon.transpolosearch.tools.file.FileNames;
 import fr.univavignon.transpolosearch.tools.file.FileTools;
 import fr.univavignon.transpolosearch.tools.string.StopWordsManager;
 import fr.univavignon.transpolosearch.tools.string.StringTools;
+import fr.univavignon.transpolosearch.tools.string.TfIdfVectorizer;
 import fr.univavignon.transpolosearch.tools.time.Period;
 
 import fr.univavignon.tools.log.HierarchicalLogger;
 import fr.univavignon.tools.log.HierarchicalLoggerManager;
+import fr.univavignon.tools.log.LogLevel;
 
 import jsat.SimpleDataSet;
 import jsat.classifiers.DataPoint;
@@ -155,13 +159,11 @@ public abstract class AbstractSearchResults<T extends AbstractSearchResult>
 		
 		logger.log("Clustering the articles");
 		logger.increaseOffset();
-			List<String> stopWords = StopWordsManager.getStopWords(language);
-			Map<String,Integer> cf = new HashMap<String,Integer>();	// collection frequency (for information)
-			Map<String,Integer> df = new HashMap<String,Integer>();	// document frequency
+			Set<String> stopWords = StopWordsManager.getStopWords(language);
+			TfIdfVectorizer vectorizer = new TfIdfVectorizer();
 			
 			// tokenize and process separately tf and df 
 			List<T> remainingRes = new ArrayList<T>();
-			List<Map<String,Integer>> tfList = new ArrayList<Map<String,Integer>>();
 			for(T result: results.values())
 			{	if(result.status==null)
 				{	remainingRes.add(result);
@@ -173,36 +175,13 @@ public abstract class AbstractSearchResults<T extends AbstractSearchResult>
 					cleanText = StringTools.removePunctuation(cleanText);
 					char[] charText = cleanText.toCharArray();
 					Tokenizer tokenizer = TOKENIZER_FACTORY.tokenizer(charText,0,charText.length);
-					Map<String,Integer> tf = new HashMap<String,Integer>();
-					tfList.add(tf);
+					List<String> tokens = new ArrayList<String>();
 					String token;
 			    	while((token=tokenizer.nextToken()) != null)
-			    	{	if(!stopWords.contains(token))
-			    		{	// update term frequency
-			    			Integer c = tf.get(token);
-			    			if(c==null)
-			    				c = 0;
-			    			c++;
-			    			tf.put(token,c);
-			    			// update document frequency
-			    			if(c==1)
-			    			{	c = df.get(token);
-			    				if(c==null)
-			    					c = 0;
-			    				c++;
-			    				df.put(token, c);
-			    			
-			    			}
-			    			// update collection frequency
-			    			c = cf.get(token);
-			    			if(c==null)
-			    				c = 0;
-			    			c++;
-			    			cf.put(token, c);
-
-			    			//logger.log(token);
-			    		}
+			    	{	if(!stopWords.contains(StopWordsManager.foldWord(token)))
+			    			tokens.add(token);
 			    	}
+			    	vectorizer.addDocument(tokens);
 				}	
 			}
 			
@@ -213,74 +192,31 @@ public abstract class AbstractSearchResults<T extends AbstractSearchResult>
 			}
 			else
 			{	// display word counts for the whole corpus
-				logger.log("Word frequencies after tokenization:");
-				logger.increaseOffset();
-					TreeSet<String> orderedTerms = new TreeSet<String>(cf.keySet());
-					for(String term: orderedTerms)
-		            {	int valCf = cf.get(term);
-		            	logger.log(term+": "+valCf);
-		            }
-				logger.decreaseOffset();
-				
-				// normalize df to get idf
-				Map<String,Double> idf = new HashMap<String,Double>();	// inverse document frequency
-				for(Entry<String,Integer> entry : df.entrySet())
-	            {	String token = entry.getKey();
-	            	int valDf = entry.getValue();
-	                double valIdf = Math.log10(remainingRes.size() / (valDf + 1.0));
-	                idf.put(token, valIdf);
-	            }
-				
-				// combine to get tf-idf
-				List<Map<String,Double>> tfidfList = new ArrayList<Map<String,Double>>();	// tf-idf
-				for(Map<String,Integer> tf: tfList)
-				{	Map<String,Double> tfidf = new HashMap<String,Double>();
-					tfidfList.add(tfidf);
-					for(Entry<String,Integer> entry : tf.entrySet())
-					{	String token = entry.getKey();
-						int valTf = entry.getValue();
-						double valIdf = idf.get(token);
-						double valTfidf = valTf * valIdf;
-						tfidf.put(token, valTfidf);
-					}
+				if(logger.isLoggable(LogLevel.DEBUG))
+				{	logger.log(LogLevel.DEBUG, "Word frequencies after tokenization:");
+					logger.increaseOffset();
+						TreeSet<String> orderedTerms = new TreeSet<String>();
+						for(int t=0;t<vectorizer.getTermCount();t++)
+							orderedTerms.add(vectorizer.getTerm(t));
+						for(String term: orderedTerms)
+			            {	int valCf = vectorizer.getCollectionFrequency(vectorizer.getTermId(term));
+			            	logger.log(LogLevel.DEBUG, term+": "+valCf);
+			            }
+					logger.decreaseOffset();
 				}
 				
-				// process the norm of each document
-				List<Double> norms = new ArrayList<Double>(remainingRes.size());
-				for(Map<String,Double> tfidf: tfidfList)
-				{	double norm = 0;
-					for(Double valTfidf: tfidf.values())
-						norm = norm + valTfidf*valTfidf;
-					norm = Math.sqrt(norm);
-					norms.add(norm);
-				}
+				// process tf-idf and the norm of each document
+				vectorizer.processWeights();
 				
 				// process the cos distance between all results
-				double distanceMatrix[][] = new double[remainingRes.size()][remainingRes.size()];
-				for(int i=0;i<remainingRes.size()-1;i++)
-				{	double norm1 = norms.get(i);
-					Map<String,Double> tfidf1 = tfidfList.get(i);
-					
-					for(int j=i+1;j<remainingRes.size();j++)
-					{	double norm2 = norms.get(j);
-						Map<String,Double> tfidf2 = tfidfList.get(j);
-						
-						double productVal = 0;
-						for(Entry<String,Double> entry: tfidf1.entrySet())
-					    {	double valTfidf1 = entry.getValue();
-					    	String token = entry.getKey();
-					    	if(tfidf2.containsKey(token))
-							{	double valTfidf2 = tfidf2.get(token);
-					        	productVal = productVal + Math.sqrt(valTfidf1 * valTfidf2);
-							}
-					    }
-						
-						double cosVal = productVal / (norm1 * norm2);
-						double dist = 1.0 - cosVal;
-						distanceMatrix[i][j] = dist;
-						distanceMatrix[j][i] = dist;
+				DistanceMatrix distanceMatrix = new DistanceMatrix(remainingRes.size());
+				distanceMatrix.fill(new DistanceMatrix.DistanceFunction()
+				{	@Override
+					public double processDistance(int i, int j)
+					{	double result = vectorizer.processDistance(i, j);
+						return result;
 					}
-				}
+				});
 
 				// record distance matrix (for debug)
 //				try
@@ -289,7 +225,7 @@ public abstract class AbstractSearchResults<T extends AbstractSearchResult>
 //					{	for(int j=0;j<remainingRes.size();j++)
 //						{	if(j>0)
 //								pw.print(",");
-//							pw.print(distanceMatrix[i][j]);
+//							pw.print(distanceMatrix.get(i,j));
 //						}
 //						pw.println();
 //					}
@@ -326,7 +262,7 @@ public abstract class AbstractSearchResults<T extends AbstractSearchResult>
 	 * @return
 	 * 		Silhouette of the partition.
 	 */
-	private double clusterArticlesPam(double[][] distanceMatrix, List<T> remainingRes)
+	private double clusterArticlesPam(DistanceMatrix distanceMatrix, List<T> remainingRes)
 	{	// build the distance object
 		DistanceMetric dm = new DummyDistanceMetric(distanceMatrix);
 		
@@ -385,12 +321,12 @@ public abstract class AbstractSearchResults<T extends AbstractSearchResult>
 	 * @return
 	 * 		Silhouette of the partition.
 	 */
-	private double clusterArticlesHierSilh(double[][] distanceMatrix, List<T> remainingRes, boolean outputHierarchy)
+	private double clusterArticlesHierSilh(DistanceMatrix distanceMatrix, List<T> remainingRes, boolean outputHierarchy)
 	{	// process the dummy distances
 		Distance<Integer> dl = new Distance<Integer>()
 		{	@Override
 			public double distance(Integer e1, Integer e2)
-			{	double result = distanceMatrix[e1][e2];
+			{	double result = distanceMatrix.get(e1,e2);
 				return result;
 			}
 		};
@@ -405,21 +341,27 @@ public abstract class AbstractSearchResults<T extends AbstractSearchResult>
         		new CompleteLinkClusterer<Integer>(dl);
     	Dendrogram<Integer> dendro = clusterer.hierarchicalCluster(dd);
 
+		// process the silhouette of each cut at once
+    	double[] sils = Silhouette.processSilhouettes(distanceMatrix, dendro);
+    	
 		// set up the clusters in the results themselves
     	int bestK = 0;
     	double bestSil = Double.NEGATIVE_INFINITY;
+    	boolean debug = logger.isLoggable(LogLevel.DEBUG);
     	for(int k=2;k<=remainingRes.size();k++)
-    	{	Set<Set<Integer>> partition = dendro.partitionK(k);
-    		// get the silhouette
-    		double sil = Silhouette.processSilhouette(distanceMatrix, partition);
-    		logger.log("k="+k+"/"+remainingRes.size()+" >> Silhouette="+sil);
+    	{	double sil = sils[k];
+    		if(debug)
+    			logger.log(LogLevel.DEBUG, "k="+k+"/"+remainingRes.size()+" >> Silhouette="+sil);
     		if(sil>bestSil)
 			{	bestSil = sil;
 				bestK = k;
 			}
-    		// setup cluster in result
+    	}
+    	for(int k=2;k<=remainingRes.size();k++)
+    	{	// setup cluster in result
     		if(outputHierarchy || bestK==k)
-    		{	int j = 1;
+    		{	Set<Set<Integer>> partition = dendro.partitionK(k);
+    			int j = 1;
 	    		for(Set<Integer> part: partition)
 	    		{	for(int i: part)
 	        		{	T res = remainingRes.get(i);
@@ -849,16 +791,11 @@ public abstract class AbstractSearchResults<T extends AbstractSearchResult>
 				logger.log("Not enough events to process, so no event clustering");
 			else
 			{	// init the distances between events
-				double[][] distanceMatrix = new double[allEvents.size()][allEvents.size()];
-				for(int i=0;i<allEvents.size()-1;i++)
-				{	Event event1 = allEvents.get(i);
-					for(int j=i+1;j<allEvents.size();j++)
-					{	Event event2 = allEvents.get(j);
-						float sim = event1.processJaccardSimilarity(event2);
-						distanceMatrix[i][j] = 1 - sim;
-						distanceMatrix[j][i] = 1 - sim;
-					}
-				}
+				logger.log("Indexing the entities of the events");
+				EventIndex eventIndex = new EventIndex(allEvents);
+				logger.log("Found "+eventIndex.getEntityCount()+" distinct entities");
+				DistanceMatrix distanceMatrix = new DistanceMatrix(allEvents.size());
+				eventIndex.processDistances(distanceMatrix);
 				
 				// perform the clustering using the Jstat library (PAM)
 				double silhouette = Double.NaN;
@@ -887,7 +824,7 @@ public abstract class AbstractSearchResults<T extends AbstractSearchResult>
 	 * @return
 	 * 		Silhouette of the partition.
 	 */
-	private double clusterEventsPam(double[][] distanceMatrix, List<Event> events)
+	private double clusterEventsPam(DistanceMatrix distanceMatrix, List<Event> events)
 	{	// build the distance object
 		DistanceMetric dm = new DummyDistanceMetric(distanceMatrix);
 		
@@ -958,12 +895,12 @@ public abstract class AbstractSearchResults<T extends AbstractSearchResult>
 	 * @return
 	 * 		Silhouette of the partition.
 	 */
-	private double clusterEventsHierSilh(double[][] distanceMatrix, List<Event> events, boolean outputHierarchy)
+	private double clusterEventsHierSilh(DistanceMatrix distanceMatrix, List<Event> events, boolean outputHierarchy)
 	{	// process the dummy distances
 		Distance<Integer> dl = new Distance<Integer>()
 		{	@Override
 			public double distance(Integer e1, Integer e2)
-			{	double result = distanceMatrix[e1][e2];
+			{	double result = distanceMatrix.get(e1,e2);
 				return result;
 			}
 		};
@@ -978,21 +915,27 @@ public abstract class AbstractSearchResults<T extends AbstractSearchResult>
         		new CompleteLinkClusterer<Integer>(dl);
     	Dendrogram<Integer> dendro = clusterer.hierarchicalCluster(dd);
 
+		// process the silhouette of each cut at once
+    	double[] sils = Silhouette.processSilhouettes(distanceMatrix, dendro);
+    	
 		// set up the clusters in the results themselves
     	int bestK = 0;
     	double bestSil = Double.NEGATIVE_INFINITY;
+    	boolean debug = logger.isLoggable(LogLevel.DEBUG);
     	for(int k=2;k<=events.size();k++)
-    	{	Set<Set<Integer>> partition = dendro.partitionK(k);
-    		// get the silhouette
-    		double sil = Silhouette.processSilhouette(distanceMatrix, partition);
-    		logger.log("k="+k+"/"+events.size()+" >> Silhouette="+sil);
+    	{	double sil = sils[k];
+    		if(debug)
+    			logger.log(LogLevel.DEBUG, "k="+k+"/"+events.size()+" >> Silhouette="+sil);
     		if(sil>bestSil)
 			{	bestSil = sil;
 				bestK = k;
 			}
-    		// setup cluster in result
+    	}
+    	for(int k=2;k<=events.size();k++)
+    	{	// setup cluster in result
     		if(outputHierarchy || bestK==k)
-    		{	int j = 1;
+    		{	Set<Set<Integer>> partition = dendro.partitionK(k);
+    			int j = 1;
 	    		for(Set<Integer> part: partition)
 	    		{	for(int i: part)
 	        		{	Event event = events.get(i);
@@ -25,6 +25,13 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
 import fr.univavignon.transpolosearch.data.article.ArticleLanguage;
 import fr.univavignon.transpolosearch.data.event.ReferenceEvent;
@@ -63,26 +70,118 @@ public abstract class AbstractSpecificSearchResults<T extends AbstractSearchResu
 	/////////////////////////////////////////////////////////////////
 	// FILTERING	/////////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
+	/** Number of threads used to filter the articles by language and keyword */
+	public static final int FILTERING_THREADS = Runtime.getRuntime().availableProcessors();
+	
 	/**
-	 * Discards results whose language does not match the targeted one.
+	 * Discards results whose language does not match the targeted one, 
+	 * then results corresponding to articles not containing the compulsory
+	 * expression. Both criteria are evaluated together for each article, 
+	 * and the articles are processed in parallel. The compulsory expression
+	 * is compiled only once, for all the articles.
+	 * <br/>
+	 * The outcome and the counts are the same as when applying both filters
+	 * one after the other. The articles are numbered according to their
+	 * position among the remaining results.
 	 *
 	 * @param language
-	 * 		targeted language of the articles.
+	 * 		Targeted language of the articles, or {@code null} if there 
+	 * 		is no such constraint.
+	 * @param compulsoryExpression
+	 * 		String expression which must be present in the article,
+	 * 		or {@code null} if there is no such constraint.
 	 */
-	private void filterByLanguage(ArticleLanguage language)
-	{	logger.log("Removing articles not matching the language constraint: "+language);
+	private void filterByLanguageAndKeyword(final ArticleLanguage language, String compulsoryExpression)
+	{	if(language!=null)
+			logger.log("Removing articles not matching the language constraint: "+language);
+		else
+			logger.log("No targeted language to process");
+		if(compulsoryExpression!=null)
+			logger.log("Discarding articles not containing the compulsory expression \""+compulsoryExpression+"\"");
+		else
+			logger.log("No compulsory expression to process");
 		logger.increaseOffset();
-			int count = 0;
-			int total = 0;
-			for(T result: results.values())
-			{	if(result.status==null)
-				{	total++;
-					if(!result.filterByLanguage(language,total))
-						count++;
+		
+		// list the remaining articles, in the same order as the sequential version
+		final List<T> remaining = new ArrayList<T>();
+		for(T result: results.values())
+		{	if(result.status==null)
+				remaining.add(result);
+		}
+		
+		// compile the compulsory expression once for all the articles
+		final Pattern pattern;
+		if(compulsoryExpression==null)
+			pattern = null;
+		else
+			pattern = AbstractSearchResult.compileKeywordPattern(compulsoryExpression);
+		
+		// each thread repeatedly takes the next unprocessed article
+		final AtomicInteger next = new AtomicInteger(0);
+		final AtomicInteger languageCount = new AtomicInteger(0);
+		final AtomicInteger keywordCount = new AtomicInteger(0);
+		final AtomicInteger keywordTotal = new AtomicInteger(0);
+		Runnable task = new Runnable()
+		{	@Override
+			public void run()
+			{	int i = next.getAndIncrement();
+				while(i<remaining.size())
+				{	T result = remaining.get(i);
+					boolean discarded = false;
+					if(language!=null)
+					{	discarded = result.filterByLanguage(language,i+1);
+						if(!discarded)
+							languageCount.incrementAndGet();
+					}
+					if(!discarded && pattern!=null)
+					{	keywordTotal.incrementAndGet();
+						if(!result.filterByKeyword(pattern,i+1))
+							keywordCount.incrementAndGet();
+					}
+					i = next.getAndIncrement();
 				}
 			}
-		logger.decreaseOffset();
-		logger.log("Language-based filtering complete: "+count+"/"+total);
+		};
+		
+		int threadNbr = Math.min(FILTERING_THREADS, remaining.size());
+		try
+		{	if(threadNbr<=1)
+				task.run();
+			else
+			{	ExecutorService executor = Executors.newFixedThreadPool(threadNbr);
+				List<Future<?>> futures = new ArrayList<Future<?>>();
+				for(int t=0;t<threadNbr;t++)
+					futures.add(executor.submit(task));
+				executor.shutdown();
+				
+				// wait for all threads to complete
+				try
+				{	for(Future<?> future: futures)
+						future.get();
+				}
+				catch(InterruptedException e)
+				{	executor.shutdownNow();
+					Thread.currentThread().interrupt();
+					throw new IllegalStateException("Interrupted while filtering the articles", e);
+				}
+				catch(ExecutionException e)
+				{	executor.shutdownNow();
+					Throwable cause = e.getCause();
+					if(cause instanceof RuntimeException)
+						throw (RuntimeException)cause;
+					else
+						throw new IllegalStateException(cause);
+				}
+			}
+		}
+		finally
+		{	logger.decreaseOffset();
+		}
+		
+		if(language!=null)
+			logger.log("Language-based filtering complete: "+languageCount.get()+"/"+remaining.size());
+		if(pattern!=null)
+			logger.log("Keyword-based filtering complete: "+keywordCount.get()+"/"+keywordTotal.get());
 	}
 	
 	/**
@@ -136,34 +235,6 @@ public abstract class AbstractSpecificSearchResults<T extends AbstractSearchResu
 		logger.log("Publication date-based filtering complete: "+count+"/"+total);
 	}
 	
-	/**
-	 * Discards results corresponding only to articles not containing 
-	 * the compulsory expression.
-	 *  
-	 * @param compulsoryExpression
-	 * 		String expression which must be present in the article.
-	 */
-	private void filterByKeyword(String compulsoryExpression)
-	{	logger.log("Discarding articles not containing the compulsory expression \""+compulsoryExpression+"\"");
-		logger.increaseOffset();
-			int count = 0;
-			int total = 0;
-			for(T result: results.values())
-			{	
-if(result instanceof WebSearchResult && ((WebSearchResult)result).url.equalsIgnoreCase
-		("http://www.lamarseillaise.fr/vaucluse/developpement-durable/58144-avignon-ca-bouge-autour-du-technopole-de-l-agroparc"))				
-	System.out.print("");
-				
-				if(result.status==null)
-				{	total++;
-					if(!result.filterByKeyword(compulsoryExpression,total))
-						count++;
-				}
-			}
-		logger.decreaseOffset();
-		logger.log("Keyword-based filtering complete: "+count+"/"+total);
-	}
-
 	/**
 	 * Discards results describing only events not contained 
 	 * in the specified date range, or not containing the 
@@ -197,17 +268,9 @@ if(result instanceof WebSearchResult && ((WebSearchResult)result).url.equalsIgno
 			logger.log("language="+language);
 		logger.decreaseOffset();
 		
-		// filter depending on the language
-		if(language!=null)
-			filterByLanguage(language);
-		else
-			logger.log("No targeted language to process");
-		
-		// possibly filter the resulting texts depending on the compulsory expression
-		if(compulsoryExpression!=null)
-			filterByKeyword(compulsoryExpression);
-		else
-			logger.log("No compulsory expression to process");
+		// filter depending on the language, then possibly 
+		// on the compulsory expression, in a single pass
+		filterByLanguageAndKeyword(language, compulsoryExpression);
 		
 		// possibly filter the remaining texts depending on the publication date
 		if(filterByPubDate)
@@ -290,6 +353,85 @@ boolean doit = false;
 		logger.decreaseOffset();
 		logger.log("Mention detection complete: ("+count+" for "+total+" articles)");
 	}
+	
+	/**
+	 * Detects the entity mentions present in each specified article,
+	 * using one thread for each specified recognizer. So the list must
+	 * contain distinct instances (each one loading its own models).
+	 * <br/>
+	 * The articles are numbered like in {@link #detectMentions(InterfaceRecognizer)},
+	 * and each one is processed independently from the others, so the outcome
+	 * is the same as with the sequential version.
+	 * 
+	 * @param recognizers
+	 * 		The recognizers used to detect the mentions, one for each thread.
+	 * @throws ProcessorException
+	 * 		Problem while applying the NER tool.
+	 */
+	public void detectMentions(List<InterfaceRecognizer> recognizers) throws ProcessorException
+	{	if(recognizers.size()==1)
+			detectMentions(recognizers.get(0));
+		
+		else
+		{	logger.log("Detecting entity mentions in all the articles, using "+recognizers.size()+" threads");
+			logger.increaseOffset();
+			
+			// list the remaining articles, in the same order as the sequential version
+			final List<T> remaining = new ArrayList<T>();
+			for(T result: results.values())
+			{	if(result.status==null)
+					remaining.add(result);
+			}
+			
+			// each thread repeatedly takes the next unprocessed article
+			final AtomicInteger next = new AtomicInteger(0);
+			final AtomicInteger count = new AtomicInteger(0);
+			ExecutorService executor = Executors.newFixedThreadPool(recognizers.size());
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for(final InterfaceRecognizer recognizer: recognizers)
+			{	Future<Void> future = executor.submit(new Callable<Void>()
+				{	@Override
+					public Void call() throws ProcessorException
+					{	int i = next.getAndIncrement();
+						while(i<remaining.size())
+						{	T result = remaining.get(i);
+							if(result.detectMentions(recognizer,i+1)>0)
+								count.incrementAndGet();
+							i = next.getAndIncrement();
+						}
+						return null;
+					}
+				});
+				futures.add(future);
+			}
+			executor.shutdown();
+			
+			// wait for all threads to complete
+			try
+			{	for(Future<Void> future: futures)
+					future.get();
+			}
+			catch(InterruptedException e)
+			{	executor.shutdownNow();
+				Thread.currentThread().interrupt();
+				throw new ProcessorException("Interrupted while detecting the entity mentions");
+			}
+			catch(ExecutionException e)
+			{	executor.shutdownNow();
+				Throwable cause = e.getCause();
+				if(cause instanceof ProcessorException)
+					throw (ProcessorException)cause;
+				else if(cause instanceof RuntimeException)
+					throw (RuntimeException)cause;
+				else
+					throw new ProcessorException(cause.getMessage());
+			}
+			finally
+			{	logger.decreaseOffset();
+			}
+			logger.log("Mention detection complete: ("+count.get()+" for "+remaining.size()+" articles)");
+		}
+	}
 
 	/**
 	 * Displays the entity mentions associated to each remaining article.
@@ -290,7 +290,7 @@ public class SocialSearchResult extends AbstractSearchResult
 	}
 	
 	@Override
-	protected boolean filterByKeyword(String compulsoryExpression, int nbr)
+	protected boolean filterByKeyword(Pattern compulsoryPattern, int nbr)
 	{	boolean result = true;
 		
 		logger.log("Processing article "+article.getTitle()+" ("+nbr+")");
@@ -298,9 +298,7 @@ public class SocialSearchResult extends AbstractSearchResult
 		{	// filter only if the article was not authored by the target
 			if(!original)
 			{	String text = article.getRawText().toLowerCase(Locale.ENGLISH);
-				String expr = compulsoryExpression.toLowerCase(Locale.ENGLISH);
-				Pattern pattern = Pattern.compile("\\b"+expr+"\\b");
-		        Matcher matcher = pattern.matcher(text);
+		        Matcher matcher = compulsoryPattern.matcher(text);
 		        if(!matcher.find())
 				{	logger.log("Discarding article "+article.getTitle()+" ("+article.getUrl()+")");
 					status = STATUS_MISSING_KEYWORD;
@@ -219,15 +219,13 @@ public class WebSearchResult extends AbstractSearchResult
 	}
 	
 	@Override
-	protected boolean filterByKeyword(String compulsoryExpression, int nbr)
+	protected boolean filterByKeyword(Pattern compulsoryPattern, int nbr)
 	{	boolean result = true;
 		
 		logger.log("Processing article "+article.getTitle()+" ("+nbr+")");
 		logger.increaseOffset();
 		{	String text = article.getRawText().toLowerCase(Locale.ENGLISH);
-			String expr = compulsoryExpression.toLowerCase(Locale.ENGLISH);
-			Pattern pattern = Pattern.compile("\\b"+expr+"\\b");
-	        Matcher matcher = pattern.matcher(text);
+	        Matcher matcher = compulsoryPattern.matcher(text);
 	        if(!matcher.find())
 			{	logger.log("Discarding article "+article.getTitle()+" ("+article.getUrl()+")");
 				status = STATUS_MISSING_KEYWORD;
@@ -23,13 +23,22 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
+import java.net.MalformedURLException;
+import java.net.URL;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.xml.sax.SAXException;
 
@@ -72,6 +81,9 @@ public class WebSearchResults extends AbstractSpecificSearchResults<WebSearchRes
 	 * Adds the specified url to the list of results, as returned at the specified
 	 * rank by the specified search engine. If a similar result already exists, it
 	 * is simply completed.
+	 * <br/>
+	 * This method is synchronized, so that several search engines
+	 * can feed the same collection concurrently.
 	 * 
 	 * @param url
 	 * 		Result URL.
@@ -82,7 +94,7 @@ public class WebSearchResults extends AbstractSpecificSearchResults<WebSearchRes
 	 * @return
 	 * 		The created/completed search result object.
 	 */
-	public WebSearchResult addResult(String url, String engineName, String rank)
+	public synchronized WebSearchResult addResult(String url, String engineName, String rank)
 	{	String cleanUrl = cleanUrl(url);
 		
 		WebSearchResult result = results.get(cleanUrl);
@@ -145,6 +157,11 @@ public class WebSearchResults extends AbstractSpecificSearchResults<WebSearchRes
 	/////////////////////////////////////////////////////////////////
 	// RETRIEVAL	/////////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
+	/** Default number of threads used to download the Web pages concurrently */
+	public static final int DEFAULT_RETRIEVAL_THREADS = 16;
+	/** Default maximal number of simultaneous requests sent to the same host */
+	public static final int DEFAULT_REQUESTS_BY_HOST = 2;
+	
 	/**
 	 * Retrieve all the articles whose URLs were not previously filtered.
 	 * 
@@ -156,6 +173,33 @@ public class WebSearchResults extends AbstractSpecificSearchResults<WebSearchRes
 	 * 		Problem while retrieving a Web page.
 	 */
 	public void retrieveArticles() throws IOException, ParseException, SAXException
+	{	retrieveArticles(1, 1);
+	}
+	
+	/**
+	 * Retrieve all the articles whose URLs were not previously filtered.
+	 * <br/>
+	 * If more than one thread is requested, the Web pages are first downloaded
+	 * concurrently into the reader cache, with at most {@code requestsByHost} 
+	 * simultaneous requests sent to the same host. The articles are then processed 
+	 * sequentially, in the usual order, using the cached pages. The logs and 
+	 * exported results are therefore the same as with a purely sequential
+	 * retrieval.
+	 * 
+	 * @param threadNbr
+	 * 		Number of threads used to download the pages ({@code 1} for 
+	 * 		a sequential retrieval).
+	 * @param requestsByHost
+	 * 		Maximal number of simultaneous requests sent to the same host.
+	 * 
+	 * @throws IOException
+	 * 		Problem while retrieving a Web page.
+	 * @throws ParseException
+	 * 		Problem while retrieving a Web page.
+	 * @throws SAXException
+	 * 		Problem while retrieving a Web page.
+	 */
+	public void retrieveArticles(int threadNbr, int requestsByHost) throws IOException, ParseException, SAXException
 	{	logger.log("Starting the article retrieval");
 		logger.increaseOffset();
 			
@@ -163,6 +207,10 @@ public class WebSearchResults extends AbstractSpecificSearchResults<WebSearchRes
 			ArticleRetriever articleRetriever = new ArticleRetriever(true); //TODO cache disabled for debugging
 //			articleRetriever.setLanguage(ArticleLanguage.FR);	// we don't need that anymore, since we can now determine the language automatically
 			
+			// possibly download the pages concurrently
+			if(threadNbr>1)
+				prefetchArticles(articleRetriever, threadNbr, requestsByHost);
+			
 			int count = 0;
 			int total = 0;
 			for(WebSearchResult result: results.values())
@@ -177,6 +225,103 @@ public class WebSearchResults extends AbstractSpecificSearchResults<WebSearchRes
 		logger.log("Article retrieval complete: "+count+"/"+total);
 	}
 	
+	/**
+	 * Concurrently downloads the Web pages of all the results whose URLs were not 
+	 * previously filtered, and keeps them in the article retriever for the later 
+	 * retrieval of the articles. 
+	 * The number of simultaneous requests sent to the same host is limited, and 
+	 * the URLs are interleaved by host so that the threads do not all wait for 
+	 * the same server.
+	 * <br/>
+	 * Download problems are only logged here: the failing URLs are not requested 
+	 * again when the article is actually retrieved.
+	 * 
+	 * @param articleRetriever
+	 * 		Object used to download the pages.
+	 * @param threadNbr
+	 * 		Number of threads used to download the pages.
+	 * @param requestsByHost
+	 * 		Maximal number of simultaneous requests sent to the same host.
+	 */
+	private void prefetchArticles(final ArticleRetriever articleRetriever, int threadNbr, int requestsByHost)
+	{	logger.log("Downloading the pages concurrently ("+threadNbr+" threads, "+requestsByHost+" requests by host)");
+		logger.increaseOffset();
+		
+		// group the URLs by host
+		Map<String,List<URL>> urlsByHost = new LinkedHashMap<String,List<URL>>();
+		for(WebSearchResult result: results.values())
+		{	if(result.status==null)
+			{	try
+				{	URL url = new URL(result.url);
+					String host = url.getHost();
+					List<URL> urls = urlsByHost.get(host);
+					if(urls==null)
+					{	urls = new ArrayList<URL>();
+						urlsByHost.put(host, urls);
+					}
+					urls.add(url);
+				}
+				catch(MalformedURLException e)
+				{	logger.log("WARNING: malformed URL "+result.url+", it will not be prefetched");
+				}
+			}
+		}
+		
+		// one semaphore by host
+		final Map<String,Semaphore> semaphores = new HashMap<String,Semaphore>();
+		for(String host: urlsByHost.keySet())
+			semaphores.put(host, new Semaphore(requestsByHost));
+		
+		// submit the URLs in round-robin order over the hosts
+		final AtomicInteger count = new AtomicInteger(0);
+		int total = 0;
+		ExecutorService executor = Executors.newFixedThreadPool(threadNbr);
+		boolean remaining = true;
+		int i = 0;
+		while(remaining)
+		{	remaining = false;
+			for(List<URL> urls: urlsByHost.values())
+			{	if(i<urls.size())
+				{	remaining = true;
+					final URL url = urls.get(i);
+					total++;
+					executor.execute(new Runnable()
+					{	@Override
+						public void run()
+						{	Semaphore semaphore = semaphores.get(url.getHost());
+							semaphore.acquireUninterruptibly();
+							try
+							{	if(articleRetriever.prefetch(url))
+									count.incrementAndGet();
+							}
+							catch(Exception e)
+							{	logger.log("WARNING: Could not prefetch the page at URL "+url+" ("+e.getMessage()+")");
+							}
+							finally
+							{	semaphore.release();
+							}
+						}
+					});
+				}
+			}
+			i++;
+		}
+		
+		// wait for all downloads to complete
+		executor.shutdown();
+		try
+		{	executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		}
+		catch(InterruptedException e)
+		{	logger.log("WARNING: Interrupted while downloading the pages");
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+		
+		logger.decreaseOffset();
+		logger.log("Concurrent download complete: "+count.get()+"/"+total);
+	}
+	
 	/////////////////////////////////////////////////////////////////
 	// CSV			/////////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
@@ -29,18 +29,28 @@ import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.xml.sax.SAXException;
 
 import com.gargoylesoftware.htmlunit.FailingHttpStatusCodeException;
 
+import fr.univavignon.transpolosearch.data.article.Article;
 import fr.univavignon.transpolosearch.data.article.ArticleLanguage;
+import fr.univavignon.transpolosearch.data.article.CorpusStore;
 import fr.univavignon.transpolosearch.data.event.ReferenceEvent;
 import fr.univavignon.transpolosearch.data.search.AbstractSearchResults;
 import fr.univavignon.transpolosearch.data.search.CombinedSearchResults;
@@ -100,6 +110,46 @@ public class Extractor
 	/////////////////////////////////////////////////////////////////
 	// PROCESS		/////////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
+	/** Whether the Web and social media searches should be performed concurrently ({@code true}) or one after the other ({@code false}) */
+	private boolean concurrentExtraction = false;
+	
+	/**
+	 * Changes the way the Web and social media searches are performed: 
+	 * concurrently ({@code true}) or one after the other ({@code false}).
+	 * In both cases, their results are merged only once both are over.
+	 * 
+	 * @param concurrentExtraction
+	 * 		{@code true} to perform both searches at once.
+	 */
+	public void setConcurrentExtraction(boolean concurrentExtraction)
+	{	this.concurrentExtraction = concurrentExtraction;
+	}
+	
+	/**
+	 * Changes the way the articles are recorded: in the store of their 
+	 * corpus ({@code true}), or in one folder each ({@code false}).
+	 * Cf. {@link Article#setStoreUsed(boolean)}.
+	 * 
+	 * @param storeUsed
+	 * 		{@code true} to use the corpus store.
+	 */
+	public void setStoreUsed(boolean storeUsed)
+	{	Article.setStoreUsed(storeUsed);
+	}
+	
+	/**
+	 * Changes the way the texts read on demand (original page and 
+	 * linked text) are kept in memory: if {@code true}, they can be
+	 * dropped when memory becomes scarce, and are read again later.
+	 * Cf. {@link Article#setSoftReferenced(boolean)}.
+	 * 
+	 * @param softReferenced
+	 * 		{@code true} to softly reference these texts.
+	 */
+	public void setSoftReferenced(boolean softReferenced)
+	{	Article.setSoftReferenced(softReferenced);
+	}
+	
 	/**
 	 * Launches the main search.
 	 * 
@@ -157,23 +207,81 @@ public class Extractor
 		}
 		FileNames.setOutputFolder(outFolder);
 		
-		// retrieve the reference events (if any)
-		logger.log("Load reference events (if any)");
-		Map<Integer,ReferenceEvent> referenceEvents = loadReferenceEvents();
+		try
+		{	// retrieve the reference events (if any)
+			logger.log("Load reference events (if any)");
+			Map<Integer,ReferenceEvent> referenceEvents = loadReferenceEvents();
 		
-		// perform the Web search
-		logger.log("Performing the Web search");
-		WebSearchResults webRes = null;
-		webRes = performWebExtraction(keywords, websites, startDate, endDate, filterByPubDate, filterByEntDate, compulsoryExpression, language, referenceEvents);
+			WebSearchResults webRes = null;
+			SocialSearchResults socialRes = null;
+		
+			// perform both searches at once
+			if(concurrentExtraction)
+			{	logger.log("Performing concurrently the Web and social media searches");
+				ExecutorService executor = Executors.newSingleThreadExecutor();
+				Future<SocialSearchResults> socialFuture = executor.submit(new Callable<SocialSearchResults>()
+				{	@Override
+					public SocialSearchResults call() throws Exception
+					{	return performSocialExtraction(keywords, additionalSeeds, startDate, endDate, compulsoryExpression, doExtendedSocialSearch, language, referenceEvents);
+					}
+				});
+				executor.shutdown();
+			
+				// the Web search is performed in the current thread
+				try
+				{	webRes = performWebExtraction(keywords, websites, startDate, endDate, filterByPubDate, filterByEntDate, compulsoryExpression, language, referenceEvents);
+					socialRes = socialFuture.get();
+				}
+				catch(InterruptedException e)
+				{	executor.shutdownNow();
+					Thread.currentThread().interrupt();
+					throw new IOException("Interrupted while waiting for the social media search", e);
+				}
+				catch(ExecutionException e)
+				{	Throwable cause = e.getCause();
+					if(cause instanceof IOException)
+						throw (IOException)cause;
+					else if(cause instanceof ReaderException)
+						throw (ReaderException)cause;
+					else if(cause instanceof ParseException)
+						throw (ParseException)cause;
+					else if(cause instanceof SAXException)
+						throw (SAXException)cause;
+					else if(cause instanceof ProcessorException)
+						throw (ProcessorException)cause;
+					else if(cause instanceof RuntimeException)
+						throw (RuntimeException)cause;
+					else
+						throw new IOException(cause);
+				}
+				finally
+				{	// the social search must not outlive this method (e.g. if the Web search failed)
+					if(!executor.isTerminated())
+						executor.shutdownNow();
+				}
+			}
 		
-		// perform the social search
-		logger.log("Performing the social media search");
-		SocialSearchResults socialRes = null;
-		socialRes = performSocialExtraction(keywords, additionalSeeds, startDate, endDate, compulsoryExpression, doExtendedSocialSearch, language, referenceEvents);
+			else
+			{	// perform the Web search
+				logger.log("Performing the Web search");
+				webRes = performWebExtraction(keywords, websites, startDate, endDate, filterByPubDate, filterByEntDate, compulsoryExpression, language, referenceEvents);
+			
+				// perform the social search
+				logger.log("Performing the social media search");
+				socialRes = performSocialExtraction(keywords, additionalSeeds, startDate, endDate, compulsoryExpression, doExtendedSocialSearch, language, referenceEvents);
+			}
 		
-		// merge results and continue processing
-		logger.log("Merging web and social media results");
-		combineResults(webRes, socialRes, language, startDate, endDate);
+			// merge results and continue processing
+			logger.log("Merging web and social media results");
+			combineResults(webRes, socialRes, language, startDate, endDate);
+		}
+		finally
+		{	// stop the threads possibly used by the recognizers
+			shutdownRecognizers();
+			// record the indices of the corpus stores
+			if(Article.isStoreUsed())
+				CorpusStore.closeStores();
+		}
 		
 		logger.decreaseOffset();
 		logger.log("Information extraction over");
@@ -184,6 +292,26 @@ public class Extractor
 	/////////////////////////////////////////////////////////////////
 	/** List of engines used for the Web search */
 	private final List<AbstractWebEngine> webEngines = new ArrayList<AbstractWebEngine>();
+	/** Number of threads used to download the Web pages ({@code 1} for a sequential retrieval) */
+	private int retrievalThreadNbr = 1;
+	/** Maximal number of simultaneous requests sent to the same host during the retrieval */
+	private int retrievalRequestsByHost = WebSearchResults.DEFAULT_REQUESTS_BY_HOST;
+	
+	/**
+	 * Changes the way Web pages are downloaded during the retrieval step.
+	 * With more than one thread, the pages are downloaded concurrently 
+	 * (but still processed sequentially).
+	 * 
+	 * @param threadNbr
+	 * 		Number of threads used to download the Web pages ({@code 1} 
+	 * 		for a sequential retrieval, see {@link WebSearchResults#DEFAULT_RETRIEVAL_THREADS}).
+	 * @param requestsByHost
+	 * 		Maximal number of simultaneous requests sent to the same host.
+	 */
+	public void setRetrievalConcurrency(int threadNbr, int requestsByHost)
+	{	this.retrievalThreadNbr = threadNbr;
+		this.retrievalRequestsByHost = requestsByHost;
+	}
 	
 	/**
 	 * Initializes the default search engines.
@@ -234,6 +362,34 @@ public class Extractor
 		logger.decreaseOffset();
 	}
 	
+	/** Whether the search engines should be applied concurrently ({@code true}) or one after the other ({@code false}) */
+	private boolean concurrentWebSearch = false;
+	/** Wall-clock duration of the last application of each search engine (in ms) */
+	private final Map<String,Long> webEngineDurations = new LinkedHashMap<String,Long>();
+	
+	/**
+	 * Changes the way the search engines are applied: concurrently 
+	 * ({@code true}) or one after the other ({@code false}).
+	 * 
+	 * @param concurrentWebSearch
+	 * 		{@code true} to apply all the engines at once.
+	 */
+	public void setConcurrentWebSearch(boolean concurrentWebSearch)
+	{	this.concurrentWebSearch = concurrentWebSearch;
+	}
+	
+	/**
+	 * Returns the wall-clock durations of the last application of each 
+	 * search engine, in ms. The keys are the engine names, as returned 
+	 * by their {@code toString} method, in the order of {@link #webEngines}.
+	 * 
+	 * @return
+	 * 		Map associating each engine to the duration of its last search.
+	 */
+	public Map<String,Long> getWebEngineDurations()
+	{	return Collections.unmodifiableMap(webEngineDurations);
+	}
+	
 	/**
 	 * Performs the Web search using the specified parameters and
 	 * each one of the engines registered in the {@link #webEngines}
@@ -252,35 +408,141 @@ public class Extractor
 	 */
 	private WebSearchResults performWebSearch(String keywords, Map<Integer,ReferenceEvent> referenceEvents) throws IOException
 	{	WebSearchResults result = new WebSearchResults(referenceEvents);
+		webEngineDurations.clear();
+		
+		// apply all search engines at once
+		if(concurrentWebSearch)
+			performConcurrentWebSearch(keywords, result);
 		
 		// apply each search engine
-		logger.log("Applying iteratively each search engine");
-		logger.increaseOffset();
-		for(AbstractWebEngine engine: webEngines)
-		{	logger.log("Processing search engine "+engine);
+		else
+		{	logger.log("Applying iteratively each search engine");
 			logger.increaseOffset();
-				Map<String,URL> urls = engine.retrieveResults(keywords);
-			
-//				// sort the URL keys
-//				TreeSet<String> keys = new TreeSet<String>(KEY_COMPARATOR);
-//				keys.addAll(urls.keySet());
+			for(AbstractWebEngine engine: webEngines)
+			{	logger.log("Processing search engine "+engine);
+				logger.increaseOffset();
+					long startTime = System.currentTimeMillis();
+					Map<String,URL> urls = engine.retrieveResults(keywords);
+					long endTime = System.currentTimeMillis();
+					webEngineDurations.put(engine.toString(), endTime-startTime);
 				
-				// add to the overall map of URLs
-				String engineStr = engine.toString();
-				for(Entry<String,URL> entry: urls.entrySet())
-				{	String rank = entry.getKey();
-					URL url = entry.getValue();
-					String urlStr = url.toString();
-					result.addResult(urlStr, engineStr, rank);
-				}
+//					// sort the URL keys
+//					TreeSet<String> keys = new TreeSet<String>(KEY_COMPARATOR);
+//					keys.addAll(urls.keySet());
+					
+					// add to the overall map of URLs
+					mergeWebSearchResults(engine, urls, result);
+				logger.decreaseOffset();
+			}
 			logger.decreaseOffset();
 		}
-		logger.decreaseOffset();
 		logger.log("Total number of pages found: "+result.size());
 		
+		// log the duration of each engine
+		logger.log("Duration of each search engine:");
+		logger.increaseOffset();
+			for(Entry<String,Long> entry: webEngineDurations.entrySet())
+				logger.log(entry.getKey()+": "+entry.getValue()+" ms");
+		logger.decreaseOffset();
+		
 		return result;
 	}
 	
+	/**
+	 * Applies all the engines registered in the {@link #webEngines} list at
+	 * once, each one in its own thread. Their results are then merged in the
+	 * order of the list, so that the outcome does not depend on which engine
+	 * answers first.
+	 * 
+	 * @param keywords
+	 * 		Person we want to look for.
+	 * @param result
+	 * 		Web search results to complete.
+	 * 
+	 * @throws IOException
+	 * 		Problem accessing the Web.
+	 */
+	private void performConcurrentWebSearch(final String keywords, WebSearchResults result) throws IOException
+	{	logger.log("Applying concurrently all search engines");
+		logger.increaseOffset();
+		
+		// launch the engines
+		final Map<String,Long> durations = new ConcurrentHashMap<String,Long>();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1,webEngines.size()));
+		List<Future<Map<String,URL>>> futures = new ArrayList<Future<Map<String,URL>>>();
+		for(final AbstractWebEngine engine: webEngines)
+		{	Future<Map<String,URL>> future = executor.submit(new Callable<Map<String,URL>>()
+			{	@Override
+				public Map<String,URL> call() throws IOException
+				{	logger.log("Processing search engine "+engine);
+					logger.increaseOffset();
+					long startTime = System.currentTimeMillis();
+					try
+					{	Map<String,URL> urls = engine.retrieveResults(keywords);
+						return urls;
+					}
+					finally
+					{	long endTime = System.currentTimeMillis();
+						durations.put(engine.toString(), endTime-startTime);
+						logger.decreaseOffset();
+					}
+				}
+			});
+			futures.add(future);
+		}
+		executor.shutdown();
+		
+		// wait for them and merge their results
+		try
+		{	for(int i=0;i<webEngines.size();i++)
+			{	AbstractWebEngine engine = webEngines.get(i);
+				Map<String,URL> urls = futures.get(i).get();
+				webEngineDurations.put(engine.toString(), durations.get(engine.toString()));
+				logger.log("Search engine "+engine+" returned "+urls.size()+" URLs");
+				mergeWebSearchResults(engine, urls, result);
+			}
+		}
+		catch(InterruptedException e)
+		{	executor.shutdownNow();
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for the search engines", e);
+		}
+		catch(ExecutionException e)
+		{	executor.shutdownNow();
+			Throwable cause = e.getCause();
+			if(cause instanceof IOException)
+				throw (IOException)cause;
+			else if(cause instanceof RuntimeException)
+				throw (RuntimeException)cause;
+			else
+				throw new IOException(cause);
+		}
+		finally
+		{	logger.decreaseOffset();
+		}
+	}
+	
+	/**
+	 * Adds the URLs returned by the specified search engine to the 
+	 * overall Web search results.
+	 * 
+	 * @param engine
+	 * 		Search engine which returned the URLs.
+	 * @param urls
+	 * 		Map of ranks and URLs returned by the engine.
+	 * @param result
+	 * 		Web search results to complete.
+	 */
+	private void mergeWebSearchResults(AbstractWebEngine engine, Map<String,URL> urls, WebSearchResults result)
+	{	String engineStr = engine.toString();
+		for(Entry<String,URL> entry: urls.entrySet())
+		{	String rank = entry.getKey();
+			URL url = entry.getValue();
+			String urlStr = url.toString();
+			result.addResult(urlStr, engineStr, rank);
+		}
+	}
+	
 	/**
 	 * Launches the main search.
 	 * 
@@ -355,7 +617,7 @@ public class Extractor
 			results.filterByUrl();
 			
 			// retrieve the corresponding articles
-			results.retrieveArticles();
+			results.retrieveArticles(retrievalThreadNbr, retrievalRequestsByHost);
 			fileName = currentStep + "_" + FileNames.FI_ARTICLES_URL_FILTER;
 			results.exportResults(fileName, startDate, endDate);
 			results.computeRelevancePerformance(fileName, startDate, endDate);
@@ -371,7 +633,7 @@ public class Extractor
 			currentStep++;
 			
 			// detect the entity mentions
-			results.detectMentions(recognizer);
+			results.detectMentions(recognizers);
 			
 			// possibly filter the articles depending on the entities
 			results.filterByEntity(startDate, endDate, filterByEntDate);
@@ -584,7 +846,7 @@ public class Extractor
 			currentStep++;
 			
 			// detect the entity mentions
-			results.detectMentions(recognizer);
+			results.detectMentions(recognizers);
 			
 			// possibly filter the articles depending on the entities
 			results.filterByEntity(null,null,false); // unnecessary, unless we add other entity-based constraints than dates
@@ -622,6 +884,8 @@ public class Extractor
 	/////////////////////////////////////////////////////////////////
 	/** Tool used to recognize named entity mentions in the text */ 
 	private InterfaceRecognizer recognizer;
+	/** Recognizers used to detect the mentions, one for each thread (the first one is {@link #recognizer}) */
+	private final List<InterfaceRecognizer> recognizers = new ArrayList<InterfaceRecognizer>();
 	
 	/**
 	 * Initializes the recognizer, 
@@ -632,8 +896,56 @@ public class Extractor
 	 * 		Problem while initializing the recognizer. 
 	 */
 	private void initRecognizer() throws ProcessorException
-	{	recognizer = new StraightCombiner();
-		recognizer.setCacheEnabled(true);//TODO set to false for debugging
+	{	recognizer = buildRecognizer();
+		recognizers.clear();
+		recognizers.add(recognizer);
+	}
+	
+	/**
+	 * Builds a new instance of the recognizer.
+	 * 
+	 * @return
+	 * 		The new recognizer.
+	 * 
+	 * @throws ProcessorException
+	 * 		Problem while initializing the recognizer. 
+	 */
+	private InterfaceRecognizer buildRecognizer() throws ProcessorException
+	{	InterfaceRecognizer result = new StraightCombiner();
+		result.setCacheEnabled(true);//TODO set to false for debugging
+		return result;
+	}
+	
+	/**
+	 * Stops the threads the recognizers possibly use to apply
+	 * their tools concurrently, once the extraction is over.
+	 */
+	private void shutdownRecognizers()
+	{	for(InterfaceRecognizer r: recognizers)
+		{	if(r instanceof StraightCombiner)
+				((StraightCombiner)r).shutdown();
+		}
+	}
+	
+	/**
+	 * Changes the number of threads used to detect the entity mentions
+	 * in the articles. The recognizer tools are not thread-safe, so each 
+	 * thread gets its own instance, which means additional memory
+	 * for the models.
+	 * 
+	 * @param threadNbr
+	 * 		Number of threads used to detect the mentions ({@code 1} for 
+	 * 		a sequential detection).
+	 * 
+	 * @throws ProcessorException
+	 * 		Problem while initializing the additional recognizers. 
+	 */
+	public void setDetectionThreadNbr(int threadNbr) throws ProcessorException
+	{	threadNbr = Math.max(1, threadNbr);
+		while(recognizers.size()<threadNbr)
+			recognizers.add(buildRecognizer());
+		while(recognizers.size()>threadNbr)
+			recognizers.remove(recognizers.size()-1);
 	}
 
 	/////////////////////////////////////////////////////////////////
@@ -19,16 +19,19 @@ package fr.univavignon.transpolosearch.processing;
  */
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
 import java.text.ParseException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
 
 import org.xml.sax.SAXException;
 
@@ -38,11 +41,12 @@ import fr.univavignon.transpolosearch.data.entity.EntityType;
 import fr.univavignon.transpolosearch.data.entity.mention.AbstractMention;
 import fr.univavignon.transpolosearch.data.entity.mention.Mentions;
 import fr.univavignon.transpolosearch.tools.file.FileNames;
-import fr.univavignon.transpolosearch.tools.file.FileTools;
+import fr.univavignon.transpolosearch.tools.string.StopWordsManager;
 import fr.univavignon.transpolosearch.tools.string.StringTools;
 
 import fr.univavignon.tools.log.HierarchicalLogger;
 import fr.univavignon.tools.log.HierarchicalLoggerManager;
+import fr.univavignon.tools.log.LogLevel;
 
 /**
  * The recognition process can be implemented either directly in the processor
@@ -164,61 +168,65 @@ public abstract class AbstractDelegateRecognizer
 	/** Whether or not numbers should be ignored during recognition */
 	protected boolean ignoreNumbers = true;
 	
-	/** Lists of forbidden words, used for filtering mentions during recognition */	
-	private static final Map<ArticleLanguage,List<String>> EXCLUSION_LISTS = new HashMap<ArticleLanguage,List<String>>();
-	/** List of pronouns, used for filtering mentions during recognition */	
-	private static final Map<ArticleLanguage,List<String>> PRONOUN_LISTS = new HashMap<ArticleLanguage,List<String>>();
+	/** Sets of forbidden words (folded, cf. {@link StopWordsManager#foldWord(String)}), loaded lazily and shared by all recognizers */	
+	private static volatile Map<ArticleLanguage,Set<String>> exclusionSets = null;
+	/** Sets of pronouns (folded, cf. {@link StopWordsManager#foldWord(String)}), loaded lazily and shared by all recognizers */	
+	private static volatile Map<ArticleLanguage,Set<String>> pronounSets = null;
 	
 	/**
-	 * Loads a set of language-dependent list of words.
+	 * Loads a set of language-dependent lists of words, as
+	 * immutable sets of folded words (cf. {@link StopWordsManager#loadWordSet(File)}).
 	 * This is only used during recognition.
 	 * 
 	 * @param prefix
 	 * 		Prefix of the filename (will be completed with language name).
-	 * @param map
-	 * 		Map to populate.
+	 * @return
+	 * 		Map associating a set of words to each language.
 	 */
-	private static void loadLanguageList(String prefix, Map<ArticleLanguage,List<String>> map)
-	{	for(ArticleLanguage language: ArticleLanguage.values())
+	private static Map<ArticleLanguage,Set<String>> loadLanguageSets(String prefix)
+	{	Map<ArticleLanguage,Set<String>> result = new EnumMap<ArticleLanguage,Set<String>>(ArticleLanguage.class);
+		for(ArticleLanguage language: ArticleLanguage.values())
 		{	logger.log("Treating language "+language);
 			// set up file path
 			String path = FileNames.FO_CUSTOM_LISTS + File.separator + prefix + language.toString() + FileNames.EX_TEXT;
 			File file = new File(path);
 			
 			// retrieve values
-			List<String> list = new ArrayList<String>();
-			map.put(language, list);
-			try
-			{	Scanner scanner = FileTools.openTextFileRead(file, "UTF-8");
-				while(scanner.hasNextLine())
-				{	String line = scanner.nextLine().trim();
-					if(!line.isEmpty())
-						list.add(line);
-				}
-				scanner.close();
-			}
-			catch (FileNotFoundException e)
-			{	e.printStackTrace();
-			}
-			catch (UnsupportedEncodingException e)
-			{	e.printStackTrace();
-			}
+			Set<String> set = StopWordsManager.loadWordSet(file);
+			result.put(language, set);
 		}
+		return Collections.unmodifiableMap(result);
 	}
 	
 	/**
-	 * Loads the exclusion lists, i.e. the
-	 * lists of stop-words, for each language.
+	 * Returns the exclusion set, i.e. the set of
+	 * stop-words, for the specified language, after
+	 * loading the sets for all languages if necessary.
 	 * This is only used during recognition.
+	 * 
+	 * @param language
+	 * 		Language of interest.
+	 * @return
+	 * 		Set of folded stop-words.
 	 */
-	private static void loadExclusionList()
-	{	logger.log("Loading exclusion lists");
-		logger.increaseOffset();
-		
-		loadLanguageList(FileNames.PRE_EXCLUDED, EXCLUSION_LISTS);
-		
-		logger.decreaseOffset();
-		logger.log("Loading complete");
+	private static Set<String> getExclusionSet(ArticleLanguage language)
+	{	Map<ArticleLanguage,Set<String>> map = exclusionSets;
+		// the sets are shared by all recognizers, which can be used concurrently
+		if(map==null)
+		{	synchronized(AbstractDelegateRecognizer.class)
+			{	map = exclusionSets;
+				if(map==null)
+				{	logger.log("Loading exclusion lists");
+					logger.increaseOffset();
+					map = loadLanguageSets(FileNames.PRE_EXCLUDED);
+					exclusionSets = map;
+					logger.decreaseOffset();
+					logger.log("Loading complete");
+				}
+			}
+		}
+		Set<String> result = map.get(language);
+		return result;
 	}
 	
 	/**
@@ -255,33 +263,40 @@ public abstract class AbstractDelegateRecognizer
 	 * 		{@code true} iff the string is a stop-word.
 	 */
 	private boolean isExcluded(String text, ArticleLanguage language)
-	{	boolean result = false;
-		
-		if(EXCLUSION_LISTS.isEmpty())
-			loadExclusionList();
-		
-		List<String> list = EXCLUSION_LISTS.get(language);
-		Iterator<String> it = list.iterator();
-		while(it.hasNext() && !result)
-		{	String word = it.next();
-			result = word.equalsIgnoreCase(text);
-		}
-		
+	{	Set<String> set = getExclusionSet(language);
+		boolean result = set.contains(StopWordsManager.foldWord(text));
 		return result;
 	}
 
 	/**
-	 * Loads the pronouns lists for each language.
+	 * Returns the set of pronouns for the specified
+	 * language, after loading the sets for all languages 
+	 * if necessary.
 	 * This is only used during recognition.
+	 * 
+	 * @param language
+	 * 		Language of interest.
+	 * @return
+	 * 		Set of folded pronouns.
 	 */
-	private static void loadPronounList()
-	{	logger.log("Loading pronoun lists");
-		logger.increaseOffset();
-		
-		loadLanguageList(FileNames.PRE_PRONOUNS, PRONOUN_LISTS);
-		
-		logger.decreaseOffset();
-		logger.log("Loading complete");
+	private static Set<String> getPronounSet(ArticleLanguage language)
+	{	Map<ArticleLanguage,Set<String>> map = pronounSets;
+		// the sets are shared by all recognizers, which can be used concurrently
+		if(map==null)
+		{	synchronized(AbstractDelegateRecognizer.class)
+			{	map = pronounSets;
+				if(map==null)
+				{	logger.log("Loading pronoun lists");
+					logger.increaseOffset();
+					map = loadLanguageSets(FileNames.PRE_PRONOUNS);
+					pronounSets = map;
+					logger.decreaseOffset();
+					logger.log("Loading complete");
+				}
+			}
+		}
+		Set<String> result = map.get(language);
+		return result;
 	}
 	
 	/**
@@ -318,19 +333,8 @@ public abstract class AbstractDelegateRecognizer
 	 * 		{@code true} iff the string is a pronoun.
 	 */
 	private boolean isPronoun(String text, ArticleLanguage language)
-	{	boolean result = false;
-	
-		if(PRONOUN_LISTS.isEmpty())
-			loadPronounList();
-	
-		List<String> list = PRONOUN_LISTS.get(language);
-		Iterator<String> it = list.iterator();
-		
-		while(it.hasNext() && !result)
-		{	String pronoun = it.next();
-			result = pronoun.equalsIgnoreCase(text);
-		}
-		
+	{	Set<String> set = getPronounSet(language);
+		boolean result = set.contains(StopWordsManager.foldWord(text));
 		return result;
 	}
 
@@ -373,6 +377,7 @@ public abstract class AbstractDelegateRecognizer
 	{	logger.increaseOffset();
 		
 		List<AbstractMention<?>> mentionList = mentions.getMentions();
+		boolean debug = logger.isLoggable(LogLevel.DEBUG);
 		Iterator<AbstractMention<?>> it = mentionList.iterator();
 		while(it.hasNext())
 		{	AbstractMention<?> mention = it.next();
@@ -381,19 +386,22 @@ public abstract class AbstractDelegateRecognizer
 			
 			// is it a stop-word?
 			if(exclusionOn && isExcluded(mentionStr,language))
-			{	logger.log("Mention '"+mentionStr+"' is a stop-word >> filtered.)");
+			{	if(debug)
+					logger.log(LogLevel.DEBUG, "Mention '"+mentionStr+"' is a stop-word >> filtered.)");
 				it.remove();
 			}
 			
 			// is it a pronoun?
 			else if(ignorePronouns && (mentionStr.length()<=1 || isPronoun(mentionStr,language)))
-			{	logger.log("Mention '"+mentionStr+"' is a pronoun >> filtered.)");
+			{	if(debug)
+					logger.log(LogLevel.DEBUG, "Mention '"+mentionStr+"' is a pronoun >> filtered.)");
 				it.remove();
 			}
 			
 			// is it a pure number? (and not a date)
 			else if(ignoreNumbers && StringTools.hasNoLetter(mentionStr) && type!=EntityType.DATE)
-			{	logger.log("Mention '"+mentionStr+"' is a number (no letter) and not a date >> filtered.)");
+			{	if(debug)
+					logger.log(LogLevel.DEBUG, "Mention '"+mentionStr+"' is a number (no letter) and not a date >> filtered.)");
 				it.remove();
 			}
 		}
@@ -492,6 +500,7 @@ public abstract class AbstractDelegateRecognizer
 					}
 				}
 			}
+			mentions.invalidateIndex();
 			logger.decreaseOffset();
 		}
 		else
@@ -603,6 +612,12 @@ public abstract class AbstractDelegateRecognizer
 	 * Gets a list of mentions and detects the overlapping ones.
 	 * Only keeps the longest ones amongst them.
 	 * This is only used during recognition.
+	 * <br/>
+	 * The mentions are processed in the order of the list. The kept
+	 * mentions never overlap, so they are stored in a map sorted by
+	 * starting position, which allows retrieving the ones overlapping
+	 * a new mention in logarithmic time. When several of them do, the
+	 * oldest one is considered first, like in {@link #positionAlreadyUsed(AbstractMention, List)}.
 	 * 
 	 * @param mentions
 	 * 		List to be filtered.
@@ -613,11 +628,13 @@ public abstract class AbstractDelegateRecognizer
 		if(!noOverlap)
 			logger.log("Overlapping mentions are allowed.)");
 		else
-		{	List<AbstractMention<?>> temp = new ArrayList<AbstractMention<?>>(mentions);
-			mentions.clear();
+		{	// kept mentions, indexed by starting position
+			TreeMap<Integer,AbstractMention<?>> kept = new TreeMap<Integer,AbstractMention<?>>();
+			// order in which they were kept
+			Map<AbstractMention<?>,Integer> ranks = new IdentityHashMap<AbstractMention<?>,Integer>();
 			
-			for(AbstractMention<?> mention1: temp)
-			{	AbstractMention<?> mention2 = positionAlreadyUsed(mention1, mentions);
+			for(AbstractMention<?> mention1: mentions)
+			{	AbstractMention<?> mention2 = getOldestOverlapping(mention1, kept, ranks);
 				boolean pass = false;
 				while(!pass && mention2!=null)
 				{	// process both mention lengths
@@ -626,23 +643,75 @@ public abstract class AbstractDelegateRecognizer
 					// keep the longest one
 					if(length1>length2)
 					{	logger.log("New mention "+mention1+" intersects with old mention "+mention2+" >> keep the new one");
-						mentions.remove(mention2);
+						kept.remove(mention2.getStartPos());
 					}
 					else
 					{	logger.log("New mention "+mention1+" intersects with old mention "+mention2+" >> keep the old one");
 						pass = true;
 					}
 					// check next overlapping mention
-					mention2 = positionAlreadyUsed(mention1, mentions);
+					mention2 = getOldestOverlapping(mention1, kept, ranks);
 				}
 				
 				if(!pass)
-					mentions.add(mention1);
+				{	kept.put(mention1.getStartPos(), mention1);
+					ranks.put(mention1, ranks.size());
+				}
 			}
+			
+			// restore the original order
+			List<AbstractMention<?>> temp = new ArrayList<AbstractMention<?>>(kept.values());
+			final Map<AbstractMention<?>,Integer> r = ranks;
+			Collections.sort(temp, new Comparator<AbstractMention<?>>()
+			{	@Override
+				public int compare(AbstractMention<?> m1, AbstractMention<?> m2)
+				{	int result = r.get(m1) - r.get(m2);
+					return result;
+				}
+			});
+			mentions.clear();
+			mentions.addAll(temp);
 		}
 		
 		logger.decreaseOffset();
 	}
+	
+	/**
+	 * Returns the oldest of the kept mentions overlapping the specified
+	 * one (cf. {@link AbstractMention#overlapsWith(AbstractMention)}), or
+	 * {@code null} if none does. This is only used by {@link #filterRedundancy(List)}.
+	 * 
+	 * @param mention
+	 * 		Newly detected mention.
+	 * @param kept
+	 * 		Non-overlapping mentions kept as of now, indexed by starting position.
+	 * @param ranks
+	 * 		Order in which the mentions were kept.
+	 * @return
+	 * 		Oldest mention intersecting the specified one,
+	 * 		or {@code null} if none does.
+	 */
+	private AbstractMention<?> getOldestOverlapping(AbstractMention<?> mention, TreeMap<Integer,AbstractMention<?>> kept, Map<AbstractMention<?>,Integer> ranks)
+	{	AbstractMention<?> result = null;
+		int startPos = mention.getStartPos();
+		int endPos = mention.getEndPos();
+		
+		// the kept mentions do not overlap, so at most one starts before the new one and reaches it 
+		List<AbstractMention<?>> candidates = new ArrayList<AbstractMention<?>>();
+		Entry<Integer,AbstractMention<?>> before = kept.lowerEntry(startPos);
+		if(before!=null && before.getValue().getEndPos()>=startPos)
+			candidates.add(before.getValue());
+		// all those starting within the new one overlap it
+		if(startPos<=endPos)
+			candidates.addAll(kept.subMap(startPos, true, endPos, true).values());
+		
+		for(AbstractMention<?> candidate: candidates)
+		{	if(result==null || ranks.get(candidate)<ranks.get(result))
+				result = candidate;
+		}
+		
+		return result;
+	}
 
 	/////////////////////////////////////////////////////////////////
 	// XML FILE			/////////////////////////////////////////////
@@ -666,6 +735,19 @@ public abstract class AbstractDelegateRecognizer
 		return result;
 	}
 	
+	/**
+	 * Returns the path of the XML result file, relatively to
+	 * the article folder. It is also used as the field of the
+	 * results in the corpus store (cf. {@link Article#isStoreUsed()}).
+	 * 
+	 * @return
+	 * 		Relative path of the XML result file.
+	 */
+	public String getXmlField()
+	{	String result = getFolder() + File.separator + FileNames.FI_MENTION_LIST;
+		return result;
+	}
+	
 	/**
 	 * Write the XML results obtained for the specified article.
 	 * This method is meant for both internal and external tools.
@@ -678,15 +760,12 @@ public abstract class AbstractDelegateRecognizer
 	 * 		Problem while writing the file.
 	 */
 	public void writeXmlResults(Article article, Mentions mentions) throws IOException
-	{	// data file
-		File file = getXmlFile(article);
+	{	// data file (or corpus store)
+		article.writeMentions(getXmlField(), mentions);
 		
-		// check folder
-		File folder = file.getParentFile();
-		if(!folder.exists())
-			folder.mkdirs();
-		
-		mentions.writeToXml(file);
+		// add to the cache
+		String key = getCacheKey(article);
+		MentionCache.put(key, mentions, getFolder()+"\t"+article.getName());
 	}
 	
 	/**
@@ -707,13 +786,82 @@ public abstract class AbstractDelegateRecognizer
 	 * 		Problem while parsing a date. 
 	 */
 	public Mentions readXmlResults(Article article) throws SAXException, IOException, ParseException
-	{	File dataFile = getXmlFile(article);
+	{	Mentions result = article.readMentions(getXmlField());
+		return result;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// CACHE			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Returns a string representing the complete configuration of this
+	 * delegate recognizer, i.e. all the parameters which can affect
+	 * its results. It is used to identify the cached results.
+	 * <br/>
+	 * By default, this string contains the folder name (see {@link #getFolder()})
+	 * and all the options of this class. Subclasses must override this method if
+	 * some of their parameters are not included in the folder name.
+	 * 
+	 * @return 
+	 * 		String representing the configuration of this recognizer.
+	 */
+	public String getConfiguration()
+	{	String result = getClass().getName() + "/" + getFolder()
+			+ "_trim=" + trim
+			+ "_ignPro=" + ignorePronouns
+			+ "_ignNbr=" + ignoreNumbers
+			+ "_exclude=" + exclusionOn
+			+ "_noOverlap=" + noOverlap
+			+ "_types=" + getHandledEntityTypes();
+		return result;
+	}
+	
+	/**
+	 * Returns the key identifying the results of this recognizer for the
+	 * specified article in the mention cache. It depends only on the raw 
+	 * text of the article and on the configuration of the recognizer.
+	 * 
+	 * @param article
+	 * 		Article to process.
+	 * @return
+	 * 		Key of the article in the mention cache.
+	 */
+	public String getCacheKey(Article article)
+	{	String result = MentionCache.processKey(getConfiguration(), article.getRawText());
+		return result;
+	}
+	
+	/**
+	 * Retrieves the mentions previously detected by this recognizer for the 
+	 * specified article, or for any other article with the same raw text. The
+	 * XML file of the article is then updated, too.
+	 * 
+	 * @param article
+	 * 		Article to process.
+	 * @return
+	 * 		The cached mentions, or {@code null} if the article must be processed.
+	 * 
+	 * @throws SAXException
+	 * 		Problem while reading the cache.
+	 * @throws IOException
+	 * 		Problem while reading the cache.
+	 * @throws ParseException 
+	 * 		Problem while reading the cache.
+	 */
+	public Mentions readCachedResults(Article article) throws SAXException, IOException, ParseException
+	{	String key = getCacheKey(article);
+		Mentions result = MentionCache.get(key);
 		
-		Mentions result = Mentions.readFromXml(dataFile);
+		if(result==null)
+			logger.log("No cached mentions for this text and configuration");
+		else
+		{	logger.log("Loading mentions from cache (key "+key+")");
+			article.writeMentions(getXmlField(), result);
+		}
 		
 		return result;
 	}
-
+	
 	/////////////////////////////////////////////////////////////////
 	// RAW FILE			/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
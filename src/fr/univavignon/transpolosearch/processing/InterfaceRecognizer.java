@@ -50,6 +50,17 @@ public interface InterfaceRecognizer extends InterfaceProcessor
 	 */
 	public String getRecognizerFolder();
 	
+	/**
+	 * Returns a string representing the complete configuration of this
+	 * recognizer, i.e. all the parameters which can affect its results,
+	 * including those not appearing in its folder name. It is used to
+	 * identify the cached results (cf. {@link MentionCache}).
+	 * 
+	 * @return 
+	 * 		String representing the configuration of this recognizer.
+	 */
+	public String getRecognizerConfiguration();
+	
 	/////////////////////////////////////////////////////////////////
 	// ENTITY TYPES		/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
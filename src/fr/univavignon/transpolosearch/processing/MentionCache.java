@@ -0,0 +1,324 @@
+package fr.univavignon.transpolosearch.processing;
+
+/*
+ * TranspoloSearch
+ * Copyright 2015-18 Vincent Labatut
+ * 
+ * This file is part of TranspoloSearch.
+ * 
+ * TranspoloSearch is free software: you can redistribute it and/or modify it under 
+ * the terms of the GNU General Public License as published by the Free Software 
+ * Foundation, either version 2 of the License, or (at your option) any later version.
+ * 
+ * TranspoloSearch is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with TranspoloSearch. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Scanner;
+
+import org.xml.sax.SAXException;
+
+import fr.univavignon.transpolosearch.data.entity.SerializationFormat;
+import fr.univavignon.transpolosearch.data.entity.mention.Mentions;
+import fr.univavignon.transpolosearch.tools.file.FileNames;
+import fr.univavignon.transpolosearch.tools.file.FileTools;
+
+/**
+ * Content-addressed cache of the mentions detected by the recognizers.
+ * <br/>
+ * Each entry is identified by a hash of the raw text of the article and
+ * of the complete configuration of the recognizer (cf.
+ * {@link AbstractDelegateRecognizer#getConfiguration()}). So, modifying
+ * the text or any option of the recognizer results in a different key,
+ * and a stale entry can never be reused. On the contrary, identical texts
+ * (e.g. the same article published at several URLs) share the same entry.
+ * <br/>
+ * The entries are stored in {@link FileNames#FO_CACHE_MENTIONS}, as XML or
+ * binary files depending on the selected format (cf. {@link #setFormat(SerializationFormat)}).
+ * An index file lists the existing entries, and is loaded in memory on first
+ * use, so that looking for a key does not require accessing the disk. Each
+ * line of the index contains the key, followed by the recognizer folder and
+ * the name of the article for which the entry was created (for information
+ * only).
+ * 
+ * @author Vincent Labatut
+ */
+public class MentionCache
+{
+	/////////////////////////////////////////////////////////////////
+	// KEYS				/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Version of the cache, to be increased whenever the processing of the mentions changes */
+	private final static int VERSION = 1;
+	/** Hexadecimal digits */
+	private final static char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	/**
+	 * Processes the key associated to the specified text and
+	 * recognizer configuration: a SHA-256 hash of both of them.
+	 * 
+	 * @param configuration
+	 * 		Complete configuration of the recognizer.
+	 * @param text
+	 * 		Raw text of the article.
+	 * @return
+	 * 		Key of the corresponding cache entry.
+	 */
+	public static String processKey(String configuration, String text)
+	{	MessageDigest digest;
+		try
+		{	digest = MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException e)
+		{	// SHA-256 is available in all Java platforms
+			throw new IllegalStateException(e);
+		}
+
+		String header = VERSION + "\n" + configuration + "\n" + text.length() + "\n";
+		digest.update(header.getBytes(StandardCharsets.UTF_8));
+		digest.update(text.getBytes(StandardCharsets.UTF_8));
+		byte[] hash = digest.digest();
+
+		StringBuilder result = new StringBuilder();
+		for(byte b: hash)
+		{	result.append(HEX_DIGITS[(b>>4)&0xF]);
+			result.append(HEX_DIGITS[b&0xF]);
+		}
+		return result.toString();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// FORMAT			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Format used to record the new entries */
+	private static volatile SerializationFormat format = SerializationFormat.XML;
+
+	/**
+	 * Returns the format used to record the new entries.
+	 * 
+	 * @return
+	 * 		Format of the cache entries.
+	 */
+	public static SerializationFormat getFormat()
+	{	return format;
+	}
+
+	/**
+	 * Changes the format used to record the new entries. The binary
+	 * format is faster to read and write, whereas XML can be checked
+	 * manually. The existing entries remain readable whatever their
+	 * format.
+	 * 
+	 * @param format
+	 * 		New format of the cache entries.
+	 */
+	public static void setFormat(SerializationFormat format)
+	{	MentionCache.format = format;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// INDEX			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Map associating the key of each entry to the description of its origin, loaded lazily */
+	private static Map<String,String> index = null;
+
+	/**
+	 * Returns the index of the cache, after
+	 * loading it if necessary.
+	 * 
+	 * @return
+	 * 		Map associating the keys to their description.
+	 * 
+	 * @throws FileNotFoundException
+	 * 		Problem while reading the index.
+	 * @throws UnsupportedEncodingException
+	 * 		Problem while reading the index.
+	 */
+	private static Map<String,String> getIndex() throws FileNotFoundException, UnsupportedEncodingException
+	{	if(index==null)
+		{	index = new HashMap<String,String>();
+			File file = getIndexFile();
+			if(file.exists())
+			{	Scanner scanner = FileTools.openTextFileRead(file, "UTF-8");
+				while(scanner.hasNextLine())
+				{	String line = scanner.nextLine();
+					int pos = line.indexOf('\t');
+					if(pos>0)
+						index.put(line.substring(0,pos), line.substring(pos+1));
+				}
+				scanner.close();
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the file containing the index of the cache.
+	 * 
+	 * @return
+	 * 		Index file.
+	 */
+	private static File getIndexFile()
+	{	File result = new File(FileNames.FO_CACHE_MENTIONS + File.separator + FileNames.FI_CACHE_INDEX);
+		return result;
+	}
+
+	/**
+	 * Returns the file containing the specified entry, in the
+	 * specified format. The files are spread in subfolders,
+	 * depending on the first characters of their key.
+	 * 
+	 * @param key
+	 * 		Key of the entry.
+	 * @param format
+	 * 		Format of the entry.
+	 * @return
+	 * 		File containing the entry.
+	 */
+	private static File getEntryFile(String key, SerializationFormat format)
+	{	File result = new File(FileNames.FO_CACHE_MENTIONS
+			+ File.separator + key.substring(0,2)
+			+ File.separator + key + format.getExtension());
+		return result;
+	}
+
+	/**
+	 * Returns the existing file containing the specified entry,
+	 * or {@code null} if there is none. The current format is
+	 * tried first, then the other ones (entries recorded before
+	 * a change of format).
+	 * 
+	 * @param key
+	 * 		Key of the entry.
+	 * @return
+	 * 		File containing the entry, or {@code null} if there is none.
+	 */
+	private static File findEntryFile(String key)
+	{	SerializationFormat current = format;
+		File result = getEntryFile(key, current);
+		if(!result.exists())
+		{	result = null;
+			for(SerializationFormat f: SerializationFormat.values())
+			{	if(f!=current && result==null)
+				{	File file = getEntryFile(key, f);
+					if(file.exists())
+						result = file;
+				}
+			}
+		}
+		return result;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ACCESS			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Returns the mentions associated to the specified key,
+	 * or {@code null} if the cache does not contain them.
+	 * 
+	 * @param key
+	 * 		Key of the entry, cf. {@link #processKey(String, String)}.
+	 * @return
+	 * 		The cached mentions, or {@code null} if there is none.
+	 * 
+	 * @throws SAXException
+	 * 		Problem while reading the entry.
+	 * @throws IOException
+	 * 		Problem while reading the entry.
+	 * @throws ParseException
+	 * 		Problem while reading the entry.
+	 */
+	public static Mentions get(String key) throws SAXException, IOException, ParseException
+	{	Mentions result = null;
+
+		File file = null;
+		synchronized(MentionCache.class)
+		{	if(getIndex().containsKey(key))
+			{	file = findEntryFile(key);
+				// the entry file was removed manually
+				if(file==null)
+					index.remove(key);
+			}
+		}
+
+		if(file!=null)
+		{	if(file.getName().endsWith(SerializationFormat.BINARY.getExtension()))
+				result = Mentions.readFromBinary(file);
+			else
+				result = Mentions.readFromXml(file);
+		}
+		return result;
+	}
+
+	/**
+	 * Adds the specified mentions to the cache.
+	 * 
+	 * @param key
+	 * 		Key of the entry, cf. {@link #processKey(String, String)}.
+	 * @param mentions
+	 * 		Mentions to cache.
+	 * @param description
+	 * 		Short description of the entry origin (recognizer, article).
+	 * 
+	 * @throws IOException
+	 * 		Problem while writing the entry.
+	 */
+	public static void put(String key, Mentions mentions, String description) throws IOException
+	{	// an existing entry is never modified (it could be read at the same time)
+		synchronized(MentionCache.class)
+		{	if(getIndex().containsKey(key) && findEntryFile(key)!=null)
+				return;
+		}
+
+		// write the entry in a temporary file, so that it cannot be read while incomplete
+		SerializationFormat current = format;
+		File file = getEntryFile(key, current);
+		File folder = file.getParentFile();
+		if(!folder.exists())
+			folder.mkdirs();
+		File tempFile = File.createTempFile(key, null, folder);
+		try
+		{	if(current==SerializationFormat.BINARY)
+				mentions.writeToBinary(tempFile);
+			else
+				mentions.writeToXml(tempFile);
+			
+			// then move it to its final name (same folder, so the move can be atomic)
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally
+		{	if(tempFile.exists())
+				tempFile.delete();
+		}
+
+		// update the index
+		synchronized(MentionCache.class)
+		{	Map<String,String> idx = getIndex();
+			if(!idx.containsKey(key))
+			{	idx.put(key, description);
+				PrintWriter pw = new PrintWriter(new OutputStreamWriter(new FileOutputStream(getIndexFile(), true), "UTF-8"));
+				pw.println(key + "\t" + description.replace('\t',' ').replace('\n',' '));
+				pw.close();
+			}
+		}
+	}
+}
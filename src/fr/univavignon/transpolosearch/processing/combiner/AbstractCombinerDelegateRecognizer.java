@@ -29,6 +29,15 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.xml.sax.SAXException;
 
@@ -49,6 +58,14 @@ import fr.univavignon.transpolosearch.tools.file.FileTools;
  * This class implements a specific type of recognizer:
  * it actually combines the outputs of other tools, in order
  * to reach a higher overall performance.
+ * <br/>
+ * When the tools are applied concurrently, each one has its own thread, 
+ * so that a tool instance never processes two articles at once. A tool 
+ * exceeding its timeout is interrupted, but it cannot be stopped if it
+ * does not react to interruptions (remote request, external process, 
+ * long computation...). It is then considered as unavailable: it is
+ * skipped (i.e. it detects no mention) for the next articles, until its 
+ * pending call actually returns.
  * 
  * @author Vincent Labatut
  */
@@ -196,6 +213,21 @@ public abstract class AbstractCombinerDelegateRecognizer extends AbstractDelegat
 	{	return recognizers;
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 * <br/>
+	 * The configuration of a combiner also includes the
+	 * configurations of the recognizers it uses.
+	 */
+	@Override
+	public String getConfiguration()
+	{	StringBuilder result = new StringBuilder(super.getConfiguration());
+		result.append("_specific=").append(specific);
+		for(InterfaceRecognizer recognizer: recognizers)
+			result.append("_[").append(recognizer.getRecognizerConfiguration()).append("]");
+		return result.toString();
+	}
+	
 	/**
 	 * Creates the objects representing
 	 * the recognizers used by this combiner.
@@ -218,19 +250,26 @@ public abstract class AbstractCombinerDelegateRecognizer extends AbstractDelegat
 	 * 		Problem while applying the combiner. 
 	 */
 	protected Mentions applyRecognizers(Article article) throws ProcessorException
-	{	logger.log("Apply each recognizer separately");
-		logger.increaseOffset();
-		Map<InterfaceRecognizer,Mentions> mentions = new HashMap<InterfaceRecognizer,Mentions>();
-		for(InterfaceRecognizer recognizer: recognizers)
-		{	// apply the recognizer
-			Mentions temp = recognizer.recognize(article);
-			// keep only the relevant types
-			logger.log("Filter mentions by type");
-			filterType(temp);
-			// add to map
-			mentions.put(recognizer, temp);
+	{	Map<InterfaceRecognizer,Mentions> mentions;
+		timedOut = false;
+		if(concurrent)
+			mentions = applyRecognizersConcurrently(article);
+		
+		else
+		{	logger.log("Apply each recognizer separately");
+			logger.increaseOffset();
+			mentions = new HashMap<InterfaceRecognizer,Mentions>();
+			for(InterfaceRecognizer recognizer: recognizers)
+			{	// apply the recognizer
+				Mentions temp = recognizer.recognize(article);
+				// keep only the relevant types
+				logger.log("Filter mentions by type");
+				filterType(temp);
+				// add to map
+				mentions.put(recognizer, temp);
+			}
+			logger.decreaseOffset();
 		}
-		logger.decreaseOffset();
 		
 		logger.log("Combine the recognizers outputs");
 		StringBuffer rawOutput = new StringBuffer();
@@ -280,6 +319,260 @@ public abstract class AbstractCombinerDelegateRecognizer extends AbstractDelegat
     */
 	protected abstract Mentions combineMentions(Article article, Map<InterfaceRecognizer,Mentions> mentions, StringBuffer rawOutput) throws ProcessorException;
 	
+	/////////////////////////////////////////////////////////////////
+	// CONCURRENCY		/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Whether the recognizers are applied all at once ({@code true}) or one after the other ({@code false}) */
+	protected boolean concurrent = false;
+	/** Maximal duration of the application of a recognizer to an article, in ms ({@code 0} for no limit) */
+	protected long defaultTimeout = 0;
+	/** Specific maximal durations for certain recognizers, in ms ({@code 0} for no limit) */
+	protected final Map<ProcessorName,Long> timeouts = new HashMap<ProcessorName,Long>();
+	/** Thread of each recognizer: one by tool, so that a tool is never applied to two articles at once */
+	private final Map<InterfaceRecognizer,ExecutorService> executors = new HashMap<InterfaceRecognizer,ExecutorService>();
+	/** State of the last call of the recognizers which reached their timeout, as long as this call may still be running */
+	private final Map<InterfaceRecognizer,AtomicInteger> timedOutCalls = new HashMap<InterfaceRecognizer,AtomicInteger>();
+	/** State of a call which has not started yet */
+	private final static int CALL_WAITING = 0;
+	/** State of a call currently running */
+	private final static int CALL_RUNNING = 1;
+	/** State of a call which is over (or will never start) */
+	private final static int CALL_OVER = 2;
+	/** Whether at least one recognizer reached its timeout during the last application of this combiner */
+	private boolean timedOut = false;
+	
+	/**
+	 * Changes the way the recognizers are applied to an article: 
+	 * all at once ({@code true}) or one after the other ({@code false}).
+	 * 
+	 * @param concurrent
+	 * 		{@code true} to apply all the recognizers at once.
+	 */
+	public void setConcurrent(boolean concurrent)
+	{	this.concurrent = concurrent;
+	}
+	
+	/**
+	 * Changes the maximal duration of the application of a recognizer
+	 * to an article, when the recognizers are applied concurrently. 
+	 * A recognizer exceeding this limit is considered as having detected 
+	 * no mention at all.
+	 * 
+	 * @param timeout
+	 * 		Maximal duration in ms, or {@code 0} for no limit.
+	 */
+	public void setDefaultTimeout(long timeout)
+	{	this.defaultTimeout = timeout;
+	}
+	
+	/**
+	 * Changes the maximal duration of the application of the specified
+	 * recognizer to an article, when the recognizers are applied concurrently.
+	 * This overrides the default timeout.
+	 * 
+	 * @param name
+	 * 		Name of the concerned recognizer.
+	 * @param timeout
+	 * 		Maximal duration in ms, or {@code 0} for no limit.
+	 */
+	public void setTimeout(ProcessorName name, long timeout)
+	{	timeouts.put(name, timeout);
+	}
+	
+	/**
+	 * Returns the thread dedicated to the specified recognizer,
+	 * creating it if necessary. This thread does not prevent the
+	 * JVM from exiting.
+	 * 
+	 * @param recognizer
+	 * 		Concerned recognizer.
+	 * @return
+	 * 		The executor in charge of the recognizer.
+	 */
+	private ExecutorService getExecutor(InterfaceRecognizer recognizer)
+	{	ExecutorService result = executors.get(recognizer);
+		if(result==null)
+		{	result = Executors.newSingleThreadExecutor(new ThreadFactory()
+			{	@Override
+				public Thread newThread(Runnable runnable)
+				{	Thread thread = new Thread(runnable);
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			executors.put(recognizer, result);
+		}
+		return result;
+	}
+	
+	/**
+	 * Indicates whether the specified recognizer is still busy with a
+	 * call which reached its timeout, in which case it cannot be applied
+	 * to another article.
+	 * 
+	 * @param recognizer
+	 * 		Concerned recognizer.
+	 * @return
+	 * 		{@code true} iff the recognizer is still busy.
+	 */
+	private boolean isStillBusy(InterfaceRecognizer recognizer)
+	{	boolean result = false;
+		AtomicInteger state = timedOutCalls.get(recognizer);
+		if(state!=null)
+		{	if(state.get()==CALL_RUNNING)
+				result = true;
+			else
+				timedOutCalls.remove(recognizer);
+		}
+		return result;
+	}
+	
+	/**
+	 * Stops the threads used to apply the recognizers concurrently.
+	 * This method must be called once the processing is over. If
+	 * the combiner is applied again later, new threads are created.
+	 */
+	public void shutdown()
+	{	for(ExecutorService executor: executors.values())
+			executor.shutdownNow();
+		executors.clear();
+	}
+	
+	/**
+	 * Interrupts the specified call of a recognizer (if possible), whose result
+	 * is not needed anymore. If the call is still running, the recognizer
+	 * is considered as unavailable until it returns (cf. {@link #isStillBusy(InterfaceRecognizer)}).
+	 * If it has not started yet, it will never start.
+	 * 
+	 * @param recognizer
+	 * 		Concerned recognizer.
+	 * @param future
+	 * 		Result of the call, or {@code null} if the recognizer was skipped.
+	 * @param state
+	 * 		State of the call.
+	 */
+	private void abandonCall(InterfaceRecognizer recognizer, Future<Mentions> future, AtomicInteger state)
+	{	if(future!=null)
+		{	future.cancel(true);
+			state.compareAndSet(CALL_WAITING, CALL_OVER);
+			if(state.get()==CALL_RUNNING)
+				timedOutCalls.put(recognizer, state);
+		}
+	}
+	
+	/**
+	 * Applies all the recognizers to the specified article at once,
+	 * each one in its own thread, and waits for their results. A recognizer 
+	 * exceeding its timeout is interrupted (when possible) and considered
+	 * as having detected no mention. It is also skipped for the next articles,
+	 * until its pending call returns.
+	 * 
+	 * @param article
+	 * 		Article to be processed.
+	 * @return
+	 * 		Map of the mentions detected by the individual recognizers.
+	 * 
+	 * @throws ProcessorException
+	 * 		Problem while applying one of the recognizers. 
+	 */
+	private Map<InterfaceRecognizer,Mentions> applyRecognizersConcurrently(final Article article) throws ProcessorException
+	{	logger.log("Apply all recognizers concurrently");
+		logger.increaseOffset();
+		Map<InterfaceRecognizer,Mentions> result = new HashMap<InterfaceRecognizer,Mentions>();
+		
+		// launch the recognizers
+		long startTime = System.currentTimeMillis();
+		List<Future<Mentions>> futures = new ArrayList<Future<Mentions>>();
+		List<AtomicInteger> states = new ArrayList<AtomicInteger>();
+		for(final InterfaceRecognizer recognizer: recognizers)
+		{	Future<Mentions> future = null;
+			final AtomicInteger state = new AtomicInteger(CALL_WAITING);
+			if(isStillBusy(recognizer))
+			{	logger.log("WARNING: "+recognizer.getName()+" is still processing a previous article (timeout) >> it is skipped");
+				timedOut = true;
+			}
+			else
+			{	future = getExecutor(recognizer).submit(new Callable<Mentions>()
+				{	@Override
+					public Mentions call() throws ProcessorException
+					{	Mentions temp;
+						// the call is not performed if it was abandoned before starting
+						if(state.compareAndSet(CALL_WAITING, CALL_RUNNING))
+						{	try
+							{	temp = recognizer.recognize(article);
+							}
+							finally
+							{	state.set(CALL_OVER);
+							}
+						}
+						else
+							temp = new Mentions(recognizer.getName());
+						return temp;
+					}
+				});
+			}
+			futures.add(future);
+			states.add(state);
+		}
+		
+		// get their results
+		try
+		{	for(int i=0;i<recognizers.size();i++)
+			{	InterfaceRecognizer recognizer = recognizers.get(i);
+				Future<Mentions> future = futures.get(i);
+				Long timeout = timeouts.get(recognizer.getName());
+				if(timeout==null)
+					timeout = defaultTimeout;
+				
+				Mentions temp;
+				try
+				{	if(future==null)
+						temp = new Mentions(recognizer.getName());
+					else if(timeout>0)
+					{	long remaining = Math.max(0, startTime + timeout - System.currentTimeMillis());
+						temp = future.get(remaining, TimeUnit.MILLISECONDS);
+					}
+					else
+						temp = future.get();
+				}
+				catch(TimeoutException e)
+				{	logger.log("WARNING: "+recognizer.getName()+" did not complete within "+timeout+" ms >> its mentions are ignored");
+					abandonCall(recognizer, future, states.get(i));
+					timedOut = true;
+					temp = new Mentions(recognizer.getName());
+				}
+				
+				// keep only the relevant types
+				logger.log("Filter mentions by type ("+recognizer.getName()+")");
+				filterType(temp);
+				// add to map
+				result.put(recognizer, temp);
+			}
+		}
+		catch(InterruptedException e)
+		{	for(int i=0;i<recognizers.size();i++)
+				abandonCall(recognizers.get(i), futures.get(i), states.get(i));
+			Thread.currentThread().interrupt();
+			throw new ProcessorException("Interrupted while applying the recognizers");
+		}
+		catch(ExecutionException e)
+		{	for(int i=0;i<recognizers.size();i++)
+				abandonCall(recognizers.get(i), futures.get(i), states.get(i));
+			Throwable cause = e.getCause();
+			if(cause instanceof ProcessorException)
+				throw (ProcessorException)cause;
+			else if(cause instanceof RuntimeException)
+				throw (RuntimeException)cause;
+			else
+				throw new ProcessorException(cause.getMessage());
+		}
+		finally
+		{	logger.decreaseOffset();
+		}
+		
+		return result;
+	}
+	
 	/////////////////////////////////////////////////////////////////
 	// PROCESSING		/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
@@ -291,12 +584,12 @@ public abstract class AbstractCombinerDelegateRecognizer extends AbstractDelegat
 		Mentions result = null;
 		
 		try
-		{	// checks if the result file already exists
-			File dataFile = getXmlFile(article);
-			boolean processNeedeed = !dataFile.exists();
+		{	// checks if the results were already processed
+			if(recognizer.doesCache())
+				result = readCachedResults(article);
 			
 			// if needed, we process the text
-			if(!recognizer.doesCache() || processNeedeed)
+			if(result==null)
 			{	// check language
 				ArticleLanguage language = article.getLanguage();
 				if(language==null)
@@ -309,14 +602,12 @@ public abstract class AbstractCombinerDelegateRecognizer extends AbstractDelegat
 				result = applyRecognizers(article);
 				
 				// record mentions using our xml format
-				logger.log("Record mentions using our XML format");
-				writeXmlResults(article,result);
-			}
-			
-			// if the results already exist, we fetch them
-			else
-			{	logger.log("Loading mentions from cached file");
-				result = readXmlResults(article);
+				if(timedOut)
+					logger.log("Some recognizer reached its timeout >> the mentions are not recorded, so that the article is processed again next time");
+				else
+				{	logger.log("Record mentions using our XML format");
+					writeXmlResults(article,result);
+				}
 			}
 		}
 		catch(FileNotFoundException e)
@@ -55,7 +55,8 @@ import fr.univavignon.transpolosearch.processing.ProcessorName;
  * 		<li>OpeNer (dates, persons, locations and organizations)</li>
  * 		<li>TagEn (dates, persons, locations and organizations)</li>
  * </ul>
- * There is no option to change its behavior (yet).
+ * There is no option to change its behavior (yet), except for the way
+ * these recognizers are applied (one after the other, or concurrently).
  * 
  * @author Vincent Labatut
  */
@@ -88,6 +89,12 @@ public class StraightCombiner extends AbstractProcessor implements InterfaceReco
 		return result;
 	}
 	
+	@Override
+	public String getRecognizerConfiguration()
+	{	String result = delegateRecognizer.getConfiguration();
+		return result;
+	}
+	
 	/////////////////////////////////////////////////////////////////
 	// RECOGNIZER 			/////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
@@ -111,12 +118,66 @@ public class StraightCombiner extends AbstractProcessor implements InterfaceReco
 		return result;
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 * <br/>
+	 * The same combiner can be shared by several threads (e.g. the Web and
+	 * social media branches of the extraction), but the underlying tools are
+	 * not thread-safe (on-demand model loading, temporary files, caches). So
+	 * the articles are processed one at a time.
+	 */
 	@Override
-	public Mentions recognize(Article article) throws ProcessorException
+	public synchronized Mentions recognize(Article article) throws ProcessorException
 	{	Mentions result = delegateRecognizer.delegateRecognize(article);
 		return result;
 	}
 	
+	/////////////////////////////////////////////////////////////////
+	// CONCURRENCY		/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Changes the way the recognizers are applied to an article: 
+	 * all at once ({@code true}) or one after the other ({@code false}).
+	 * 
+	 * @param concurrent
+	 * 		{@code true} to apply all the recognizers at once.
+	 */
+	public void setConcurrentRecognizers(boolean concurrent)
+	{	delegateRecognizer.setConcurrent(concurrent);
+	}
+	
+	/**
+	 * Changes the maximal duration of the application of any recognizer
+	 * to an article, when the recognizers are applied concurrently.
+	 * 
+	 * @param timeout
+	 * 		Maximal duration in ms, or {@code 0} for no limit.
+	 */
+	public void setRecognizerTimeout(long timeout)
+	{	delegateRecognizer.setDefaultTimeout(timeout);
+	}
+	
+	/**
+	 * Changes the maximal duration of the application of the specified 
+	 * recognizer to an article, when the recognizers are applied concurrently.
+	 * 
+	 * @param name
+	 * 		Name of the concerned recognizer.
+	 * @param timeout
+	 * 		Maximal duration in ms, or {@code 0} for no limit.
+	 */
+	public void setRecognizerTimeout(ProcessorName name, long timeout)
+	{	delegateRecognizer.setTimeout(name, timeout);
+	}
+	
+	/**
+	 * Stops the threads used to apply the recognizers concurrently.
+	 * This method must be called once the processing is over.
+	 */
+	public synchronized void shutdown()
+	{	delegateRecognizer.shutdown();
+	}
+	
 	/////////////////////////////////////////////////////////////////
 	// RESOLVER			/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
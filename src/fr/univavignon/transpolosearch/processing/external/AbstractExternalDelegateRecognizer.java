@@ -18,9 +18,9 @@ package fr.univavignon.transpolosearch.processing.external;
  * along with TranspoloSearch. If not, see <http://www.gnu.org/licenses/>.
  */
 
-import java.io.File;
 import java.io.IOException;
 import java.text.ParseException;
+import java.util.List;
 
 import org.xml.sax.SAXException;
 
@@ -62,6 +62,51 @@ public abstract class AbstractExternalDelegateRecognizer extends AbstractDelegat
 	{	super(recognizer,trim,ignorePronouns,ignoreNumbers,exclusionOn);
 	}
 	
+	/////////////////////////////////////////////////////////////////
+	// WORKERS			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Pool of persistent worker processes, or {@code null} to start the tool once for each text */
+	protected ExternalProcessPool processPool = null;
+	
+	/**
+	 * Returns the command used to start the external tool as a persistent
+	 * worker process, following the protocol described in {@link ExternalProcessPool}.
+	 * 
+	 * @return
+	 * 		Command used to start a worker process.
+	 */
+	protected abstract List<String> getWorkerCommand();
+	
+	/**
+	 * Returns the charset used to communicate with the
+	 * worker processes.
+	 * 
+	 * @return
+	 * 		Name of the charset.
+	 */
+	protected abstract String getWorkerCharset();
+	
+	/**
+	 * Changes the number of persistent worker processes used to apply the external 
+	 * tool. If this number is zero (the default), the tool is started once for each
+	 * processed text instead. The processes of the previous pool, if any, are stopped.
+	 * 
+	 * @param workerNbr
+	 * 		Number of worker processes, or {@code 0} to disable the pool.
+	 */
+	public synchronized void setWorkerNumber(int workerNbr)
+	{	if(processPool!=null)
+			processPool.close();
+		
+		if(workerNbr>0)
+		{	List<String> command = getWorkerCommand();
+			logger.log("Using a pool of "+workerNbr+" worker processes: "+command);
+			processPool = new ExternalProcessPool(command, getWorkerCharset(), workerNbr);
+		}
+		else
+			processPool = null;
+	}
+	
 	/////////////////////////////////////////////////////////////////
 	// PROCESSING		/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
@@ -89,12 +134,12 @@ public abstract class AbstractExternalDelegateRecognizer extends AbstractDelegat
 		Mentions result = null;
 		
 		try
-		{	// checks if the result file already exists
-			File dataFile = getXmlFile(article);
-			boolean processNeedeed = !dataFile.exists();
+		{	// checks if the results were already processed
+			if(recognizer.doesCache())
+				result = readCachedResults(article);
 			
 			// if needed, we process the text
-			if(!recognizer.doesCache() || processNeedeed)
+			if(result==null)
 			{	// check language
 				ArticleLanguage language = article.getLanguage();
 				if(language==null)
@@ -134,11 +179,6 @@ public abstract class AbstractExternalDelegateRecognizer extends AbstractDelegat
 					deleteRawFile(article);
 				}
 			}
-			
-			// if the results already exist, we fetch them
-			else
-			{	result = readXmlResults(article);
-			}
 		}
 		catch (IOException e)
 		{	e.printStackTrace();
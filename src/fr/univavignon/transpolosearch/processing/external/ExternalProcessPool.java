@@ -0,0 +1,527 @@
+package fr.univavignon.transpolosearch.processing.external;
+
+/*
+ * TranspoloSearch
+ * Copyright 2015-18 Vincent Labatut
+ * 
+ * This file is part of TranspoloSearch.
+ * 
+ * TranspoloSearch is free software: you can redistribute it and/or modify it under 
+ * the terms of the GNU General Public License as published by the Free Software 
+ * Foundation, either version 2 of the License, or (at your option) any later version.
+ * 
+ * TranspoloSearch is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with TranspoloSearch. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool of long-lived processes running an external tool, used to avoid
+ * starting the tool (and loading its models) for each processed text.
+ * <br/>
+ * The processes are started on demand, and communicate with the pool
+ * through their standard streams, using the following framing protocol:
+ * <ul>
+ * 		<li>Request (stdin): a line containing the number {@code n} of lines
+ * 			of the text, followed by these {@code n} lines.</li>
+ * 		<li>Response (stdout): the lines produced by the tool, followed by a
+ * 			line containing only {@link #FRAME_END}.</li>
+ * 		<li>Response (stderr): the error lines produced by the tool for this
+ * 			text, also followed by a line containing only {@link #FRAME_END}.</li>
+ * </ul>
+ * The standard error is drained concurrently (so that the worker cannot get stuck
+ * on a full pipe), but its lines are returned only up to the end of the current 
+ * frame: each response thus only contains the error lines of its own text. A worker 
+ * must terminate when its standard input is closed, which happens when the pool is 
+ * closed, or when the JVM exits.
+ * <br/>
+ * Using a pool is optional: the worker script must be installed along with the tool.
+ * <br/>
+ * The same class also allows running the tool as a regular process, through
+ * {@link #execute(List, String, String)}: the text is then piped to the process,
+ * which must terminate once it has read it all.
+ * 
+ * @author Vincent Labatut
+ */
+public class ExternalProcessPool
+{
+	/**
+	 * Builds a new pool of the specified size. The processes
+	 * are started only when needed.
+	 * 
+	 * @param command
+	 * 		Command used to start a worker process.
+	 * @param charset
+	 * 		Charset used to communicate with the worker processes.
+	 * @param size
+	 * 		Maximal number of worker processes running at once.
+	 */
+	public ExternalProcessPool(List<String> command, String charset, int size)
+	{	this.command = new ArrayList<String>(command);
+		this.charset = charset;
+		this.size = size;
+		workers = new ArrayBlockingQueue<Worker>(size);
+		for(int i=0;i<size;i++)
+			workers.add(new Worker());
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// STREAMS			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Threads used to feed the processes and drain their outputs */
+	private final static ExecutorService STREAM_EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory()
+	{	@Override
+		public Thread newThread(Runnable runnable)
+		{	Thread result = new Thread(runnable, "ExternalProcessStream");
+			result.setDaemon(true);
+			return result;
+		}
+	});
+
+	/**
+	 * Reads the specified stream until its end, in a separate thread.
+	 * 
+	 * @param stream
+	 * 		Stream to read.
+	 * @param charset
+	 * 		Charset of the stream.
+	 * @return
+	 * 		Future list of the lines read from the stream.
+	 */
+	private static Future<List<String>> drain(final InputStream stream, final String charset)
+	{	Future<List<String>> result = STREAM_EXECUTOR.submit(new Callable<List<String>>()
+		{	@Override
+			public List<String> call() throws IOException
+			{	List<String> result = new ArrayList<String>();
+				BufferedReader reader = new BufferedReader(new InputStreamReader(stream, charset));
+				try
+				{	String line;
+					while((line=reader.readLine()) != null)
+						result.add(line);
+				}
+				finally
+				{	reader.close();
+				}
+				return result;
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Waits for the specified stream operation to complete,
+	 * and returns its result.
+	 * 
+	 * @param future
+	 * 		Stream operation.
+	 * @return
+	 * 		Result of the operation.
+	 * 
+	 * @throws IOException
+	 * 		Problem while accessing the stream, or interruption.
+	 */
+	private static <T> T await(Future<T> future) throws IOException
+	{	try
+		{	T result = future.get();
+			return result;
+		}
+		catch(InterruptedException e)
+		{	future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while communicating with an external process");
+		}
+		catch(ExecutionException e)
+		{	Throwable cause = e.getCause();
+			if(cause instanceof IOException)
+				throw (IOException)cause;
+			else if(cause instanceof RuntimeException)
+				throw (RuntimeException)cause;
+			else if(cause instanceof Error)
+				throw (Error)cause;
+			else
+				throw new IOException(cause);
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// OUTPUT			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Lines written by an external process on its
+	 * standard output and standard error.
+	 * 
+	 * @author Vincent Labatut
+	 */
+	public static class Output
+	{
+		/**
+		 * Builds a new output object.
+		 * 
+		 * @param outputLines
+		 * 		Lines of the standard output.
+		 * @param errorLines
+		 * 		Lines of the standard error.
+		 */
+		private Output(List<String> outputLines, List<String> errorLines)
+		{	this.outputLines = outputLines;
+			this.errorLines = errorLines;
+		}
+
+		/** Lines of the standard output */
+		private final List<String> outputLines;
+		/** Lines of the standard error */
+		private final List<String> errorLines;
+
+		/**
+		 * Returns the lines written on the standard output.
+		 * 
+		 * @return
+		 * 		List of lines (without their line separator).
+		 */
+		public List<String> getOutputLines()
+		{	return outputLines;
+		}
+
+		/**
+		 * Returns the lines written on the standard error.
+		 * 
+		 * @return
+		 * 		List of lines (without their line separator).
+		 */
+		public List<String> getErrorLines()
+		{	return errorLines;
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// SINGLE PROCESS	/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Starts a new process, pipes the specified text to its standard input,
+	 * then waits for its termination. Its standard output and error are
+	 * drained concurrently, so that the process cannot get stuck on a
+	 * full pipe.
+	 * 
+	 * @param command
+	 * 		Command used to start the process.
+	 * @param input
+	 * 		Text sent to the process, or {@code null} to send nothing.
+	 * @param charset
+	 * 		Charset used to communicate with the process.
+	 * @return
+	 * 		Outputs of the process.
+	 * 
+	 * @throws IOException
+	 * 		Problem while running the process.
+	 */
+	public static Output execute(List<String> command, final String input, final String charset) throws IOException
+	{	ProcessBuilder builder = new ProcessBuilder(command);
+		final Process process = builder.start();
+
+		try
+		{	// write the input
+			Future<Void> writing = STREAM_EXECUTOR.submit(new Callable<Void>()
+			{	@Override
+				public Void call() throws IOException
+				{	Writer writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), charset));
+					try
+					{	if(input!=null)
+							writer.write(input);
+					}
+					finally
+					{	writer.close();
+					}
+					return null;
+				}
+			});
+
+			// read the outputs
+			Future<List<String>> errorReading = drain(process.getErrorStream(), charset);
+			Future<List<String>> outputReading = drain(process.getInputStream(), charset);
+			List<String> errorLines = await(errorReading);
+			List<String> outputLines = await(outputReading);
+			await(writing);
+
+			// wait for the process termination
+			try
+			{	process.waitFor();
+			}
+			catch(InterruptedException e)
+			{	Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for an external process");
+			}
+
+			Output result = new Output(outputLines, errorLines);
+			return result;
+		}
+		finally
+		{	if(process.isAlive())
+				process.destroy();
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// WORKERS			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Line marking the end of a response, in the standard output and error of a worker process */
+	public final static String FRAME_END = "<<<END-OF-FRAME>>>";
+	/** Command used to start a worker process */
+	private final List<String> command;
+	/** Charset used to communicate with the worker processes */
+	private final String charset;
+	/** Number of workers */
+	private final int size;
+	/** Workers currently available */
+	private final BlockingQueue<Worker> workers;
+	/** Whether the pool was closed */
+	private volatile boolean closed = false;
+
+	/**
+	 * Returns the number of workers of this pool.
+	 * 
+	 * @return
+	 * 		Maximal number of worker processes running at once.
+	 */
+	public int getSize()
+	{	return size;
+	}
+
+	/**
+	 * Sends the specified text to the first available worker, and returns
+	 * its response. If no worker is available, the method waits until one
+	 * is. If the worker fails, its process is stopped, and a new one will
+	 * be started for the next text.
+	 * 
+	 * @param input
+	 * 		Text to process.
+	 * @return
+	 * 		Outputs of the worker for this text.
+	 * 
+	 * @throws IOException
+	 * 		Problem while communicating with the worker, or closed pool.
+	 */
+	public Output process(String input) throws IOException
+	{	if(closed)
+			throw new IOException("The process pool is closed");
+
+		Worker worker;
+		try
+		{	worker = workers.take();
+		}
+		catch(InterruptedException e)
+		{	Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for an external worker");
+		}
+
+		try
+		{	Output result = worker.process(input);
+			return result;
+		}
+		catch(IOException e)
+		{	worker.stop();
+			throw e;
+		}
+		catch(RuntimeException e)
+		{	worker.stop();
+			throw e;
+		}
+		finally
+		{	if(closed)
+				worker.stop();
+			workers.add(worker);
+		}
+	}
+
+	/**
+	 * Stops all the worker processes, waiting for
+	 * the ones currently in use to complete their text.
+	 */
+	public void close()
+	{	closed = true;
+		List<Worker> stopped = new ArrayList<Worker>();
+		try
+		{	for(int i=0;i<size;i++)
+			{	Worker worker = workers.take();
+				worker.stop();
+				stopped.add(worker);
+			}
+		}
+		catch(InterruptedException e)
+		{	Thread.currentThread().interrupt();
+		}
+		finally
+		{	workers.addAll(stopped);
+		}
+	}
+
+	/**
+	 * Long-lived process handling a sequence of texts.
+	 * 
+	 * @author Vincent Labatut
+	 */
+	private class Worker
+	{
+		/** Running process, or {@code null} if not started yet */
+		private Process process = null;
+		/** Writer connected to the standard input of the process */
+		private Writer writer;
+		/** Reader connected to the standard output of the process */
+		private BufferedReader reader;
+		/** Lines read from the standard error of the process, and not returned yet */
+		private BlockingQueue<String> errorLines;
+
+		/**
+		 * Starts the process, as well as the thread
+		 * draining its standard error.
+		 * 
+		 * @throws IOException
+		 * 		Problem while starting the process.
+		 */
+		private void start() throws IOException
+		{	ProcessBuilder builder = new ProcessBuilder(command);
+			process = builder.start();
+			writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), charset));
+			reader = new BufferedReader(new InputStreamReader(process.getInputStream(), charset));
+
+			// the end of the stream also ends the current frame, so that nobody waits for it
+			final BufferedReader errorReader = new BufferedReader(new InputStreamReader(process.getErrorStream(), charset));
+			final BlockingQueue<String> lines = new LinkedBlockingQueue<String>();
+			errorLines = lines;
+			STREAM_EXECUTOR.submit(new Callable<Void>()
+			{	@Override
+				public Void call() throws IOException
+				{	try
+					{	String line;
+						while((line=errorReader.readLine()) != null)
+							lines.add(line);
+					}
+					finally
+					{	lines.add(FRAME_END);
+						errorReader.close();
+					}
+					return null;
+				}
+			});
+		}
+
+		/**
+		 * Stops the process, if it is running.
+		 */
+		private void stop()
+		{	if(process!=null)
+			{	try
+				{	writer.close();
+				}
+				catch(IOException e)
+				{	// the process is destroyed anyway
+				}
+				process.destroy();
+				process = null;
+			}
+		}
+
+		/**
+		 * Sends a text to the process, and returns its response. The
+		 * process is started first, if necessary.
+		 * 
+		 * @param input
+		 * 		Text to process.
+		 * @return
+		 * 		Outputs of the process for this text.
+		 * 
+		 * @throws IOException
+		 * 		Problem while communicating with the process.
+		 */
+		private Output process(String input) throws IOException
+		{	if(process==null || !process.isAlive())
+			{	stop();
+				start();
+			}
+
+			// send the frame (in a separate thread, in case the tool answers before reading it all)
+			final String[] lines = input.split("\n", -1);
+			Future<Void> writing = STREAM_EXECUTOR.submit(new Callable<Void>()
+			{	@Override
+				public Void call() throws IOException
+				{	writer.write(Integer.toString(lines.length));
+					writer.write('\n');
+					for(String line: lines)
+					{	writer.write(line);
+						writer.write('\n');
+					}
+					writer.flush();
+					return null;
+				}
+			});
+
+			// read the response
+			List<String> outputLines = new ArrayList<String>();
+			String line = reader.readLine();
+			while(line!=null && !line.equals(FRAME_END))
+			{	outputLines.add(line);
+				line = reader.readLine();
+			}
+			if(line==null)
+			{	writing.cancel(true);
+				String msg = "The external process terminated before the end of its response";
+				// the standard error should end shortly too
+				List<String> errors = new ArrayList<String>();
+				try
+				{	String err = errorLines.poll(1, TimeUnit.SECONDS);
+					while(err!=null && !err.equals(FRAME_END))
+					{	errors.add(err);
+						err = errorLines.poll(1, TimeUnit.SECONDS);
+					}
+				}
+				catch(InterruptedException e)
+				{	Thread.currentThread().interrupt();
+				}
+				if(!errors.isEmpty())
+					msg = msg + ": " + errors;
+				throw new IOException(msg);
+			}
+			await(writing);
+
+			// get the errors, up to the end of the frame
+			List<String> errors = new ArrayList<String>();
+			try
+			{	line = errorLines.take();
+				while(!line.equals(FRAME_END))
+				{	errors.add(line);
+					line = errorLines.take();
+				}
+			}
+			catch(InterruptedException e)
+			{	Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while reading the errors of an external worker");
+			}
+
+			Output result = new Output(outputLines, errors);
+			return result;
+		}
+	}
+}
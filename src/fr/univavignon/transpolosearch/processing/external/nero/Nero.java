@@ -28,6 +28,7 @@ import fr.univavignon.transpolosearch.processing.AbstractProcessor;
 import fr.univavignon.transpolosearch.processing.InterfaceRecognizer;
 import fr.univavignon.transpolosearch.processing.ProcessorException;
 import fr.univavignon.transpolosearch.processing.ProcessorName;
+import fr.univavignon.transpolosearch.processing.external.ExternalProcessPool;
 
 /**
  * This class acts as an interface with Nero.
@@ -87,6 +88,12 @@ public class Nero extends AbstractProcessor implements InterfaceRecognizer
 		return result;
 	}
 	
+	@Override
+	public String getRecognizerConfiguration()
+	{	String result = delegateRecognizer.getConfiguration();
+		return result;
+	}
+	
 	/////////////////////////////////////////////////////////////////
 	// RECOGNIZER 			/////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
@@ -116,6 +123,19 @@ public class Nero extends AbstractProcessor implements InterfaceRecognizer
 		return result;
 	}
 	
+	/**
+	 * Changes the number of persistent Nero processes used to process
+	 * the articles. With {@code 0} (the default), Nero is started again
+	 * for each processed text. Otherwise, the worker script must be
+	 * installed with the tool (cf. {@link ExternalProcessPool}).
+	 * 
+	 * @param workerNbr
+	 * 		Number of worker processes, or {@code 0} to disable them.
+	 */
+	public void setWorkerNumber(int workerNbr)
+	{	delegateRecognizer.setWorkerNumber(workerNbr);
+	}
+	
 	/////////////////////////////////////////////////////////////////
 	// RESOLVER			/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
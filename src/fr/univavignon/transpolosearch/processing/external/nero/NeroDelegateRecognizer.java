@@ -18,10 +18,8 @@ package fr.univavignon.transpolosearch.processing.external.nero;
  * along with TranspoloSearch. If not, see <http://www.gnu.org/licenses/>.
  */
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -36,6 +34,7 @@ import fr.univavignon.transpolosearch.data.entity.mention.Mentions;
 import fr.univavignon.transpolosearch.processing.ProcessorException;
 import fr.univavignon.transpolosearch.processing.ProcessorName;
 import fr.univavignon.transpolosearch.processing.external.AbstractExternalDelegateRecognizer;
+import fr.univavignon.transpolosearch.processing.external.ExternalProcessPool;
 import fr.univavignon.transpolosearch.tools.file.FileNames;
 import fr.univavignon.transpolosearch.tools.file.FileTools;
 import fr.univavignon.transpolosearch.tools.string.StringTools;
@@ -92,6 +91,19 @@ class NeroDelegateRecognizer extends AbstractExternalDelegateRecognizer
 
 		return result;
 	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <br/>
+	 * The configuration of Nero also includes 
+	 * whether the mentions are flat or not.
+	 */
+	@Override
+	public String getConfiguration()
+	{	String result = super.getConfiguration()
+			+ "_flat=" + flat;
+		return result;
+	}
 
 	/////////////////////////////////////////////////////////////////
 	// ENTITY TYPES 	/////////////////////////////////////////////
@@ -141,36 +153,48 @@ class NeroDelegateRecognizer extends AbstractExternalDelegateRecognizer
 	private boolean flat = false;
 	/** Switch used to enable the detection of non-flat mentions */
 	private final static String FLAT_SWITCH = "-f2h";
-	/** Name of the temporary file generated for Nero */
-	private static final String TEMP_NAME = "temp";
 	/** Maximal size of text part processed at once */
 	private static final int MAX_SIZE = 25000;
+	/** Charset used to communicate with Nero */
+	private static final String CHARSET = "ISO-8859-1";
 
 	/**
-	 * Returns the path of the temporary file
-	 * created for Nero (containing the article
-	 * content).
+	 * Returns the command used to invoke the specified
+	 * Nero script, with the appropriate parameters.
 	 * 
-	 * @param article
-	 * 		The concerned article.
-	 * @param part
-	 * 		The concerned part of the article.
+	 * @param script
+	 * 		Name of the script.
 	 * @return
-	 * 		Path of the temporary file.
+	 * 		Command invoking the script.
 	 */
-	private String getTempFile(Article article, int part)
-	{	String result = article.getFolderPath()
-			+ File.separator + getFolder() 
-			+ File.separator + TEMP_NAME
-			+ "." + part + FileNames.EX_TEXT;
-		return result; 
+	private List<String> getCommand(String script)
+	{	String mainCommand = "." + File.separator + FileNames.FO_NERO_SCRIPTS + File.separator 
+			+ script + " " + neroTagger.toString();
+		if(!flat)
+			mainCommand = mainCommand + " " + FLAT_SWITCH;
+		List<String> result = Arrays.asList
+		(	"/bin/sh", "-c", 
+			mainCommand
+		);
+		return result;
+	}
+	
+	@Override
+	protected List<String> getWorkerCommand()
+	{	List<String> result = getCommand(FileNames.FI_NERO_WORKER);
+		return result;
+	}
+	
+	@Override
+	protected String getWorkerCharset()
+	{	return CHARSET;
 	}
 	
 	@Override
 	protected String detectMentions(Article article) throws ProcessorException
 	{	logger.increaseOffset();
 		boolean outRawResults = recognizer.doesOutputRawResults();
-		StringBuffer tempRes = new StringBuffer();
+		StringBuilder tempRes = new StringBuilder();
 		String text = article.getRawText();
 		
 		// we need to break down the text: Nero can't handle more than 100000 chars at once
@@ -183,81 +207,62 @@ class NeroDelegateRecognizer extends AbstractExternalDelegateRecognizer
 			String part = parts.get(i);
 			
 			try
-			{	// write article raw text in a temp file
+			{	// clean the text, which is then directly piped to Nero
 				part = cleanText(part);
 //				System.out.println(part);
-				String tempPath = getTempFile(article,i);
-				File tempFile = new File(tempPath);
-				logger.log("Copying the article content in partial temp file "+tempFile);
-//				FileTools.writeTextFile(tempFile, part, "UTF-8");
-				FileTools.writeTextFile(tempFile, part, "ISO-8859-1");
 				
 				// invoke the external tool and retrieve its output
-				logger.log("Invoking Nero: ");
-				logger.increaseOffset();
-					Runtime rt = Runtime.getRuntime();
-					String mainCommand = "cat " + tempPath + " | " 
-						+ "." + File.separator + FileNames.FO_NERO_SCRIPTS + File.separator 
-						+ FileNames.FI_NERO_BASH + " " + neroTagger.toString();
-				    if(!flat)
-				    	mainCommand = mainCommand + " " + FLAT_SWITCH;
-			    	String[] commands = 
-					{	"/bin/sh", "-c", 
-						mainCommand
-					};
-			    	logger.log(Arrays.asList(commands));
-					Process proc = rt.exec(commands);
-//		    		Process proc = rt.exec("/bin/sh -c echo $PATH"); // debug
-				logger.decreaseOffset();
+				ExternalProcessPool.Output output;
+				if(processPool==null)
+				{	logger.log("Invoking Nero: ");
+					logger.increaseOffset();
+						List<String> commands = getCommand(FileNames.FI_NERO_BASH);
+						logger.log(commands);
+						output = ExternalProcessPool.execute(commands, part, CHARSET);
+					logger.decreaseOffset();
+				}
+				else
+				{	logger.log("Sending the text to a Nero worker process");
+					output = processPool.process(part);
+				}
 			
 				// standard error
-				String error = "";
-				{	//BufferedReader stdError = new BufferedReader(new InputStreamReader(proc.getErrorStream()));
-					BufferedReader stdError = new BufferedReader(new InputStreamReader(proc.getErrorStream(),"ISO-8859-1"));
-					String line;
-					while((line=stdError.readLine()) != null)
-					{	logger.log(line);
-						error = error + "\n" + line;
-					}
+				StringBuilder error = new StringBuilder();
+				for(String line: output.getErrorLines())
+				{	logger.log(line);
+					error.append("\n").append(line);
 				}
-				if(!error.isEmpty())
+				if(error.length()>0)
 				{	logger.log("Some error(s) occured:");
 					logger.increaseOffset();
-						logger.log(error);
+						logger.log(error.toString());
 					logger.decreaseOffset();
 				}
 				
 				// standard output
-				if(error.isEmpty())
-				{	String res = "";
-					//BufferedReader stdInput = new BufferedReader(new InputStreamReader(proc.getInputStream()));
-					BufferedReader stdInput = new BufferedReader(new InputStreamReader(proc.getInputStream(),"ISO-8859-1"));
-					String line;
-					while((line=stdInput.readLine()) != null)
+				if(error.length()==0)
+				{	StringBuilder res = new StringBuilder();
+					for(String line: output.getOutputLines())
 					{	logger.log(line);
 						if(line.contains(ERR_COOK))
 							logger.log("WARNING: could not apply Nero, it returns the message \""+ERR_COOK+"\"");
-						res = res + "\n" + line;
+						res.append("\n").append(line);
 					}
 					tempRes.append(res);
 					logger.log("Raw results:");
 					logger.increaseOffset();
-						logger.log(res);
+						logger.log(res.toString());
 					logger.decreaseOffset();
 					
 					// possibly record the raw results (for debug purposes)
 					if(outRawResults)
 					{	File rrF = getRawFile(article);
 						logger.log("Writing the raw results in file "+rrF);
-						FileTools.writeTextFile(rrF, res, "UTF-8");
+						FileTools.writeTextFile(rrF, res.toString(), "UTF-8");
 					}
 				}
 				else
-					throw new ProcessorException(error);
-				
-				// possibly remove the temp file
-				if(!outRawResults)
-					tempFile.delete();
+					throw new ProcessorException(error.toString());
 				
 				logger.decreaseOffset();
 			}
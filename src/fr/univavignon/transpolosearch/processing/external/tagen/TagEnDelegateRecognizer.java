@@ -18,11 +18,10 @@ package fr.univavignon.transpolosearch.processing.external.tagen;
  * along with TranspoloSearch. If not, see <http://www.gnu.org/licenses/>.
  */
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.io.StringReader;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -44,6 +43,7 @@ import fr.univavignon.transpolosearch.data.entity.mention.AbstractMention;
 import fr.univavignon.transpolosearch.data.entity.mention.Mentions;
 import fr.univavignon.transpolosearch.processing.ProcessorException;
 import fr.univavignon.transpolosearch.processing.external.AbstractExternalDelegateRecognizer;
+import fr.univavignon.transpolosearch.processing.external.ExternalProcessPool;
 import fr.univavignon.transpolosearch.tools.file.FileNames;
 import fr.univavignon.transpolosearch.tools.file.FileTools;
 
@@ -172,6 +172,41 @@ class TagEnDelegateRecognizer extends AbstractExternalDelegateRecognizer
 		return result; 
 	}
 	
+	/**
+	 * Returns the command used to invoke the specified TagEn
+	 * program, with the appropriate parameters.
+	 * 
+	 * @param program
+	 * 		Name of the program.
+	 * @param files
+	 * 		Additional parameters (input and output files), or an empty string.
+	 * @return
+	 * 		Command invoking the program.
+	 */
+	private List<String> getCommand(String program, String files)
+	{	String mainCommand = "." + File.separator 
+				+ FileNames.FO_TAGEN + File.separator + program 
+				+ " :" + model.getParameter() + " "
+				+ STATIC_PARAMS + " " + VERBOSITY_LEVEL.get(2)
+				+ files;
+		List<String> result = Arrays.asList
+		(	"/bin/sh", "-c", 
+			mainCommand
+		);
+		return result;
+	}
+	
+	@Override
+	protected List<String> getWorkerCommand()
+	{	List<String> result = getCommand(FileNames.FI_TAGEN_WORKER, "");
+		return result;
+	}
+	
+	@Override
+	protected String getWorkerCharset()
+	{	return "ISO-8859-1";
+	}
+	
 	@Override
 	protected String detectMentions(Article article) throws ProcessorException
 	{	logger.increaseOffset();
@@ -179,59 +214,75 @@ class TagEnDelegateRecognizer extends AbstractExternalDelegateRecognizer
 		String result = null;
 		
         try
-        {	// write article raw text in a file
-        	String text = article.getRawText();
-			String inputPath = getTempFile(article);
-			File inputFile = new File(inputPath);
-			logger.log("Copying the article content in input file "+inputFile);
-			FileTools.writeTextFile(inputFile, text, "ISO-8859-1"); //"UTF-8" or "ISO-8859-1"
-			
-			// invoke the external tool and retrieve its output
-			logger.log("Invoking TagEn: ");
-			logger.increaseOffset();
-				File outputFile = getRawFile(article);
-				String outputPath = outputFile.getPath();
-				Runtime rt = Runtime.getRuntime();
-				String mainCommand = "." + File.separator 
-						+ FileNames.FO_TAGEN + File.separator + FileNames.FI_TAGEN_EXE 
-						+ " :" + model.getParameter() + " "
-						+ STATIC_PARAMS + " " + VERBOSITY_LEVEL.get(2)
-						+ " " + inputPath + " " + outputPath;
-		    	String[] commands = 
-				{	"/bin/sh", "-c", 
-					mainCommand
-				};
-		    	logger.log(Arrays.asList(commands));
-				Process proc = rt.exec(commands);
-			logger.decreaseOffset();
+        {	String text = article.getRawText();
+        	List<String> consoleLines;
+        	
+        	// persistent worker process: the text and results go through its standard streams
+        	if(processPool!=null)
+        	{	logger.log("Sending the article content to a TagEn worker process");
+        		ExternalProcessPool.Output output = processPool.process(text);
+        		consoleLines = output.getErrorLines();
+        		StringBuilder sb = new StringBuilder();
+        		for(String line: output.getOutputLines())
+        		{	if(sb.length()>0)
+        				sb.append("\n");
+        			sb.append(line);
+        		}
+        		result = sb.toString();
+        		
+				// possibly record the results (for debug purposes)
+        		if(outRawResults)
+        		{	File outputFile = getRawFile(article);
+        			logger.log("Writing the raw results in file "+outputFile);
+        			FileTools.writeTextFile(outputFile, result, "ISO-8859-1");
+        		}
+        	}
+        	
+        	// single process: TagEn reads and writes files
+        	else
+        	{	// write article raw text in a file
+				String inputPath = getTempFile(article);
+				File inputFile = new File(inputPath);
+				logger.log("Copying the article content in input file "+inputFile);
+				FileTools.writeTextFile(inputFile, text, "ISO-8859-1"); //"UTF-8" or "ISO-8859-1"
+				
+				// invoke the external tool and retrieve its output
+				logger.log("Invoking TagEn: ");
+				logger.increaseOffset();
+					File outputFile = getRawFile(article);
+					String outputPath = outputFile.getPath();
+					List<String> commands = getCommand(FileNames.FI_TAGEN_EXE, " " + inputPath + " " + outputPath);
+			    	logger.log(commands);
+			    	// standard error is actually used by TagEn as the standard output
+			    	ExternalProcessPool.Output output = ExternalProcessPool.execute(commands, null, Charset.defaultCharset().name());
+			    	consoleLines = output.getErrorLines();
+				logger.decreaseOffset();
+				
+				// possibly remove the temp file
+				if(!outRawResults)
+					inputFile.delete();
+				
+		        // read the result file
+				result = FileTools.readTextFile(outputPath, "ISO-8859-1");
+        	}
 			
-			// standard error (which is actually used by TagEn as the standard output)
-			String console = "";
-			{	BufferedReader stdError = new BufferedReader(new InputStreamReader(proc.getErrorStream()));
-				String line;
-				while((line=stdError.readLine()) != null)
-				{	System.out.println(line);
-					console = console + "\n" + line;
-				}
+			// console output
+			StringBuilder console = new StringBuilder();
+			for(String line: consoleLines)
+			{	System.out.println(line);
+				console.append("\n").append(line);
 			}
 			logger.log("Console output:");
 			logger.increaseOffset();
-				logger.log(console);
+				logger.log(console.toString());
 			logger.decreaseOffset();
 			
 			// possibly record the console output (for debug purposes)
 			if(outRawResults)
 			{	String consolePath = getConsoleFile(article);
 				logger.log("Writing the console output in file "+consolePath);
-				FileTools.writeTextFile(consolePath, console, "UTF-8");
+				FileTools.writeTextFile(consolePath, console.toString(), "UTF-8");
 			}
-			
-			// possibly remove the temp file
-			if(!outRawResults)
-				inputFile.delete();
-			
-	        // read the result file
-			result = FileTools.readTextFile(outputPath, "ISO-8859-1");
         }
 		catch (IOException e)
 		{	//e.printStackTrace();
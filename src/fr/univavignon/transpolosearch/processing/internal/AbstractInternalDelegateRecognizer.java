@@ -109,12 +109,12 @@ public abstract class AbstractInternalDelegateRecognizer<T> extends AbstractDele
 		Mentions result = null;
 		
 		try
-		{	// checks if the result file already exists
-			File dataFile = getXmlFile(article);
-			boolean processNeedeed = !dataFile.exists();
+		{	// checks if the results were already processed
+			if(recognizer.doesCache())
+				result = readCachedResults(article);
 			
 			// if needed, we process the text
-			if(!recognizer.doesCache() || processNeedeed)
+			if(result==null)
 			{	// check language
 				ArticleLanguage language = article.getLanguage();
 				if(language==null)
@@ -162,12 +162,6 @@ public abstract class AbstractInternalDelegateRecognizer<T> extends AbstractDele
 				logger.log("Record mentions using our XML format");
 				writeXmlResults(article,result);
 			}
-			
-			// if the results already exist, we fetch them
-			else
-			{	logger.log("Loading mentions from cached file");
-				result = readXmlResults(article);
-			}
 		}
 		catch (IOException e)
 		{	e.printStackTrace();
@@ -79,6 +79,12 @@ public class HeidelTime extends AbstractProcessor implements InterfaceRecognizer
 		return result;
 	}
 	
+	@Override
+	public String getRecognizerConfiguration()
+	{	String result = delegateRecognizer.getConfiguration();
+		return result;
+	}
+	
 	/////////////////////////////////////////////////////////////////
 	// RECOGNIZER 			/////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
@@ -147,8 +147,13 @@ class HeidelTimeDelegateRecognizer extends AbstractModelbasedInternalDelegateRec
 	protected void loadModel() throws ProcessorException
 	{	logger.increaseOffset();
 		
-		mainModel = modelName.buildMainTool(doIntervalTagging);
-		altModel = modelName.buildAltTool(doIntervalTagging);
+		// HeidelTime initializes its resource managers as unsynchronized singletons,
+		// so several recognizers must not build their models at the same time
+		// (nor use them, cf. detectMentions)
+		synchronized(HeidelTimeStandalone.class)
+		{	mainModel = modelName.buildMainTool(doIntervalTagging);
+			altModel = modelName.buildAltTool(doIntervalTagging);
+		}
 		
 		logger.decreaseOffset();
 	}
@@ -178,20 +183,24 @@ class HeidelTimeDelegateRecognizer extends AbstractModelbasedInternalDelegateRec
 			try
 			{	String answer;
 				
-				// if HeidelTime needs a reference date
-				if(modelName.requiresDate())
-				{	if(date!=null)
-						answer = mainModel.process(part, date);
-					else
-						answer = altModel.process(part);
-				}
-				
-				// if it doesn't need a date
-				else
-				{	if(date!=null)
-						answer = mainModel.process(part, date);
+				// the resource managers are shared by all the HeidelTime instances, and are also
+				// read (without synchronization) during the processing: only one thread can use them
+				synchronized(HeidelTimeStandalone.class)
+				{	// if HeidelTime needs a reference date
+					if(modelName.requiresDate())
+					{	if(date!=null)
+							answer = mainModel.process(part, date);
+						else
+							answer = altModel.process(part);
+					}
+					
+					// if it doesn't need a date
 					else
-						answer = mainModel.process(part);
+					{	if(date!=null)
+							answer = mainModel.process(part, date);
+						else
+							answer = mainModel.process(part);
+					}
 				}
 				
 				result.add(part);
@@ -85,6 +85,12 @@ public class LingPipe extends AbstractProcessor implements InterfaceRecognizer
 		return result;
 	}
 	
+	@Override
+	public String getRecognizerConfiguration()
+	{	String result = delegateRecognizer.getConfiguration();
+		return result;
+	}
+	
 	/////////////////////////////////////////////////////////////////
 	// RECOGNIZER 			/////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
@@ -76,6 +76,12 @@ public class OpenCalais extends AbstractProcessor implements InterfaceRecognizer
 	{	String result = delegateRecognizer.getFolder();
 		return result;
 	}
+	
+	@Override
+	public String getRecognizerConfiguration()
+	{	String result = delegateRecognizer.getConfiguration();
+		return result;
+	}
 
 	/////////////////////////////////////////////////////////////////
 	// RECOGNIZER	 		/////////////////////////////////////////
@@ -29,10 +29,8 @@ import java.util.Map;
 
 import org.apache.http.HttpResponse;
 import org.apache.http.client.ClientProtocolException;
-import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.HttpClientBuilder;
 import org.jdom2.Document;
 import org.jdom2.Element;
 import org.jdom2.JDOMException;
@@ -98,6 +96,19 @@ class OpenCalaisDelegateRecognizer extends AbstractModellessInternalDelegateReco
 		
 		return result;
 	}
+	
+	/**
+	 * {@inheritDoc}
+	 * <br/>
+	 * The configuration of OpenCalais also 
+	 * includes the language it processes.
+	 */
+	@Override
+	public String getConfiguration()
+	{	String result = super.getConfiguration()
+			+ "_lang=" + selectedLanguage;
+		return result;
+	}
 
 	/////////////////////////////////////////////////////////////////
 	// ENTITY TYPES		/////////////////////////////////////////////
@@ -130,8 +141,13 @@ class OpenCalaisDelegateRecognizer extends AbstractModellessInternalDelegateReco
 	public static final String KEY_NAME = "OpenCalais";
 	/** Maximal request size */
 	private static final int MAX_SIZE = 20000;	//10000
-	/** Delay between two remote invocations (4 queries per second max, as of 08/2015) */
-	private static final long DELAY = 250;
+	/** Maximal number of requests per second (the service allows 4 queries per second max, as of 08/2015, we keep a margin) */
+	private static final double MAX_RATE = 2;
+	/** Maximal number of requests sent without waiting */
+	private static final double MAX_BURST = 1;
+	static
+	{	WebTools.setRateLimit(KEY_NAME, MAX_RATE, MAX_BURST);
+	}
 	/** Message returned when the limit of request is reached */
 	private static final String QUOTA_MESSAGE = "You exceeded the concurrent request limit for your license key. Please try again later or contact support to upgrade your license.";
 	
@@ -189,22 +205,12 @@ class OpenCalaisDelegateRecognizer extends AbstractModellessInternalDelegateReco
 				
 				// send to open calais
 				logger.log("Send message to OpenCalais");
-				HttpClient client = HttpClientBuilder.create().build();
-				HttpResponse response = client.execute(method);
+				HttpResponse response = WebTools.execute(KEY_NAME, method);
 				
 				// read answer
 				String answer = WebTools.readAnswer(response);
 				result.add(part);
 				result.add(answer);
-				
-				// sleep a bit
-	            try
-	            {	Thread.sleep(DELAY);
-	            Thread.sleep(DELAY);	            
-				}
-	            catch (InterruptedException e)
-	            {	e.printStackTrace();
-				}
 			}
 			catch (UnsupportedEncodingException e)
 			{	e.printStackTrace();
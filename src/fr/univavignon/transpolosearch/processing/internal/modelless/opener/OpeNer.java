@@ -104,6 +104,12 @@ public class OpeNer extends AbstractProcessor implements InterfaceRecognizer
 	{	String result = delegateRecognizer.getFolder();
 		return result;
 	}
+	
+	@Override
+	public String getRecognizerConfiguration()
+	{	String result = delegateRecognizer.getConfiguration();
+		return result;
+	}
 
 	/////////////////////////////////////////////////////////////////
 	// RECOGNIZER	 		/////////////////////////////////////////
@@ -134,6 +140,30 @@ public class OpeNer extends AbstractProcessor implements InterfaceRecognizer
 		return result;
 	}
 	
+	/**
+	 * Changes the way the parts of a text are sent to the successive
+	 * stages of the service (tokenizer, tagger, parser, recognizer): 
+	 * one part after the other ({@code false}, the default), or in a 
+	 * pipelined way ({@code true}).
+	 * 
+	 * @param pipelined
+	 * 		{@code true} to process the parts in a pipelined way.
+	 */
+	public void setPipelined(boolean pipelined)
+	{	delegateRecognizer.setPipelined(pipelined);
+	}
+	
+	/**
+	 * Changes the maximal number of requests simultaneously sent
+	 * to each stage of the service, in pipelined mode.
+	 * 
+	 * @param stageWidth
+	 * 		Maximal number of requests per stage.
+	 */
+	public void setStageWidth(int stageWidth)
+	{	delegateRecognizer.setStageWidth(stageWidth);
+	}
+	
 	/////////////////////////////////////////////////////////////////
 	// RESOLVER			/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
@@ -27,15 +27,19 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.http.HttpResponse;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.ClientProtocolException;
-import org.apache.http.client.HttpClient;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.util.EntityUtils;
 
 import org.jdom2.Document;
 import org.jdom2.Element;
@@ -156,78 +160,257 @@ class OpeNerDelegateRecognizer extends AbstractModellessInternalDelegateRecogniz
 	private static final String RECOGNIZER_URL = SERVICE_URL + "/ner";
 	/** Maximal request size for OpeNer (the doc recommends 1000) */
 	private static final int MAX_SIZE = 1000;	//500 seems to be more robust
-	/** Sleep periods (in ms) */ // this is actually not needed anymore
-	private static final long SLEEP_PERIOD = 100;
+	/** Name of the service, used to limit the rate of the requests */
+	private static final String SERVICE_NAME = "OpeNer";
+	/** Maximal number of requests per second (lowered automatically if the service complains) */
+	private static final double MAX_RATE = 10;
+	static
+	{	WebTools.setRateLimit(SERVICE_NAME, MAX_RATE);
+	}
 	
 	@Override
 	protected List<String> detectMentions(Article article) throws ProcessorException
 	{	logger.increaseOffset();
-		List<String> result = new ArrayList<String>();
 		String text = article.getRawText();
 		
 		// we need to break down the text
-		List<String> parts = StringTools.splitText(text, MAX_SIZE);
-
-		// then we process each part separately
+		List<String> parts = new ArrayList<String>();
+		for(String part: StringTools.splitText(text, MAX_SIZE))
+			parts.add(cleanText(part));
+		
+		// then we apply all the stages of the service to each part
+		List<String> answers;
+		try
+		{	if(pipelined && parts.size()>1)
+				answers = processPipelined(parts);
+			else
+				answers = processSequentially(parts);
+		}
+		catch(UnsupportedEncodingException e)
+		{	//e.printStackTrace();
+			throw new ProcessorException(e.getMessage());
+		}
+		catch(ClientProtocolException e)
+		{	//e.printStackTrace();
+			throw new ProcessorException(e.getMessage());
+		}
+		catch(IOException e)
+		{	//e.printStackTrace();
+			throw new ProcessorException(e.getMessage());
+		}
+		
+		// add each part and corresponding answer to result, in the original order
+		List<String> result = new ArrayList<String>();
 		for(int i=0;i<parts.size();i++)
-		{	logger.log("Processing OpeNer part #"+(i+1)+"/"+parts.size());
-			logger.increaseOffset();
-			String part = parts.get(i);
-			part = cleanText(part);
-//System.out.println(part);
-if(part.startsWith(("si tu aimes la vidéo")))
-		System.out.print("");
-			
-			try
-			{	// tokenize the text
-				String tokenizedText = performTokenization(part);
-				Thread.sleep(SLEEP_PERIOD); // sometimes not needed
-//System.out.println(tokenizedText);
-
-				// detect part-of-speech
-				String taggedText = performTagging(tokenizedText);
-				Thread.sleep(SLEEP_PERIOD); // sometimes not needed
-//System.out.println(taggedText);
-				
-				// apply the constituent parser
-				String parsedText = performParsing(taggedText);
-				Thread.sleep(SLEEP_PERIOD); // sometimes not needed
-//System.out.println(parsedText);
-				
-				// perform the recognition
-				String nerText = performRecognition(parsedText);
-				Thread.sleep(SLEEP_PERIOD); // sometimes not needed
-
-				// clean the resulting XML // unnecessary
-//				String kafOld ="<KAF xml:lang=\"fr\" version=\"v1.opener\">";
-//		        String kafNew = "<KAF>";
-//				nerText = nerText.replaceAll(kafOld, kafNew);
-				
-				// add part and corresponding answer to result
-				result.add(part);
-				result.add(nerText);
+		{	result.add(parts.get(i));
+			result.add(answers.get(i));
+		}
+		
+		logger.decreaseOffset();
+		return result;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// STAGES			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Step of the processing performed by the OpeNer service. 
+	 * 
+	 * @author Vincent Labatut
+	 */
+	private interface Stage
+	{
+		/**
+		 * Sends the specified text to the service, and
+		 * returns its answer.
+		 * 
+		 * @param input
+		 * 		Output of the previous stage, or original text.
+		 * @return
+		 * 		Answer of the service.
+		 * 
+		 * @throws ProcessorException
+		 * 		Problem while accessing the service.
+		 * @throws IOException
+		 * 		Problem while accessing the service.
+		 */
+		public String process(String input) throws ProcessorException, IOException;
+	}
+	
+	/** Stages successively applied to each part of the text */
+	private final Stage[] stages = 
+	{	// tokenize the text
+		new Stage()
+		{	@Override
+			public String process(String input) throws ProcessorException, IOException
+			{	return performTokenization(input);
 			}
-			catch(UnsupportedEncodingException e)
-			{	//e.printStackTrace();
-				throw new ProcessorException(e.getMessage());
+		},
+		// detect part-of-speech
+		new Stage()
+		{	@Override
+			public String process(String input) throws ProcessorException, IOException
+			{	return performTagging(input);
 			}
-			catch(ClientProtocolException e)
-			{	//e.printStackTrace();
-				throw new ProcessorException(e.getMessage());
+		},
+		// apply the constituent parser
+		new Stage()
+		{	@Override
+			public String process(String input) throws ProcessorException, IOException
+			{	return performParsing(input);
 			}
-			catch(IOException e)
-			{	//e.printStackTrace();
-				throw new ProcessorException(e.getMessage());
+		},
+		// perform the recognition
+		new Stage()
+		{	@Override
+			public String process(String input) throws ProcessorException, IOException
+			{	return performRecognition(input);
 			}
-			catch(InterruptedException e)
-			{	//e.printStackTrace();
-				throw new ProcessorException(e.getMessage());
+		}
+	};
+	
+	/**
+	 * Applies all the stages to a part, then moves to the next part.
+	 * 
+	 * @param parts
+	 * 		Parts of the text.
+	 * @return
+	 * 		Answers of the service for each part, in the same order.
+	 * 
+	 * @throws ProcessorException
+	 * 		Problem while accessing the service.
+	 * @throws IOException
+	 * 		Problem while accessing the service.
+	 */
+	private List<String> processSequentially(List<String> parts) throws ProcessorException, IOException
+	{	List<String> result = new ArrayList<String>();
+		
+		for(int i=0;i<parts.size();i++)
+		{	logger.log("Processing OpeNer part #"+(i+1)+"/"+parts.size());
+			logger.increaseOffset();
+			String answer = parts.get(i);
+			for(Stage stage: stages)
+				answer = stage.process(answer);
+			result.add(answer);
+			logger.decreaseOffset();
+		}
+		
+		return result;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// PIPELINE			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Whether the parts of the text go through the stages in a pipelined way */
+	private boolean pipelined = false;
+	/** Maximal number of simultaneous requests to each stage, in pipelined mode */
+	private int stageWidth = 4;
+	
+	/**
+	 * Changes the way the parts of a text are processed: one after the
+	 * other ({@code false}), or in a pipelined way ({@code true}), i.e.
+	 * several parts are processed at once, each one at a different stage.
+	 * 
+	 * @param pipelined
+	 * 		{@code true} to process the parts in a pipelined way.
+	 */
+	public void setPipelined(boolean pipelined)
+	{	this.pipelined = pipelined;
+	}
+	
+	/**
+	 * Changes the maximal number of requests simultaneously sent
+	 * to each stage of the service, in pipelined mode.
+	 * 
+	 * @param stageWidth
+	 * 		Maximal number of requests per stage.
+	 */
+	public void setStageWidth(int stageWidth)
+	{	this.stageWidth = Math.max(1, stageWidth);
+	}
+	
+	/**
+	 * Applies all the stages to all the parts, in a pipelined way: each stage
+	 * has its own threads, and processes a part as soon as the previous stage 
+	 * is done with it. So, different parts occupy different stages at the
+	 * same time. The number of threads of a stage is {@link #stageWidth}, 
+	 * which bounds the number of requests simultaneously sent to this stage.
+	 * 
+	 * @param parts
+	 * 		Parts of the text.
+	 * @return
+	 * 		Answers of the service for each part, in the same order.
+	 * 
+	 * @throws ProcessorException
+	 * 		Problem while accessing the service.
+	 * @throws IOException
+	 * 		Problem while accessing the service.
+	 */
+	private List<String> processPipelined(final List<String> parts) throws ProcessorException, IOException
+	{	logger.log("Processing the "+parts.size()+" OpeNer parts in a pipelined way ("+stageWidth+" requests per stage)");
+		List<ExecutorService> executors = new ArrayList<ExecutorService>();
+		List<String> result = new ArrayList<String>();
+		
+		try
+		{	// submit all the tasks, stage by stage
+			List<Future<String>> previous = null;
+			for(final Stage stage: stages)
+			{	ExecutorService executor = Executors.newFixedThreadPool(stageWidth);
+				executors.add(executor);
+				List<Future<String>> futures = new ArrayList<Future<String>>();
+				for(int i=0;i<parts.size();i++)
+				{	final String part = parts.get(i);
+					final Future<String> input;
+					if(previous==null)
+						input = null;
+					else
+						input = previous.get(i);
+					Future<String> future = executor.submit(new Callable<String>()
+					{	@Override
+						public String call() throws Exception
+						{	String text;
+							if(input==null)
+								text = part;
+							else
+								text = input.get();
+							return stage.process(text);
+						}
+					});
+					futures.add(future);
+				}
+				executor.shutdown();
+				previous = futures;
 			}
 			
-			logger.decreaseOffset();
+			// retrieve the answers in the order of the parts
+			for(Future<String> future: previous)
+				result.add(future.get());
+		}
+		catch(InterruptedException e)
+		{	Thread.currentThread().interrupt();
+			throw new ProcessorException("Interrupted while waiting for the OpeNer service");
+		}
+		catch(ExecutionException e)
+		{	// a failing task makes all the following stages fail for the same part
+			Throwable cause = e.getCause();
+			while(cause instanceof ExecutionException)
+				cause = cause.getCause();
+			if(cause instanceof ProcessorException)
+				throw (ProcessorException)cause;
+			else if(cause instanceof IOException)
+				throw (IOException)cause;
+			else if(cause instanceof RuntimeException)
+				throw (RuntimeException)cause;
+			else if(cause instanceof Error)
+				throw (Error)cause;
+			else
+				throw new ProcessorException(cause.getMessage());
+		}
+		finally
+		{	for(ExecutorService executor: executors)
+				executor.shutdownNow();
 		}
 		
-		logger.decreaseOffset();
 		return result;
 	}
 	
@@ -424,12 +607,12 @@ if(part.startsWith(("si tu aimes la vidéo")))
 	{	String result = "";
 		// send to service
 		logger.log("Send message to service");
-		HttpClient client = HttpClientBuilder.create().build();
-		HttpResponse response = client.execute(method);
+		HttpResponse response = WebTools.execute(SERVICE_NAME, method);
 		int responseCode = response.getStatusLine().getStatusCode();
 		logger.log("Response Code : " + responseCode);
 		if(responseCode!=200)
-		{	throw new ProcessorException("Received an error code ("+responseCode+") while accessing the service ("+response.getStatusLine().getReasonPhrase()+")");
+		{	EntityUtils.consumeQuietly(response.getEntity());
+			throw new ProcessorException("Received an error code ("+responseCode+") while accessing the service ("+response.getStatusLine().getReasonPhrase()+")");
 			//TODO maybe we should try again and issue a warning?
 			//logger.log("WARNING: received an error code ("+responseCode+") from the OpenNer service");
 		}
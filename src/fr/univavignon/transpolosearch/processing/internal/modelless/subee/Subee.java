@@ -84,6 +84,12 @@ public class Subee extends AbstractProcessor implements InterfaceRecognizer
 	{	String result = delegateRecognizer.getFolder();
 		return result;
 	}
+	
+	@Override
+	public String getRecognizerConfiguration()
+	{	String result = delegateRecognizer.getConfiguration();
+		return result;
+	}
 
 	/////////////////////////////////////////////////////////////////
 	// RECOGNIZER	 		/////////////////////////////////////////
@@ -59,6 +59,7 @@ import fr.univavignon.transpolosearch.tools.file.FileNames;
 import fr.univavignon.transpolosearch.tools.file.FileTools;
 import fr.univavignon.transpolosearch.tools.freebase.FbCommonTools;
 import fr.univavignon.transpolosearch.tools.freebase.FbTypeTools;
+import fr.univavignon.transpolosearch.tools.string.AhoCorasickAutomaton;
 import fr.univavignon.transpolosearch.tools.string.StringTools;
 
 /**
@@ -830,20 +831,47 @@ class SubeeDelegateRecognizer extends AbstractModellessInternalDelegateRecognize
 //		});
 //		temp.addAll(sureMentions);
 		
-		// look for additional occurrences
+		// look for all the mention strings at once, in a single pass over the text
 		logger.log("Look for additional occurrences");
+		Map<String,Integer> patternIds = new HashMap<String,Integer>();
+		List<String> patterns = new ArrayList<String>();
 		for(AbstractMention<?> mention: sureMentions)
 		{	String valueStr = mention.getStringValue();
-			
-			// look for the mention in the text
-			String escapedStr = Pattern.quote(valueStr);
-			Pattern p = Pattern.compile("\\b"+escapedStr+"\\b");
-			Matcher m = p.matcher(rawText);
-			while(m.find())
-			{	int startPos = m.start();
+			if(!patternIds.containsKey(valueStr))
+			{	patternIds.put(valueStr, patterns.size());
+				patterns.add(valueStr);
+			}
+		}
+		AhoCorasickAutomaton automaton = new AhoCorasickAutomaton(patterns);
+		List<List<Integer>> occurrences = automaton.findOccurrences(rawText);
+		
+		// keep the occurrences surrounded by word boundaries, as the regex "\\b"+valueStr+"\\b" would
+		for(int p=0;p<patterns.size();p++)
+		{	int length = patterns.get(p).length();
+			List<Integer> starts = occurrences.get(p);
+			List<Integer> kept = new ArrayList<Integer>();
+			int lastEnd = 0;
+			for(int startPos: starts)
+			{	int endPos = startPos + length;
+				// like a regex, the occurrences of the same string cannot overlap
+				if(startPos>=lastEnd && isWordBoundary(rawText,startPos) && isWordBoundary(rawText,endPos))
+				{	kept.add(startPos);
+					// an empty string occurs once at each position
+					lastEnd = Math.max(endPos, startPos+1);
+				}
+			}
+			occurrences.set(p, kept);
+		}
+		
+		// build the corresponding mentions
+		for(AbstractMention<?> mention: sureMentions)
+		{	String valueStr = mention.getStringValue();
+			List<Integer> starts = occurrences.get(patternIds.get(valueStr));
+			for(int startPos: starts)
+			{	
 //				// don't use the same position for several mentions
 //				if(!positionAlreadyUsed(startPos, result))	// this test is now done later 
-				{	int endPos = m.end();
+				{	int endPos = startPos + valueStr.length();
 					EntityType type = mention.getType();
 					AbstractMention<?> ent = AbstractMention.build(type, startPos, endPos, ProcessorName.SUBEE, valueStr, language);
 					result.add(ent);
@@ -855,6 +883,78 @@ class SubeeDelegateRecognizer extends AbstractModellessInternalDelegateRecognize
 		return result;
 	}
 	
+	/**
+	 * Checks whether the specified position of the text is a word
+	 * boundary, exactly like the regex {@code \b} (without any flag),
+	 * i.e. a word character (letter, digit, underscore, or non-spacing
+	 * mark attached to a letter or digit) on exactly one side.
+	 * 
+	 * @param text
+	 * 		Text of interest.
+	 * @param pos
+	 * 		Position in the text, between {@code 0} and its length (included).
+	 * @return
+	 * 		{@code true} iff the position is a word boundary.
+	 */
+	private static boolean isWordBoundary(String text, int pos)
+	{	boolean left = false;
+		if(pos>0)
+		{	int cp = Character.codePointBefore(text, pos);
+			left = isWordChar(cp) 
+				|| Character.getType(cp)==Character.NON_SPACING_MARK && hasBaseCharacter(text, pos-1);
+		}
+		boolean right = false;
+		if(pos<text.length())
+		{	int cp = Character.codePointAt(text, pos);
+			right = isWordChar(cp) 
+				|| Character.getType(cp)==Character.NON_SPACING_MARK && hasBaseCharacter(text, pos);
+		}
+		boolean result = left ^ right;
+		return result;
+	}
+	
+	/**
+	 * Checks whether the specified code point is a word
+	 * character for the regex {@code \b}.
+	 * 
+	 * @param cp
+	 * 		Code point of interest.
+	 * @return
+	 * 		{@code true} iff the code point is a word character.
+	 */
+	private static boolean isWordChar(int cp)
+	{	boolean result = cp=='_' || Character.isLetterOrDigit(cp);
+		return result;
+	}
+	
+	/**
+	 * Checks whether the non-spacing marks ending at the specified
+	 * position follow a letter or a digit, like the regex {@code \b}.
+	 * 
+	 * @param text
+	 * 		Text of interest.
+	 * @param pos
+	 * 		Position of the last non-spacing mark.
+	 * @return
+	 * 		{@code true} iff the marks follow a letter or digit.
+	 */
+	private static boolean hasBaseCharacter(String text, int pos)
+	{	boolean result = false;
+		boolean goOn = true;
+		int x = pos;
+		while(goOn && x>=0)
+		{	int cp = Character.codePointAt(text, x);
+			if(Character.isLetterOrDigit(cp))
+			{	result = true;
+				goOn = false;
+			}
+			else if(Character.getType(cp)!=Character.NON_SPACING_MARK)
+				goOn = false;
+			x--;
+		}
+		return result;
+	}
+	
 	/**
 	 * Merges two lists of mentions: <i>sure</i> mentions identified based on hyperlinks alone,
 	 * and <i>possible</i> mentions identified using other means. If some possible mention overlaps
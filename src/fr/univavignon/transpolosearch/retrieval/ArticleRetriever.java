@@ -22,6 +22,10 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.text.ParseException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.xml.sax.SAXException;
 
@@ -169,6 +173,7 @@ public class ArticleRetriever
 			
 			// use the reader to get the text
 			reader.setCacheEnabled(readerCache);
+			reader.setPrefetchResult(prefetchedPages.remove(address), failedPrefetches.contains(address));
 			try
 			{	result = reader.read(url,language);
 			}
@@ -199,6 +204,59 @@ public class ArticleRetriever
 		return result;
 	}
 
+	/////////////////////////////////////////////////////////////////
+	// PREFETCH			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Source code of the pages downloaded beforehand and not processed yet, indexed by URL */
+	private final Map<String,String> prefetchedPages = new ConcurrentHashMap<String,String>();
+	/** URLs whose download failed during this run, and which are not requested again */
+	private final Set<String> failedPrefetches = Collections.newSetFromMap(new ConcurrentHashMap<String,Boolean>());
+	
+	/**
+	 * Only downloads the HTML source code of the specified URL, and keeps it
+	 * in memory (and in the reader cache, if enabled), so that a later call to 
+	 * {@link #process(URL)} does not need to access the network. This method is 
+	 * meant to be called concurrently, for several URLs at once.
+	 * <br/>
+	 * Nothing is done if the article itself is already cached. If the download
+	 * fails, the URL is recorded so that {@link #process(URL)} does not try
+	 * again during the same run.
+	 *
+	 * @param url
+	 * 		URL to process.
+	 * @return
+	 * 		{@code true} iff the article can now be processed without network access.
+	 *
+	 * @throws IOException
+	 * 		Problem while accessing the cache files or the Web page.
+	 */
+	public boolean prefetch(URL url) throws IOException
+	{	boolean result;
+		String address = url.toString();
+		AbstractArticleReader reader = AbstractArticleReader.buildReader(address);
+		String name = reader.getName(url);
+
+		if(cache && Article.isCached(name))
+			result = true;
+		else
+		{	logger.log("Prefetching the original web page ("+address+")");
+			reader.setCacheEnabled(readerCache);
+			String sourceCode = null;
+			try
+			{	sourceCode = reader.prefetchSourceCode(url);
+			}
+			finally
+			{	if(sourceCode==null)
+					failedPrefetches.add(address);
+				else
+					prefetchedPages.put(address, sourceCode);
+			}
+			result = sourceCode!=null;
+		}
+
+		return result;
+	}
+
 	/**
 	 * Returns the texts corresponding to the specified name.
 	 * <br/>
@@ -53,6 +53,7 @@ import org.jsoup.select.Elements;
 
 import fr.univavignon.transpolosearch.data.article.Article;
 import fr.univavignon.transpolosearch.data.article.ArticleLanguage;
+import fr.univavignon.transpolosearch.data.article.CorpusStore;
 import fr.univavignon.transpolosearch.retrieval.reader.journals.LExpressReader;
 import fr.univavignon.transpolosearch.retrieval.reader.journals.LaProvenceReader;
 import fr.univavignon.transpolosearch.retrieval.reader.journals.LaVoixDuNordReader;
@@ -148,6 +149,29 @@ public abstract class AbstractArticleReader
 	{	this.cache = enabled;
 	}
 	
+	/////////////////////////////////////////////////////////////////
+	// PREFETCH			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Source code of the page, downloaded beforehand (cf. {@link #prefetchSourceCode(URL)}), or {@code null} if none */
+	private String prefetchedSourceCode = null;
+	/** Whether the page could not be downloaded beforehand, in which case it is not requested again */
+	private boolean prefetchFailed = false;
+	
+	/**
+	 * Provides the result of a previous download of the page,
+	 * so that it is not requested again from the Web server
+	 * when the article is read.
+	 * 
+	 * @param sourceCode
+	 * 		Source code downloaded beforehand, or {@code null} if none.
+	 * @param failed
+	 * 		{@code true} if the download was attempted and failed.
+	 */
+	public void setPrefetchResult(String sourceCode, boolean failed)
+	{	this.prefetchedSourceCode = sourceCode;
+		this.prefetchFailed = failed;
+	}
+	
 	/////////////////////////////////////////////////////////////////
 	// NAME				/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
@@ -262,10 +286,24 @@ public abstract class AbstractArticleReader
 		// check if the cache can/must be used
 		String folderPath = FileNames.FO_WEB_PAGES + File.separator + name;
 		File originalFile = new File(folderPath + File.separator + FileNames.FI_ORIGINAL_PAGE);
-		if(cache && originalFile.exists())
+		String cachedCode = null;
+		if(cache)
+		{	if(Article.isStoreUsed())
+				cachedCode = CorpusStore.getStore(FileNames.FO_WEB_PAGES).getText(name, FileNames.FI_ORIGINAL_PAGE);
+			else if(originalFile.exists())
+				cachedCode = FileTools.readTextFile(originalFile, "UTF-8");
+		}
+		if(prefetchedSourceCode!=null)
+		{	logger.log("HTML already downloaded during this run >> we use it directly");
+			result = Jsoup.parse(prefetchedSourceCode);
+			prefetchedSourceCode = null;
+		}
+		else if(prefetchFailed)
+		{	logger.log("WARNING: The download of this page already failed during this run >> we do not try again");
+		}
+		else if(cachedCode!=null)
 		{	logger.log("Cache enabled and HTML already retrieved >> we use the cached file ("+originalFile.getName()+")");
-			String sourceCode = FileTools.readTextFile(originalFile, "UTF-8");
-			result = Jsoup.parse(sourceCode);
+			result = Jsoup.parse(cachedCode);
 		}
 		
 		// otherwise, load and cache the html file
@@ -367,7 +405,10 @@ if(e.getStatusCode()==401)
 				String sourceCode = result.toString();
 				
 				// cache html source code
-				FileTools.writeTextFile(originalFile, sourceCode, "UTF-8");
+				if(Article.isStoreUsed())
+					CorpusStore.getStore(FileNames.FO_WEB_PAGES).putText(name, FileNames.FI_ORIGINAL_PAGE, sourceCode);
+				else
+					FileTools.writeTextFile(originalFile, sourceCode, "UTF-8");
 			}
 		}
 
@@ -375,7 +416,32 @@ if(e.getStatusCode()==401)
 		logger.decreaseOffset();
 		return result;
 	}
-	
+
+	/**
+	 * Retrieves the HTML source code of the specified article, without 
+	 * processing it, and records it in the cache like {@link #read(URL, ArticleLanguage)}
+	 * would. This allows fetching several pages at once: the returned source 
+	 * code is then provided to the reader of the article through
+	 * {@link #setPrefetchResult(String, boolean)}, whether the cache is 
+	 * enabled or not.
+	 *
+	 * @param url
+	 * 		URL of the concerned article.
+	 * @return
+	 * 		The source code of the page, or {@code null} if it could not be retrieved.
+	 *
+	 * @throws IOException
+	 * 		Problem while accessing the cache or web page.
+	 */
+	public String prefetchSourceCode(URL url) throws IOException
+	{	String result = null;
+		String name = getName(url);
+		Document document = retrieveSourceCode(name, url);
+		if(document!=null)
+			result = document.toString();
+		return result;
+	}
+
 	/**
 	 * Reads the source code of the Web page at the specified
 	 * URL.
@@ -38,9 +38,7 @@ import java.util.Map;
 
 import org.apache.http.HttpResponse;
 import org.apache.http.client.ClientProtocolException;
-import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.HttpClientBuilder;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
@@ -262,10 +260,9 @@ public class BingEngine extends AbstractWebEngine
 			logger.log("URL: "+url);
 			
 			// query the server
-			HttpClient httpClient = HttpClientBuilder.create().build();
 			HttpGet request = new HttpGet(url);
 			request.setHeader("Ocp-Apim-Subscription-Key", API_KEY1);
-			HttpResponse response = httpClient.execute(request);
+			HttpResponse response = WebTools.execute(request);
 			
 			// parse the JSON response
 			String answer = WebTools.readAnswer(response);
@@ -133,8 +133,8 @@ public class GoogleEngine extends AbstractWebEngine
 	/////////////////////////////////////////////////////////////////
 	// SERVICE		/////////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
-	/** Object used to format dates in the query */
-	private final static DateFormat DATE_FORMAT = new SimpleDateFormat("yyyyMMdd");
+	/** Object used to format dates in the query (not static, since engines can be applied concurrently) */
+	private final DateFormat dateFormat = new SimpleDateFormat("yyyyMMdd");
 	/** Name of the GCS application */
 	private static final String APP_NAME = "TranspoloSearch";
 	/** Name of the API key */
@@ -193,7 +193,7 @@ public class GoogleEngine extends AbstractWebEngine
 		{	sortCriterion = null;
 		}
 		else if(startDate!=null && endDate!=null)
-		{	String dateRange = DATE_FORMAT.format(startDate)+":"+DATE_FORMAT.format(endDate);
+		{	String dateRange = dateFormat.format(startDate)+":"+dateFormat.format(endDate);
 			sortCriterion = "date:r:" + dateRange;
 		}
 		else
@@ -33,9 +33,7 @@ import java.util.Map;
 
 import org.apache.http.HttpResponse;
 import org.apache.http.client.ClientProtocolException;
-import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.HttpClientBuilder;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
@@ -254,9 +252,8 @@ public class QwantEngine extends AbstractWebEngine
 			logger.log("URL: "+url);
 			
 			// query the server	
-			HttpClient httpClient = HttpClientBuilder.create().build();
 			HttpGet request = new HttpGet(url);
-			HttpResponse response = httpClient.execute(request);
+			HttpResponse response = WebTools.execute(request);
 			
 			// parse the JSON response
 			String answer = WebTools.readAnswer(response);
@@ -35,9 +35,7 @@ import java.util.Map;
 
 import org.apache.http.HttpResponse;
 import org.apache.http.client.ClientProtocolException;
-import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.HttpClientBuilder;
 import org.jdom2.Document;
 import org.jdom2.Element;
 import org.jdom2.JDOMException;
@@ -224,9 +222,8 @@ public class YandexEngine extends AbstractWebEngine
 			logger.log("URL: "+url);
 			
 			// query the server	
-			HttpClient httpClient = HttpClientBuilder.create().build();
 			HttpGet request = new HttpGet(url);
-			HttpResponse response = httpClient.execute(request);
+			HttpResponse response = WebTools.execute(request);
 			
 			// parse the XML response
 			logger.increaseOffset();
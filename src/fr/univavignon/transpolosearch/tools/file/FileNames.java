@@ -44,11 +44,11 @@ public class FileNames extends fr.univavignon.tools.file.FileNames
 //	/** Output folder */
 //	public static String FO_OUTPUT = "out";
 		/** Folder containing web search results */
-		public static String FO_WEB_SEARCH_RESULTS = FO_OUTPUT + File.separator + "web_search";
+		public static volatile String FO_WEB_SEARCH_RESULTS = FO_OUTPUT + File.separator + "web_search";
 			/** Folder containing cached web pages */
-			public static String FO_WEB_PAGES = FO_WEB_SEARCH_RESULTS + File.separator + "_pages";
+			public static volatile String FO_WEB_PAGES = FO_WEB_SEARCH_RESULTS + File.separator + "_pages";
 		/** Folder containing social media search results */
-		public static String FO_SOCIAL_SEARCH_RESULTS = FO_OUTPUT + File.separator + "social_search";
+		public static volatile String FO_SOCIAL_SEARCH_RESULTS = FO_OUTPUT + File.separator + "social_search";
 //	/** Resources folder */
 //	public final static String FO_RESOURCES = "res";
 		/** Folder used to store certain cached files */
@@ -57,6 +57,8 @@ public class FileNames extends fr.univavignon.tools.file.FileNames
 			public final static String FO_CACHE_FREEBASE = FO_CACHE + File.separator + "freebase";
 			/** Folder used to store WikiMedia cached files */
 			public final static String FO_CACHE_WIKIMEDIA = FO_CACHE + File.separator + "wikimedia";
+			/** Folder used to store the cached mentions, indexed by article content and recognizer configuration */
+			public final static String FO_CACHE_MENTIONS = FO_CACHE + File.separator + "mentions";
 		/** Folder used to store images */
 		public final static String FO_IMAGES = FO_RESOURCES + File.separator + "images";
 //		/** Folder used to store various data */
@@ -107,11 +109,14 @@ public class FileNames extends fr.univavignon.tools.file.FileNames
 	/**
 	 * Changes the folder used to output the files produced during the processing.
 	 * It relies on the keywords used during the current search.
+	 * <br/>
+	 * The folders are set before starting the processing, and then read
+	 * by several threads, hence the synchronization.
 	 * 
 	 * @param keywords
 	 * 		Keywords of the current search.
 	 */
-	public static void setOutputFolder(String keywords)
+	public static synchronized void setOutputFolder(String keywords)
 	{	// add the keywords after the default output folder 
 		FO_OUTPUT = "out";
 		if(keywords!=null)
@@ -150,8 +155,20 @@ public class FileNames extends fr.univavignon.tools.file.FileNames
 	public final static String FI_REFERENCE_TEXT = "reference" + FileNames.EX_TEXT;
 	/** XML file containing the mentions estimated by a recognizer or completed by a resolver, in a normalized format */
 	public final static String FI_MENTION_LIST = "mentions" + FileNames.EX_XML;
+	/** Binary file containing the same mentions as {@link #FI_MENTION_LIST} (cf. BinaryFormat) */
+	public final static String FI_MENTION_BINARY = "mentions" + FileNames.EX_BIN;
+	/** Index of a content-addressed cache */
+	public final static String FI_CACHE_INDEX = "index" + FileNames.EX_TEXT;
+	/** Subfolder of a corpus folder, containing its corpus store (cf. CorpusStore) */
+	public final static String FI_CORPUS_STORE = "_store";
+	/** Prefix of the segment files of a corpus store */
+	public final static String FI_STORE_SEGMENT = "segment";
+	/** Offset index of a corpus store */
+	public final static String FI_STORE_INDEX = "index" + FileNames.EX_BIN;
 	/** XML file containing the entities detected by a resolver or linked by a linker, in a normalized format */
 	public final static String FI_ENTITY_LIST = "entities" + FileNames.EX_XML;
+	/** Binary file containing the same entities as {@link #FI_ENTITY_LIST} (cf. BinaryFormat) */
+	public final static String FI_ENTITY_BINARY = "entities" + FileNames.EX_BIN;
 	/** XML schema file used to store GUI texts */
 	public final static String FI_LANGUAGE = "language" + FileNames.EX_SCHEMA;
 	/** File output by a processor, using its own format */
@@ -176,8 +193,12 @@ public class FileNames extends fr.univavignon.tools.file.FileNames
 	public final static String FI_CONFIGURATION_SCHEMA = "edconfig" + FileNames.EX_SCHEMA;
 	/** Main script of the Nero tool */
 	public final static String FI_NERO_BASH = "irisa_ne" + FileNames.EX_BASH;
+	/** Script running Nero as a persistent worker process (cf. ExternalProcessPool) */
+	public final static String FI_NERO_WORKER = "irisa_ne_worker" + FileNames.EX_BASH;
 	/** Main program of the TagEn tool */
 	public final static String FI_TAGEN_EXE = "tagen";
+	/** Script running TagEn as a persistent worker process (cf. ExternalProcessPool) */
+	public final static String FI_TAGEN_WORKER = "tagen_worker" + FileNames.EX_BASH;
 	/** File used to cache the mapping queries and their results in a cache */
 	public final static String FI_WIKIDATA = "wikidata" + FileNames.EX_TEXT;
 	/** File used to cache the mapping queries and their results in a cache */
@@ -0,0 +1,264 @@
+package fr.univavignon.transpolosearch.tools.string;
+
+/*
+ * TranspoloSearch
+ * Copyright 2015-18 Vincent Labatut
+ * 
+ * This file is part of TranspoloSearch.
+ * 
+ * TranspoloSearch is free software: you can redistribute it and/or modify it under 
+ * the terms of the GNU General Public License as published by the Free Software 
+ * Foundation, either version 2 of the License, or (at your option) any later version.
+ * 
+ * TranspoloSearch is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with TranspoloSearch. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.TreeMap;
+
+/**
+ * Aho-Corasick automaton, used to find all the occurrences of a set
+ * of strings in a text, through a single pass over this text.
+ * <br/>
+ * The strings are first inserted in a trie, then each node receives
+ * a failure link (the longest proper suffix of its string which is
+ * also a prefix in the trie) and a dictionary link (the longest proper
+ * suffix which is also one of the searched strings). The matching is 
+ * exact and case-sensitive, and is performed character by character,
+ * like a literal regular expression.
+ * <br/>
+ * The automaton is immutable once built, so it can be used by several
+ * threads at once.
+ * 
+ * @author Vincent Labatut
+ */
+public class AhoCorasickAutomaton
+{
+	/**
+	 * Builds the automaton corresponding to the specified strings.
+	 * Each string is identified by its position in the list. If the
+	 * same string appears several times, only its first position is
+	 * used (the occurrences of the other ones are not reported).
+	 * 
+	 * @param patterns
+	 * 		Strings to look for.
+	 */
+	public AhoCorasickAutomaton(List<String> patterns)
+	{	patternLengths = new int[patterns.size()];
+		buildTrie(patterns);
+		buildLinks();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// TRIE				/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Length of each searched string */
+	private final int[] patternLengths;
+	/** Searched strings which are empty, and therefore occur at each position */
+	private final List<Integer> emptyPatterns = new ArrayList<Integer>();
+	/** Characters labeling the transitions of each node, sorted by increasing order */
+	private char[][] labels;
+	/** Target of the transitions of each node, in the same order as {@link #labels} */
+	private int[][] targets;
+	/** Id of the string ending at each node, or {@code -1} if there is none */
+	private int[] terminals;
+
+	/**
+	 * Inserts the strings in a trie, whose root
+	 * is the node number zero.
+	 * 
+	 * @param patterns
+	 * 		Strings to look for.
+	 */
+	private void buildTrie(List<String> patterns)
+	{	List<TreeMap<Character,Integer>> children = new ArrayList<TreeMap<Character,Integer>>();
+		List<Integer> ends = new ArrayList<Integer>();
+		children.add(new TreeMap<Character,Integer>());
+		ends.add(-1);
+		
+		for(int p=0;p<patterns.size();p++)
+		{	String pattern = patterns.get(p);
+			patternLengths[p] = pattern.length();
+			if(pattern.isEmpty())
+			{	if(emptyPatterns.isEmpty())
+					emptyPatterns.add(p);
+			}
+			else
+			{	int node = 0;
+				for(int i=0;i<pattern.length();i++)
+				{	Character c = pattern.charAt(i);
+					Integer next = children.get(node).get(c);
+					if(next==null)
+					{	next = children.size();
+						children.add(new TreeMap<Character,Integer>());
+						ends.add(-1);
+						children.get(node).put(c, next);
+					}
+					node = next;
+				}
+				if(ends.get(node)==-1)
+					ends.set(node, p);
+			}
+		}
+		
+		// switch to arrays, which are faster to browse
+		int size = children.size();
+		labels = new char[size][];
+		targets = new int[size][];
+		terminals = new int[size];
+		for(int n=0;n<size;n++)
+		{	Map<Character,Integer> map = children.get(n);
+			labels[n] = new char[map.size()];
+			targets[n] = new int[map.size()];
+			int i = 0;
+			for(Entry<Character,Integer> entry: map.entrySet())
+			{	labels[n][i] = entry.getKey();
+				targets[n][i] = entry.getValue();
+				i++;
+			}
+			terminals[n] = ends.get(n);
+		}
+	}
+	
+	/**
+	 * Returns the target of the transition labeled by the
+	 * specified character, starting from the specified node.
+	 * 
+	 * @param node
+	 * 		Source node.
+	 * @param c
+	 * 		Label of the transition.
+	 * @return
+	 * 		Target node, or {@code -1} if there is no such transition.
+	 */
+	private int getTransition(int node, char c)
+	{	int result = -1;
+		int idx = Arrays.binarySearch(labels[node], c);
+		if(idx>=0)
+			result = targets[node][idx];
+		return result;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// LINKS			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Failure link of each node */
+	private int[] failures;
+	/** Dictionary link of each node, or {@code -1} if there is none */
+	private int[] dictionaries;
+	
+	/**
+	 * Processes the failure and dictionary links of all
+	 * the nodes, through a breadth-first traversal of
+	 * the trie.
+	 */
+	private void buildLinks()
+	{	int size = labels.length;
+		failures = new int[size];
+		dictionaries = new int[size];
+		dictionaries[0] = -1;
+		
+		Queue<Integer> queue = new LinkedList<Integer>();
+		for(int child: targets[0])
+		{	failures[child] = 0;
+			dictionaries[child] = -1;
+			queue.offer(child);
+		}
+		
+		while(!queue.isEmpty())
+		{	int node = queue.poll();
+			for(int i=0;i<labels[node].length;i++)
+			{	char c = labels[node][i];
+				int child = targets[node][i];
+				
+				// failure link
+				int f = failures[node];
+				int next = getTransition(f, c);
+				while(next==-1 && f!=0)
+				{	f = failures[f];
+					next = getTransition(f, c);
+				}
+				if(next==-1)
+					next = 0;
+				failures[child] = next;
+				
+				// dictionary link
+				if(terminals[next]!=-1)
+					dictionaries[child] = next;
+				else
+					dictionaries[child] = dictionaries[next];
+				
+				queue.offer(child);
+			}
+		}
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// SEARCH			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Looks for all the occurrences of the searched strings in
+	 * the specified text, including the overlapping ones. 
+	 * <br/>
+	 * The result contains a list for each searched string (in the
+	 * order of the list used to build the automaton), containing
+	 * the start positions of its occurrences by increasing order. 
+	 * The end position of an occurrence is its start position plus
+	 * the length of the string. An empty string occurs at each 
+	 * position of the text, including its end.
+	 * 
+	 * @param text
+	 * 		Text to process.
+	 * @return
+	 * 		List of the start positions of each searched string.
+	 */
+	public List<List<Integer>> findOccurrences(CharSequence text)
+	{	List<List<Integer>> result = new ArrayList<List<Integer>>();
+		for(int p=0;p<patternLengths.length;p++)
+			result.add(new ArrayList<Integer>());
+		
+		for(int p: emptyPatterns)
+		{	List<Integer> list = result.get(p);
+			for(int i=0;i<=text.length();i++)
+				list.add(i);
+		}
+		
+		int node = 0;
+		for(int i=0;i<text.length();i++)
+		{	char c = text.charAt(i);
+			
+			// follow the failure links until a transition is possible
+			int next = getTransition(node, c);
+			while(next==-1 && node!=0)
+			{	node = failures[node];
+				next = getTransition(node, c);
+			}
+			if(next==-1)
+				next = 0;
+			node = next;
+			
+			// report all the strings ending here
+			int n = node;
+			if(terminals[n]==-1)
+				n = dictionaries[n];
+			while(n!=-1)
+			{	int p = terminals[n];
+				result.get(p).add(i + 1 - patternLengths[p]);
+				n = dictionaries[n];
+			}
+		}
+		
+		return result;
+	}
+}
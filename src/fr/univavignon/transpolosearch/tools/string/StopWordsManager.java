@@ -18,15 +18,18 @@ package fr.univavignon.transpolosearch.tools.string;
  * along with TranspoloSearch. If not, see <http://www.gnu.org/licenses/>.
  */
 
+
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.UnsupportedEncodingException;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.Set;
 
 import fr.univavignon.transpolosearch.data.article.ArticleLanguage;
 import fr.univavignon.transpolosearch.tools.file.FileNames;
@@ -34,6 +37,12 @@ import fr.univavignon.transpolosearch.tools.file.FileTools;
 
 /**
  * This class handles lists of stop-words.
+ * <br/>
+ * The lists are loaded only once, and shared by all threads. They
+ * are represented as immutable sets containing the <i>folded</i>
+ * form of the words (cf. {@link #foldWord(String)}), so that testing
+ * whether a word belongs to a list takes a constant time, whatever
+ * its case and diacritics.
  *  
  * @author Vincent Labatut
  */
@@ -42,30 +51,81 @@ public class StopWordsManager
 	/////////////////////////////////////////////////////////////////
 	// DATA					/////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
-	/** Map containing the stop-word lists for all supported languages */
-	private final static Map<ArticleLanguage,List<String>> STOP_WORDS = new HashMap<ArticleLanguage,List<String>>();
+	/** Map containing the stop-word sets for all supported languages, loaded lazily */
+	private static volatile Map<ArticleLanguage,Set<String>> stopWords = null;
 	
 	/**
-	 * Returns the list of stop words for the specified language.
+	 * Returns the set of stop words for the specified language.
+	 * The set contains the folded forms of the words (cf. 
+	 * {@link #foldWord(String)}), and cannot be modified.
 	 * 
 	 * @param language
 	 * 		Language of interest.
 	 * @return
-	 * 		List of stop words for the specified language.
+	 * 		Set of stop words for the specified language.
 	 */
-	public static List<String> getStopWords(ArticleLanguage language)
-	{	if(STOP_WORDS.isEmpty())
-		{	try 
-			{	loadData();
-			}
-			catch (FileNotFoundException e) 
-			{	e.printStackTrace();
-			}
-			catch (UnsupportedEncodingException e) 
-			{	e.printStackTrace();
+	public static Set<String> getStopWords(ArticleLanguage language)
+	{	Map<ArticleLanguage,Set<String>> map = stopWords;
+		if(map==null)
+		{	synchronized(StopWordsManager.class)
+			{	map = stopWords;
+				if(map==null)
+				{	map = loadData();
+					stopWords = map;
+				}
 			}
 		}
-		List<String> result = STOP_WORDS.get(language);
+		Set<String> result = map.get(language);
+		return result;
+	}
+	
+	/**
+	 * Checks whether the specified word is a stop word
+	 * for the specified language, ignoring its case and
+	 * diacritics.
+	 * 
+	 * @param word
+	 * 		Word to check.
+	 * @param language
+	 * 		Language of interest.
+	 * @return
+	 * 		{@code true} iff the word is a stop word.
+	 */
+	public static boolean isStopWord(String word, ArticleLanguage language)
+	{	Set<String> set = getStopWords(language);
+		String key = foldWord(word);
+		boolean result = set.contains(key);
+		return result;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// FOLDING				/////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Returns the folded form of the specified word, i.e. the key
+	 * used to look it up in the word sets. It is the same as 
+	 * {@link StringTools#getComparisonKey(String)} (no diacritics,
+	 * upper case), but the Unicode normalization is skipped for
+	 * pure ASCII words, which are by far the most frequent.
+	 * 
+	 * @param word
+	 * 		Word to fold.
+	 * @return
+	 * 		Folded form of the word.
+	 */
+	public static String foldWord(String word)
+	{	boolean ascii = true;
+		int i = 0;
+		while(ascii && i<word.length())
+		{	ascii = word.charAt(i)<128;
+			i++;
+		}
+		
+		String result;
+		if(ascii)
+			result = word.toUpperCase(Locale.ENGLISH);
+		else
+			result = StringTools.getComparisonKey(word);
 		return result;
 	}
 	
@@ -75,22 +135,47 @@ public class StopWordsManager
 	/**
 	 * Loads the stop-word lists.
 	 * 
-	 * @throws UnsupportedEncodingException
-	 * 		Problem while accessing the stopword file. 
-	 * @throws FileNotFoundException 
-	 * 		Problem while accessing the stopword file. 
+	 * @return
+	 * 		Map associating the set of stop words to each language.
+	 */
+	private static Map<ArticleLanguage,Set<String>> loadData()
+	{	Map<ArticleLanguage,Set<String>> result = new EnumMap<ArticleLanguage,Set<String>>(ArticleLanguage.class);
+		for(ArticleLanguage language: ArticleLanguage.values())
+		{	String filePath = FileNames.FO_MISC + File.separator + "stopwords_" + language.toString().toLowerCase() + FileNames.EX_TEXT;
+			Set<String> set = loadWordSet(new File(filePath));
+			result.put(language, set);
+		}
+		return Collections.unmodifiableMap(result);
+	}
+	
+	/**
+	 * Loads a list of words, one per line, and returns
+	 * the immutable set of their folded forms (cf. 
+	 * {@link #foldWord(String)}). Empty lines are ignored.
+	 * If the file cannot be read, the set is empty.
+	 * 
+	 * @param file
+	 * 		File containing the list of words.
+	 * @return
+	 * 		Set of folded words.
 	 */
-	private static void loadData() throws FileNotFoundException, UnsupportedEncodingException
-	{	for(ArticleLanguage language: ArticleLanguage.values())
-		{	List<String> list = new ArrayList<String>();
-			STOP_WORDS.put(language,list);
-			String filePath = FileNames.FO_MISC + File.separator + "stopwords_" + language.toString().toLowerCase() + FileNames.EX_TEXT;
-			Scanner scanner = FileTools.openTextFileRead(filePath, "UTF-8");
+	public static Set<String> loadWordSet(File file)
+	{	Set<String> result = new HashSet<String>();
+		try
+		{	Scanner scanner = FileTools.openTextFileRead(file, "UTF-8");
 			while(scanner.hasNextLine())
-			{	String line = scanner.nextLine();
-				String word = line.trim().toLowerCase();
-				list.add(word);
+			{	String line = scanner.nextLine().trim();
+				if(!line.isEmpty())
+					result.add(foldWord(line));
 			}
+			scanner.close();
+		}
+		catch (FileNotFoundException e) 
+		{	e.printStackTrace();
+		}
+		catch (UnsupportedEncodingException e) 
+		{	e.printStackTrace();
 		}
+		return Collections.unmodifiableSet(result);
 	}
 }
@@ -21,6 +21,7 @@ package fr.univavignon.transpolosearch.tools.string;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -29,7 +30,6 @@ import java.util.Set;
 
 import org.apache.commons.math3.util.Combinations;
 
-import com.google.common.base.Optional;
 import com.optimaize.langdetect.DetectedLanguage;
 import com.optimaize.langdetect.LanguageDetector;
 import com.optimaize.langdetect.LanguageDetectorBuilder;
@@ -151,17 +151,102 @@ public class StringTools extends fr.univavignon.tools.string.StringTools
 	/////////////////////////////////////////////////////////////////
 	// LANGUAGE			/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
-	/** Object used to detect the language of a text */
-	private static LanguageDetector LANGUAGE_DETECTOR = null;
+	/** Object used to detect the language of a text, loaded lazily (once for all threads) */
+	private static volatile LanguageDetector languageDetector = null;
 	/** Object used by the language detector for long texts */
-	private static TextObjectFactory TEXT_FACTORY_LONG = null;
+	private static final TextObjectFactory TEXT_FACTORY_LONG = CommonTextObjectFactories.forDetectingOnLargeText();
 	/** Object used by the language detector for short texts */
-	private static TextObjectFactory TEXT_FACTORY_SHORT = null;
-
+	private static final TextObjectFactory TEXT_FACTORY_SHORT = CommonTextObjectFactories.forDetectingShortCleanText();
+	/** Maximal length of the sample used to detect the language of a long text */
+	private static final int LANGUAGE_SAMPLE_LENGTH = 4096;
+	/** Minimal probability for the language detected on a sample to be accepted */
+	private static final double LANGUAGE_MIN_CONFIDENCE = 0.99;
+	
+	/**
+	 * Returns the language detector, after loading the 
+	 * language profiles if necessary. They are loaded only
+	 * once, and the detector is shared by all threads.
+	 * 
+	 * @return
+	 * 		The language detector.
+	 * 
+	 * @throws IOException 
+	 * 		Problem while initializing the library.
+	 */
+	private static LanguageDetector getLanguageDetector() throws IOException
+	{	LanguageDetector result = languageDetector;
+		if(result==null)
+		{	synchronized(StringTools.class)
+			{	result = languageDetector;
+				if(result==null)
+				{	List<LanguageProfile> languageProfiles = new LanguageProfileReader().readAllBuiltIn();
+					result = LanguageDetectorBuilder.create(NgramExtractors.standard())
+						.withProfiles(languageProfiles)
+						.build();
+					languageDetector = result;
+				}
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Returns the most probable language of the specified text,
+	 * or {@code null} if the text does not contain any usable
+	 * n-gram.
+	 * 
+	 * @param detector
+	 * 		Language detector.
+	 * @param textObjectFactory
+	 * 		Factory used to prepare the text.
+	 * @param text
+	 * 		The text whose language we want to detect.
+	 * @return
+	 * 		The most probable language, with its probability.
+	 */
+	private static DetectedLanguage detectBestLanguage(LanguageDetector detector, TextObjectFactory textObjectFactory, String text)
+	{	DetectedLanguage result = null;
+		TextObject textObject = textObjectFactory.forText(text);
+		// the probabilities are sorted by decreasing order
+		List<DetectedLanguage> dls = detector.getProbabilities(textObject);
+		if(!dls.isEmpty())
+			result = dls.get(0);
+		return result;
+	}
+	
+	/**
+	 * Returns the beginning of the specified text, of length at most
+	 * {@link #LANGUAGE_SAMPLE_LENGTH}, and if possible not cutting
+	 * the last word. The language detector only considers the
+	 * beginning of long texts anyway, but it filters the whole
+	 * text before truncating it.
+	 * 
+	 * @param text
+	 * 		Long text.
+	 * @return
+	 * 		Sample of the text.
+	 */
+	private static String getLanguageSample(String text)
+	{	int end = LANGUAGE_SAMPLE_LENGTH;
+		int pos = end;
+		while(pos>LANGUAGE_SAMPLE_LENGTH/2 && !Character.isWhitespace(text.charAt(pos)))
+			pos--;
+		if(pos>LANGUAGE_SAMPLE_LENGTH/2)
+			end = pos;
+		String result = text.substring(0,end);
+		return result;
+	}
+	
 	/**
 	 * Detects the language in the specified text, and return the corresponding enum value.
 	 * If the language does not correspond to one of the enumerated languages, then the
 	 * method returns {@code null}.
+	 * <br/>
+	 * For a long text, the language is first detected on a sample (cf. 
+	 * {@link #getLanguageSample(String)}), and the whole text is used only if
+	 * the detector is not confident enough about the language of the sample.
+	 * The language of the articles is detected only once, when retrieving them,
+	 * and is then recorded in their properties.
 	 * 
 	 * @param text
 	 * 		The text whose language we want to detect. 
@@ -178,43 +263,29 @@ public class StringTools extends fr.univavignon.tools.string.StringTools
 	{	ArticleLanguage result = null;
 		
 		if(text!=null && !text.isEmpty())
-		{	// init language detector
-			if(LANGUAGE_DETECTOR==null)
-			{	List<LanguageProfile> languageProfiles = new LanguageProfileReader().readAllBuiltIn();
-				LANGUAGE_DETECTOR = LanguageDetectorBuilder.create(NgramExtractors.standard())
-					.withProfiles(languageProfiles)
-					.build();
-			}
-			// init text factory
-			TextObjectFactory textObjectFactory;
-			if(shortText)
-			{	if(TEXT_FACTORY_SHORT==null)
-					TEXT_FACTORY_SHORT = CommonTextObjectFactories.forDetectingShortCleanText();
-				textObjectFactory = TEXT_FACTORY_SHORT;
-			}
-			else
-			{	if(TEXT_FACTORY_LONG==null)
-				TEXT_FACTORY_LONG = CommonTextObjectFactories.forDetectingOnLargeText();
-				textObjectFactory = TEXT_FACTORY_LONG;
+		{	LanguageDetector detector = getLanguageDetector();
+			LdLocale loc = null;
+			
+			// long text: first try with a sample
+			if(!shortText && text.length()>LANGUAGE_SAMPLE_LENGTH)
+			{	String sample = getLanguageSample(text);
+				DetectedLanguage dl = detectBestLanguage(detector, TEXT_FACTORY_LONG, sample);
+				if(dl!=null && dl.getProbability()>=LANGUAGE_MIN_CONFIDENCE)
+					loc = dl.getLocale();
 			}
 			
-			// process the text
-			TextObject textObject = textObjectFactory.forText(text);
-			Optional<LdLocale> lang = LANGUAGE_DETECTOR.detect(textObject);
-			LdLocale loc = null;
-			if(lang.isPresent())
-				loc = lang.get();
-			else
-			{	List<DetectedLanguage> dls = LANGUAGE_DETECTOR.getProbabilities(textObject);
-				double maxProba = 0;
-				for(DetectedLanguage dl: dls)
-				{	double proba = dl.getProbability();
-					if(proba>maxProba)
-					{	loc = dl.getLocale();
-						maxProba = proba;
-					}
-				}
+			// short text, or inconclusive sample: process the whole text
+			if(loc==null)
+			{	TextObjectFactory textObjectFactory;
+				if(shortText)
+					textObjectFactory = TEXT_FACTORY_SHORT;
+				else
+					textObjectFactory = TEXT_FACTORY_LONG;
+				DetectedLanguage dl = detectBestLanguage(detector, textObjectFactory, text);
+				if(dl!=null)
+					loc = dl.getLocale();
 			}
+			
 			if(loc!=null)
 			{	String iso = loc.getLanguage();
 				switch(iso)
@@ -269,11 +340,11 @@ public class StringTools extends fr.univavignon.tools.string.StringTools
 	{	Map<String,Integer> result = new HashMap<String,Integer>();
 		
 		// init the list of stopwords
-		List<String> stopWords;
+		Set<String> stopWords;
 		if(language!=null)
 			stopWords = StopWordsManager.getStopWords(language);
 		else
-			stopWords = new ArrayList<String>();
+			stopWords = Collections.emptySet();
 		
 		// process each text
 		for(String text: texts)
@@ -284,7 +355,7 @@ public class StringTools extends fr.univavignon.tools.string.StringTools
 			
 			String[] tokens = cleanText.split(" ");
 			for(String token: tokens)
-			{	if(!stopWords.contains(token))
+			{	if(!stopWords.contains(StopWordsManager.foldWord(token)))
 				{	Integer c = result.get(token);
 					if(c==null)
 						c = 0;
@@ -0,0 +1,315 @@
+package fr.univavignon.transpolosearch.tools.string;
+
+/*
+ * TranspoloSearch
+ * Copyright 2015-18 Vincent Labatut
+ * 
+ * This file is part of TranspoloSearch.
+ * 
+ * TranspoloSearch is free software: you can redistribute it and/or modify it under 
+ * the terms of the GNU General Public License as published by the Free Software 
+ * Foundation, either version 2 of the License, or (at your option) any later version.
+ * 
+ * TranspoloSearch is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with TranspoloSearch. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class represents a corpus of documents as TF-IDF vectors.
+ * <br/>
+ * The terms are interned only once for the whole corpus, i.e. each
+ * one is associated to an integer id. Each document is then stored
+ * as a sparse vector, i.e. an array of term ids sorted by increasing
+ * order, and the array of the corresponding weights. This allows
+ * processing the similarity between two documents through a simple
+ * merge of their arrays, without any hashing or boxing.
+ * <br/>
+ * Documents are first added through {@link #addDocument(List)}, then the
+ * weights are processed once and for all by {@link #processWeights()}.
+ * 
+ * @author Vincent Labatut
+ */
+public class TfIdfVectorizer
+{
+	/**
+	 * Builds an empty vectorizer.
+	 */
+	public TfIdfVectorizer()
+	{	//
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// TERMS			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Map associating each term to its id */
+	private final Map<String,Integer> termIds = new HashMap<String,Integer>();
+	/** Terms, indexed by their id */
+	private final List<String> terms = new ArrayList<String>();
+	/** Document frequency of each term, indexed by id */
+	private int[] df = new int[1024];
+	/** Collection frequency of each term, indexed by id */
+	private int[] cf = new int[1024];
+
+	/**
+	 * Returns the id of the specified term,
+	 * creating it if necessary.
+	 * 
+	 * @param term
+	 * 		Term of interest.
+	 * @return
+	 * 		Id of the term.
+	 */
+	private int internTerm(String term)
+	{	Integer result = termIds.get(term);
+		if(result==null)
+		{	result = terms.size();
+			termIds.put(term, result);
+			terms.add(term);
+			if(result==df.length)
+			{	df = Arrays.copyOf(df, 2*df.length);
+				cf = Arrays.copyOf(cf, 2*cf.length);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the id of the specified term.
+	 * 
+	 * @param term
+	 * 		Term of interest.
+	 * @return
+	 * 		Id of the term, or {@code -1} if it does not appear in the corpus.
+	 */
+	public int getTermId(String term)
+	{	Integer result = termIds.get(term);
+		if(result==null)
+			result = -1;
+		return result;
+	}
+
+	/**
+	 * Returns the number of distinct terms
+	 * in the corpus.
+	 * 
+	 * @return
+	 * 		Number of distinct terms.
+	 */
+	public int getTermCount()
+	{	return terms.size();
+	}
+
+	/**
+	 * Returns the term associated to the specified id.
+	 * 
+	 * @param id
+	 * 		Id of the term.
+	 * @return
+	 * 		The corresponding term.
+	 */
+	public String getTerm(int id)
+	{	return terms.get(id);
+	}
+
+	/**
+	 * Returns the number of occurrences of the specified
+	 * term in the whole corpus.
+	 * 
+	 * @param id
+	 * 		Id of the term.
+	 * @return
+	 * 		Collection frequency of the term.
+	 */
+	public int getCollectionFrequency(int id)
+	{	return cf[id];
+	}
+
+	/**
+	 * Returns the number of documents containing
+	 * the specified term.
+	 * 
+	 * @param id
+	 * 		Id of the term.
+	 * @return
+	 * 		Document frequency of the term.
+	 */
+	public int getDocumentFrequency(int id)
+	{	return df[id];
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// DOCUMENTS		/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Term ids of each document, sorted by increasing order */
+	private final List<int[]> docTerms = new ArrayList<int[]>();
+	/** Term frequencies of each document, in the order of {@link #docTerms} */
+	private final List<int[]> docCounts = new ArrayList<int[]>();
+
+	/**
+	 * Adds a new document to the corpus. The
+	 * weights must be (re)processed afterwards.
+	 * 
+	 * @param tokens
+	 * 		Sequence of tokens constituting the document.
+	 * @return
+	 * 		Index of the document in the corpus.
+	 */
+	public int addDocument(List<String> tokens)
+	{	// get the sorted term ids
+		int[] ids = new int[tokens.size()];
+		int i = 0;
+		for(String token: tokens)
+		{	ids[i] = internTerm(token);
+			i++;
+		}
+		Arrays.sort(ids);
+
+		// count the occurrences of each distinct term
+		int size = 0;
+		int[] counts = new int[ids.length];
+		for(i=0;i<ids.length;i++)
+		{	if(size>0 && ids[size-1]==ids[i])
+				counts[size-1]++;
+			else
+			{	ids[size] = ids[i];
+				counts[size] = 1;
+				size++;
+			}
+		}
+		ids = Arrays.copyOf(ids, size);
+		counts = Arrays.copyOf(counts, size);
+
+		// update the corpus frequencies
+		for(i=0;i<size;i++)
+		{	df[ids[i]]++;
+			cf[ids[i]] = cf[ids[i]] + counts[i];
+		}
+
+		int result = docTerms.size();
+		docTerms.add(ids);
+		docCounts.add(counts);
+		weights = null;
+		return result;
+	}
+
+	/**
+	 * Returns the number of documents in the corpus.
+	 * 
+	 * @return
+	 * 		Number of documents.
+	 */
+	public int getDocumentCount()
+	{	return docTerms.size();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// WEIGHTS			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** TF-IDF weights of each document, in the order of {@link #docTerms} */
+	private float[][] weights = null;
+	/** Euclidean norm of each TF-IDF vector */
+	private double[] norms = null;
+
+	/**
+	 * Processes the TF-IDF weights of all the documents, as well
+	 * as the norms of the resulting vectors. The IDF of a term is
+	 * {@code log10(n/(df+1))}, where {@code n} is the number of documents.
+	 * <br/>
+	 * This method must be called after all the documents have been added,
+	 * and before processing any similarity.
+	 */
+	public void processWeights()
+	{	int n = docTerms.size();
+
+		// inverse document frequencies
+		double[] idf = new double[terms.size()];
+		for(int t=0;t<idf.length;t++)
+			idf[t] = Math.log10(n / (df[t] + 1.0));
+
+		// weights and norms
+		weights = new float[n][];
+		norms = new double[n];
+		for(int d=0;d<n;d++)
+		{	int[] ids = docTerms.get(d);
+			int[] counts = docCounts.get(d);
+			float[] w = new float[ids.length];
+			double norm = 0;
+			for(int i=0;i<ids.length;i++)
+			{	double val = counts[i] * idf[ids[i]];
+				w[i] = (float)val;
+				norm = norm + val*val;
+			}
+			weights[d] = w;
+			norms[d] = Math.sqrt(norm);
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// SIMILARITY		/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Processes the cosine-based similarity between the two specified
+	 * documents, by merging their sorted term arrays.
+	 * <br/>
+	 * Like in the original article clustering, each shared term contributes
+	 * the geometric mean of its two weights ({@code sqrt(w1*w2)}) to the
+	 * numerator, which is then divided by the product of the vector norms.
+	 * 
+	 * @param doc1
+	 * 		Index of the first document.
+	 * @param doc2
+	 * 		Index of the second document.
+	 * @return
+	 * 		Similarity between both documents.
+	 */
+	public double processSimilarity(int doc1, int doc2)
+	{	int[] ids1 = docTerms.get(doc1);
+		int[] ids2 = docTerms.get(doc2);
+		float[] w1 = weights[doc1];
+		float[] w2 = weights[doc2];
+
+		double product = 0;
+		int i1 = 0;
+		int i2 = 0;
+		while(i1<ids1.length && i2<ids2.length)
+		{	if(ids1[i1]<ids2[i2])
+				i1++;
+			else if(ids1[i1]>ids2[i2])
+				i2++;
+			else
+			{	product = product + Math.sqrt((double)w1[i1] * w2[i2]);
+				i1++;
+				i2++;
+			}
+		}
+
+		double result = product / (norms[doc1] * norms[doc2]);
+		return result;
+	}
+
+	/**
+	 * Processes the distance between the two specified documents,
+	 * i.e. one minus their similarity (see {@link #processSimilarity(int, int)}).
+	 * 
+	 * @param doc1
+	 * 		Index of the first document.
+	 * @param doc2
+	 * 		Index of the second document.
+	 * @return
+	 * 		Distance between both documents.
+	 */
+	public double processDistance(int doc1, int doc2)
+	{	double result = 1.0 - processSimilarity(doc1, doc2);
+		return result;
+	}
+}